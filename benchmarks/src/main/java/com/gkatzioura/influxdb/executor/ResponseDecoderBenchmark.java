@@ -0,0 +1,93 @@
+/**
+ * MIT License
+ * <p>
+ * Copyright (c) 2018 Emmanouil Gkatziouras
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE
+ */
+
+package com.gkatzioura.influxdb.executor;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Decodes recorded responses of SELECT * FROM cpu GROUP BY host, 4 series of 500 rows with epoch times,
+ * which are the same rows in both formats.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ResponseDecoderBenchmark {
+
+    @Param({"JSON", "MESSAGE_PACK"})
+    ResponseFormat format;
+
+    byte[] response;
+
+    @Setup
+    public void setUp() throws IOException {
+        String fixture = format == ResponseFormat.JSON ? "/fixtures/cpu.json" : "/fixtures/cpu.msgpack";
+        try (InputStream inputStream = ResponseDecoderBenchmark.class.getResourceAsStream(fixture)) {
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = inputStream.read(buffer)) != -1) {
+                outputStream.write(buffer, 0, read);
+            }
+            response = outputStream.toByteArray();
+        }
+    }
+
+    @Benchmark
+    public void rows(Blackhole blackhole) throws IOException {
+        ResponseDecoder decoder = format.decoder(new ByteArrayInputStream(response), TimeUnit.NANOSECONDS);
+        while (decoder.next()) {
+            Row row = decoder.getRow();
+            blackhole.consume(row.getTime());
+            blackhole.consume(row.getDouble(1));
+            blackhole.consume(row.getDouble(3));
+        }
+    }
+
+    @Benchmark
+    public ColumnarResult columns() throws IOException {
+        return ColumnarResult.collect(format.decoder(new ByteArrayInputStream(response), TimeUnit.NANOSECONDS), false);
+    }
+
+}
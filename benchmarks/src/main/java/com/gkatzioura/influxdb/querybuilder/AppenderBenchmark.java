@@ -0,0 +1,89 @@
+/**
+ * MIT License
+ * <p>
+ * Copyright (c) 2018 Emmanouil Gkatziouras
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE
+ */
+
+package com.gkatzioura.influxdb.querybuilder;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AppenderBenchmark {
+
+    /**
+     * A plain identifier, one that has to be quoted and one using the bracket syntax
+     */
+    @Param({"usage_idle", "system load", "field[0]"})
+    String name;
+
+    Object function;
+
+    StringBuilder sb;
+
+    @Setup
+    public void setUp() {
+        function = QueryBuilder.fcall("PERCENTILE", QueryBuilder.column("usage_idle"), 95);
+        sb = new StringBuilder(128);
+    }
+
+    @Benchmark
+    public StringBuilder appendName() {
+        sb.setLength(0);
+        return Appender.appendName(name, sb);
+    }
+
+    @Benchmark
+    public StringBuilder appendStringValue() {
+        sb.setLength(0);
+        return Appender.appendValue(name, sb);
+    }
+
+    @Benchmark
+    public StringBuilder appendNumberValue() {
+        sb.setLength(0);
+        return Appender.appendValue(1514764800000000000L, sb);
+    }
+
+    @Benchmark
+    public StringBuilder appendFunctionValue() {
+        sb.setLength(0);
+        return Appender.appendValue(function, sb);
+    }
+
+}
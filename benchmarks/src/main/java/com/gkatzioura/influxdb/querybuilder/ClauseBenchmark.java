@@ -0,0 +1,132 @@
+/**
+ * MIT License
+ * <p>
+ * Copyright (c) 2018 Emmanouil Gkatziouras
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE
+ */
+
+package com.gkatzioura.influxdb.querybuilder;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ClauseBenchmark {
+
+    Clause stringClause;
+    Clause numberClause;
+    Clause longClause;
+    Clause instantClause;
+    Clause durationClause;
+    Clause regexClause;
+    Clause compoundClause;
+    Clause logicalClause;
+
+    StringBuilder sb;
+
+    @Setup
+    public void setUp() {
+        stringClause = QueryBuilder.eq("host", "server01");
+        numberClause = QueryBuilder.gt("usage_idle", 90.5);
+        longClause = QueryBuilder.gt("time", 1514764800000000000L);
+        instantClause = QueryBuilder.gte("time", Instant.parse("2018-01-01T10:20:30.0005Z"));
+        durationClause = QueryBuilder.lt("uptime", Duration.ofMinutes(90));
+        regexClause = QueryBuilder.regex("host", "/^server[0-9]+$/");
+        compoundClause = QueryBuilder.eq(Arrays.asList("host", "region"), Arrays.asList("server01", "us-west"));
+        logicalClause = QueryBuilder.or(QueryBuilder.and(stringClause, numberClause),
+                                        QueryBuilder.and(regexClause, QueryBuilder.or(durationClause, QueryBuilder.not(numberClause))));
+        sb = new StringBuilder(128);
+    }
+
+    @Benchmark
+    public StringBuilder stringClause() {
+        sb.setLength(0);
+        stringClause.appendTo(sb);
+        return sb;
+    }
+
+    @Benchmark
+    public StringBuilder numberClause() {
+        sb.setLength(0);
+        numberClause.appendTo(sb);
+        return sb;
+    }
+
+    @Benchmark
+    public StringBuilder longClause() {
+        sb.setLength(0);
+        longClause.appendTo(sb);
+        return sb;
+    }
+
+    @Benchmark
+    public StringBuilder instantClause() {
+        sb.setLength(0);
+        instantClause.appendTo(sb);
+        return sb;
+    }
+
+    @Benchmark
+    public StringBuilder durationClause() {
+        sb.setLength(0);
+        durationClause.appendTo(sb);
+        return sb;
+    }
+
+    @Benchmark
+    public StringBuilder regexClause() {
+        sb.setLength(0);
+        regexClause.appendTo(sb);
+        return sb;
+    }
+
+    @Benchmark
+    public StringBuilder compoundClause() {
+        sb.setLength(0);
+        compoundClause.appendTo(sb);
+        return sb;
+    }
+
+    @Benchmark
+    public StringBuilder logicalClause() {
+        sb.setLength(0);
+        logicalClause.appendTo(sb);
+        return sb;
+    }
+
+}
@@ -0,0 +1,90 @@
+/**
+ * MIT License
+ * <p>
+ * Copyright (c) 2018 Emmanouil Gkatziouras
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE
+ */
+
+package com.gkatzioura.influxdb.querybuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import static com.gkatzioura.influxdb.querybuilder.QueryBuilder.in;
+import static com.gkatzioura.influxdb.querybuilder.QueryBuilder.select;
+
+/**
+ * Builds and renders an IN predicate on host names, as OR'ed equalities or as a regular expression
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InClauseBenchmark {
+
+    public enum Rendering {
+        OR(Integer.MAX_VALUE),
+        REGEX(1);
+
+        private final int regexThreshold;
+
+        Rendering(int regexThreshold) {
+            this.regexThreshold = regexThreshold;
+        }
+    }
+
+    @Param({"4", "64", "1024"})
+    int size;
+
+    @Param({"OR", "REGEX"})
+    Rendering rendering;
+
+    List<String> hosts;
+
+    @Setup
+    public void setUp() {
+        hosts = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            hosts.add(String.format("server-%04d.eu-west-1", i));
+        }
+        System.out.println("query length " + render().length());
+    }
+
+    @Benchmark
+    public String render() {
+        return select().all().from("telegraf", "cpu").where(in("host", hosts, rendering.regexThreshold)).getQueryString();
+    }
+
+}
@@ -0,0 +1,132 @@
+/**
+ * MIT License
+ * <p>
+ * Copyright (c) 2018 Emmanouil Gkatziouras
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE
+ */
+
+package com.gkatzioura.influxdb.querybuilder;
+
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PointBenchmark {
+
+    Point point;
+
+    ByteBuffer buffer;
+
+    StringBuilder sb;
+
+    long time;
+
+    Map<String, String> tags;
+
+    SeriesTemplate template;
+
+    SeriesTemplateCache cache;
+
+    @Setup
+    public void setUp() {
+        point = new Point("cpu");
+        buffer = ByteBuffer.allocateDirect(64 * 1024);
+        sb = new StringBuilder(1024);
+        time = 1514764800000000000L;
+        tags = new HashMap<>();
+        tags.put("host", "server01");
+        tags.put("cpu", "cpu-total");
+        tags.put("region", "us west");
+        template = SeriesTemplate.of("cpu", tags);
+        cache = new SeriesTemplateCache(1024);
+    }
+
+    @Benchmark
+    public ByteBuffer writeTo() {
+        buffer.clear();
+        return fill().writeTo(buffer);
+    }
+
+    @Benchmark
+    public StringBuilder appendTo() {
+        sb.setLength(0);
+        fill().appendTo(sb);
+        return sb;
+    }
+
+    /**
+     * The series key is copied from the template instead of being escaped
+     */
+    @Benchmark
+    public ByteBuffer writeToTemplate() {
+        buffer.clear();
+        return fillFields(point.series(template)).writeTo(buffer);
+    }
+
+    /**
+     * Includes the lookup of the template by measurement and tags
+     */
+    @Benchmark
+    public ByteBuffer writeToCachedTemplate() {
+        buffer.clear();
+        return fillFields(point.series(cache.get("cpu", tags))).writeTo(buffer);
+    }
+
+    private Point fillFields(Point point) {
+        time += 10_000_000_000L;
+        return point.field("usage_idle", 92.27272727272727)
+                    .field("usage_user", 5.454545454545454)
+                    .field("processes", 412L)
+                    .field("status", "running")
+                    .time(time, TimeUnit.NANOSECONDS);
+    }
+
+    private Point fill() {
+        time += 10_000_000_000L;
+        return point.measurement("cpu")
+                    .tag("host", "server01")
+                    .tag("cpu", "cpu-total")
+                    .tag("region", "us west")
+                    .field("usage_idle", 92.27272727272727)
+                    .field("usage_user", 5.454545454545454)
+                    .field("processes", 412L)
+                    .field("status", "running")
+                    .time(time, TimeUnit.NANOSECONDS);
+    }
+
+}
@@ -0,0 +1,84 @@
+/**
+ * MIT License
+ * <p>
+ * Copyright (c) 2018 Emmanouil Gkatziouras
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE
+ */
+
+package com.gkatzioura.influxdb.querybuilder;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import static com.gkatzioura.influxdb.querybuilder.QueryBuilder.bindMarker;
+import static com.gkatzioura.influxdb.querybuilder.QueryBuilder.eq;
+import static com.gkatzioura.influxdb.querybuilder.QueryBuilder.gt;
+import static com.gkatzioura.influxdb.querybuilder.QueryBuilder.lte;
+import static com.gkatzioura.influxdb.querybuilder.QueryBuilder.select;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PreparedStatementBenchmark {
+
+    PreparedStatement prepared;
+
+    long time;
+
+    @Setup
+    public void setUp() {
+        prepared = select().mean("usage_idle").from("telegraf", "cpu")
+                           .where(eq("host", bindMarker()))
+                           .and(gt("time", bindMarker()))
+                           .and(lte("time", bindMarker()))
+                           .groupBy("region")
+                           .prepare();
+        time = 1514764800000000000L;
+    }
+
+    @Benchmark
+    public String bind() {
+        return prepared.bind("server01", time, time + 3600000000000L).getQueryString();
+    }
+
+    @Benchmark
+    public String render() {
+        return select().mean("usage_idle").from("telegraf", "cpu")
+                       .where(eq("host", "server01"))
+                       .and(gt("time", time))
+                       .and(lte("time", time + 3600000000000L))
+                       .groupBy("region")
+                       .getQueryString();
+    }
+
+}
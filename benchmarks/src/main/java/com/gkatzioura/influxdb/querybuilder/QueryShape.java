@@ -0,0 +1,80 @@
+/**
+ * MIT License
+ * <p>
+ * Copyright (c) 2018 Emmanouil Gkatziouras
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE
+ */
+
+package com.gkatzioura.influxdb.querybuilder;
+
+import static com.gkatzioura.influxdb.querybuilder.QueryBuilder.desc;
+import static com.gkatzioura.influxdb.querybuilder.QueryBuilder.eq;
+import static com.gkatzioura.influxdb.querybuilder.QueryBuilder.gt;
+import static com.gkatzioura.influxdb.querybuilder.QueryBuilder.lte;
+import static com.gkatzioura.influxdb.querybuilder.QueryBuilder.now;
+import static com.gkatzioura.influxdb.querybuilder.QueryBuilder.raw;
+import static com.gkatzioura.influxdb.querybuilder.QueryBuilder.regex;
+import static com.gkatzioura.influxdb.querybuilder.QueryBuilder.select;
+
+/**
+ * The query shapes shared by the benchmarks, from a bare SELECT * to a wide
+ * statement with a big WHERE clause.
+ */
+public enum QueryShape {
+
+    TRIVIAL {
+        @Override
+        Select create() {
+            return select().all().from("telegraf", "cpu");
+        }
+    },
+
+    SIMPLE {
+        @Override
+        Select create() {
+            return select().mean("usage_idle").from("telegraf", "cpu")
+                           .where(eq("host", "server01"))
+                           .and(gt("time", now()))
+                           .groupBy("host");
+        }
+    },
+
+    WIDE {
+        @Override
+        Select create() {
+            Select.Selection selection = select();
+            for (int i = 0; i < 32; i++) {
+                selection = selection.column("field_" + i);
+                selection = selection.max("value_" + i).as("max_" + i);
+            }
+            Select select = selection.from("telegraf", "system load");
+            Select.Where where = select.where(regex("host", "/^server[0-9]+$/"));
+            for (int i = 0; i < 32; i++) {
+                where = where.and(eq("tag_" + i, "value " + i))
+                             .and(lte("metric_" + i, i * 1000L));
+            }
+            where.and(gt("time", raw("now() - 1h")));
+            return select.groupBy("host", "region", "tag key").orderBy(desc()).limit(1000, 10);
+        }
+    };
+
+    abstract Select create();
+
+}
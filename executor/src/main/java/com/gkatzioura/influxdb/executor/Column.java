@@ -0,0 +1,304 @@
+/**
+ * MIT License
+ * <p>
+ * Copyright (c) 2018 Emmanouil Gkatziouras
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE
+ */
+
+package com.gkatzioura.influxdb.executor;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The values of a column, in a primitive buffer on or off heap.
+ * Numbers are stored as longs until a double shows up, strings are dictionary encoded.
+ * Values are accessed by absolute index, so views can share a column.
+ */
+final class Column {
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final boolean offHeap;
+    private ColumnType type;
+    private int capacity;
+
+    private LongBuffer longs;
+    private DoubleBuffer doubles;
+    private IntBuffer codes;
+    private List<String> dictionary;
+    private Map<String, Integer> dictionaryCodes;
+    private final BitSet nulls = new BitSet();
+
+    Column(boolean offHeap) {
+        this.offHeap = offHeap;
+    }
+
+    ColumnType getType() {
+        return type;
+    }
+
+    boolean isNull(int index) {
+        return nulls.get(index);
+    }
+
+    long getLong(int index) {
+        switch (type) {
+            case DOUBLE:
+                return (long) doubles.get(index);
+            case STRING:
+                throw new IllegalStateException("The column is not numeric");
+            default:
+                return longs.get(index);
+        }
+    }
+
+    double getDouble(int index) {
+        switch (type) {
+            case DOUBLE:
+                return doubles.get(index);
+            case STRING:
+                throw new IllegalStateException("The column is not numeric");
+            default:
+                return isNull(index) ? Double.NaN : longs.get(index);
+        }
+    }
+
+    boolean getBoolean(int index) {
+        if (type != ColumnType.BOOLEAN)
+            throw new IllegalStateException("The column is not boolean");
+        return longs.get(index) != 0;
+    }
+
+    String getString(int index) {
+        if (isNull(index))
+            return null;
+        switch (type) {
+            case STRING:
+                return dictionary.get(codes.get(index));
+            case BOOLEAN:
+                return Boolean.toString(longs.get(index) != 0);
+            case LONG:
+                return Long.toString(longs.get(index));
+            default:
+                return Double.toString(doubles.get(index));
+        }
+    }
+
+    LongBuffer getLongs() {
+        if (type != ColumnType.LONG && type != ColumnType.BOOLEAN)
+            throw new IllegalStateException(String.format("The column is %s", type));
+        return longs;
+    }
+
+    DoubleBuffer getDoubles() {
+        if (type != ColumnType.DOUBLE)
+            throw new IllegalStateException(String.format("The column is %s", type));
+        return doubles;
+    }
+
+    IntBuffer getCodes() {
+        if (type != ColumnType.STRING)
+            throw new IllegalStateException(String.format("The column is %s", type));
+        return codes;
+    }
+
+    List<String> getDictionary() {
+        if (type != ColumnType.STRING)
+            throw new IllegalStateException(String.format("The column is %s", type));
+        return Collections.unmodifiableList(dictionary);
+    }
+
+    /**
+     * Stores the cell of the row at the given index, which is the number of values stored so far
+     */
+    void set(int index, Row row, int column) {
+        if (column >= row.size() || row.type(column) == Row.NULL) {
+            nulls.set(index);
+            if (type == ColumnType.DOUBLE) {
+                ensureCapacity(index);
+                doubles.put(index, Double.NaN);
+            }
+            return;
+        }
+
+        byte cellType = row.type(column);
+        if (type == null) {
+            initialize(cellType);
+            ensureCapacity(index);
+            if (type == ColumnType.DOUBLE)
+                fillNulls();
+        }
+        ensureCapacity(index);
+
+        switch (type) {
+            case LONG:
+                if (cellType == Row.DOUBLE) {
+                    promote(index);
+                    doubles.put(index, row.getDouble(column));
+                } else {
+                    check(cellType, Row.LONG);
+                    longs.put(index, row.getLong(column));
+                }
+                break;
+            case DOUBLE:
+                if (cellType != Row.LONG)
+                    check(cellType, Row.DOUBLE);
+                doubles.put(index, row.getDouble(column));
+                break;
+            case BOOLEAN:
+                check(cellType, Row.BOOLEAN);
+                longs.put(index, row.getBoolean(column) ? 1 : 0);
+                break;
+            default:
+                check(cellType, Row.STRING);
+                codes.put(index, encode(row.getString(column)));
+        }
+    }
+
+    /**
+     * Releases what is only needed while values are added, a column of nulls only becomes a double column
+     */
+    void finish(int size) {
+        if (type == null) {
+            type = ColumnType.DOUBLE;
+            ensureCapacity(Math.max(size - 1, 0));
+            for (int i = 0; i < size; i++) {
+                doubles.put(i, Double.NaN);
+            }
+        } else if (size > 0) {
+            // trailing nulls are not stored, views still span them
+            ensureCapacity(size - 1);
+        }
+        dictionaryCodes = null;
+    }
+
+    private void initialize(byte cellType) {
+        switch (cellType) {
+            case Row.LONG:
+                type = ColumnType.LONG;
+                break;
+            case Row.DOUBLE:
+                type = ColumnType.DOUBLE;
+                break;
+            case Row.BOOLEAN:
+                type = ColumnType.BOOLEAN;
+                break;
+            default:
+                type = ColumnType.STRING;
+                dictionary = new ArrayList<>();
+                dictionaryCodes = new HashMap<>();
+        }
+    }
+
+    /**
+     * Nulls met before the type of the column was known are only recorded as such, they read as NaN once it is double
+     */
+    private void fillNulls() {
+        for (int i = nulls.nextSetBit(0); i >= 0; i = nulls.nextSetBit(i + 1)) {
+            doubles.put(i, Double.NaN);
+        }
+    }
+
+    private void check(byte cellType, byte expected) {
+        if (cellType != expected)
+            throw new IllegalStateException(String.format("Mixed value types in a %s column", type));
+    }
+
+    private int encode(String value) {
+        Integer code = dictionaryCodes.get(value);
+        if (code == null) {
+            code = dictionary.size();
+            dictionary.add(value);
+            dictionaryCodes.put(value, code);
+        }
+        return code;
+    }
+
+    /**
+     * JSON has no distinct integer type, a float column may start with values which look like longs
+     */
+    private void promote(int size) {
+        doubles = allocateDoubles(capacity);
+        for (int i = 0; i < size; i++) {
+            doubles.put(i, nulls.get(i) ? Double.NaN : longs.get(i));
+        }
+        longs = null;
+        type = ColumnType.DOUBLE;
+    }
+
+    private void ensureCapacity(int index) {
+        if (index < capacity)
+            return;
+
+        int grown = Math.max(INITIAL_CAPACITY, capacity);
+        while (grown <= index) {
+            grown *= 2;
+        }
+        switch (type) {
+            case DOUBLE:
+                DoubleBuffer grownDoubles = allocateDoubles(grown);
+                for (int i = 0; doubles != null && i < capacity; i++) {
+                    grownDoubles.put(i, doubles.get(i));
+                }
+                doubles = grownDoubles;
+                break;
+            case STRING:
+                IntBuffer grownCodes = allocateInts(grown);
+                for (int i = 0; codes != null && i < capacity; i++) {
+                    grownCodes.put(i, codes.get(i));
+                }
+                codes = grownCodes;
+                break;
+            default:
+                LongBuffer grownLongs = allocateLongs(grown);
+                for (int i = 0; longs != null && i < capacity; i++) {
+                    grownLongs.put(i, longs.get(i));
+                }
+                longs = grownLongs;
+        }
+        capacity = grown;
+    }
+
+    private LongBuffer allocateLongs(int capacity) {
+        return offHeap ? allocateDirect(capacity, Long.BYTES).asLongBuffer() : LongBuffer.allocate(capacity);
+    }
+
+    private DoubleBuffer allocateDoubles(int capacity) {
+        return offHeap ? allocateDirect(capacity, Double.BYTES).asDoubleBuffer() : DoubleBuffer.allocate(capacity);
+    }
+
+    private IntBuffer allocateInts(int capacity) {
+        return offHeap ? allocateDirect(capacity, Integer.BYTES).asIntBuffer() : IntBuffer.allocate(capacity);
+    }
+
+    private static ByteBuffer allocateDirect(int capacity, int bytes) {
+        return ByteBuffer.allocateDirect(capacity * bytes).order(ByteOrder.nativeOrder());
+    }
+}
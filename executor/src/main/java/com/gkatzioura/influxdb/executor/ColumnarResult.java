@@ -0,0 +1,130 @@
+/**
+ * MIT License
+ * <p>
+ * Copyright (c) 2018 Emmanouil Gkatziouras
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE
+ */
+
+package com.gkatzioura.influxdb.executor;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A whole query result held by column, one {@link ColumnarSeries} per series of each statement.
+ * The columns are those of the response, named after the selection of the statement including aliases.
+ */
+public final class ColumnarResult {
+
+    private final List<ColumnarSeries> series;
+
+    private ColumnarResult(List<ColumnarSeries> series) {
+        this.series = Collections.unmodifiableList(series);
+    }
+
+    /**
+     * @param precision the precision of the times, which should match the epoch of the query
+     * @param offHeap whether the columns are stored in direct buffers
+     * @return a handler for {@link QueryExecutor#execute}
+     */
+    public static ResponseHandler<ColumnarResult> handler(TimeUnit precision, boolean offHeap) {
+        return body -> collect(new JsonResponseDecoder(body, precision), offHeap);
+    }
+
+    /**
+     * Stores the rows of the decoder by column, rows of a series split across chunks end up in the same series
+     * @param decoder
+     * @param offHeap whether the columns are stored in direct buffers
+     * @return
+     * @throws IOException
+     */
+    public static ColumnarResult collect(ResponseDecoder decoder, boolean offHeap) throws IOException {
+        Map<SeriesKey, ColumnarSeries> series = new LinkedHashMap<>();
+        List<String> currentColumns = null;
+        ColumnarSeries current = null;
+
+        while (decoder.next()) {
+            Row row = decoder.getRow();
+            if (row.getColumns() != currentColumns) {
+                currentColumns = row.getColumns();
+                current = series.computeIfAbsent(new SeriesKey(row), key -> new ColumnarSeries(row, offHeap));
+            }
+            current.append(row);
+        }
+
+        for (ColumnarSeries columnarSeries : series.values()) {
+            columnarSeries.finish();
+        }
+        return new ColumnarResult(new ArrayList<>(series.values()));
+    }
+
+    public List<ColumnarSeries> getSeries() {
+        return series;
+    }
+
+    /**
+     * @param name
+     * @return the first series with the name
+     */
+    public ColumnarSeries getSeries(String name) {
+        for (ColumnarSeries columnarSeries : series) {
+            if (Objects.equals(name, columnarSeries.getName()))
+                return columnarSeries;
+        }
+        throw new IllegalArgumentException(String.format("No series %s in the result", name));
+    }
+
+    private static final class SeriesKey {
+
+        private final int statementId;
+        private final String name;
+        private final Map<String, String> tags;
+        private final List<String> columns;
+
+        private SeriesKey(Row row) {
+            this.statementId = row.getStatementId();
+            this.name = row.getSeriesName();
+            this.tags = row.getTags();
+            this.columns = row.getColumns();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o)
+                return true;
+            if (!(o instanceof SeriesKey))
+                return false;
+            SeriesKey that = (SeriesKey) o;
+            return statementId == that.statementId && Objects.equals(name, that.name)
+                    && tags.equals(that.tags) && columns.equals(that.columns);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(statementId, name, tags, columns);
+        }
+    }
+}
@@ -0,0 +1,267 @@
+/**
+ * MIT License
+ * <p>
+ * Copyright (c) 2018 Emmanouil Gkatziouras
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE
+ */
+
+package com.gkatzioura.influxdb.executor;
+
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The rows of a series stored by column, the time column in a long buffer and the other columns in
+ * long, double or dictionary encoded buffers. On heap the buffers are backed by arrays.
+ * Null numeric values read as 0 from long columns and NaN from double columns, {@link #isNull(int, int)} tells them apart.
+ * Slices share the buffers of the series they are taken from.
+ */
+public final class ColumnarSeries {
+
+    private final int statementId;
+    private final String name;
+    private final Map<String, String> tags;
+    private final List<String> columns;
+    private final TimeUnit precision;
+    private final Column[] values;
+    private final int timeColumn;
+    private final int offset;
+    private int size;
+    private boolean descending;
+
+    ColumnarSeries(Row row, boolean offHeap) {
+        this.statementId = row.getStatementId();
+        this.name = row.getSeriesName();
+        this.tags = row.getTags();
+        this.columns = row.getColumns();
+        this.precision = row.getPrecision();
+        this.timeColumn = row.getTimeColumn();
+        this.values = new Column[columns.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = new Column(offHeap);
+        }
+        this.offset = 0;
+    }
+
+    private ColumnarSeries(ColumnarSeries series, int offset, int size) {
+        this.statementId = series.statementId;
+        this.name = series.name;
+        this.tags = series.tags;
+        this.columns = series.columns;
+        this.precision = series.precision;
+        this.values = series.values;
+        this.timeColumn = series.timeColumn;
+        this.descending = series.descending;
+        this.offset = offset;
+        this.size = size;
+    }
+
+    public int getStatementId() {
+        return statementId;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Map<String, String> getTags() {
+        return tags;
+    }
+
+    public List<String> getColumns() {
+        return columns;
+    }
+
+    public int getColumnIndex(String column) {
+        return columns.indexOf(column);
+    }
+
+    public ColumnType getType(int column) {
+        return values[column].getType();
+    }
+
+    /**
+     * @return the unit of the times
+     */
+    public TimeUnit getPrecision() {
+        return precision;
+    }
+
+    /**
+     * @return the number of rows
+     */
+    public int size() {
+        return size;
+    }
+
+    public long getTime(int row) {
+        return timeColumn().getLong(index(row));
+    }
+
+    /**
+     * @return the times of the rows, a view sharing the storage of the series
+     */
+    public LongBuffer getTimes() {
+        return getLongs(checkTimeColumn());
+    }
+
+    public boolean isNull(int column, int row) {
+        return values[column].isNull(index(row));
+    }
+
+    public long getLong(int column, int row) {
+        return values[column].getLong(index(row));
+    }
+
+    public double getDouble(int column, int row) {
+        return values[column].getDouble(index(row));
+    }
+
+    public boolean getBoolean(int column, int row) {
+        return values[column].getBoolean(index(row));
+    }
+
+    public String getString(int column, int row) {
+        return values[column].getString(index(row));
+    }
+
+    /**
+     * @return the values of a long or boolean column, a view sharing the storage of the series
+     */
+    public LongBuffer getLongs(int column) {
+        LongBuffer longs = values[column].getLongs().duplicate();
+        longs.limit(offset + size);
+        longs.position(offset);
+        return longs.slice();
+    }
+
+    /**
+     * @return the values of a double column, a view sharing the storage of the series
+     */
+    public DoubleBuffer getDoubles(int column) {
+        DoubleBuffer doubles = values[column].getDoubles().duplicate();
+        doubles.limit(offset + size);
+        doubles.position(offset);
+        return doubles.slice();
+    }
+
+    /**
+     * @return the codes of a string column in its dictionary, a view sharing the storage of the series
+     */
+    public IntBuffer getCodes(int column) {
+        IntBuffer codes = values[column].getCodes().duplicate();
+        codes.limit(offset + size);
+        codes.position(offset);
+        return codes.slice();
+    }
+
+    /**
+     * @return the distinct values of a string column, indexed by their code
+     */
+    public List<String> getDictionary(int column) {
+        return values[column].getDictionary();
+    }
+
+    /**
+     * Rows are in time order, ascending or descending, so the range is found by binary search
+     * @param from inclusive, in the precision of the series
+     * @param to exclusive, in the precision of the series
+     * @return the rows within the time range, sharing the storage of the series
+     */
+    public ColumnarSeries slice(long from, long to) {
+        checkTimeColumn();
+        if (from >= to)
+            return new ColumnarSeries(this, offset, 0);
+
+        int start;
+        int end;
+        if (descending) {
+            start = firstBelow(to);
+            end = firstBelow(from);
+        } else {
+            start = firstAtLeast(from);
+            end = firstAtLeast(to);
+        }
+        return new ColumnarSeries(this, offset + start, end - start);
+    }
+
+    void append(Row row) {
+        int index = offset + size;
+        for (int i = 0; i < values.length; i++) {
+            values[i].set(index, row, i);
+        }
+        size++;
+    }
+
+    void finish() {
+        for (Column column : values) {
+            column.finish(size);
+        }
+        descending = timeColumn >= 0 && size > 1 && getTime(0) > getTime(size - 1);
+    }
+
+    private int firstAtLeast(long time) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (getTime(middle) < time) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private int firstBelow(long time) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (getTime(middle) >= time) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private int checkTimeColumn() {
+        if (timeColumn < 0)
+            throw new IllegalStateException("The series has no time column");
+        return timeColumn;
+    }
+
+    private Column timeColumn() {
+        return values[checkTimeColumn()];
+    }
+
+    private int index(int row) {
+        if (row < 0 || row >= size)
+            throw new IndexOutOfBoundsException(String.format("Row %d out of %d rows", row, size));
+        return offset + row;
+    }
+}
@@ -0,0 +1,385 @@
+/**
+ * MIT License
+ * <p>
+ * Copyright (c) 2018 Emmanouil Gkatziouras
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE
+ */
+
+package com.gkatzioura.influxdb.executor;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * A pull tokenizer over UTF-8 encoded JSON, reading from a fixed buffer.
+ * Strings are decoded into a reused builder and numbers into primitive fields.
+ */
+class JsonReader {
+
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10,
+            1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    private final InputStream inputStream;
+    private final byte[] buffer;
+    private int position;
+    private int limit;
+
+    private final StringBuilder string = new StringBuilder();
+    private boolean integer;
+    private long longValue;
+    private double doubleValue;
+
+    JsonReader(InputStream inputStream) {
+        this(inputStream, 8192);
+    }
+
+    JsonReader(InputStream inputStream, int bufferSize) {
+        this.inputStream = inputStream;
+        this.buffer = new byte[bufferSize];
+    }
+
+    /**
+     * @return the next character that is not whitespace without consuming it, -1 at the end of the input
+     */
+    int peek() throws IOException {
+        while (true) {
+            if (position == limit && !fill())
+                return -1;
+            int b = buffer[position];
+            if (b == ' ' || b == '\n' || b == '\r' || b == '\t') {
+                position++;
+            } else {
+                return b;
+            }
+        }
+    }
+
+    int next() throws IOException {
+        int b = peek();
+        if (b != -1)
+            position++;
+        return b;
+    }
+
+    void expect(char expected) throws IOException {
+        int b = next();
+        if (b != expected)
+            throw syntaxError("Expected '" + expected + "'");
+    }
+
+    /**
+     * Consumes the character if it comes next
+     */
+    boolean consume(char expected) throws IOException {
+        if (peek() == expected) {
+            position++;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * @return the decoded string, valid until the next string is read
+     */
+    StringBuilder readString() throws IOException {
+        expect('"');
+        string.setLength(0);
+        while (true) {
+            int b = readByte();
+            if (b == '"') {
+                return string;
+            } else if (b == '\\') {
+                readEscape();
+            } else if (b >= 0) {
+                string.append((char) b);
+            } else {
+                readMultiByte(b);
+            }
+        }
+    }
+
+    /**
+     * Reads a number, available through {@link #isInteger()}, {@link #getLong()} and {@link #getDouble()}
+     */
+    void readNumber() throws IOException {
+        peek();
+        boolean negative = consumeByte('-');
+        long mantissa = 0;
+        int digits = 0;
+        int exponent = 0;
+        boolean overflow = false;
+
+        string.setLength(0);
+        if (negative)
+            string.append('-');
+
+        int b;
+        while ((b = peekByte()) >= '0' && b <= '9') {
+            position++;
+            string.append((char) b);
+            if (digits < 18) {
+                mantissa = mantissa * 10 + (b - '0');
+                if (mantissa != 0)
+                    digits++;
+            } else {
+                overflow = true;
+                exponent++;
+            }
+        }
+        if (string.length() == (negative ? 1 : 0))
+            throw syntaxError("Expected a number");
+
+        integer = true;
+        if (b == '.') {
+            integer = false;
+            position++;
+            string.append('.');
+            while ((b = peekByte()) >= '0' && b <= '9') {
+                position++;
+                string.append((char) b);
+                if (digits < 18) {
+                    mantissa = mantissa * 10 + (b - '0');
+                    exponent--;
+                    if (mantissa != 0)
+                        digits++;
+                } else {
+                    overflow = true;
+                }
+            }
+        }
+        if (b == 'e' || b == 'E') {
+            integer = false;
+            position++;
+            string.append('e');
+            boolean negativeExponent = consumeByte('-');
+            if (negativeExponent) {
+                string.append('-');
+            } else {
+                consumeByte('+');
+            }
+            int value = 0;
+            while ((b = peekByte()) >= '0' && b <= '9') {
+                position++;
+                string.append((char) b);
+                value = Math.min(value * 10 + (b - '0'), 100000);
+            }
+            exponent += negativeExponent ? -value : value;
+        }
+
+        if (integer && !overflow) {
+            longValue = negative ? -mantissa : mantissa;
+            doubleValue = longValue;
+        } else if (integer) {
+            String text = string.toString();
+            try {
+                longValue = Long.parseLong(text);
+                doubleValue = longValue;
+            } catch (NumberFormatException e) {
+                integer = false;
+                doubleValue = Double.parseDouble(text);
+            }
+        } else if (!overflow && digits <= 15 && exponent >= -22 && exponent <= 22) {
+            // both the mantissa and the power of ten are exact doubles, a single operation rounds correctly
+            double value = exponent < 0 ? mantissa / POWERS_OF_TEN[-exponent] : mantissa * POWERS_OF_TEN[exponent];
+            doubleValue = negative ? -value : value;
+        } else {
+            doubleValue = Double.parseDouble(string.toString());
+        }
+    }
+
+    boolean isInteger() {
+        return integer;
+    }
+
+    long getLong() {
+        return longValue;
+    }
+
+    double getDouble() {
+        return doubleValue;
+    }
+
+    /**
+     * Reads true or false
+     */
+    boolean readBoolean() throws IOException {
+        int b = peek();
+        if (b == 't') {
+            readLiteral("true");
+            return true;
+        } else if (b == 'f') {
+            readLiteral("false");
+            return false;
+        }
+        throw syntaxError("Expected a boolean");
+    }
+
+    void readNull() throws IOException {
+        peek();
+        readLiteral("null");
+    }
+
+    /**
+     * Skips the next value, whatever its type
+     */
+    void skipValue() throws IOException {
+        int b = peek();
+        switch (b) {
+            case '{':
+                position++;
+                if (!consume('}')) {
+                    do {
+                        readString();
+                        expect(':');
+                        skipValue();
+                    } while (consume(','));
+                    expect('}');
+                }
+                break;
+            case '[':
+                position++;
+                if (!consume(']')) {
+                    do {
+                        skipValue();
+                    } while (consume(','));
+                    expect(']');
+                }
+                break;
+            case '"':
+                readString();
+                break;
+            case 't':
+            case 'f':
+                readBoolean();
+                break;
+            case 'n':
+                readNull();
+                break;
+            default:
+                readNumber();
+        }
+    }
+
+    IOException syntaxError(String message) {
+        return new IOException(message + " in the response");
+    }
+
+    private void readLiteral(String literal) throws IOException {
+        for (int i = 0; i < literal.length(); i++) {
+            if (readByte() != literal.charAt(i))
+                throw syntaxError("Expected " + literal);
+        }
+    }
+
+    private void readEscape() throws IOException {
+        int b = readByte();
+        switch (b) {
+            case '"':
+            case '\\':
+            case '/':
+                string.append((char) b);
+                break;
+            case 'b':
+                string.append('\b');
+                break;
+            case 'f':
+                string.append('\f');
+                break;
+            case 'n':
+                string.append('\n');
+                break;
+            case 'r':
+                string.append('\r');
+                break;
+            case 't':
+                string.append('\t');
+                break;
+            case 'u':
+                int value = 0;
+                for (int i = 0; i < 4; i++) {
+                    int digit = Character.digit(readByte(), 16);
+                    if (digit < 0)
+                        throw syntaxError("Invalid unicode escape");
+                    value = value << 4 | digit;
+                }
+                string.append((char) value);
+                break;
+            default:
+                throw syntaxError("Invalid escape");
+        }
+    }
+
+    private void readMultiByte(int lead) throws IOException {
+        int codePoint;
+        int continuation;
+        if ((lead & 0xE0) == 0xC0) {
+            codePoint = lead & 0x1F;
+            continuation = 1;
+        } else if ((lead & 0xF0) == 0xE0) {
+            codePoint = lead & 0x0F;
+            continuation = 2;
+        } else if ((lead & 0xF8) == 0xF0) {
+            codePoint = lead & 0x07;
+            continuation = 3;
+        } else {
+            throw syntaxError("Invalid UTF-8");
+        }
+        for (int i = 0; i < continuation; i++) {
+            int b = readByte();
+            if ((b & 0xC0) != 0x80)
+                throw syntaxError("Invalid UTF-8");
+            codePoint = codePoint << 6 | (b & 0x3F);
+        }
+        string.appendCodePoint(codePoint);
+    }
+
+    private int readByte() throws IOException {
+        if (position == limit && !fill())
+            throw syntaxError("Unexpected end");
+        return buffer[position++];
+    }
+
+    private int peekByte() throws IOException {
+        if (position == limit && !fill())
+            return -1;
+        return buffer[position];
+    }
+
+    private boolean consumeByte(char expected) throws IOException {
+        if (peekByte() == expected) {
+            position++;
+            return true;
+        }
+        return false;
+    }
+
+    private boolean fill() throws IOException {
+        int read = inputStream.read(buffer, 0, buffer.length);
+        if (read <= 0) {
+            position = limit = 0;
+            return false;
+        }
+        position = 0;
+        limit = read;
+        return true;
+    }
+}
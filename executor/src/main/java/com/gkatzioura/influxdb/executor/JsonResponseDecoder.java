@@ -0,0 +1,258 @@
+/**
+ * MIT License
+ * <p>
+ * Copyright (c) 2018 Emmanouil Gkatziouras
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE
+ */
+
+package com.gkatzioura.influxdb.executor;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decodes the JSON responses of the /query endpoint, one row at a time, without reading the body in memory.
+ * Chunked responses, a sequence of JSON objects, are decoded as a single response.
+ * Times are handed as longs in the given precision, whether they have been sent as epoch values
+ * (the epoch parameter of the query) or as RFC3339 strings.
+ */
+public class JsonResponseDecoder implements ResponseDecoder {
+
+    private enum State {
+        RESPONSE, RESPONSE_OBJECT, RESULTS, RESULT, SERIES, SERIE, VALUES
+    }
+
+    private final JsonReader reader;
+    private final Row row;
+    private State state = State.RESPONSE;
+    /**
+     * Whether the next member or element is the first of its object or array, no comma precedes it
+     */
+    private boolean first;
+
+    public JsonResponseDecoder(InputStream inputStream, TimeUnit precision) {
+        this.reader = new JsonReader(inputStream);
+        this.row = new Row(precision);
+    }
+
+    /**
+     * @param precision the precision of the times, which should match the epoch of the query
+     * @param rowHandler
+     * @return a handler for {@link QueryExecutor#execute} returning the number of rows
+     */
+    public static ResponseHandler<Long> handler(TimeUnit precision, RowHandler rowHandler) {
+        return body -> ResponseDecoder.decode(new JsonResponseDecoder(body, precision), rowHandler);
+    }
+
+    @Override
+    public Row getRow() {
+        return row;
+    }
+
+    @Override
+    public boolean next() throws IOException {
+        while (true) {
+            switch (state) {
+                case RESPONSE:
+                    if (reader.peek() == -1)
+                        return false;
+                    reader.expect('{');
+                    state = enter(State.RESPONSE_OBJECT);
+                    break;
+                case RESPONSE_OBJECT:
+                    if (endOfObject(State.RESPONSE))
+                        break;
+                    CharSequence responseKey = readKey();
+                    if (equals("results", responseKey)) {
+                        reader.expect('[');
+                        state = enter(State.RESULTS);
+                    } else if (equals("error", responseKey)) {
+                        throw new QueryExecutionException(200, reader.readString().toString());
+                    } else {
+                        reader.skipValue();
+                    }
+                    break;
+                case RESULTS:
+                    if (endOfArray(State.RESPONSE_OBJECT))
+                        break;
+                    reader.expect('{');
+                    row.startResult(0);
+                    state = enter(State.RESULT);
+                    break;
+                case RESULT:
+                    if (endOfObject(State.RESULTS))
+                        break;
+                    CharSequence resultKey = readKey();
+                    if (equals("statement_id", resultKey)) {
+                        reader.readNumber();
+                        row.startResult((int) reader.getLong());
+                    } else if (equals("series", resultKey)) {
+                        reader.expect('[');
+                        state = enter(State.SERIES);
+                    } else if (equals("error", resultKey)) {
+                        throw new QueryExecutionException(200, reader.readString().toString());
+                    } else {
+                        reader.skipValue();
+                    }
+                    break;
+                case SERIES:
+                    if (endOfArray(State.RESULT))
+                        break;
+                    reader.expect('{');
+                    row.startSeries();
+                    state = enter(State.SERIE);
+                    break;
+                case SERIE:
+                    if (endOfObject(State.SERIES))
+                        break;
+                    CharSequence serieKey = readKey();
+                    if (equals("name", serieKey)) {
+                        row.setSeriesName(reader.readString().toString());
+                    } else if (equals("tags", serieKey)) {
+                        row.setTags(readTags());
+                    } else if (equals("columns", serieKey)) {
+                        row.setColumns(readColumns());
+                    } else if (equals("values", serieKey)) {
+                        reader.expect('[');
+                        state = enter(State.VALUES);
+                    } else {
+                        reader.skipValue();
+                    }
+                    break;
+                case VALUES:
+                    if (endOfArray(State.SERIE))
+                        break;
+                    reader.expect('[');
+                    readRow();
+                    first = false;
+                    return true;
+            }
+        }
+    }
+
+    private State enter(State state) {
+        first = true;
+        return state;
+    }
+
+    private boolean endOfObject(State parent) throws IOException {
+        return end('}', parent);
+    }
+
+    private boolean endOfArray(State parent) throws IOException {
+        return end(']', parent);
+    }
+
+    private boolean end(char closing, State parent) throws IOException {
+        if (reader.consume(closing)) {
+            state = parent;
+            first = false;
+            return true;
+        }
+        if (!first)
+            reader.expect(',');
+        return false;
+    }
+
+    private CharSequence readKey() throws IOException {
+        CharSequence key = reader.readString();
+        reader.expect(':');
+        first = false;
+        return key;
+    }
+
+    private Map<String, String> readTags() throws IOException {
+        Map<String, String> tags = new HashMap<>();
+        reader.expect('{');
+        if (!reader.consume('}')) {
+            do {
+                String key = reader.readString().toString();
+                reader.expect(':');
+                if (reader.peek() == 'n') {
+                    reader.readNull();
+                    tags.put(key, "");
+                } else {
+                    tags.put(key, reader.readString().toString());
+                }
+            } while (reader.consume(','));
+            reader.expect('}');
+        }
+        return tags;
+    }
+
+    private List<String> readColumns() throws IOException {
+        List<String> columns = new ArrayList<>();
+        reader.expect('[');
+        if (!reader.consume(']')) {
+            do {
+                columns.add(reader.readString().toString());
+            } while (reader.consume(','));
+            reader.expect(']');
+        }
+        return columns;
+    }
+
+    private void readRow() throws IOException {
+        row.clear();
+        int timeColumn = row.getTimeColumn();
+        if (reader.consume(']'))
+            return;
+
+        int column = 0;
+        do {
+            switch (reader.peek()) {
+                case '"':
+                    CharSequence value = reader.readString();
+                    if (column == timeColumn) {
+                        row.addLong(Timestamps.parse(value, row.getPrecision()));
+                    } else {
+                        row.addString(value.toString());
+                    }
+                    break;
+                case 'n':
+                    reader.readNull();
+                    row.addNull();
+                    break;
+                case 't':
+                case 'f':
+                    row.addBoolean(reader.readBoolean());
+                    break;
+                default:
+                    reader.readNumber();
+                    if (reader.isInteger()) {
+                        row.addLong(reader.getLong());
+                    } else {
+                        row.addDouble(reader.getDouble());
+                    }
+            }
+            column++;
+        } while (reader.consume(','));
+        reader.expect(']');
+    }
+
+    private static boolean equals(String expected, CharSequence actual) {
+        return expected.contentEquals(actual);
+    }
+}
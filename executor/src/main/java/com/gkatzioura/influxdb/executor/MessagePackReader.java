@@ -0,0 +1,330 @@
+/**
+ * MIT License
+ * <p>
+ * Copyright (c) 2018 Emmanouil Gkatziouras
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE
+ */
+
+package com.gkatzioura.influxdb.executor;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * A pull reader over MessagePack, reading from a fixed buffer.
+ * Strings are decoded into a reused builder, numbers are returned as primitives.
+ */
+class MessagePackReader {
+
+    static final int NIL = 0xc0;
+    static final int FALSE = 0xc2;
+    static final int TRUE = 0xc3;
+    static final int FLOAT32 = 0xca;
+    static final int FLOAT64 = 0xcb;
+
+    private final InputStream inputStream;
+    private final byte[] buffer;
+    private int position;
+    private int limit;
+
+    private final StringBuilder string = new StringBuilder();
+    private int extensionType;
+
+    MessagePackReader(InputStream inputStream) {
+        this.inputStream = inputStream;
+        this.buffer = new byte[8192];
+    }
+
+    /**
+     * @return the format byte of the next value without consuming it, -1 at the end of the input
+     */
+    int peekFormat() throws IOException {
+        if (position == limit && !fill())
+            return -1;
+        return buffer[position] & 0xff;
+    }
+
+    static boolean isInteger(int format) {
+        return format <= 0x7f || format >= 0xe0 || (format >= 0xcc && format <= 0xd3);
+    }
+
+    static boolean isString(int format) {
+        return (format >= 0xa0 && format <= 0xbf) || (format >= 0xd9 && format <= 0xdb);
+    }
+
+    static boolean isExtension(int format) {
+        return (format >= 0xc7 && format <= 0xc9) || (format >= 0xd4 && format <= 0xd8);
+    }
+
+    int readMapHeader() throws IOException {
+        int format = readByte();
+        if (format >= 0x80 && format <= 0x8f)
+            return format & 0x0f;
+        if (format == 0xde)
+            return readShort();
+        if (format == 0xdf)
+            return readLength();
+        throw formatError("a map", format);
+    }
+
+    int readArrayHeader() throws IOException {
+        int format = readByte();
+        if (format >= 0x90 && format <= 0x9f)
+            return format & 0x0f;
+        if (format == 0xdc)
+            return readShort();
+        if (format == 0xdd)
+            return readLength();
+        throw formatError("an array", format);
+    }
+
+    /**
+     * @return the decoded string, valid until the next string is read
+     */
+    StringBuilder readString() throws IOException {
+        int format = readByte();
+        int length;
+        if (format >= 0xa0 && format <= 0xbf) {
+            length = format & 0x1f;
+        } else if (format == 0xd9) {
+            length = readByte();
+        } else if (format == 0xda) {
+            length = readShort();
+        } else if (format == 0xdb) {
+            length = readLength();
+        } else {
+            throw formatError("a string", format);
+        }
+
+        string.setLength(0);
+        for (int i = 0; i < length; i++) {
+            int b = readByte();
+            if (b < 0x80) {
+                string.append((char) b);
+                continue;
+            }
+
+            int codePoint;
+            int continuation;
+            if ((b & 0xe0) == 0xc0) {
+                codePoint = b & 0x1f;
+                continuation = 1;
+            } else if ((b & 0xf0) == 0xe0) {
+                codePoint = b & 0x0f;
+                continuation = 2;
+            } else if ((b & 0xf8) == 0xf0) {
+                codePoint = b & 0x07;
+                continuation = 3;
+            } else {
+                throw syntaxError("Invalid UTF-8");
+            }
+            for (int j = 0; j < continuation; j++) {
+                int next = readByte();
+                if ((next & 0xc0) != 0x80)
+                    throw syntaxError("Invalid UTF-8");
+                codePoint = codePoint << 6 | (next & 0x3f);
+            }
+            i += continuation;
+            string.appendCodePoint(codePoint);
+        }
+        return string;
+    }
+
+    long readLong() throws IOException {
+        int format = readByte();
+        if (format <= 0x7f)
+            return format;
+        if (format >= 0xe0)
+            return (byte) format;
+        switch (format) {
+            case 0xcc:
+                return readByte();
+            case 0xcd:
+                return readShort();
+            case 0xce:
+                return readInt() & 0xffffffffL;
+            case 0xcf:
+                // unsigned values above Long.MAX_VALUE wrap around
+                return readLong64();
+            case 0xd0:
+                return (byte) readByte();
+            case 0xd1:
+                return (short) readShort();
+            case 0xd2:
+                return readInt();
+            case 0xd3:
+                return readLong64();
+            default:
+                throw formatError("an integer", format);
+        }
+    }
+
+    double readDouble() throws IOException {
+        int format = readByte();
+        if (format == FLOAT64)
+            return Double.longBitsToDouble(readLong64());
+        if (format == FLOAT32)
+            return Float.intBitsToFloat(readInt());
+        throw formatError("a float", format);
+    }
+
+    boolean readBoolean() throws IOException {
+        int format = readByte();
+        if (format == TRUE)
+            return true;
+        if (format == FALSE)
+            return false;
+        throw formatError("a boolean", format);
+    }
+
+    void readNil() throws IOException {
+        int format = readByte();
+        if (format != NIL)
+            throw formatError("nil", format);
+    }
+
+    /**
+     * Reads the header of an extension, the type is available through {@link #getExtensionType()}
+     * @return the length of the data that follows
+     */
+    int readExtensionHeader() throws IOException {
+        int format = readByte();
+        int length;
+        switch (format) {
+            case 0xd4:
+                length = 1;
+                break;
+            case 0xd5:
+                length = 2;
+                break;
+            case 0xd6:
+                length = 4;
+                break;
+            case 0xd7:
+                length = 8;
+                break;
+            case 0xd8:
+                length = 16;
+                break;
+            case 0xc7:
+                length = readByte();
+                break;
+            case 0xc8:
+                length = readShort();
+                break;
+            case 0xc9:
+                length = readLength();
+                break;
+            default:
+                throw formatError("an extension", format);
+        }
+        extensionType = (byte) readByte();
+        return length;
+    }
+
+    int getExtensionType() {
+        return extensionType;
+    }
+
+    int readInt() throws IOException {
+        return readShort() << 16 | readShort();
+    }
+
+    long readLong64() throws IOException {
+        return (long) readInt() << 32 | (readInt() & 0xffffffffL);
+    }
+
+    void skip(int length) throws IOException {
+        for (int i = 0; i < length; i++) {
+            readByte();
+        }
+    }
+
+    /**
+     * Skips the next value, whatever its type
+     */
+    void skipValue() throws IOException {
+        int format = peekFormat();
+        if (format == -1)
+            throw syntaxError("Unexpected end");
+
+        if (isInteger(format)) {
+            readLong();
+        } else if (isString(format)) {
+            readString();
+        } else if ((format >= 0x80 && format <= 0x8f) || format == 0xde || format == 0xdf) {
+            int entries = readMapHeader();
+            for (int i = 0; i < entries * 2; i++) {
+                skipValue();
+            }
+        } else if ((format >= 0x90 && format <= 0x9f) || format == 0xdc || format == 0xdd) {
+            int elements = readArrayHeader();
+            for (int i = 0; i < elements; i++) {
+                skipValue();
+            }
+        } else if (isExtension(format)) {
+            skip(readExtensionHeader());
+        } else if (format == FLOAT32 || format == FLOAT64) {
+            readDouble();
+        } else if (format >= 0xc4 && format <= 0xc6) {
+            readByte();
+            int length = format == 0xc4 ? readByte() : format == 0xc5 ? readShort() : readLength();
+            skip(length);
+        } else {
+            readByte();
+        }
+    }
+
+    IOException syntaxError(String message) {
+        return new IOException(message + " in the response");
+    }
+
+    private IOException formatError(String expected, int format) {
+        return syntaxError(String.format("Expected %s, found format 0x%02x", expected, format));
+    }
+
+    private int readByte() throws IOException {
+        if (position == limit && !fill())
+            throw syntaxError("Unexpected end");
+        return buffer[position++] & 0xff;
+    }
+
+    private int readShort() throws IOException {
+        return readByte() << 8 | readByte();
+    }
+
+    private int readLength() throws IOException {
+        int length = readInt();
+        if (length < 0)
+            throw syntaxError("Unsupported length");
+        return length;
+    }
+
+    private boolean fill() throws IOException {
+        int read = inputStream.read(buffer, 0, buffer.length);
+        if (read <= 0) {
+            position = limit = 0;
+            return false;
+        }
+        position = 0;
+        limit = read;
+        return true;
+    }
+}
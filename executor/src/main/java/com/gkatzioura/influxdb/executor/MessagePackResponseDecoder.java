@@ -0,0 +1,254 @@
+/**
+ * MIT License
+ * <p>
+ * Copyright (c) 2018 Emmanouil Gkatziouras
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE
+ */
+
+package com.gkatzioura.influxdb.executor;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decodes the MessagePack responses of the /query endpoint (application/x-msgpack), one row at a time,
+ * into the same rows as {@link JsonResponseDecoder}.
+ * Without the epoch parameter InfluxDB sends times as timestamp extensions, which are converted to the given precision.
+ */
+public class MessagePackResponseDecoder implements ResponseDecoder {
+
+    /**
+     * The time extension of the Go library InfluxDB encodes with, seconds then nanoseconds
+     */
+    private static final int TIME_EXTENSION = 5;
+    /**
+     * The timestamp extension of the MessagePack specification
+     */
+    private static final int TIMESTAMP_EXTENSION = -1;
+
+    private enum State {
+        RESPONSE, RESPONSE_OBJECT, RESULTS, RESULT, SERIES, SERIE, VALUES
+    }
+
+    private final MessagePackReader reader;
+    private final Row row;
+    private State state = State.RESPONSE;
+
+    private int responseEntries;
+    private int results;
+    private int resultEntries;
+    private int series;
+    private int serieEntries;
+    private int values;
+
+    public MessagePackResponseDecoder(InputStream inputStream, TimeUnit precision) {
+        this.reader = new MessagePackReader(inputStream);
+        this.row = new Row(precision);
+    }
+
+    /**
+     * @param precision the precision of the times, which should match the epoch of the query
+     * @param rowHandler
+     * @return a handler for {@link QueryExecutor#execute} returning the number of rows
+     */
+    public static ResponseHandler<Long> handler(TimeUnit precision, RowHandler rowHandler) {
+        return body -> ResponseDecoder.decode(new MessagePackResponseDecoder(body, precision), rowHandler);
+    }
+
+    @Override
+    public Row getRow() {
+        return row;
+    }
+
+    @Override
+    public boolean next() throws IOException {
+        while (true) {
+            switch (state) {
+                case RESPONSE:
+                    if (reader.peekFormat() == -1)
+                        return false;
+                    responseEntries = reader.readMapHeader();
+                    state = State.RESPONSE_OBJECT;
+                    break;
+                case RESPONSE_OBJECT:
+                    if (responseEntries-- == 0) {
+                        state = State.RESPONSE;
+                        break;
+                    }
+                    CharSequence responseKey = reader.readString();
+                    if (equals("results", responseKey)) {
+                        results = reader.readArrayHeader();
+                        state = State.RESULTS;
+                    } else if (equals("error", responseKey)) {
+                        throw new QueryExecutionException(200, reader.readString().toString());
+                    } else {
+                        reader.skipValue();
+                    }
+                    break;
+                case RESULTS:
+                    if (results-- == 0) {
+                        state = State.RESPONSE_OBJECT;
+                        break;
+                    }
+                    resultEntries = reader.readMapHeader();
+                    row.startResult(0);
+                    state = State.RESULT;
+                    break;
+                case RESULT:
+                    if (resultEntries-- == 0) {
+                        state = State.RESULTS;
+                        break;
+                    }
+                    CharSequence resultKey = reader.readString();
+                    if (equals("statement_id", resultKey)) {
+                        row.startResult((int) reader.readLong());
+                    } else if (equals("series", resultKey)) {
+                        series = reader.readArrayHeader();
+                        state = State.SERIES;
+                    } else if (equals("error", resultKey)) {
+                        throw new QueryExecutionException(200, reader.readString().toString());
+                    } else {
+                        reader.skipValue();
+                    }
+                    break;
+                case SERIES:
+                    if (series-- == 0) {
+                        state = State.RESULT;
+                        break;
+                    }
+                    serieEntries = reader.readMapHeader();
+                    row.startSeries();
+                    state = State.SERIE;
+                    break;
+                case SERIE:
+                    if (serieEntries-- == 0) {
+                        state = State.SERIES;
+                        break;
+                    }
+                    CharSequence serieKey = reader.readString();
+                    if (equals("name", serieKey)) {
+                        row.setSeriesName(reader.readString().toString());
+                    } else if (equals("tags", serieKey)) {
+                        row.setTags(readTags());
+                    } else if (equals("columns", serieKey)) {
+                        row.setColumns(readColumns());
+                    } else if (equals("values", serieKey)) {
+                        values = reader.readArrayHeader();
+                        state = State.VALUES;
+                    } else {
+                        reader.skipValue();
+                    }
+                    break;
+                case VALUES:
+                    if (values-- == 0) {
+                        state = State.SERIE;
+                        break;
+                    }
+                    readRow();
+                    return true;
+            }
+        }
+    }
+
+    private Map<String, String> readTags() throws IOException {
+        int entries = reader.readMapHeader();
+        Map<String, String> tags = new HashMap<>();
+        for (int i = 0; i < entries; i++) {
+            String key = reader.readString().toString();
+            tags.put(key, reader.readString().toString());
+        }
+        return tags;
+    }
+
+    private List<String> readColumns() throws IOException {
+        int size = reader.readArrayHeader();
+        List<String> columns = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            columns.add(reader.readString().toString());
+        }
+        return columns;
+    }
+
+    private void readRow() throws IOException {
+        row.clear();
+        int timeColumn = row.getTimeColumn();
+        int size = reader.readArrayHeader();
+        for (int column = 0; column < size; column++) {
+            int format = reader.peekFormat();
+            if (MessagePackReader.isInteger(format)) {
+                row.addLong(reader.readLong());
+            } else if (format == MessagePackReader.FLOAT64 || format == MessagePackReader.FLOAT32) {
+                row.addDouble(reader.readDouble());
+            } else if (MessagePackReader.isString(format)) {
+                CharSequence value = reader.readString();
+                if (column == timeColumn) {
+                    row.addLong(Timestamps.parse(value, row.getPrecision()));
+                } else {
+                    row.addString(value.toString());
+                }
+            } else if (format == MessagePackReader.NIL) {
+                reader.readNil();
+                row.addNull();
+            } else if (format == MessagePackReader.TRUE || format == MessagePackReader.FALSE) {
+                row.addBoolean(reader.readBoolean());
+            } else if (MessagePackReader.isExtension(format)) {
+                row.addLong(readTime());
+            } else {
+                throw reader.syntaxError(String.format("Unsupported value format 0x%02x", format));
+            }
+        }
+    }
+
+    private long readTime() throws IOException {
+        int length = reader.readExtensionHeader();
+        int type = reader.getExtensionType();
+
+        long seconds;
+        long nanos;
+        if (type == TIME_EXTENSION && length == 12) {
+            seconds = reader.readLong64();
+            nanos = reader.readInt();
+        } else if (type == TIMESTAMP_EXTENSION && length == 4) {
+            seconds = reader.readInt() & 0xffffffffL;
+            nanos = 0;
+        } else if (type == TIMESTAMP_EXTENSION && length == 8) {
+            long value = reader.readLong64();
+            nanos = value >>> 34;
+            seconds = value & 0x3ffffffffL;
+        } else if (type == TIMESTAMP_EXTENSION && length == 12) {
+            nanos = reader.readInt() & 0xffffffffL;
+            seconds = reader.readLong64();
+        } else {
+            throw reader.syntaxError(String.format("Unsupported extension %d", type));
+        }
+
+        TimeUnit precision = row.getPrecision();
+        return precision.convert(seconds, TimeUnit.SECONDS) + precision.convert(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    private static boolean equals(String expected, CharSequence actual) {
+        return expected.contentEquals(actual);
+    }
+}
@@ -0,0 +1,110 @@
+/**
+ * MIT License
+ * <p>
+ * Copyright (c) 2018 Emmanouil Gkatziouras
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE
+ */
+
+package com.gkatzioura.influxdb.executor;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A bounded ring of encoded lines, written by many producers and read by a single consumer.
+ * Producers claim a sequence with a compare and set, fill the slot and publish it,
+ * the consumer reads slots in sequence order once published and releases them in bulk.
+ */
+final class PointRing {
+
+    static final class Slot {
+
+        String database;
+        String retentionPolicy;
+        ByteBuffer line = ByteBuffer.allocate(256);
+        long enqueuedNanos;
+    }
+
+    private final Slot[] slots;
+    private final int mask;
+    private final AtomicLongArray published;
+    private final AtomicLong claimed = new AtomicLong();
+    private final AtomicLong released = new AtomicLong();
+
+    PointRing(int capacity) {
+        if (capacity <= 0 || Integer.bitCount(capacity) != 1)
+            throw new IllegalArgumentException("The capacity must be a power of two");
+
+        this.slots = new Slot[capacity];
+        this.mask = capacity - 1;
+        this.published = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            slots[i] = new Slot();
+            published.set(i, -1);
+        }
+    }
+
+    int capacity() {
+        return slots.length;
+    }
+
+    /**
+     * @return the claimed sequence, or -1 if the ring is full
+     */
+    long tryClaim() {
+        while (true) {
+            long sequence = claimed.get();
+            if (sequence - released.get() >= slots.length)
+                return -1;
+            if (claimed.compareAndSet(sequence, sequence + 1))
+                return sequence;
+        }
+    }
+
+    Slot slot(long sequence) {
+        return slots[(int) sequence & mask];
+    }
+
+    /**
+     * A full store, a producer has to see whether the consumer parked after its slot became visible
+     */
+    void publish(long sequence) {
+        published.set((int) sequence & mask, sequence);
+    }
+
+    boolean isPublished(long sequence) {
+        return published.get((int) sequence & mask) == sequence;
+    }
+
+    /**
+     * @return the next sequence to be claimed
+     */
+    long getClaimed() {
+        return claimed.get();
+    }
+
+    /**
+     * Hands the slots below the sequence back to the producers
+     */
+    void release(long sequence) {
+        released.lazySet(sequence);
+    }
+}
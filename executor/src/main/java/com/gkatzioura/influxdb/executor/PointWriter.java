@@ -0,0 +1,606 @@
+/**
+ * MIT License
+ * <p>
+ * Copyright (c) 2018 Emmanouil Gkatziouras
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE
+ */
+
+package com.gkatzioura.influxdb.executor;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.HttpURLConnection;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.zip.GZIPOutputStream;
+
+import com.gkatzioura.influxdb.querybuilder.Point;
+
+/**
+ * Writes points to the /write endpoint of InfluxDB in batches.
+ * Producers encode their points into a ring buffer without taking locks, a background thread groups the lines
+ * by database and retention policy and hands a batch to the senders once it is full or has lingered long enough.
+ * When the ring is full producers wait, which happens once the senders fall behind.
+ */
+public class PointWriter implements Closeable {
+
+    private static final long MAX_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private final String writeUrl;
+    private final int connectTimeout;
+    private final int readTimeout;
+    private final String authorization;
+    private final TimeUnit precision;
+    private final int batchSize;
+    private final int maxBatchBytes;
+    private final long lingerNanos;
+    private final boolean gzip;
+    private final WriteListener listener;
+
+    private final PointRing ring;
+    private final Semaphore inFlight;
+    private final ExecutorService senders;
+    private final Set<CompletableFuture<Void>> pendingSends = ConcurrentHashMap.newKeySet();
+    private final Queue<byte[]> recycledBuffers = new ConcurrentLinkedQueue<>();
+    private final Queue<FlushRequest> flushRequests = new ConcurrentLinkedQueue<>();
+
+    private final Thread flusher;
+    private volatile boolean flusherParked;
+    private volatile boolean closed;
+
+    /**
+     * Only accessed by the flusher thread
+     */
+    private final Map<String, Map<String, Batch>> batches = new HashMap<>();
+    private final List<Batch> batchList = new ArrayList<>();
+    private Batch lastBatch;
+
+    private PointWriter(Builder builder) {
+        this.writeUrl = builder.writeUrl;
+        this.connectTimeout = (int) builder.connectTimeout.toMillis();
+        this.readTimeout = (int) builder.readTimeout.toMillis();
+        this.authorization = builder.authorization;
+        this.precision = builder.precision;
+        this.batchSize = builder.batchSize;
+        this.maxBatchBytes = builder.maxBatchBytes;
+        this.lingerNanos = builder.linger.toNanos();
+        this.gzip = builder.gzip;
+        this.listener = builder.listener;
+        this.ring = new PointRing(builder.bufferSize);
+        this.inFlight = new Semaphore(builder.maxInFlight);
+        this.senders = Executors.newFixedThreadPool(builder.maxInFlight, runnable -> {
+            Thread thread = new Thread(runnable, "influxdb-point-sender");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.flusher = new Thread(this::flushLoop, "influxdb-point-flusher");
+        this.flusher.setDaemon(true);
+        this.flusher.start();
+    }
+
+    /**
+     * @param url the address of InfluxDB e.g. http://localhost:8086
+     * @return
+     */
+    public static Builder builder(String url) {
+        return new Builder(url);
+    }
+
+    /**
+     * Writes the point to the default retention policy of the database
+     */
+    public void write(String database, Point point) {
+        write(database, null, point);
+    }
+
+    /**
+     * Encodes the point, which can be reused once the method returns, waiting for room in the buffer if needed
+     * @param database
+     * @param retentionPolicy null for the default retention policy
+     * @param point
+     */
+    public void write(String database, String retentionPolicy, Point point) {
+        write(database, retentionPolicy, point, Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Encodes the point, which can be reused once the method returns
+     * @param database
+     * @param retentionPolicy null for the default retention policy
+     * @param point
+     * @param timeout how long to wait for room in the buffer
+     * @param unit
+     * @return false if the buffer stayed full for the whole timeout
+     */
+    public boolean write(String database, String retentionPolicy, Point point, long timeout, TimeUnit unit) {
+        if (database == null)
+            throw new IllegalArgumentException("The database is required");
+
+        long sequence = claim(unit.toNanos(timeout));
+        if (sequence < 0)
+            return false;
+
+        PointRing.Slot slot = ring.slot(sequence);
+        try {
+            slot.database = database;
+            slot.retentionPolicy = retentionPolicy;
+            slot.enqueuedNanos = System.nanoTime();
+            encode(slot, point);
+        } catch (RuntimeException e) {
+            // the sequence is claimed, it has to be published for the flusher to move on
+            slot.line.clear();
+            slot.line.flip();
+            throw e;
+        } finally {
+            ring.publish(sequence);
+            if (flusherParked)
+                LockSupport.unpark(flusher);
+        }
+        return true;
+    }
+
+    /**
+     * Sends every point written so far
+     * @return completed once the batches holding those points have been written
+     */
+    public CompletableFuture<Void> flush() {
+        FlushRequest request = new FlushRequest(ring.getClaimed());
+        flushRequests.add(request);
+        LockSupport.unpark(flusher);
+        return request.future;
+    }
+
+    /**
+     * Sends the points written so far and stops the background threads
+     */
+    @Override
+    public void close() {
+        if (closed)
+            return;
+
+        CompletableFuture<Void> flushed = flush();
+        closed = true;
+        LockSupport.unpark(flusher);
+        try {
+            flushed.join();
+            flusher.join();
+            CompletableFuture.allOf(pendingSends.toArray(new CompletableFuture<?>[0])).join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            senders.shutdown();
+        }
+    }
+
+    private long claim(long timeoutNanos) {
+        long sequence = ring.tryClaim();
+        if (sequence >= 0)
+            return checkOpen(sequence);
+
+        long deadline = System.nanoTime() + timeoutNanos;
+        long parkNanos = 1_000;
+        while ((sequence = ring.tryClaim()) < 0) {
+            checkOpen(sequence);
+            long remaining = deadline - System.nanoTime();
+            if (timeoutNanos != Long.MAX_VALUE && remaining <= 0)
+                return -1;
+            LockSupport.parkNanos(timeoutNanos == Long.MAX_VALUE ? parkNanos : Math.min(parkNanos, remaining));
+            parkNanos = Math.min(parkNanos * 2, 1_000_000);
+        }
+        return checkOpen(sequence);
+    }
+
+    private long checkOpen(long sequence) {
+        if (closed) {
+            if (sequence >= 0) {
+                PointRing.Slot slot = ring.slot(sequence);
+                slot.line.clear();
+                slot.line.flip();
+                ring.publish(sequence);
+            }
+            throw new IllegalStateException("The writer is closed");
+        }
+        return sequence;
+    }
+
+    private void encode(PointRing.Slot slot, Point point) {
+        while (true) {
+            slot.line.clear();
+            try {
+                point.writeTo(slot.line, precision);
+                slot.line.flip();
+                return;
+            } catch (BufferOverflowException e) {
+                slot.line = ByteBuffer.allocate(slot.line.capacity() * 2);
+            }
+        }
+    }
+
+    private void flushLoop() {
+        long next = 0;
+        while (true) {
+            long start = next;
+            while (ring.isPublished(next)) {
+                PointRing.Slot slot = ring.slot(next);
+                if (slot.line.hasRemaining())
+                    append(slot);
+                next++;
+                if (next - start == 64) {
+                    ring.release(next);
+                    start = next;
+                }
+            }
+            ring.release(next);
+
+            long now = System.nanoTime();
+            long parkNanos = flushLingering(now);
+            parkNanos = processFlushRequests(next, parkNanos);
+
+            if (closed && flushRequests.isEmpty() && next == ring.getClaimed()) {
+                sendAll();
+                break;
+            }
+
+            if (!ring.isPublished(next)) {
+                flusherParked = true;
+                if (!ring.isPublished(next) && flushRequests.isEmpty() && !closed)
+                    LockSupport.parkNanos(parkNanos);
+                flusherParked = false;
+            }
+        }
+    }
+
+    private void append(PointRing.Slot slot) {
+        Batch batch = lastBatch;
+        if (batch == null || !batch.database.equals(slot.database) || !equals(batch.retentionPolicy, slot.retentionPolicy)) {
+            Map<String, Batch> byRetentionPolicy = batches.computeIfAbsent(slot.database, key -> new HashMap<>());
+            String retentionPolicy = slot.retentionPolicy == null ? "" : slot.retentionPolicy;
+            batch = byRetentionPolicy.get(retentionPolicy);
+            if (batch == null) {
+                batch = new Batch(slot.database, slot.retentionPolicy);
+                byRetentionPolicy.put(retentionPolicy, batch);
+                batchList.add(batch);
+            }
+            lastBatch = batch;
+        }
+
+        if (batch.size + slot.line.remaining() > maxBatchBytes && batch.points > 0)
+            send(batch);
+        batch.append(slot);
+        if (batch.points >= batchSize || batch.size >= maxBatchBytes)
+            send(batch);
+    }
+
+    /**
+     * @return how long to wait for the next batch to linger long enough
+     */
+    private long flushLingering(long now) {
+        long parkNanos = MAX_PARK_NANOS;
+        for (Batch batch : batchList) {
+            if (batch.points == 0)
+                continue;
+            long remaining = batch.firstEnqueuedNanos + lingerNanos - now;
+            if (remaining <= 0) {
+                send(batch);
+            } else {
+                parkNanos = Math.min(parkNanos, remaining);
+            }
+        }
+        return parkNanos;
+    }
+
+    private long processFlushRequests(long next, long parkNanos) {
+        FlushRequest request;
+        while ((request = flushRequests.peek()) != null) {
+            if (request.sequence > next)
+                return Math.min(parkNanos, 1_000);
+
+            flushRequests.poll();
+            sendAll();
+            CompletableFuture<Void> future = request.future;
+            CompletableFuture.allOf(pendingSends.toArray(new CompletableFuture<?>[0]))
+                             .whenComplete((result, error) -> future.complete(null));
+        }
+        return parkNanos;
+    }
+
+    private void sendAll() {
+        for (Batch batch : batchList) {
+            if (batch.points > 0)
+                send(batch);
+        }
+    }
+
+    private void send(Batch batch) {
+        inFlight.acquireUninterruptibly();
+
+        String url = batch.url;
+        String database = batch.database;
+        String retentionPolicy = batch.retentionPolicy;
+        int points = batch.points;
+        long enqueuedNanos = batch.firstEnqueuedNanos;
+        byte[] body = batch.bytes;
+        int length = batch.size;
+        batch.reset(recycledBuffers.poll());
+
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        pendingSends.add(future);
+        senders.execute(() -> {
+            try {
+                post(url, body, length);
+                listener.onSuccess(database, retentionPolicy, points, enqueuedNanos);
+            } catch (IOException | RuntimeException e) {
+                listener.onFailure(database, retentionPolicy, points, e instanceof IOException ? new UncheckedIOException((IOException) e) : e);
+            } finally {
+                recycledBuffers.offer(body);
+                inFlight.release();
+                pendingSends.remove(future);
+                future.complete(null);
+            }
+        });
+    }
+
+    private void post(String url, byte[] body, int length) throws IOException {
+        if (gzip) {
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream(length / 4 + 64);
+            try (GZIPOutputStream gzipOutputStream = new GZIPOutputStream(compressed, 8192)) {
+                gzipOutputStream.write(body, 0, length);
+            }
+            body = compressed.toByteArray();
+            length = body.length;
+        }
+
+        HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+        connection.setRequestMethod("POST");
+        connection.setDoOutput(true);
+        connection.setConnectTimeout(connectTimeout);
+        connection.setReadTimeout(readTimeout);
+        connection.setRequestProperty("Content-Type", "text/plain; charset=utf-8");
+        if (gzip)
+            connection.setRequestProperty("Content-Encoding", "gzip");
+        if (authorization != null)
+            connection.setRequestProperty("Authorization", authorization);
+        connection.setFixedLengthStreamingMode(length);
+
+        try (OutputStream outputStream = connection.getOutputStream()) {
+            outputStream.write(body, 0, length);
+        }
+
+        int statusCode = connection.getResponseCode();
+        if (statusCode >= HttpURLConnection.HTTP_MULT_CHOICE) {
+            try (InputStream errorStream = connection.getErrorStream()) {
+                throw new WriteException(statusCode, errorStream == null ? "" : QueryExecutor.readFully(errorStream));
+            }
+        }
+        try (InputStream inputStream = connection.getInputStream()) {
+            QueryExecutor.readFully(inputStream);
+        }
+    }
+
+    private static boolean equals(String first, String second) {
+        return first == null ? second == null : first.equals(second);
+    }
+
+    private final class Batch {
+
+        private final String database;
+        private final String retentionPolicy;
+        private final String url;
+        private byte[] bytes = new byte[8192];
+        private int size;
+        private int points;
+        private long firstEnqueuedNanos;
+
+        private Batch(String database, String retentionPolicy) {
+            this.database = database;
+            this.retentionPolicy = retentionPolicy;
+            this.url = writeUrl + "?db=" + encode(database)
+                    + (retentionPolicy == null ? "" : "&rp=" + encode(retentionPolicy))
+                    + "&precision=" + QueryExecutor.epoch(precision);
+        }
+
+        private void append(PointRing.Slot slot) {
+            ByteBuffer line = slot.line;
+            int length = line.remaining();
+            if (size + length > bytes.length) {
+                byte[] grown = new byte[Math.max(bytes.length * 2, size + length)];
+                System.arraycopy(bytes, 0, grown, 0, size);
+                bytes = grown;
+            }
+            line.get(bytes, size, length);
+            size += length;
+            if (points++ == 0)
+                firstEnqueuedNanos = slot.enqueuedNanos;
+        }
+
+        private void reset(byte[] recycled) {
+            bytes = recycled != null ? recycled : new byte[bytes.length];
+            size = 0;
+            points = 0;
+        }
+
+        private String encode(String value) {
+            try {
+                return URLEncoder.encode(value, "UTF-8");
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    private static final class FlushRequest {
+
+        private final long sequence;
+        private final CompletableFuture<Void> future = new CompletableFuture<>();
+
+        private FlushRequest(long sequence) {
+            this.sequence = sequence;
+        }
+    }
+
+    public static class Builder {
+
+        private final String writeUrl;
+        private int bufferSize = 8192;
+        private int batchSize = 5000;
+        private int maxBatchBytes = 4 * 1024 * 1024;
+        private Duration linger = Duration.ofMillis(100);
+        private int maxInFlight = 2;
+        private boolean gzip;
+        private TimeUnit precision = TimeUnit.NANOSECONDS;
+        private Duration connectTimeout = Duration.ofSeconds(10);
+        private Duration readTimeout = Duration.ofSeconds(60);
+        private String authorization;
+        private WriteListener listener = new WriteListener() {
+        };
+
+        Builder(String url) {
+            String writeUrl = url.endsWith("/") ? url + "write" : url + "/write";
+            try {
+                new URL(writeUrl);
+            } catch (MalformedURLException e) {
+                throw new IllegalArgumentException(String.format("Invalid url %s", url), e);
+            }
+            this.writeUrl = writeUrl;
+        }
+
+        /**
+         * @param bufferSize the number of points the ring buffer holds, a power of two
+         * @return
+         */
+        public Builder bufferSize(int bufferSize) {
+            if (bufferSize <= 0 || Integer.bitCount(bufferSize) != 1)
+                throw new IllegalArgumentException("Invalid buffer size, must be a power of two");
+
+            this.bufferSize = bufferSize;
+            return this;
+        }
+
+        /**
+         * @param batchSize the number of points after which a batch is sent
+         * @return
+         */
+        public Builder batchSize(int batchSize) {
+            if (batchSize <= 0)
+                throw new IllegalArgumentException("Invalid batch size, must be strictly positive");
+
+            this.batchSize = batchSize;
+            return this;
+        }
+
+        /**
+         * @param maxBatchBytes the size in bytes, before compression, after which a batch is sent
+         * @return
+         */
+        public Builder maxBatchBytes(int maxBatchBytes) {
+            if (maxBatchBytes <= 0)
+                throw new IllegalArgumentException("Invalid batch size, must be strictly positive");
+
+            this.maxBatchBytes = maxBatchBytes;
+            return this;
+        }
+
+        /**
+         * @param linger how long the first point of a batch waits for others before the batch is sent
+         * @return
+         */
+        public Builder linger(Duration linger) {
+            this.linger = linger;
+            return this;
+        }
+
+        /**
+         * @param maxInFlight the maximum number of batches sent concurrently
+         * @return
+         */
+        public Builder maxInFlight(int maxInFlight) {
+            if (maxInFlight <= 0)
+                throw new IllegalArgumentException("Invalid number of requests in flight, must be strictly positive");
+
+            this.maxInFlight = maxInFlight;
+            return this;
+        }
+
+        public Builder gzip(boolean gzip) {
+            this.gzip = gzip;
+            return this;
+        }
+
+        /**
+         * @param precision the precision timestamps are written in
+         * @return
+         */
+        public Builder precision(TimeUnit precision) {
+            QueryExecutor.epoch(precision);
+            this.precision = precision;
+            return this;
+        }
+
+        public Builder connectTimeout(Duration connectTimeout) {
+            this.connectTimeout = connectTimeout;
+            return this;
+        }
+
+        public Builder readTimeout(Duration readTimeout) {
+            this.readTimeout = readTimeout;
+            return this;
+        }
+
+        public Builder credentials(String username, String password) {
+            String credentials = username + ":" + password;
+            this.authorization = "Basic " + Base64.getEncoder().encodeToString(credentials.getBytes(StandardCharsets.UTF_8));
+            return this;
+        }
+
+        public Builder listener(WriteListener listener) {
+            this.listener = listener;
+            return this;
+        }
+
+        public PointWriter build() {
+            return new PointWriter(this);
+        }
+    }
+}
@@ -0,0 +1,344 @@
+/**
+ * MIT License
+ * <p>
+ * Copyright (c) 2018 Emmanouil Gkatziouras
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE
+ */
+
+package com.gkatzioura.influxdb.executor;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+import com.gkatzioura.influxdb.querybuilder.BuiltStatement;
+
+/**
+ * Keeps the bodies of query responses by database and rendered query, so that repeated queries are answered
+ * without a round trip to InfluxDB. Entries expire after a time to live and the least recently used are evicted
+ * once the bodies exceed the byte budget.
+ * Queries relative to now() are keyed by time bucket, the same query issued within a bucket shares an entry
+ * which expires with the bucket.
+ * Expired entries are dropped when looked up or when the least recently used are evicted.
+ * Concurrent misses on the same key share a single request. Only SELECT and SHOW statements are cached.
+ */
+public final class QueryCache {
+
+    /**
+     * An estimate of the bytes taken by an entry besides its body and query
+     */
+    private static final int ENTRY_OVERHEAD = 96;
+
+    private final long maxBytes;
+    private final long ttlMillis;
+    private final long nowBucketMillis;
+    private final Clock clock;
+
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<Key, CompletableFuture<byte[]>> loading = new HashMap<>();
+    private long bytes;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    private QueryCache(Builder builder) {
+        this.maxBytes = builder.maxBytes;
+        this.ttlMillis = builder.ttl.toMillis();
+        this.nowBucketMillis = builder.nowBucket.toMillis();
+        this.clock = builder.clock;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * @param statement
+     * @param parameters the additional parameters of the request, as pairs of name and value
+     * @param accept the requested format of the response
+     * @return the key of the response, null if the statement should not be cached
+     */
+    Key key(BuiltStatement statement, String[] parameters, String accept) {
+        String query = statement.getQueryString();
+        if (!isReadOnly(query))
+            return null;
+
+        long bucket = query.contains("now()") ? clock.millis() / nowBucketMillis : -1;
+        return new Key(statement.getDatabase(), query, parameters, accept, bucket);
+    }
+
+    /**
+     * @param key
+     * @param loader sends the request, called on a miss unless a request for the same key is in flight
+     * @return the body of the response
+     */
+    CompletableFuture<byte[]> get(Key key, Supplier<CompletableFuture<byte[]>> loader) {
+        CompletableFuture<byte[]> future;
+        synchronized (this) {
+            Entry entry = entries.get(key);
+            if (entry != null) {
+                if (entry.expiresAt > clock.millis()) {
+                    hits++;
+                    return CompletableFuture.completedFuture(entry.body);
+                }
+                remove(key);
+            }
+
+            future = loading.get(key);
+            if (future != null) {
+                hits++;
+                return future;
+            }
+
+            misses++;
+            future = new CompletableFuture<>();
+            loading.put(key, future);
+        }
+
+        CompletableFuture<byte[]> result = future;
+        CompletableFuture<byte[]> load;
+        try {
+            load = loader.get();
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                loading.remove(key);
+            }
+            result.completeExceptionally(e);
+            return result;
+        }
+        load.whenComplete((body, error) -> {
+            synchronized (this) {
+                loading.remove(key);
+                if (error == null)
+                    put(key, body);
+            }
+            if (error == null)
+                result.complete(body);
+            else
+                result.completeExceptionally(error);
+        });
+        return result;
+    }
+
+    private void put(Key key, byte[] body) {
+        long weight = weight(key, body);
+        if (weight > maxBytes)
+            return;
+
+        long now = clock.millis();
+        long expiresAt = now + ttlMillis;
+        if (key.bucket >= 0)
+            expiresAt = Math.min(expiresAt, (key.bucket + 1) * nowBucketMillis);
+        if (expiresAt <= now)
+            return;
+
+        remove(key);
+        entries.put(key, new Entry(body, weight, expiresAt));
+        bytes += weight;
+
+        Iterator<Map.Entry<Key, Entry>> iterator = entries.entrySet().iterator();
+        while (bytes > maxBytes && iterator.hasNext()) {
+            Entry eldest = iterator.next().getValue();
+            iterator.remove();
+            bytes -= eldest.weight;
+            if (eldest.expiresAt > now)
+                evictions++;
+        }
+    }
+
+    private void remove(Key key) {
+        Entry entry = entries.remove(key);
+        if (entry != null)
+            bytes -= entry.weight;
+    }
+
+    private static long weight(Key key, byte[] body) {
+        return ENTRY_OVERHEAD + 2L * key.query.length() + body.length;
+    }
+
+    /**
+     * Statements which write or administer data are never cached, neither are batches containing them
+     */
+    static boolean isReadOnly(String query) {
+        if (query.contains(" INTO "))
+            return false;
+
+        int start = 0;
+        while (start < query.length()) {
+            while (start < query.length() && query.charAt(start) == ' ')
+                start++;
+            if (start == query.length())
+                break;
+            if (!query.startsWith("SELECT ", start) && !query.startsWith("SHOW ", start))
+                return false;
+            int end = query.indexOf(';', start);
+            if (end == -1)
+                break;
+            start = end + 1;
+        }
+        return true;
+    }
+
+    public synchronized void invalidateAll() {
+        entries.clear();
+        bytes = 0;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return the estimated bytes taken by the entries
+     */
+    public synchronized long getBytes() {
+        return bytes;
+    }
+
+    /**
+     * @return the lookups answered from the cache or by a request already in flight
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * @return the live entries evicted to stay within the byte budget
+     */
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    public static class Builder {
+
+        private long maxBytes = 64L * 1024 * 1024;
+        private Duration ttl = Duration.ofMinutes(1);
+        private Duration nowBucket = Duration.ofSeconds(10);
+        private Clock clock = Clock.systemUTC();
+
+        Builder() {
+        }
+
+        /**
+         * @param maxBytes the budget of the bodies kept, responses larger than it are not cached
+         * @return
+         */
+        public Builder maxBytes(long maxBytes) {
+            if (maxBytes <= 0)
+                throw new IllegalArgumentException("Invalid cache size, must be strictly positive");
+
+            this.maxBytes = maxBytes;
+            return this;
+        }
+
+        public Builder ttl(Duration ttl) {
+            if (ttl.toMillis() <= 0)
+                throw new IllegalArgumentException("Invalid time to live, must be at least a millisecond");
+
+            this.ttl = ttl;
+            return this;
+        }
+
+        /**
+         * @param nowBucket the window within which queries relative to now() share an entry, the staleness accepted for them
+         * @return
+         */
+        public Builder nowBucket(Duration nowBucket) {
+            if (nowBucket.toMillis() <= 0)
+                throw new IllegalArgumentException("Invalid bucket, must be at least a millisecond");
+
+            this.nowBucket = nowBucket;
+            return this;
+        }
+
+        Builder clock(Clock clock) {
+            this.clock = clock;
+            return this;
+        }
+
+        public QueryCache build() {
+            return new QueryCache(this);
+        }
+    }
+
+    static final class Key {
+
+        private final String database;
+        private final String query;
+        private final String[] parameters;
+        private final String accept;
+        private final long bucket;
+
+        private Key(String database, String query, String[] parameters, String accept, long bucket) {
+            this.database = database;
+            this.query = query;
+            this.parameters = parameters;
+            this.accept = accept;
+            this.bucket = bucket;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o)
+                return true;
+            if (!(o instanceof Key))
+                return false;
+            Key that = (Key) o;
+            return bucket == that.bucket
+                    && query.equals(that.query)
+                    && Objects.equals(database, that.database)
+                    && Arrays.equals(parameters, that.parameters)
+                    && Objects.equals(accept, that.accept);
+        }
+
+        @Override
+        public int hashCode() {
+            int result = Objects.hashCode(database);
+            result = 31 * result + query.hashCode();
+            result = 31 * result + Arrays.hashCode(parameters);
+            result = 31 * result + Objects.hashCode(accept);
+            return 31 * result + Long.hashCode(bucket);
+        }
+    }
+
+    private static final class Entry {
+
+        private final byte[] body;
+        private final long weight;
+        private final long expiresAt;
+
+        private Entry(byte[] body, long weight, long expiresAt) {
+            this.body = body;
+            this.weight = weight;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,361 @@
+/**
+ * MIT License
+ * <p>
+ * Copyright (c) 2018 Emmanouil Gkatziouras
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE
+ */
+
+package com.gkatzioura.influxdb.executor;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.HttpURLConnection;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.gkatzioura.influxdb.querybuilder.BuiltStatement;
+import com.gkatzioura.influxdb.querybuilder.FormEncoder;
+
+/**
+ * Sends statements to the /query endpoint of InfluxDB.
+ * Requests are executed by a pool of threads, one per request in flight, over keep-alive connections
+ * which are reused once a response has been fully read.
+ */
+public class QueryExecutor implements Closeable {
+
+    private static final ResponseHandler<String> BODY_AS_STRING = QueryExecutor::readFully;
+    private static final String[] NO_PARAMETERS = {};
+    private static final int MAX_RETAINED_QUERY = 64 * 1024;
+    private static final ThreadLocal<StringBuilder> RENDERED_QUERY = ThreadLocal.withInitial(() -> new StringBuilder(256));
+
+    private final URL queryUrl;
+    private final int connectTimeout;
+    private final int readTimeout;
+    private final String authorization;
+    private final ResponseFormat format;
+    private final QueryCache cache;
+    private final ExecutorService executorService;
+
+    private QueryExecutor(Builder builder) {
+        this.queryUrl = builder.queryUrl;
+        this.connectTimeout = (int) builder.connectTimeout.toMillis();
+        this.readTimeout = (int) builder.readTimeout.toMillis();
+        this.authorization = builder.authorization;
+        this.format = builder.format;
+        this.cache = builder.cache;
+        this.executorService = Executors.newFixedThreadPool(builder.maxInFlight, new ExecutorThreadFactory());
+    }
+
+    /**
+     * @param url the address of InfluxDB e.g. http://localhost:8086
+     * @return
+     */
+    public static Builder builder(String url) {
+        return new Builder(url);
+    }
+
+    /**
+     * @param statement
+     * @return the body of the response
+     */
+    public CompletableFuture<String> execute(BuiltStatement statement) {
+        return execute(statement, BODY_AS_STRING);
+    }
+
+    public <T> CompletableFuture<T> execute(BuiltStatement statement, ResponseHandler<T> handler) {
+        return execute(statement, NO_PARAMETERS, null, handler);
+    }
+
+    /**
+     * Streams the rows of the response to the row handler as they are decoded.
+     * The response is requested in chunks, in the format of the executor, with times as epoch values in the given precision.
+     * @param statement
+     * @param precision
+     * @param rowHandler
+     * @return the number of rows
+     */
+    public CompletableFuture<Long> query(BuiltStatement statement, TimeUnit precision, RowHandler rowHandler) {
+        return execute(statement, streaming(precision), format.getContentType(),
+                body -> ResponseDecoder.decode(format.decoder(body, precision), rowHandler));
+    }
+
+    /**
+     * Reads the whole result into columns, streamed the same way as {@link #query(BuiltStatement, TimeUnit, RowHandler)}
+     * @param statement
+     * @param precision
+     * @param offHeap whether the columns are stored in direct buffers
+     * @return
+     */
+    public CompletableFuture<ColumnarResult> collect(BuiltStatement statement, TimeUnit precision, boolean offHeap) {
+        return execute(statement, streaming(precision), format.getContentType(),
+                body -> ColumnarResult.collect(format.decoder(body, precision), offHeap));
+    }
+
+    private <T> CompletableFuture<T> execute(BuiltStatement statement, String[] parameters, String accept, ResponseHandler<T> handler) {
+        QueryCache.Key key = cache == null ? null : cache.key(statement, parameters, accept);
+        if (key != null) {
+            return cache.get(key, () -> send(statement, parameters, accept, QueryExecutor::readBytes))
+                        .thenApply(body -> {
+                            try {
+                                return handler.handle(new ByteArrayInputStream(body));
+                            } catch (IOException e) {
+                                throw new UncheckedIOException(e);
+                            }
+                        });
+        }
+        return send(statement, parameters, accept, handler);
+    }
+
+    private <T> CompletableFuture<T> send(BuiltStatement statement, String[] parameters, String accept, ResponseHandler<T> handler) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return post(statement, parameters, accept, handler);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, executorService);
+    }
+
+    private <T> T post(BuiltStatement statement, String[] parameters, String accept, ResponseHandler<T> handler) throws IOException {
+        ByteBuffer body = encode(statement, parameters);
+
+        HttpURLConnection connection = (HttpURLConnection) queryUrl.openConnection();
+        connection.setRequestMethod("POST");
+        connection.setDoOutput(true);
+        connection.setConnectTimeout(connectTimeout);
+        connection.setReadTimeout(readTimeout);
+        connection.setRequestProperty("Content-Type", "application/x-www-form-urlencoded");
+        if (authorization != null)
+            connection.setRequestProperty("Authorization", authorization);
+        if (accept != null)
+            connection.setRequestProperty("Accept", accept);
+        connection.setFixedLengthStreamingMode(body.remaining());
+
+        try (OutputStream outputStream = connection.getOutputStream()) {
+            outputStream.write(body.array(), body.arrayOffset() + body.position(), body.remaining());
+        }
+
+        int statusCode = connection.getResponseCode();
+        if (statusCode >= HttpURLConnection.HTTP_MULT_CHOICE) {
+            try (InputStream errorStream = connection.getErrorStream()) {
+                throw new QueryExecutionException(statusCode, errorStream == null ? "" : readFully(errorStream));
+            }
+        }
+
+        try (InputStream inputStream = connection.getInputStream()) {
+            T result = handler.handle(inputStream);
+            drain(inputStream);
+            return result;
+        }
+    }
+
+    /**
+     * @param statement
+     * @param parameters additional parameters, as pairs of name and value
+     * @return the body of the request
+     */
+    private static ByteBuffer encode(BuiltStatement statement, String[] parameters) {
+        StringBuilder query = render(statement);
+        int length = "q=".length() + FormEncoder.encodedLength(query);
+        if (statement.getDatabase() != null)
+            length += "&db=".length() + FormEncoder.encodedLength(statement.getDatabase());
+        for (int i = 0; i < parameters.length; i += 2) {
+            length += 2 + FormEncoder.encodedLength(parameters[i]) + FormEncoder.encodedLength(parameters[i + 1]);
+        }
+
+        FormEncoder encoder = new FormEncoder(ByteBuffer.allocate(length));
+        encoder.appendParameter("q", query);
+        if (statement.getDatabase() != null)
+            encoder.appendParameter("db", statement.getDatabase());
+        for (int i = 0; i < parameters.length; i += 2) {
+            encoder.appendParameter(parameters[i], parameters[i + 1]);
+        }
+
+        if (query.capacity() > MAX_RETAINED_QUERY)
+            RENDERED_QUERY.remove();
+        ByteBuffer buffer = encoder.getBuffer();
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * Renders the statement once into a per thread builder, both sizing and encoding read from it
+     * @param statement
+     * @return the rendered query, valid until the next call on the same thread
+     */
+    private static StringBuilder render(BuiltStatement statement) {
+        StringBuilder query = RENDERED_QUERY.get();
+        query.setLength(0);
+        try {
+            statement.appendTo(query);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return query;
+    }
+
+    private static String[] streaming(TimeUnit precision) {
+        return new String[]{"chunked", "true", "epoch", epoch(precision)};
+    }
+
+    static String epoch(TimeUnit precision) {
+        switch (precision) {
+            case NANOSECONDS:
+                return "ns";
+            case MICROSECONDS:
+                return "u";
+            case MILLISECONDS:
+                return "ms";
+            case SECONDS:
+                return "s";
+            case MINUTES:
+                return "m";
+            case HOURS:
+                return "h";
+            default:
+                throw new IllegalArgumentException(String.format("Unsupported precision %s", precision));
+        }
+    }
+
+    static String readFully(InputStream inputStream) throws IOException {
+        return new String(readBytes(inputStream), StandardCharsets.UTF_8);
+    }
+
+    static byte[] readBytes(InputStream inputStream) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = inputStream.read(buffer)) != -1) {
+            outputStream.write(buffer, 0, read);
+        }
+        return outputStream.toByteArray();
+    }
+
+    /**
+     * The connection goes back to the keep-alive pool only if the response has been read to the end
+     */
+    private static void drain(InputStream inputStream) throws IOException {
+        byte[] buffer = new byte[1024];
+        while (inputStream.read(buffer) != -1) {
+            // discarded
+        }
+    }
+
+    @Override
+    public void close() {
+        executorService.shutdown();
+    }
+
+    public static class Builder {
+
+        private final URL queryUrl;
+        private int maxInFlight = 8;
+        private Duration connectTimeout = Duration.ofSeconds(10);
+        private Duration readTimeout = Duration.ofSeconds(60);
+        private String authorization;
+        private ResponseFormat format = ResponseFormat.JSON;
+        private QueryCache cache;
+
+        Builder(String url) {
+            try {
+                this.queryUrl = new URL(url.endsWith("/") ? url + "query" : url + "/query");
+            } catch (MalformedURLException e) {
+                throw new IllegalArgumentException(String.format("Invalid url %s", url), e);
+            }
+        }
+
+        /**
+         * @param maxInFlight the maximum number of requests executed concurrently, further requests are queued
+         * @return
+         */
+        public Builder maxInFlight(int maxInFlight) {
+            if (maxInFlight <= 0)
+                throw new IllegalArgumentException("Invalid number of requests in flight, must be strictly positive");
+
+            this.maxInFlight = maxInFlight;
+            return this;
+        }
+
+        public Builder connectTimeout(Duration connectTimeout) {
+            this.connectTimeout = connectTimeout;
+            return this;
+        }
+
+        public Builder readTimeout(Duration readTimeout) {
+            this.readTimeout = readTimeout;
+            return this;
+        }
+
+        public Builder credentials(String username, String password) {
+            String credentials = username + ":" + password;
+            this.authorization = "Basic " + Base64.getEncoder().encodeToString(credentials.getBytes(StandardCharsets.UTF_8));
+            return this;
+        }
+
+        /**
+         * @param format the format rows are requested in by {@link QueryExecutor#query} and {@link QueryExecutor#collect}
+         * @return
+         */
+        public Builder format(ResponseFormat format) {
+            this.format = format;
+            return this;
+        }
+
+        /**
+         * @param cache answers repeated read queries, bodies of cached queries are read in full before being handled
+         * @return
+         */
+        public Builder cache(QueryCache cache) {
+            this.cache = cache;
+            return this;
+        }
+
+        public QueryExecutor build() {
+            return new QueryExecutor(this);
+        }
+    }
+
+    private static class ExecutorThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "influxdb-query-executor-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,61 @@
+/**
+ * MIT License
+ * <p>
+ * Copyright (c) 2018 Emmanouil Gkatziouras
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE
+ */
+
+package com.gkatzioura.influxdb.executor;
+
+import java.io.IOException;
+
+/**
+ * Pulls the rows of a query response one at a time
+ */
+public interface ResponseDecoder {
+
+    /**
+     * Advances to the next row, across series, statements and chunks
+     * @return false once the response has been consumed
+     * @throws IOException
+     */
+    boolean next() throws IOException;
+
+    /**
+     * @return the current row, the same instance for every row
+     */
+    Row getRow();
+
+    /**
+     * Hands every row of the response to the row handler
+     * @param decoder
+     * @param rowHandler
+     * @return the number of rows
+     * @throws IOException
+     */
+    static long decode(ResponseDecoder decoder, RowHandler rowHandler) throws IOException {
+        long rows = 0;
+        while (decoder.next()) {
+            rowHandler.handle(decoder.getRow());
+            rows++;
+        }
+        return rows;
+    }
+}
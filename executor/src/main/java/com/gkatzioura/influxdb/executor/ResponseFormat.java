@@ -0,0 +1,62 @@
+/**
+ * MIT License
+ * <p>
+ * Copyright (c) 2018 Emmanouil Gkatziouras
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE
+ */
+
+package com.gkatzioura.influxdb.executor;
+
+import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The formats InfluxDB can answer queries in, requested through the Accept header
+ */
+public enum ResponseFormat {
+
+    JSON("application/json") {
+        @Override
+        public ResponseDecoder decoder(InputStream body, TimeUnit precision) {
+            return new JsonResponseDecoder(body, precision);
+        }
+    },
+    /**
+     * Supported since InfluxDB 1.4, cheaper to produce and to parse for numeric results
+     */
+    MESSAGE_PACK("application/x-msgpack") {
+        @Override
+        public ResponseDecoder decoder(InputStream body, TimeUnit precision) {
+            return new MessagePackResponseDecoder(body, precision);
+        }
+    };
+
+    private final String contentType;
+
+    ResponseFormat(String contentType) {
+        this.contentType = contentType;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public abstract ResponseDecoder decoder(InputStream body, TimeUnit precision);
+}
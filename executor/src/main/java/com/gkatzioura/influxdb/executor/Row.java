@@ -0,0 +1,244 @@
+/**
+ * MIT License
+ * <p>
+ * Copyright (c) 2018 Emmanouil Gkatziouras
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE
+ */
+
+package com.gkatzioura.influxdb.executor;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The current row of a decoded response, the same instance is reused for every row.
+ * Time and numeric values are kept in primitive arrays, so decoding a row does not box values.
+ */
+public class Row {
+
+    static final byte NULL = 0;
+    static final byte LONG = 1;
+    static final byte DOUBLE = 2;
+    static final byte STRING = 3;
+    static final byte BOOLEAN = 4;
+
+    private final TimeUnit precision;
+
+    private int statementId;
+    private String seriesName;
+    private Map<String, String> tags = Collections.emptyMap();
+    private List<String> columns = Collections.emptyList();
+    private int timeColumn = -1;
+
+    private int size;
+    private byte[] types = new byte[8];
+    private long[] longs = new long[8];
+    private double[] doubles = new double[8];
+    private String[] strings = new String[8];
+
+    Row(TimeUnit precision) {
+        this.precision = precision;
+    }
+
+    /**
+     * @return the unit of the values of the time column
+     */
+    public TimeUnit getPrecision() {
+        return precision;
+    }
+
+    public int getStatementId() {
+        return statementId;
+    }
+
+    public String getSeriesName() {
+        return seriesName;
+    }
+
+    public Map<String, String> getTags() {
+        return tags;
+    }
+
+    public List<String> getColumns() {
+        return columns;
+    }
+
+    public int getColumnIndex(String column) {
+        return columns.indexOf(column);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isNull(int column) {
+        return type(column) == NULL;
+    }
+
+    /**
+     * @return the value of the time column in the precision of the row
+     */
+    public long getTime() {
+        if (timeColumn < 0)
+            throw new IllegalStateException("The series has no time column");
+        return getLong(timeColumn);
+    }
+
+    public long getLong(int column) {
+        switch (type(column)) {
+            case LONG:
+                return longs[column];
+            case DOUBLE:
+                return (long) doubles[column];
+            default:
+                throw new IllegalStateException(String.format("Column %s is not numeric", columns.get(column)));
+        }
+    }
+
+    public double getDouble(int column) {
+        switch (type(column)) {
+            case LONG:
+                return longs[column];
+            case DOUBLE:
+                return doubles[column];
+            default:
+                throw new IllegalStateException(String.format("Column %s is not numeric", columns.get(column)));
+        }
+    }
+
+    public boolean getBoolean(int column) {
+        if (type(column) != BOOLEAN)
+            throw new IllegalStateException(String.format("Column %s is not boolean", columns.get(column)));
+        return longs[column] != 0;
+    }
+
+    public String getString(int column) {
+        switch (type(column)) {
+            case STRING:
+                return strings[column];
+            case NULL:
+                return null;
+            case BOOLEAN:
+                return Boolean.toString(longs[column] != 0);
+            case LONG:
+                return Long.toString(longs[column]);
+            default:
+                return Double.toString(doubles[column]);
+        }
+    }
+
+    /**
+     * @return the value boxed, for convenience
+     */
+    public Object getValue(int column) {
+        switch (type(column)) {
+            case LONG:
+                return longs[column];
+            case DOUBLE:
+                return doubles[column];
+            case BOOLEAN:
+                return longs[column] != 0;
+            case STRING:
+                return strings[column];
+            default:
+                return null;
+        }
+    }
+
+    byte type(int column) {
+        if (column < 0 || column >= size)
+            throw new IndexOutOfBoundsException(String.format("Column %d out of %d columns", column, size));
+        return types[column];
+    }
+
+    int getTimeColumn() {
+        return timeColumn;
+    }
+
+    void startResult(int statementId) {
+        this.statementId = statementId;
+    }
+
+    void startSeries() {
+        this.seriesName = null;
+        this.tags = Collections.emptyMap();
+        this.columns = Collections.emptyList();
+        this.timeColumn = -1;
+    }
+
+    void setSeriesName(String seriesName) {
+        this.seriesName = seriesName;
+    }
+
+    void setTags(Map<String, String> tags) {
+        this.tags = Collections.unmodifiableMap(tags);
+    }
+
+    void setColumns(List<String> columns) {
+        this.columns = Collections.unmodifiableList(columns);
+        this.timeColumn = columns.indexOf("time");
+    }
+
+    void clear() {
+        size = 0;
+    }
+
+    void addNull() {
+        ensureCapacity();
+        types[size++] = NULL;
+    }
+
+    void addLong(long value) {
+        ensureCapacity();
+        types[size] = LONG;
+        longs[size++] = value;
+    }
+
+    void addDouble(double value) {
+        ensureCapacity();
+        types[size] = DOUBLE;
+        doubles[size++] = value;
+    }
+
+    void addBoolean(boolean value) {
+        ensureCapacity();
+        types[size] = BOOLEAN;
+        longs[size++] = value ? 1 : 0;
+    }
+
+    void addString(String value) {
+        ensureCapacity();
+        types[size] = STRING;
+        strings[size++] = value;
+    }
+
+    private void ensureCapacity() {
+        if (size == types.length) {
+            int capacity = size * 2;
+            types = Arrays.copyOf(types, capacity);
+            longs = Arrays.copyOf(longs, capacity);
+            doubles = Arrays.copyOf(doubles, capacity);
+            strings = Arrays.copyOf(strings, capacity);
+        }
+    }
+}
@@ -0,0 +1,117 @@
+/**
+ * MIT License
+ * <p>
+ * Copyright (c) 2018 Emmanouil Gkatziouras
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE
+ */
+
+package com.gkatzioura.influxdb.executor;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parses the RFC3339 times of query responses without going through java.time
+ */
+final class Timestamps {
+
+    private Timestamps() {
+    }
+
+    /**
+     * @param value a time such as 2018-01-01T00:00:00.5Z or 2018-01-01T01:00:00+01:00
+     * @param precision
+     * @return the time since the epoch in the given precision
+     * @throws IOException if the value is not a valid time
+     */
+    static long parse(CharSequence value, TimeUnit precision) throws IOException {
+        int length = value.length();
+        if (length < 20 || value.charAt(4) != '-' || value.charAt(7) != '-' || value.charAt(10) != 'T'
+                || value.charAt(13) != ':' || value.charAt(16) != ':')
+            throw invalid(value);
+
+        int year = digits(value, 0, 4);
+        int month = digits(value, 5, 2);
+        int day = digits(value, 8, 2);
+        int hour = digits(value, 11, 2);
+        int minute = digits(value, 14, 2);
+        int second = digits(value, 17, 2);
+        if (month < 1 || month > 12 || day < 1 || day > 31 || hour > 23 || minute > 59 || second > 59)
+            throw invalid(value);
+
+        int index = 19;
+        long nanos = 0;
+        if (value.charAt(index) == '.') {
+            index++;
+            int scale = 100_000_000;
+            int start = index;
+            while (index < length && Character.isDigit(value.charAt(index))) {
+                nanos += (value.charAt(index++) - '0') * (long) scale;
+                scale /= 10;
+            }
+            if (index == start || index - start > 9)
+                throw invalid(value);
+        }
+
+        if (index == length)
+            throw invalid(value);
+        int offsetSeconds = 0;
+        char zone = value.charAt(index);
+        if (zone == '+' || zone == '-') {
+            if (length != index + 6 || value.charAt(index + 3) != ':')
+                throw invalid(value);
+            offsetSeconds = digits(value, index + 1, 2) * 3600 + digits(value, index + 4, 2) * 60;
+            if (zone == '-')
+                offsetSeconds = -offsetSeconds;
+        } else if ((zone != 'Z' && zone != 'z') || length != index + 1) {
+            throw invalid(value);
+        }
+
+        long seconds = daysFromCivil(year, month, day) * 86400L + hour * 3600 + minute * 60 + second - offsetSeconds;
+        return precision.convert(seconds, TimeUnit.SECONDS) + precision.convert(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Days since 1970-01-01 of a date of the proleptic Gregorian calendar
+     */
+    private static long daysFromCivil(int year, int month, int day) {
+        int y = month <= 2 ? year - 1 : year;
+        int era = (y >= 0 ? y : y - 399) / 400;
+        int yearOfEra = y - era * 400;
+        int dayOfYear = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+        int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097L + dayOfEra - 719468;
+    }
+
+    private static int digits(CharSequence value, int start, int count) throws IOException {
+        int result = 0;
+        for (int i = start; i < start + count; i++) {
+            char c = value.charAt(i);
+            if (c < '0' || c > '9')
+                throw invalid(value);
+            result = result * 10 + (c - '0');
+        }
+        return result;
+    }
+
+    private static IOException invalid(CharSequence value) {
+        return new IOException(String.format("Invalid time %s in the response", value));
+    }
+}
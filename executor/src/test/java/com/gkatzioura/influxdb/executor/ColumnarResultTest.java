@@ -0,0 +1,186 @@
+/**
+ * MIT License
+ * <p>
+ * Copyright (c) 2018 Emmanouil Gkatziouras
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE
+ */
+
+package com.gkatzioura.influxdb.executor;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.LongBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ColumnarResultTest {
+
+    private static final String RESPONSE = "{\"results\":[{\"statement_id\":0,\"series\":[{\"name\":\"cpu\",\"tags\":{\"host\":\"a\"},"
+            + "\"columns\":[\"time\",\"value\",\"count\",\"up\",\"region\"],"
+            + "\"values\":[[10,1,1,true,\"eu\"],[20,1.5,null,false,\"us\"],[30,null,3,true,\"eu\"],[40,2,4,null,null]]}]}]}";
+
+    @Test
+    public void testColumns() throws IOException {
+        ColumnarSeries series = collect(RESPONSE, false).getSeries("cpu");
+
+        assertEquals(4, series.size());
+        assertEquals(Collections.singletonMap("host", "a"), series.getTags());
+        assertEquals(ColumnType.LONG, series.getType(0));
+        assertEquals(ColumnType.DOUBLE, series.getType(1));
+        assertEquals(ColumnType.LONG, series.getType(2));
+        assertEquals(ColumnType.BOOLEAN, series.getType(3));
+        assertEquals(ColumnType.STRING, series.getType(4));
+
+        assertArrayEquals(new long[]{10, 20, 30, 40}, toArray(series.getTimes()));
+        assertEquals(1.0, series.getDouble(1, 0));
+        assertEquals(1.5, series.getDouble(1, 1));
+        assertTrue(series.isNull(1, 2));
+        assertTrue(Double.isNaN(series.getDouble(1, 2)));
+        assertTrue(series.isNull(2, 1));
+        assertEquals(4, series.getLong(2, 3));
+        assertFalse(series.getBoolean(3, 1));
+        assertTrue(series.isNull(3, 3));
+
+        assertEquals(Arrays.asList("eu", "us"), series.getDictionary(4));
+        assertEquals(0, series.getCodes(4).get(2));
+        assertEquals("us", series.getString(4, 1));
+        assertEquals(null, series.getString(4, 3));
+    }
+
+    @Test
+    public void testOnHeapArrays() throws IOException {
+        ColumnarSeries series = collect(RESPONSE, false).getSeries("cpu");
+
+        assertTrue(series.getTimes().hasArray());
+        assertTrue(series.getDoubles(1).hasArray());
+    }
+
+    @Test
+    public void testOffHeap() throws IOException {
+        ColumnarSeries series = collect(RESPONSE, true).getSeries("cpu");
+
+        assertTrue(series.getTimes().isDirect());
+        assertTrue(series.getDoubles(1).isDirect());
+        assertArrayEquals(new long[]{10, 20, 30, 40}, toArray(series.getTimes()));
+        assertEquals(1.5, series.getDouble(1, 1));
+        assertEquals("eu", series.getString(4, 2));
+    }
+
+    @Test
+    public void testSlice() throws IOException {
+        ColumnarSeries series = collect(RESPONSE, false).getSeries("cpu");
+
+        ColumnarSeries slice = series.slice(15, 40);
+        assertEquals(2, slice.size());
+        assertArrayEquals(new long[]{20, 30}, toArray(slice.getTimes()));
+        assertEquals(1.5, slice.getDouble(1, 0));
+        assertEquals("eu", slice.getString(4, 1));
+        assertSame(series.getTimes().array(), slice.getTimes().array());
+
+        assertArrayEquals(new long[]{30}, toArray(slice.slice(25, 100).getTimes()));
+        assertEquals(0, series.slice(41, 50).size());
+        assertEquals(4, series.slice(Long.MIN_VALUE, Long.MAX_VALUE).size());
+        assertThrows(IndexOutOfBoundsException.class, () -> slice.getTime(2));
+    }
+
+    @Test
+    public void testSliceDescending() throws IOException {
+        String response = "{\"results\":[{\"statement_id\":0,\"series\":[{\"name\":\"cpu\",\"columns\":[\"time\",\"value\"],"
+                + "\"values\":[[40,4],[30,3],[20,2],[10,1]]}]}]}";
+
+        ColumnarSeries slice = collect(response, false).getSeries("cpu").slice(15, 40);
+        assertArrayEquals(new long[]{30, 20}, toArray(slice.getTimes()));
+    }
+
+    @Test
+    public void testChunksAndSeries() throws IOException {
+        String response = "{\"results\":[{\"statement_id\":0,\"series\":[{\"name\":\"cpu\",\"tags\":{\"host\":\"a\"},\"columns\":[\"time\",\"value\"],"
+                + "\"values\":[[1,1],[2,2]],\"partial\":true}],\"partial\":true}]}\n"
+                + "{\"results\":[{\"statement_id\":0,\"series\":[{\"name\":\"cpu\",\"tags\":{\"host\":\"a\"},\"columns\":[\"time\",\"value\"],"
+                + "\"values\":[[3,3.5]]},{\"name\":\"cpu\",\"tags\":{\"host\":\"b\"},\"columns\":[\"time\",\"value\"],"
+                + "\"values\":[[1,7]]}]}]}\n";
+
+        ColumnarResult result = collect(response, false);
+
+        assertEquals(2, result.getSeries().size());
+        ColumnarSeries first = result.getSeries().get(0);
+        assertEquals(3, first.size());
+        assertEquals(ColumnType.DOUBLE, first.getType(1));
+        assertEquals(2.0, first.getDouble(1, 1));
+        assertEquals(3.5, first.getDouble(1, 2));
+        assertEquals("b", result.getSeries().get(1).getTags().get("host"));
+    }
+
+    @Test
+    public void testGrowth() throws IOException {
+        StringBuilder response = new StringBuilder("{\"results\":[{\"statement_id\":0,\"series\":[{\"name\":\"cpu\",\"columns\":[\"time\",\"value\"],\"values\":[");
+        for (int i = 0; i < 1000; i++) {
+            response.append(i == 0 ? "" : ",").append('[').append(i).append(',').append(i % 7 == 0 ? "null" : Integer.toString(i)).append(']');
+        }
+        response.append("]}]}]}");
+
+        ColumnarSeries series = collect(response.toString(), true).getSeries("cpu");
+        assertEquals(1000, series.size());
+        assertEquals(999, series.getTime(999));
+        assertEquals(998, series.getLong(1, 998));
+        assertTrue(series.isNull(1, 994));
+        assertEquals(100, series.slice(500, 600).size());
+    }
+
+    @Test
+    public void testLeadingNulls() throws IOException {
+        String response = "{\"results\":[{\"statement_id\":0,\"series\":[{\"name\":\"cpu\",\"columns\":[\"time\",\"mean\",\"count\"],"
+                + "\"values\":[[1,null,null],[2,null,null],[3,1.5,null],[4,2,7]]}]}]}";
+
+        for (boolean offHeap : new boolean[]{false, true}) {
+            ColumnarSeries series = collect(response, offHeap).getSeries("cpu");
+            assertEquals(ColumnType.DOUBLE, series.getType(1));
+            assertTrue(Double.isNaN(series.getDouble(1, 0)));
+            assertTrue(Double.isNaN(series.getDoubles(1).get(1)));
+            assertEquals(1.5, series.getDouble(1, 2));
+            assertEquals(2.0, series.getDouble(1, 3));
+
+            assertEquals(ColumnType.LONG, series.getType(2));
+            assertTrue(series.isNull(2, 0));
+            assertEquals(7, series.getLong(2, 3));
+        }
+    }
+
+    private static ColumnarResult collect(String response, boolean offHeap) throws IOException {
+        return ColumnarResult.handler(TimeUnit.NANOSECONDS, offHeap).handle(new ByteArrayInputStream(response.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static long[] toArray(LongBuffer buffer) {
+        long[] values = new long[buffer.remaining()];
+        buffer.get(values);
+        return values;
+    }
+}
@@ -0,0 +1,183 @@
+/**
+ * MIT License
+ * <p>
+ * Copyright (c) 2018 Emmanouil Gkatziouras
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE
+ */
+
+package com.gkatzioura.influxdb.executor;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class JsonResponseDecoderTest {
+
+    @Test
+    public void testDecode() throws IOException {
+        String response = "{\"results\":[{\"statement_id\":0,\"series\":[{\"name\":\"cpu\",\"tags\":{\"host\":\"a\"},"
+                + "\"columns\":[\"time\",\"value\",\"count\",\"up\",\"label\"],"
+                + "\"values\":[[1514764800000000000,0.5,3,true,\"x\\\"y\"],[1514764810000000000,null,-4,false,\"\\u00e9\"]]}]}]}";
+
+        JsonResponseDecoder decoder = decoder(response, TimeUnit.NANOSECONDS);
+
+        assertTrue(decoder.next());
+        Row row = decoder.getRow();
+        assertEquals("cpu", row.getSeriesName());
+        assertEquals(Collections.singletonMap("host", "a"), row.getTags());
+        assertEquals(Arrays.asList("time", "value", "count", "up", "label"), row.getColumns());
+        assertEquals(1514764800000000000L, row.getTime());
+        assertEquals(0.5, row.getDouble(1));
+        assertEquals(3, row.getLong(2));
+        assertTrue(row.getBoolean(3));
+        assertEquals("x\"y", row.getString(4));
+
+        assertTrue(decoder.next());
+        assertEquals(1514764810000000000L, row.getTime());
+        assertTrue(row.isNull(1));
+        assertEquals(-4, row.getLong(2));
+        assertFalse(row.getBoolean(3));
+        assertEquals("\u00e9", row.getString(4));
+
+        assertFalse(decoder.next());
+    }
+
+    @Test
+    public void testRfc3339Times() throws IOException {
+        String response = "{\"results\":[{\"statement_id\":0,\"series\":[{\"name\":\"cpu\",\"columns\":[\"time\",\"value\"],"
+                + "\"values\":[[\"2018-01-01T00:00:00Z\",1],[\"2018-01-01T00:00:00.123456789Z\",2],"
+                + "[\"2018-01-01T01:00:00+01:00\",3],[\"1969-12-31T23:59:59.5Z\",4]]}]}]}";
+
+        assertEquals(Arrays.asList(1514764800000000000L, 1514764800123456789L, 1514764800000000000L, -500000000L),
+                times(response, TimeUnit.NANOSECONDS));
+        assertEquals(Arrays.asList(1514764800000L, 1514764800123L, 1514764800000L, -500L),
+                times(response, TimeUnit.MILLISECONDS));
+        assertEquals(Arrays.asList(1514764800L, 1514764800L, 1514764800L, -1L),
+                times(response, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testChunks() throws IOException {
+        String response = "{\"results\":[{\"statement_id\":0,\"series\":[{\"name\":\"cpu\",\"columns\":[\"time\",\"value\"],"
+                + "\"values\":[[1,1.5],[2,2.5]],\"partial\":true}],\"partial\":true}]}\n"
+                + "{\"results\":[{\"statement_id\":0,\"series\":[{\"name\":\"cpu\",\"columns\":[\"time\",\"value\"],"
+                + "\"values\":[[3,3.5]]}]},{\"statement_id\":1,\"series\":[{\"name\":\"mem\",\"columns\":[\"time\",\"free\"],"
+                + "\"values\":[[4,1e-07]]}]}]}\n";
+
+        List<String> rows = new ArrayList<>();
+        long count = JsonResponseDecoder.handler(TimeUnit.SECONDS,
+                row -> rows.add(row.getStatementId() + " " + row.getSeriesName() + " " + row.getTime() + " " + row.getDouble(1)))
+                .handle(new OneByteInputStream(response));
+
+        assertEquals(4, count);
+        assertEquals(Arrays.asList("0 cpu 1 1.5", "0 cpu 2 2.5", "0 cpu 3 3.5", "1 mem 4 1.0E-7"), rows);
+    }
+
+    @Test
+    public void testEmptyResults() throws IOException {
+        assertFalse(decoder(StubInfluxDBServer.EMPTY_RESULT, TimeUnit.NANOSECONDS).next());
+        assertFalse(decoder("{\"results\":[{\"statement_id\":0,\"series\":[{\"name\":\"cpu\",\"columns\":[\"time\"],\"values\":[]}]}]}",
+                TimeUnit.NANOSECONDS).next());
+    }
+
+    @Test
+    public void testNumbers() throws IOException {
+        String response = "{\"results\":[{\"series\":[{\"columns\":[\"a\",\"b\",\"c\",\"d\",\"e\",\"f\"],"
+                + "\"values\":[[9223372036854775807,-9223372036854775808,0.1,123456789.123456789,1.7976931348623157e308,18446744073709551616]]}]}]}";
+
+        JsonResponseDecoder decoder = decoder(response, TimeUnit.NANOSECONDS);
+        assertTrue(decoder.next());
+        Row row = decoder.getRow();
+        assertEquals(Long.MAX_VALUE, row.getLong(0));
+        assertEquals(Long.MIN_VALUE, row.getLong(1));
+        assertEquals(0.1, row.getDouble(2));
+        assertEquals(123456789.123456789, row.getDouble(3));
+        assertEquals(Double.MAX_VALUE, row.getDouble(4));
+        assertEquals(18446744073709551616.0, row.getDouble(5));
+    }
+
+    @Test
+    public void testStatementError() {
+        String response = "{\"results\":[{\"statement_id\":0,\"error\":\"database not found: foo\"}]}";
+
+        QueryExecutionException exception = assertThrows(QueryExecutionException.class,
+                () -> decoder(response, TimeUnit.NANOSECONDS).next());
+        assertEquals("database not found: foo", exception.getBody());
+    }
+
+    @Test
+    public void testMalformed() {
+        assertThrows(IOException.class, () -> times("{\"results\":[{\"series\":[{\"columns\":[\"time\"],\"values\":[[1],[2]", TimeUnit.NANOSECONDS));
+        assertThrows(IOException.class, () -> times("{\"results\":[{\"series\":[{\"columns\":[\"time\"],\"values\":[[\"yesterday\"]]}]}]}",
+                TimeUnit.NANOSECONDS));
+    }
+
+    private static List<Long> times(String response, TimeUnit precision) throws IOException {
+        List<Long> times = new ArrayList<>();
+        JsonResponseDecoder decoder = decoder(response, precision);
+        while (decoder.next()) {
+            times.add(decoder.getRow().getTime());
+        }
+        return times;
+    }
+
+    private static JsonResponseDecoder decoder(String response, TimeUnit precision) {
+        return new JsonResponseDecoder(new ByteArrayInputStream(response.getBytes(StandardCharsets.UTF_8)), precision);
+    }
+
+    /**
+     * Hands the bytes one at a time, every token spans several reads
+     */
+    private static class OneByteInputStream extends InputStream {
+
+        private final byte[] bytes;
+        private int position;
+
+        OneByteInputStream(String value) {
+            this.bytes = value.getBytes(StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public int read() {
+            return position < bytes.length ? bytes[position++] & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) {
+            if (position == bytes.length)
+                return -1;
+            buffer[offset] = bytes[position++];
+            return 1;
+        }
+    }
+}
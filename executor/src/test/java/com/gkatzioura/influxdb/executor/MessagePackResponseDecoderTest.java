@@ -0,0 +1,162 @@
+/**
+ * MIT License
+ * <p>
+ * Copyright (c) 2018 Emmanouil Gkatziouras
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE
+ */
+
+package com.gkatzioura.influxdb.executor;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class MessagePackResponseDecoderTest {
+
+    @Test
+    public void testDecode() throws IOException {
+        MessagePackWriter writer = new MessagePackWriter()
+                .map(1).string("results").array(1)
+                .map(2).string("statement_id").integer(0).string("series").array(1)
+                .map(4).string("name").string("cpu")
+                .string("tags").map(1).string("host").string("a")
+                .string("columns").array(5).string("time").string("value").string("count").string("up").string("label")
+                .string("values").array(2)
+                .array(5).time(1514764800L, 500).float64(0.5).integer(3).bool(true).string("x")
+                .array(5).time(1514764810L, 0).nil().integer(-40000).bool(false).string("\u00e9");
+
+        MessagePackResponseDecoder decoder = decoder(writer.toByteArray(), TimeUnit.NANOSECONDS);
+
+        assertTrue(decoder.next());
+        Row row = decoder.getRow();
+        assertEquals("cpu", row.getSeriesName());
+        assertEquals(Collections.singletonMap("host", "a"), row.getTags());
+        assertEquals(Arrays.asList("time", "value", "count", "up", "label"), row.getColumns());
+        assertEquals(1514764800000000500L, row.getTime());
+        assertEquals(0.5, row.getDouble(1));
+        assertEquals(3, row.getLong(2));
+        assertTrue(row.getBoolean(3));
+        assertEquals("x", row.getString(4));
+
+        assertTrue(decoder.next());
+        assertEquals(1514764810000000000L, row.getTime());
+        assertTrue(row.isNull(1));
+        assertEquals(-40000, row.getLong(2));
+        assertFalse(row.getBoolean(3));
+        assertEquals("\u00e9", row.getString(4));
+
+        assertFalse(decoder.next());
+    }
+
+    @Test
+    public void testPrecision() throws IOException {
+        MessagePackWriter writer = series(new MessagePackWriter(), 0, 1)
+                .array(2).time(1514764800L, 123456789).integer(1);
+
+        assertEquals(Collections.singletonList(1514764800123L), times(writer.toByteArray(), TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void testChunks() throws IOException {
+        MessagePackWriter writer = new MessagePackWriter();
+        series(writer, 0, 20);
+        for (int i = 0; i < 20; i++) {
+            writer.array(2).integer(i).float64(i + 0.5);
+        }
+        series(writer, 0, 1).array(2).integer(20).float64(20.5);
+
+        List<Long> times = times(writer.toByteArray(), TimeUnit.SECONDS);
+
+        assertEquals(21, times.size());
+        assertEquals(Long.valueOf(20), times.get(20));
+    }
+
+    @Test
+    public void testSameRowsAsJson() throws IOException {
+        String json = "{\"results\":[{\"statement_id\":0,\"series\":[{\"name\":\"cpu\",\"columns\":[\"time\",\"value\"],"
+                + "\"values\":[[1514764800,0.25],[1514764810,0.75]]}]}]}";
+        MessagePackWriter writer = series(new MessagePackWriter(), 0, 2)
+                .array(2).integer(1514764800).float64(0.25)
+                .array(2).integer(1514764810).float64(0.75);
+
+        List<String> jsonRows = new ArrayList<>();
+        JsonResponseDecoder.handler(TimeUnit.SECONDS, row -> jsonRows.add(row.getTime() + " " + row.getDouble(1)))
+                .handle(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)));
+        List<String> messagePackRows = new ArrayList<>();
+        MessagePackResponseDecoder.handler(TimeUnit.SECONDS, row -> messagePackRows.add(row.getTime() + " " + row.getDouble(1)))
+                .handle(new ByteArrayInputStream(writer.toByteArray()));
+
+        assertEquals(jsonRows, messagePackRows);
+    }
+
+    @Test
+    public void testStatementError() {
+        MessagePackWriter writer = new MessagePackWriter()
+                .map(1).string("results").array(1)
+                .map(1).string("error").string("database not found: foo");
+
+        QueryExecutionException exception = assertThrows(QueryExecutionException.class,
+                () -> decoder(writer.toByteArray(), TimeUnit.NANOSECONDS).next());
+        assertEquals("database not found: foo", exception.getBody());
+    }
+
+    @Test
+    public void testTruncated() {
+        MessagePackWriter writer = series(new MessagePackWriter(), 0, 2).array(2).integer(1).float64(1);
+
+        assertThrows(IOException.class, () -> times(writer.toByteArray(), TimeUnit.NANOSECONDS));
+    }
+
+    /**
+     * Starts a response with a single series of time and value columns
+     */
+    private static MessagePackWriter series(MessagePackWriter writer, int statementId, int rows) {
+        return writer.map(1).string("results").array(1)
+                .map(2).string("statement_id").integer(statementId).string("series").array(1)
+                .map(3).string("name").string("cpu")
+                .string("columns").array(2).string("time").string("value")
+                .string("values").array(rows);
+    }
+
+    private static List<Long> times(byte[] response, TimeUnit precision) throws IOException {
+        List<Long> times = new ArrayList<>();
+        MessagePackResponseDecoder decoder = decoder(response, precision);
+        while (decoder.next()) {
+            times.add(decoder.getRow().getTime());
+        }
+        return times;
+    }
+
+    private static MessagePackResponseDecoder decoder(byte[] response, TimeUnit precision) {
+        return new MessagePackResponseDecoder(new ByteArrayInputStream(response), precision);
+    }
+}
@@ -0,0 +1,140 @@
+/**
+ * MIT License
+ * <p>
+ * Copyright (c) 2018 Emmanouil Gkatziouras
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE
+ */
+
+package com.gkatzioura.influxdb.executor;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes MessagePack the way InfluxDB does, to build responses in tests
+ */
+class MessagePackWriter {
+
+    private final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+    MessagePackWriter map(int entries) {
+        return header(entries, 0x80, 0xde, 0xdf);
+    }
+
+    MessagePackWriter array(int elements) {
+        return header(elements, 0x90, 0xdc, 0xdd);
+    }
+
+    MessagePackWriter string(String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length < 32) {
+            outputStream.write(0xa0 | bytes.length);
+        } else if (bytes.length < 256) {
+            outputStream.write(0xd9);
+            outputStream.write(bytes.length);
+        } else {
+            outputStream.write(0xda);
+            writeShort(bytes.length);
+        }
+        outputStream.write(bytes, 0, bytes.length);
+        return this;
+    }
+
+    MessagePackWriter integer(long value) {
+        if (value >= 0 && value <= 0x7f) {
+            outputStream.write((int) value);
+        } else if (value >= -32 && value < 0) {
+            outputStream.write((int) value & 0xff);
+        } else if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) {
+            outputStream.write(0xd0);
+            outputStream.write((int) value & 0xff);
+        } else if (value >= Short.MIN_VALUE && value <= Short.MAX_VALUE) {
+            outputStream.write(0xd1);
+            writeShort((int) value);
+        } else if (value >= Integer.MIN_VALUE && value <= Integer.MAX_VALUE) {
+            outputStream.write(0xd2);
+            writeInt((int) value);
+        } else {
+            outputStream.write(0xd3);
+            writeLong(value);
+        }
+        return this;
+    }
+
+    MessagePackWriter float64(double value) {
+        outputStream.write(0xcb);
+        writeLong(Double.doubleToLongBits(value));
+        return this;
+    }
+
+    MessagePackWriter bool(boolean value) {
+        outputStream.write(value ? 0xc3 : 0xc2);
+        return this;
+    }
+
+    MessagePackWriter nil() {
+        outputStream.write(0xc0);
+        return this;
+    }
+
+    /**
+     * A time as written by the Go library of InfluxDB, an extension of type 5
+     */
+    MessagePackWriter time(long seconds, int nanos) {
+        outputStream.write(0xc7);
+        outputStream.write(12);
+        outputStream.write(5);
+        writeLong(seconds);
+        writeInt(nanos);
+        return this;
+    }
+
+    byte[] toByteArray() {
+        return outputStream.toByteArray();
+    }
+
+    private MessagePackWriter header(int size, int fixed, int format16, int format32) {
+        if (size < 16) {
+            outputStream.write(fixed | size);
+        } else if (size < 65536) {
+            outputStream.write(format16);
+            writeShort(size);
+        } else {
+            outputStream.write(format32);
+            writeInt(size);
+        }
+        return this;
+    }
+
+    private void writeShort(int value) {
+        outputStream.write(value >>> 8 & 0xff);
+        outputStream.write(value & 0xff);
+    }
+
+    private void writeInt(int value) {
+        writeShort(value >>> 16);
+        writeShort(value);
+    }
+
+    private void writeLong(long value) {
+        writeInt((int) (value >>> 32));
+        writeInt((int) value);
+    }
+}
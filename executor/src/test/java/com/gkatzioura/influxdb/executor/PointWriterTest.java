@@ -0,0 +1,230 @@
+/**
+ * MIT License
+ * <p>
+ * Copyright (c) 2018 Emmanouil Gkatziouras
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE
+ */
+
+package com.gkatzioura.influxdb.executor;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.gkatzioura.influxdb.querybuilder.Point;
+
+import static com.gkatzioura.influxdb.querybuilder.QueryBuilder.point;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class PointWriterTest {
+
+    private StubInfluxDBServer server;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        server = new StubInfluxDBServer();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        server.close();
+    }
+
+    @Test
+    public void testWrite() {
+        try (PointWriter writer = PointWriter.builder(server.getUrl()).precision(TimeUnit.SECONDS).build()) {
+            Point point = point("cpu");
+            writer.write("telegraf", point.measurement("cpu").tag("host", "a").field("value", 0.5).time(1000, TimeUnit.MILLISECONDS));
+            writer.write("telegraf", "autogen", point.measurement("cpu").tag("host", "b").field("value", 1.5).time(2000, TimeUnit.MILLISECONDS));
+            writer.write("telegraf", point.measurement("mem").field("free", 10L).time(3000, TimeUnit.MILLISECONDS));
+        }
+
+        assertEquals(2, server.getWrites().size());
+        Map<String, String> defaultPolicy = null;
+        Map<String, String> autogen = null;
+        for (Map<String, String> write : server.getWrites()) {
+            if (write.get("rp") == null)
+                defaultPolicy = write;
+            else
+                autogen = write;
+        }
+        assertNotNull(defaultPolicy);
+        assertEquals("telegraf", defaultPolicy.get("db"));
+        assertEquals("s", defaultPolicy.get("precision"));
+        assertNotNull(autogen);
+        assertEquals("autogen", autogen.get("rp"));
+
+        List<String> bodies = new ArrayList<>(server.getWriteBodies());
+        assertTrue(bodies.contains("cpu,host=a value=0.5 1\nmem free=10i 3\n"));
+        assertTrue(bodies.contains("cpu,host=b value=1.5 2\n"));
+    }
+
+    @Test
+    public void testBatchSize() throws ExecutionException, InterruptedException {
+        try (PointWriter writer = PointWriter.builder(server.getUrl()).batchSize(10).linger(Duration.ofMinutes(1)).build()) {
+            Point point = point("cpu");
+            for (int i = 0; i < 25; i++) {
+                writer.write("telegraf", point.measurement("cpu").field("value", (long) i));
+            }
+            writer.flush().get();
+
+            assertEquals(3, server.getWrites().size());
+            assertEquals(25, server.getWrittenLines());
+        }
+    }
+
+    @Test
+    public void testLinger() throws InterruptedException {
+        try (PointWriter writer = PointWriter.builder(server.getUrl()).linger(Duration.ofMillis(20)).build()) {
+            writer.write("telegraf", point("cpu").field("value", 1L));
+
+            long deadline = System.currentTimeMillis() + 5000;
+            while (server.getWrittenLines() == 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(5);
+            }
+            assertEquals(1, server.getWrittenLines());
+        }
+    }
+
+    @Test
+    public void testGzip() {
+        try (PointWriter writer = PointWriter.builder(server.getUrl()).gzip(true).build()) {
+            writer.write("telegraf", point("cpu").tag("host", "a").field("value", 1L));
+        }
+
+        assertEquals("gzip", server.getWrites().poll().get("encoding"));
+        assertEquals("cpu,host=a value=1i\n", server.getWriteBodies().poll());
+    }
+
+    @Test
+    public void testBackpressure() {
+        server.delay(200);
+
+        try (PointWriter writer = PointWriter.builder(server.getUrl()).bufferSize(4).batchSize(1).maxInFlight(1).build()) {
+            Point point = point("cpu");
+            boolean accepted = true;
+            for (int i = 0; i < 16 && accepted; i++) {
+                accepted = writer.write("telegraf", null, point.measurement("cpu").field("value", (long) i), 1, TimeUnit.MILLISECONDS);
+            }
+            assertFalse(accepted, "writes should be refused once the buffer is full");
+        }
+    }
+
+    @Test
+    public void testFailure() throws ExecutionException, InterruptedException {
+        server.respondToWrites(400);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+
+        try (PointWriter writer = PointWriter.builder(server.getUrl()).listener(new WriteListener() {
+            @Override
+            public void onFailure(String database, String retentionPolicy, int points, Throwable error) {
+                failure.set(error);
+            }
+        }).build()) {
+            writer.write("telegraf", point("cpu").field("value", 1L));
+            writer.flush().get();
+        }
+
+        assertEquals(400, ((WriteException) failure.get()).getStatusCode());
+    }
+
+    @Test
+    public void testClosed() {
+        PointWriter writer = PointWriter.builder(server.getUrl()).build();
+        writer.close();
+
+        assertThrows(IllegalStateException.class, () -> writer.write("telegraf", point("cpu").field("value", 1L)));
+    }
+
+    /**
+     * Reports the throughput of the writer against the stub server, with the latency of the write calls
+     * and the latency from the oldest point of a batch to its acknowledgement
+     */
+    @Test
+    public void testLoad() throws InterruptedException {
+        server.keepWriteBodies(false);
+        int producers = 8;
+        int pointsPerProducer = 100_000;
+        long[][] writeLatencies = new long[producers][pointsPerProducer];
+        List<Long> batchLatencies = Collections.synchronizedList(new ArrayList<>());
+
+        long start;
+        long elapsed;
+        try (PointWriter writer = PointWriter.builder(server.getUrl()).gzip(true).listener(new WriteListener() {
+            @Override
+            public void onSuccess(String database, String retentionPolicy, int points, long enqueuedNanos) {
+                batchLatencies.add(System.nanoTime() - enqueuedNanos);
+            }
+        }).build()) {
+            List<Thread> threads = new ArrayList<>();
+            for (int p = 0; p < producers; p++) {
+                final long[] latencies = writeLatencies[p];
+                final String host = "server" + p;
+                threads.add(new Thread(() -> {
+                    Point point = point("cpu");
+                    for (int i = 0; i < pointsPerProducer; i++) {
+                        long before = System.nanoTime();
+                        writer.write("telegraf", point.measurement("cpu").tag("host", host)
+                                                      .field("usage_idle", 90.5).field("processes", (long) i)
+                                                      .time(before, TimeUnit.NANOSECONDS));
+                        latencies[i] = System.nanoTime() - before;
+                    }
+                }));
+            }
+
+            start = System.nanoTime();
+            for (Thread thread : threads) {
+                thread.start();
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            writer.flush().join();
+            elapsed = System.nanoTime() - start;
+        }
+
+        long total = (long) producers * pointsPerProducer;
+        long[] latencies = Arrays.stream(writeLatencies).flatMapToLong(Arrays::stream).sorted().toArray();
+        long[] batches = batchLatencies.stream().mapToLong(Long::longValue).sorted().toArray();
+        System.out.printf("%d points in %d ms, %.0f points/s, write p50 %.2f us, p99 %.2f us, p99.9 %.2f us, "
+                          + "%d batches, batch p50 %.2f ms, p99 %.2f ms%n",
+                          total, elapsed / 1_000_000, total * 1e9 / elapsed,
+                          latencies[latencies.length / 2] / 1e3, latencies[latencies.length * 99 / 100] / 1e3,
+                          latencies[latencies.length * 999 / 1000] / 1e3,
+                          batches.length, batches[batches.length / 2] / 1e6, batches[batches.length * 99 / 100] / 1e6);
+
+        assertEquals(total, server.getWrittenLines());
+    }
+}
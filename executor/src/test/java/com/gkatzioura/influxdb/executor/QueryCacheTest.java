@@ -0,0 +1,256 @@
+/**
+ * MIT License
+ * <p>
+ * Copyright (c) 2018 Emmanouil Gkatziouras
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE
+ */
+
+package com.gkatzioura.influxdb.executor;
+
+import java.io.IOException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.gkatzioura.influxdb.querybuilder.BuiltStatement;
+
+import static com.gkatzioura.influxdb.querybuilder.QueryBuilder.eq;
+import static com.gkatzioura.influxdb.querybuilder.QueryBuilder.gt;
+import static com.gkatzioura.influxdb.querybuilder.QueryBuilder.now;
+import static com.gkatzioura.influxdb.querybuilder.QueryBuilder.select;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class QueryCacheTest {
+
+    private StubInfluxDBServer server;
+    private TestClock clock;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        server = new StubInfluxDBServer();
+        clock = new TestClock(1514764800000L);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        server.close();
+    }
+
+    @Test
+    public void testHit() {
+        QueryCache cache = QueryCache.builder().clock(clock).build();
+
+        try (QueryExecutor executor = QueryExecutor.builder(server.getUrl()).cache(cache).build()) {
+            BuiltStatement select = select().all().from("testdb", "foo").where(eq("k", "a"));
+
+            assertEquals(StubInfluxDBServer.EMPTY_RESULT, executor.execute(select).join());
+            assertEquals(StubInfluxDBServer.EMPTY_RESULT, executor.execute(select).join());
+            executor.execute(select().all().from("otherdb", "foo").where(eq("k", "a"))).join();
+        }
+
+        assertEquals(2, server.getRequests().size());
+        assertEquals(1, cache.getHits());
+        assertEquals(2, cache.getMisses());
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    public void testResponseHandlers() {
+        server.respond(200, "{\"results\":[{\"statement_id\":0,\"series\":[{\"name\":\"cpu\",\"columns\":[\"time\",\"value\"],"
+                + "\"values\":[[1514764800000,0.5],[1514764801000,0.75]]}]}]}\n");
+        QueryCache cache = QueryCache.builder().clock(clock).build();
+
+        try (QueryExecutor executor = QueryExecutor.builder(server.getUrl()).cache(cache).build()) {
+            BuiltStatement select = select("value").from("testdb", "cpu");
+
+            assertEquals(2L, (long) executor.query(select, TimeUnit.MILLISECONDS, row -> { }).join());
+            ColumnarResult result = executor.collect(select, TimeUnit.MILLISECONDS, false).join();
+            assertEquals(0.75, result.getSeries("cpu").getDouble(1, 1));
+            executor.execute(select).join();
+        }
+
+        assertEquals(2, server.getRequests().size(), "the query body is cached apart from the chunked one");
+        assertEquals(1, cache.getHits());
+    }
+
+    @Test
+    public void testTimeToLive() {
+        QueryCache cache = QueryCache.builder().ttl(Duration.ofSeconds(30)).clock(clock).build();
+
+        try (QueryExecutor executor = QueryExecutor.builder(server.getUrl()).cache(cache).build()) {
+            BuiltStatement select = select().all().from("testdb", "foo");
+
+            executor.execute(select).join();
+            clock.advance(29999);
+            executor.execute(select).join();
+            clock.advance(1);
+            executor.execute(select).join();
+        }
+
+        assertEquals(2, server.getRequests().size());
+        assertEquals(1, cache.getHits());
+        assertEquals(0, cache.getEvictions());
+    }
+
+    @Test
+    public void testNowBucket() {
+        QueryCache cache = QueryCache.builder().nowBucket(Duration.ofSeconds(10)).clock(clock).build();
+
+        try (QueryExecutor executor = QueryExecutor.builder(server.getUrl()).cache(cache).build()) {
+            BuiltStatement select = select().all().from("testdb", "foo").where(gt("time", now()));
+
+            executor.execute(select).join();
+            clock.advance(9999);
+            executor.execute(select).join();
+            clock.advance(1);
+            executor.execute(select).join();
+            clock.advance(5000);
+            executor.execute(select().all().from("testdb", "foo").where(gt("time", now()))).join();
+        }
+
+        assertEquals(2, server.getRequests().size());
+        assertEquals(2, cache.getHits());
+    }
+
+    @Test
+    public void testEviction() {
+        QueryCache cache = QueryCache.builder().maxBytes(500).clock(clock).build();
+
+        try (QueryExecutor executor = QueryExecutor.builder(server.getUrl()).cache(cache).build()) {
+            for (int i = 0; i < 3; i++) {
+                executor.execute(select().all().from("testdb", "foo").where(eq("k", i))).join();
+            }
+            executor.execute(select().all().from("testdb", "foo").where(eq("k", 1))).join();
+            executor.execute(select().all().from("testdb", "foo").where(eq("k", 3))).join();
+            executor.execute(select().all().from("testdb", "foo").where(eq("k", 1))).join();
+        }
+
+        assertEquals(4, server.getRequests().size());
+        assertEquals(2, cache.getHits());
+        assertEquals(2, cache.getEvictions());
+        assertTrue(cache.getBytes() <= 500);
+    }
+
+    @Test
+    public void testLargeResponse() {
+        server.respond(200, new String(new char[1000]).replace('\0', ' ') + StubInfluxDBServer.EMPTY_RESULT);
+        QueryCache cache = QueryCache.builder().maxBytes(500).clock(clock).build();
+
+        try (QueryExecutor executor = QueryExecutor.builder(server.getUrl()).cache(cache).build()) {
+            executor.execute(select().all().from("testdb", "foo")).join();
+            executor.execute(select().all().from("testdb", "foo")).join();
+        }
+
+        assertEquals(2, server.getRequests().size());
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testConcurrentMisses() {
+        server.delay(50);
+        QueryCache cache = QueryCache.builder().clock(clock).build();
+
+        try (QueryExecutor executor = QueryExecutor.builder(server.getUrl()).cache(cache).build()) {
+            List<CompletableFuture<String>> futures = new ArrayList<>();
+            for (int i = 0; i < 10; i++) {
+                futures.add(executor.execute(select().all().from("testdb", "foo")));
+            }
+            for (CompletableFuture<String> future : futures) {
+                assertEquals(StubInfluxDBServer.EMPTY_RESULT, future.join());
+            }
+        }
+
+        assertEquals(1, server.getRequests().size());
+        assertEquals(1, cache.getMisses());
+        assertEquals(9, cache.getHits());
+    }
+
+    @Test
+    public void testError() {
+        server.respond(400, "{\"error\":\"error parsing query\"}");
+        QueryCache cache = QueryCache.builder().clock(clock).build();
+
+        try (QueryExecutor executor = QueryExecutor.builder(server.getUrl()).cache(cache).build()) {
+            for (int i = 0; i < 2; i++) {
+                ExecutionException exception = assertThrows(ExecutionException.class, () -> executor.execute(select().all().from("testdb", "foo")).get());
+                assertEquals(400, ((QueryExecutionException) exception.getCause()).getStatusCode());
+            }
+        }
+
+        assertEquals(2, server.getRequests().size());
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testReadOnly() {
+        assertTrue(QueryCache.isReadOnly("SELECT * FROM foo;"));
+        assertTrue(QueryCache.isReadOnly("SELECT * FROM foo;SHOW MEASUREMENTS;"));
+        assertFalse(QueryCache.isReadOnly("SELECT * INTO bar FROM foo;"));
+        assertFalse(QueryCache.isReadOnly("SELECT * FROM foo;DROP MEASUREMENT foo;"));
+        assertFalse(QueryCache.isReadOnly("CREATE DATABASE foo;"));
+    }
+
+    private static final class TestClock extends Clock {
+
+        private volatile long millis;
+
+        private TestClock(long millis) {
+            this.millis = millis;
+        }
+
+        void advance(long millis) {
+            this.millis += millis;
+        }
+
+        @Override
+        public long millis() {
+            return millis;
+        }
+
+        @Override
+        public Instant instant() {
+            return Instant.ofEpochMilli(millis);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+    }
+}
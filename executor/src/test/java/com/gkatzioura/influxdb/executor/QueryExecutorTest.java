@@ -0,0 +1,175 @@
+/**
+ * MIT License
+ * <p>
+ * Copyright (c) 2018 Emmanouil Gkatziouras
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE
+ */
+
+package com.gkatzioura.influxdb.executor;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.gkatzioura.influxdb.querybuilder.BuiltStatement;
+
+import static com.gkatzioura.influxdb.querybuilder.QueryBuilder.eq;
+import static com.gkatzioura.influxdb.querybuilder.QueryBuilder.select;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class QueryExecutorTest {
+
+    private StubInfluxDBServer server;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        server = new StubInfluxDBServer();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        server.close();
+    }
+
+    @Test
+    public void testExecute() throws ExecutionException, InterruptedException {
+        try (QueryExecutor executor = QueryExecutor.builder(server.getUrl()).build()) {
+            BuiltStatement select = select().column("test1").from("testdb", "foo").where(eq("k", "a b"));
+
+            String response = executor.execute(select).get();
+
+            assertEquals(StubInfluxDBServer.EMPTY_RESULT, response);
+            Map<String, String> parameters = server.getRequests().poll();
+            assertEquals("SELECT test1 FROM foo WHERE k='a b';", parameters.get("q"));
+            assertEquals("testdb", parameters.get("db"));
+        }
+    }
+
+    @Test
+    public void testQuery() throws ExecutionException, InterruptedException {
+        server.respond(200, "{\"results\":[{\"statement_id\":0,\"series\":[{\"name\":\"cpu\",\"columns\":[\"time\",\"value\"],"
+                + "\"values\":[[1514764800000,0.5]],\"partial\":true}],\"partial\":true}]}\n"
+                + "{\"results\":[{\"statement_id\":0,\"series\":[{\"name\":\"cpu\",\"columns\":[\"time\",\"value\"],"
+                + "\"values\":[[1514764801000,0.75]]}]}]}\n");
+
+        try (QueryExecutor executor = QueryExecutor.builder(server.getUrl()).build()) {
+            List<String> rows = new ArrayList<>();
+            long count = executor.query(select("value").from("testdb", "cpu"), TimeUnit.MILLISECONDS,
+                    row -> rows.add(row.getTime() + "=" + row.getDouble(1))).get();
+
+            assertEquals(2, count);
+            assertEquals(Arrays.asList("1514764800000=0.5", "1514764801000=0.75"), rows);
+            Map<String, String> parameters = server.getRequests().poll();
+            assertEquals("true", parameters.get("chunked"));
+            assertEquals("ms", parameters.get("epoch"));
+            assertEquals("testdb", parameters.get("db"));
+        }
+    }
+
+    @Test
+    public void testMessagePack() throws ExecutionException, InterruptedException {
+        byte[] response = new MessagePackWriter()
+                .map(1).string("results").array(1)
+                .map(2).string("statement_id").integer(0).string("series").array(1)
+                .map(3).string("name").string("cpu")
+                .string("columns").array(2).string("time").string("value")
+                .string("values").array(1).array(2).integer(1514764800000L).float64(0.5)
+                .toByteArray();
+        server.respond(200, response, ResponseFormat.MESSAGE_PACK.getContentType());
+
+        try (QueryExecutor executor = QueryExecutor.builder(server.getUrl()).format(ResponseFormat.MESSAGE_PACK).build()) {
+            ColumnarResult result = executor.collect(select("value").from("testdb", "cpu"), TimeUnit.MILLISECONDS, false).get();
+
+            assertEquals(1514764800000L, result.getSeries("cpu").getTime(0));
+            assertEquals(0.5, result.getSeries("cpu").getDouble(1, 0));
+            assertEquals("application/x-msgpack", server.getAcceptHeaders().poll());
+        }
+    }
+
+    @Test
+    public void testError() {
+        server.respond(400, "{\"error\":\"error parsing query\"}");
+
+        try (QueryExecutor executor = QueryExecutor.builder(server.getUrl()).build()) {
+            ExecutionException exception = assertThrows(ExecutionException.class, () -> executor.execute(select().all().from("foo")).get());
+            QueryExecutionException cause = (QueryExecutionException) exception.getCause();
+            assertEquals(400, cause.getStatusCode());
+            assertEquals("{\"error\":\"error parsing query\"}", cause.getBody());
+        }
+    }
+
+    @Test
+    public void testMaxInFlight() {
+        server.delay(20);
+
+        try (QueryExecutor executor = QueryExecutor.builder(server.getUrl()).maxInFlight(4).build()) {
+            List<CompletableFuture<String>> futures = new ArrayList<>();
+            for (int i = 0; i < 40; i++) {
+                futures.add(executor.execute(select().all().from("testdb", "foo").where(eq("k", i))));
+            }
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).join();
+        }
+
+        assertEquals(40, server.getRequests().size());
+        assertTrue(server.getMaxInFlight() <= 4);
+        assertTrue(server.getConnections() < 40, "connections should be kept alive");
+    }
+
+    /**
+     * Reports the throughput and latency of the executor against the stub server
+     */
+    @Test
+    public void testThroughput() {
+        int requests = 2000;
+        long[] latencies = new long[requests];
+
+        try (QueryExecutor executor = QueryExecutor.builder(server.getUrl()).maxInFlight(16).build()) {
+            List<CompletableFuture<String>> futures = new ArrayList<>();
+            long start = System.nanoTime();
+            for (int i = 0; i < requests; i++) {
+                final int index = i;
+                final long submitted = System.nanoTime();
+                futures.add(executor.execute(select().all().from("testdb", "foo").where(eq("k", i)))
+                                    .whenComplete((response, error) -> latencies[index] = System.nanoTime() - submitted));
+            }
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).join();
+            long elapsed = System.nanoTime() - start;
+
+            Arrays.sort(latencies);
+            System.out.printf("%d queries in %d ms, %.0f queries/s, latency p50 %.2f ms, p99 %.2f ms, %d connections%n",
+                              requests, elapsed / 1_000_000, requests * 1e9 / elapsed,
+                              latencies[requests / 2] / 1e6, latencies[requests * 99 / 100] / 1e6, server.getConnections());
+        }
+
+        assertEquals(requests, server.getRequests().size());
+    }
+
+}
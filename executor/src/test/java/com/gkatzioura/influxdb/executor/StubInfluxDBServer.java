@@ -0,0 +1,245 @@
+/**
+ * MIT License
+ * <p>
+ * Copyright (c) 2018 Emmanouil Gkatziouras
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE
+ */
+
+package com.gkatzioura.influxdb.executor;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * An embedded HTTP server standing in for InfluxDB, it answers each request with a canned response
+ * after an optional delay and keeps track of the requests received.
+ */
+class StubInfluxDBServer implements AutoCloseable {
+
+    static final String EMPTY_RESULT = "{\"results\":[{\"statement_id\":0}]}";
+
+    private final HttpServer server;
+    private final ExecutorService executorService;
+
+    private final Queue<Map<String, String>> requests = new ConcurrentLinkedQueue<>();
+    private final Queue<String> acceptHeaders = new ConcurrentLinkedQueue<>();
+    private final Set<Integer> clientPorts = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+
+    private volatile int statusCode = 200;
+    private volatile byte[] response = EMPTY_RESULT.getBytes(StandardCharsets.UTF_8);
+    private volatile String contentType = "application/json";
+    private volatile long delayMillis;
+
+    private final Queue<Map<String, String>> writes = new ConcurrentLinkedQueue<>();
+    private final Queue<String> writeBodies = new ConcurrentLinkedQueue<>();
+    private final AtomicLong writtenLines = new AtomicLong();
+    private volatile int writeStatusCode = 204;
+    private volatile boolean keepWriteBodies = true;
+
+    static {
+        // responses are written as headers then body, without it each response waits for a delayed ack
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+    }
+
+    StubInfluxDBServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        executorService = Executors.newCachedThreadPool();
+        server.setExecutor(executorService);
+        server.createContext("/query", this::handle);
+        server.createContext("/write", this::handleWrite);
+        server.start();
+    }
+
+    String getUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    void respond(int statusCode, String response) {
+        respond(statusCode, response.getBytes(StandardCharsets.UTF_8), "application/json");
+    }
+
+    void respond(int statusCode, byte[] response, String contentType) {
+        this.statusCode = statusCode;
+        this.response = response;
+        this.contentType = contentType;
+    }
+
+    void delay(long delayMillis) {
+        this.delayMillis = delayMillis;
+    }
+
+    Queue<Map<String, String>> getRequests() {
+        return requests;
+    }
+
+    Queue<String> getAcceptHeaders() {
+        return acceptHeaders;
+    }
+
+    void respondToWrites(int writeStatusCode) {
+        this.writeStatusCode = writeStatusCode;
+    }
+
+    /**
+     * @param keepWriteBodies false to only count the lines written, for load tests
+     */
+    void keepWriteBodies(boolean keepWriteBodies) {
+        this.keepWriteBodies = keepWriteBodies;
+    }
+
+    /**
+     * @return the parameters of each write, with the Content-Encoding header under "encoding"
+     */
+    Queue<Map<String, String>> getWrites() {
+        return writes;
+    }
+
+    /**
+     * @return the bodies of the writes, decompressed
+     */
+    Queue<String> getWriteBodies() {
+        return writeBodies;
+    }
+
+    long getWrittenLines() {
+        return writtenLines.get();
+    }
+
+    int getConnections() {
+        return clientPorts.size();
+    }
+
+    int getMaxInFlight() {
+        return maxInFlight.get();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        clientPorts.add(exchange.getRemoteAddress().getPort());
+        requests.add(parameters(exchange));
+        String accept = exchange.getRequestHeaders().getFirst("Accept");
+        if (accept != null)
+            acceptHeaders.add(accept);
+
+        // a request stops counting before its response is sent, the client may send the next one as soon as it is read
+        int current = inFlight.incrementAndGet();
+        maxInFlight.accumulateAndGet(current, Math::max);
+        try {
+            if (delayMillis > 0)
+                Thread.sleep(delayMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        } finally {
+            inFlight.decrementAndGet();
+        }
+
+        byte[] body = response;
+        exchange.getResponseHeaders().add("Content-Type", contentType);
+        exchange.sendResponseHeaders(statusCode, body.length);
+        try (OutputStream outputStream = exchange.getResponseBody()) {
+            outputStream.write(body);
+        }
+    }
+
+    private void handleWrite(HttpExchange exchange) throws IOException {
+        Map<String, String> parameters = new HashMap<>();
+        String query = exchange.getRequestURI().getRawQuery();
+        if (query != null) {
+            for (String parameter : query.split("&")) {
+                int separator = parameter.indexOf('=');
+                parameters.put(decode(parameter.substring(0, separator)), decode(parameter.substring(separator + 1)));
+            }
+        }
+        String encoding = exchange.getRequestHeaders().getFirst("Content-Encoding");
+        if (encoding != null)
+            parameters.put("encoding", encoding);
+        writes.add(parameters);
+
+        InputStream requestBody = exchange.getRequestBody();
+        try (InputStream inputStream = "gzip".equals(encoding) ? new GZIPInputStream(requestBody) : requestBody) {
+            String body = QueryExecutor.readFully(inputStream);
+            long lines = body.chars().filter(c -> c == '\n').count();
+            writtenLines.addAndGet(lines);
+            if (keepWriteBodies)
+                writeBodies.add(body);
+        }
+
+        if (delayMillis > 0) {
+            try {
+                Thread.sleep(delayMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+
+        exchange.sendResponseHeaders(writeStatusCode, -1);
+        exchange.close();
+    }
+
+    private static Map<String, String> parameters(HttpExchange exchange) throws IOException {
+        String query = exchange.getRequestURI().getRawQuery();
+        try (InputStream inputStream = exchange.getRequestBody()) {
+            String body = QueryExecutor.readFully(inputStream);
+            if (!body.isEmpty())
+                query = query == null ? body : query + "&" + body;
+        }
+
+        Map<String, String> parameters = new HashMap<>();
+        if (query != null) {
+            for (String parameter : query.split("&")) {
+                int separator = parameter.indexOf('=');
+                parameters.put(decode(parameter.substring(0, separator)), decode(parameter.substring(separator + 1)));
+            }
+        }
+        return parameters;
+    }
+
+    private static String decode(String value) throws UnsupportedEncodingException {
+        return URLDecoder.decode(value, "UTF-8");
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executorService.shutdownNow();
+    }
+}
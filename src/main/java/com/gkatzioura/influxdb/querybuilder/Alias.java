@@ -24,6 +24,8 @@
 
 package com.gkatzioura.influxdb.querybuilder;
 
+import java.util.Objects;
+
 class Alias {
     private final Object column;
     private final String alias;
@@ -41,6 +43,21 @@ class Alias {
         return alias;
     }
 
+    @Override
+    public boolean equals(Object o) {
+        if (this == o)
+            return true;
+        if (!(o instanceof Alias))
+            return false;
+        Alias that = (Alias) o;
+        return Objects.equals(column, that.column) && Objects.equals(alias, that.alias);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Objects.hashCode(column) + Objects.hashCode(alias);
+    }
+
     @Override
     public String toString() {
         return String.format("%s AS %s", column, alias);
@@ -24,7 +24,18 @@
 
 package com.gkatzioura.influxdb.querybuilder;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
 interface Appendable {
 
-    void appendTo(StringBuilder sb);
+    void appendTo(java.lang.Appendable out) throws IOException;
+
+    default void appendTo(StringBuilder sb) {
+        try {
+            appendTo((java.lang.Appendable) sb);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
 }
@@ -24,94 +24,455 @@
 
 package com.gkatzioura.influxdb.querybuilder;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
-import java.util.regex.Pattern;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 public class Appender {
 
-    private static final Pattern cnamePattern = Pattern.compile("\\w+(?:\\[.+\\])?");
+    /**
+     * Measurement, tag and field names are few, their rendered form is kept once classified.
+     * When the bound is reached the cache is cleared, so names churning past it are cached afresh.
+     */
+    static final int NAME_CACHE_SIZE = 1024;
+
+    private static final ConcurrentMap<String, String> renderedNames = new ConcurrentHashMap<>();
+
+    private static final ThreadLocal<StringBuilder> DECIMAL_DIGITS = ThreadLocal.withInitial(() -> new StringBuilder(32));
+
+    private static final long[] DURATION_UNITS = {
+            604_800_000_000_000L, 86_400_000_000_000L, 3_600_000_000_000L, 60_000_000_000L, 1_000_000_000L, 1_000_000L, 1_000L, 1L
+    };
+
+    /**
+     * Keywords of InfluxQL, which stay quoted when used as names
+     */
+    private static final Set<String> KEYWORDS = new HashSet<>(Arrays.asList(
+            "ALL", "ALTER", "ANALYZE", "AND", "ANY", "AS", "ASC", "BEGIN", "BY", "CARDINALITY", "CONTINUOUS", "CREATE",
+            "DATABASE", "DATABASES", "DEFAULT", "DELETE", "DESC", "DESTINATIONS", "DIAGNOSTICS", "DISTINCT", "DROP",
+            "DURATION", "END", "EVERY", "EXACT", "EXPLAIN", "FALSE", "FIELD", "FOR", "FROM", "GRANT", "GRANTS", "GROUP",
+            "GROUPS", "IN", "INF", "INSERT", "INTO", "KEY", "KEYS", "KILL", "LIMIT", "MEASUREMENT", "MEASUREMENTS",
+            "NAME", "OFFSET", "ON", "OR", "ORDER", "PASSWORD", "POLICIES", "POLICY", "PRIVILEGES", "QUERIES", "QUERY",
+            "READ", "REPLICATION", "RESAMPLE", "RETENTION", "REVOKE", "SELECT", "SERIES", "SET", "SHARD", "SHARDS",
+            "SLIMIT", "SOFFSET", "STATS", "SUBSCRIPTION", "SUBSCRIPTIONS", "TAG", "TO", "TRUE", "USER", "USERS",
+            "VALUES", "WHERE", "WITH", "WRITE"));
+
+    private static final String[] DURATION_SUFFIXES = {"w", "d", "h", "m", "s", "ms", "u", "ns"};
+
+    /**
+     * Time literals range from 0000-01-01T00:00:00Z to 9999-12-31T23:59:59Z
+     */
+    private static final long MIN_LITERAL_SECONDS = -62167219200L;
+    private static final long MAX_LITERAL_SECONDS = 253402300799L;
 
     static StringBuilder joinAndAppend(StringBuilder sb, String separator, List<? extends Appendable> values) {
+        try {
+            joinAndAppend((java.lang.Appendable) sb, separator, values);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return sb;
+    }
+
+    static java.lang.Appendable joinAndAppend(java.lang.Appendable out, String separator, List<? extends Appendable> values) throws IOException {
         for (int i = 0; i < values.size(); i++) {
             if (i > 0)
-                sb.append(separator);
-            values.get(i).appendTo(sb);
+                out.append(separator);
+            values.get(i).appendTo(out);
         }
-        return sb;
+        return out;
     }
 
     static StringBuilder joinAndAppendNames(StringBuilder sb, List<?> values) {
+        try {
+            joinAndAppendNames((java.lang.Appendable) sb, values);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return sb;
+    }
+
+    static java.lang.Appendable joinAndAppendNames(java.lang.Appendable out, List<?> values) throws IOException {
         for (int i = 0; i < values.size(); i++) {
             if (i > 0)
-                sb.append(",");
-            appendName(values.get(i), sb);
+                out.append(',');
+            appendName(values.get(i), out);
         }
-        return sb;
+        return out;
     }
 
     static StringBuilder appendValue(Object value, StringBuilder sb) {
+        try {
+            appendValue(value, (java.lang.Appendable) sb);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return sb;
+    }
+
+    static java.lang.Appendable appendValue(Object value, java.lang.Appendable out) throws IOException {
         if (value == null) {
-            sb.append("null");
+            out.append("null");
         } else if (value instanceof Function) {
             Function fcall = (Function) value;
-            sb.append(fcall.getName()).append('(');
+            out.append(fcall.getName()).append('(');
             for (int i = 0; i < fcall.getParameters().length; i++) {
                 if (i > 0)
-                    sb.append(',');
-                appendValue(fcall.getParameters()[i], sb);
+                    out.append(',');
+                appendValue(fcall.getParameters()[i], out);
             }
-            sb.append(')');
+            out.append(')');
         } else if (value instanceof Column) {
-            appendName(((Column) value).getName(), sb);
+            appendName(((Column) value).getName(), out);
         } else if (value instanceof RawString) {
-            sb.append(value.toString());
+            out.append(value.toString());
         } else if (value instanceof String) {
-            sb.append("'").append(value).append("'");
-        } else if (value != null) {
-            sb.append(value);
+            appendString((String) value, out);
+        } else if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            appendLong(((Number) value).longValue(), out);
+        } else if (value instanceof Double) {
+            appendDouble((Double) value, out);
+        } else if (value instanceof Float) {
+            appendFloat((Float) value, out);
+        } else if (value instanceof Instant) {
+            appendInstant((Instant) value, out);
+        } else if (value instanceof Duration) {
+            appendDuration((Duration) value, out);
+        } else if (value instanceof BindMarker) {
+            ((BindMarker) value).appendTo(out);
         } else {
-            sb.append('?');
-            return sb;
+            out.append(value.toString());
         }
-        return sb;
+        return out;
+    }
+
+    /**
+     * Writes the value as a quoted string literal, backslashes, quotes and line feeds escaped
+     */
+    static java.lang.Appendable appendString(String value, java.lang.Appendable out) throws IOException {
+        out.append('\'');
+        int from = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '\\' || c == '\'' || c == '\n') {
+                out.append(value, from, i).append('\\').append(c == '\n' ? 'n' : c);
+                from = i + 1;
+            }
+        }
+        return out.append(value, from, value.length()).append('\'');
+    }
+
+    /**
+     * Writes the digits of the value, without creating a string when the output is not a {@link StringBuilder}
+     */
+    static java.lang.Appendable appendLong(long value, java.lang.Appendable out) throws IOException {
+        if (out instanceof StringBuilder)
+            return ((StringBuilder) out).append(value);
+        if (value == Long.MIN_VALUE)
+            return out.append("-9223372036854775808");
+
+        if (value < 0) {
+            out.append('-');
+            value = -value;
+        }
+        long divisor = 1;
+        while (divisor <= value / 10)
+            divisor *= 10;
+        for (; divisor > 0; divisor /= 10) {
+            out.append((char) ('0' + (value / divisor) % 10));
+        }
+        return out;
+    }
+
+    /**
+     * Writes the shortest digits identifying the value in plain decimal notation, InfluxQL has no exponent notation.
+     * The digits go through a builder reused per thread, {@link Double#toString(double)} would create a string per value.
+     * @throws IllegalArgumentException for NaN and infinities, which InfluxQL cannot express
+     */
+    static java.lang.Appendable appendDouble(double value, java.lang.Appendable out) throws IOException {
+        checkFinite(value);
+        StringBuilder digits = DECIMAL_DIGITS.get();
+        digits.setLength(0);
+        return appendDecimal(digits.append(value), out);
+    }
+
+    static java.lang.Appendable appendFloat(float value, java.lang.Appendable out) throws IOException {
+        checkFinite(value);
+        StringBuilder digits = DECIMAL_DIGITS.get();
+        digits.setLength(0);
+        return appendDecimal(digits.append(value), out);
+    }
+
+    static void checkFinite(double value) {
+        if (Double.isNaN(value) || Double.isInfinite(value))
+            throw new IllegalArgumentException(String.format("Invalid number %s, InfluxQL has no literal for it", value));
+    }
+
+    /**
+     * @param digits a number as written by {@link StringBuilder#append(double)}, d.dddEn beyond 10^7 and below 10^-3
+     */
+    private static java.lang.Appendable appendDecimal(StringBuilder digits, java.lang.Appendable out) throws IOException {
+        int e = digits.indexOf("E");
+        if (e < 0)
+            return out.append(digits);
+
+        int start = 0;
+        if (digits.charAt(0) == '-') {
+            out.append('-');
+            start = 1;
+        }
+        int exponent = 0;
+        boolean negative = digits.charAt(e + 1) == '-';
+        for (int i = negative ? e + 2 : e + 1; i < digits.length(); i++) {
+            exponent = exponent * 10 + (digits.charAt(i) - '0');
+        }
+        if (negative)
+            exponent = -exponent;
+
+        // the significant digits are the leading digit and the fraction, without the point and trailing zeros
+        int end = e;
+        while (end > start + 3 && digits.charAt(end - 1) == '0')
+            end--;
+        if (end == start + 3 && digits.charAt(start + 2) == '0')
+            end = start + 2;
+        int significant = end - start - (end > start + 1 ? 1 : 0);
+        int point = exponent + 1;
+
+        if (point <= 0) {
+            out.append("0.");
+            for (int i = point; i < 0; i++)
+                out.append('0');
+            return appendSignificant(digits, start, end, out);
+        }
+        if (point >= significant) {
+            appendSignificant(digits, start, end, out);
+            for (int i = significant; i < point; i++)
+                out.append('0');
+            return out.append(".0");
+        }
+        out.append(digits.charAt(start)).append(digits, start + 2, start + 1 + point).append('.');
+        return out.append(digits, start + 1 + point, end);
+    }
+
+    private static java.lang.Appendable appendSignificant(StringBuilder digits, int start, int end, java.lang.Appendable out) throws IOException {
+        out.append(digits.charAt(start));
+        return end > start + 2 ? out.append(digits, start + 2, end) : out;
+    }
+
+    /**
+     * Writes an RFC3339 time literal, fractional digits are written only when needed
+     */
+    static java.lang.Appendable appendInstant(Instant value, java.lang.Appendable out) throws IOException {
+        checkTimeLiteral(value);
+
+        long seconds = value.getEpochSecond();
+        long days = Math.floorDiv(seconds, 86400L);
+        int secondOfDay = (int) Math.floorMod(seconds, 86400L);
+
+        // civil date from the days since the epoch, proleptic Gregorian calendar
+        long z = days + 719468;
+        long era = Math.floorDiv(z, 146097);
+        long dayOfEra = z - era * 146097;
+        long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        long monthIndex = (5 * dayOfYear + 2) / 153;
+        int day = (int) (dayOfYear - (153 * monthIndex + 2) / 5 + 1);
+        int month = (int) (monthIndex < 10 ? monthIndex + 3 : monthIndex - 9);
+        long year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+
+        out.append('\'');
+        appendDigits((int) year, 4, out).append('-');
+        appendDigits(month, 2, out).append('-');
+        appendDigits(day, 2, out).append('T');
+        appendDigits(secondOfDay / 3600, 2, out).append(':');
+        appendDigits(secondOfDay / 60 % 60, 2, out).append(':');
+        appendDigits(secondOfDay % 60, 2, out);
+
+        int nanos = value.getNano();
+        if (nanos > 0) {
+            int digits = 9;
+            while (nanos % 10 == 0) {
+                nanos /= 10;
+                digits--;
+            }
+            out.append('.');
+            appendDigits(nanos, digits, out);
+        }
+        return out.append("Z'");
+    }
+
+    static Instant checkTimeLiteral(Instant value) {
+        if (value.getEpochSecond() < MIN_LITERAL_SECONDS || value.getEpochSecond() > MAX_LITERAL_SECONDS)
+            throw new IllegalArgumentException(String.format("Instant %s out of the range of time literals", value));
+        return value;
+    }
+
+    /**
+     * Writes a duration literal using the largest unit that represents the duration exactly
+     */
+    static java.lang.Appendable appendDuration(Duration value, java.lang.Appendable out) throws IOException {
+        if (value.isNegative())
+            throw new IllegalArgumentException(String.format("Negative duration %s", value));
+
+        long nanos = value.toNanos();
+        if (nanos == 0)
+            return out.append("0s");
+
+        int unit = 0;
+        while (nanos % DURATION_UNITS[unit] != 0)
+            unit++;
+        return appendLong(nanos / DURATION_UNITS[unit], out).append(DURATION_SUFFIXES[unit]);
+    }
+
+    private static java.lang.Appendable appendDigits(int value, int digits, java.lang.Appendable out) throws IOException {
+        int divisor = 1;
+        for (int i = 1; i < digits; i++)
+            divisor *= 10;
+        for (; divisor > 0; divisor /= 10) {
+            out.append((char) ('0' + (value / divisor) % 10));
+        }
+        return out;
     }
 
     static StringBuilder appendName(String name, StringBuilder sb) {
-        name = name.trim();
-        if (name.startsWith("\"") || name.startsWith("token(") || cnamePattern.matcher(name).matches())
-            sb.append(name);
-        else
-            sb.append('"').append(name).append('"');
-        return sb;
+        return sb.append(renderedName(name));
+    }
+
+    static java.lang.Appendable appendName(String name, java.lang.Appendable out) throws IOException {
+        return out.append(renderedName(name));
+    }
+
+    private static String renderedName(String name) {
+        String rendered = renderedNames.get(name);
+        if (rendered == null) {
+            rendered = renderName(name);
+            if (renderedNames.size() >= NAME_CACHE_SIZE)
+                renderedNames.clear();
+            renderedNames.putIfAbsent(name, rendered);
+        }
+        return rendered;
+    }
+
+    static boolean isNameCached(String name) {
+        return renderedNames.containsKey(name);
+    }
+
+    static int cachedNames() {
+        return renderedNames.size();
+    }
+
+    static String renderName(String name) {
+        int start = 0;
+        int end = name.length();
+        while (start < end && name.charAt(start) <= ' ')
+            start++;
+        while (end > start && name.charAt(end - 1) <= ' ')
+            end--;
+
+        if (isVerbatimName(name, start, end))
+            return name.substring(start, end);
+
+        return new StringBuilder(end - start + 2).append('"').append(name, start, end).append('"').toString();
+    }
+
+    /**
+     * @param name
+     * @return the name as rendered, without quotes when they are not needed, so that "host" and host compare equal
+     */
+    static String canonicalName(String name) {
+        String rendered = renderName(name);
+        int length = rendered.length();
+        if (length < 3 || rendered.charAt(0) != '"' || rendered.charAt(length - 1) != '"')
+            return rendered;
+
+        if (rendered.charAt(1) >= '0' && rendered.charAt(1) <= '9')
+            return rendered;
+        for (int i = 1; i < length - 1; i++) {
+            if (!isWordCharacter(rendered.charAt(i)))
+                return rendered;
+        }
+        String unquoted = rendered.substring(1, length - 1);
+        return KEYWORDS.contains(unquoted.toUpperCase(Locale.ROOT)) ? rendered : unquoted;
+    }
+
+    /**
+     * Names already quoted, token calls and words optionally followed by a bracket expression
+     * e.g. field[0] are appended as they are.
+     */
+    private static boolean isVerbatimName(String name, int start, int end) {
+        if (name.startsWith("\"", start) || name.startsWith("token(", start))
+            return true;
+
+        int i = start;
+        while (i < end && isWordCharacter(name.charAt(i)))
+            i++;
+
+        if (i == start)
+            return false;
+        if (i == end)
+            return true;
+        if (end - i < 3 || name.charAt(i) != '[' || name.charAt(end - 1) != ']')
+            return false;
+
+        for (int j = i + 1; j < end - 1; j++) {
+            if (isLineTerminator(name.charAt(j)))
+                return false;
+        }
+        return true;
+    }
+
+    private static boolean isWordCharacter(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '_';
+    }
+
+    private static boolean isLineTerminator(char c) {
+        return c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029';
     }
 
     static StringBuilder appendName(Object name, StringBuilder sb) {
+        try {
+            appendName(name, (java.lang.Appendable) sb);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return sb;
+    }
+
+    static java.lang.Appendable appendName(Object name, java.lang.Appendable out) throws IOException {
         if (name instanceof String) {
-            appendName((String) name, sb);
+            appendName((String) name, out);
         } else if (name instanceof Column) {
-            appendName(((Column) name).getName(), sb);
+            appendName(((Column) name).getName(), out);
         } else if (name instanceof Function) {
             Function functionCall = (Function) name;
-            sb.append(functionCall.getName()).append('(');
+            out.append(functionCall.getName()).append('(');
             for (int i = 0; i < functionCall.getParameters().length; i++) {
                 if (i > 0)
-                    sb.append(',');
-                appendValue(functionCall.getParameters()[i], sb);
+                    out.append(',');
+                appendValue(functionCall.getParameters()[i], out);
             }
-            sb.append(')');
+            out.append(')');
         } else if (name instanceof Alias) {
             Alias alias = (Alias) name;
-            appendName(alias.getColumn(), sb);
-            sb.append(" AS ").append(alias.getAlias());
+            appendName(alias.getColumn(), out);
+            out.append(" AS ").append(alias.getAlias());
         } else if (name instanceof RawString) {
-            sb.append(name);
+            out.append(name.toString());
         } else if (name instanceof Distinct) {
             Distinct distinct = (Distinct) name;
-            sb.append("DISTINCT ");
-            appendName(distinct.getExpression(), sb);
+            out.append("DISTINCT ");
+            appendName(distinct.getExpression(), out);
         } else {
             throw new IllegalArgumentException(String.format("Invalid column %s of type unknown of the query builder", name));
         }
-        return sb;
+        return out;
     }
 }
@@ -0,0 +1,206 @@
+/**
+ * MIT License
+ * <p>
+ * Copyright (c) 2018 Emmanouil Gkatziouras
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE
+ */
+
+package com.gkatzioura.influxdb.querybuilder;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.IntStream;
+
+/**
+ * Several statements sent with one request, InfluxDB executes the semicolon separated statements
+ * of the q parameter and returns a result for each one of them.
+ */
+public class BatchStatement extends BuiltStatement {
+
+    /**
+     * Batches with more statements are rendered in parallel
+     */
+    static final int PARALLEL_THRESHOLD = 64;
+
+    private static final int MAX_BUFFER_CAPACITY = 64 * 1024;
+
+    private static final ThreadLocal<StringBuilder> BUFFER = ThreadLocal.withInitial(StringBuilder::new);
+
+    private final List<BuiltStatement> statements;
+
+    /**
+     * The statements already rendered, set on the chunks of a split
+     */
+    private final String[] rendered;
+
+    BatchStatement(List<? extends BuiltStatement> statements) {
+        this(databaseOf(statements), Collections.unmodifiableList(new ArrayList<>(statements)), null);
+    }
+
+    private BatchStatement(String database, List<BuiltStatement> statements, String[] rendered) {
+        super(database);
+        this.statements = statements;
+        this.rendered = rendered;
+    }
+
+    private static String databaseOf(List<? extends BuiltStatement> statements) {
+        if (statements.isEmpty())
+            throw new IllegalArgumentException("A batch needs at least one statement");
+
+        String database = statements.get(0).getDatabase();
+        for (BuiltStatement statement : statements) {
+            if (!Objects.equals(database, statement.getDatabase()))
+                throw new IllegalArgumentException(String.format("The statements of a batch should target the same database, found %s and %s", database, statement.getDatabase()));
+        }
+        return database;
+    }
+
+    public List<BuiltStatement> getStatements() {
+        return statements;
+    }
+
+    @Override
+    void appendQueryString(java.lang.Appendable out) throws IOException {
+        for (String query : render()) {
+            out.append(query);
+        }
+    }
+
+    /**
+     * Each statement is already terminated with a semicolon
+     */
+    @Override
+    public void appendTo(java.lang.Appendable out) throws IOException {
+        appendQueryString(out);
+    }
+
+    /**
+     * Splits the batch into batches whose query does not exceed the given number of UTF-8 bytes,
+     * as sent in a request body.
+     * A statement longer than the limit is placed alone in a batch.
+     * @param maxBytes
+     * @return
+     */
+    public List<BatchStatement> split(int maxBytes) {
+        return split(maxBytes, false);
+    }
+
+    /**
+     * Splits the batch into batches whose form encoded q and db parameters, as sent in a URL,
+     * do not exceed the given length.
+     * A statement longer than the limit is placed alone in a batch.
+     * @param maxLength
+     * @return
+     */
+    public List<BatchStatement> splitEncoded(int maxLength) {
+        return split(maxLength, true);
+    }
+
+    private List<BatchStatement> split(int limit, boolean encoded) {
+        if (limit <= 0)
+            throw new IllegalArgumentException("Invalid limit, must be strictly positive");
+
+        String[] queries = render();
+        int[] lengths = new int[queries.length];
+        IntStream indexes = IntStream.range(0, queries.length);
+        if (queries.length >= PARALLEL_THRESHOLD)
+            indexes = indexes.parallel();
+        indexes.forEach(i -> lengths[i] = encoded ? FormEncoder.encodedLength(queries[i]) : utf8Length(queries[i]));
+
+        int fixedLength = 0;
+        if (encoded) {
+            fixedLength = "q=".length();
+            if (database != null)
+                fixedLength += "&db=".length() + FormEncoder.encodedLength(database);
+        }
+
+        List<BatchStatement> chunks = new ArrayList<>();
+        int start = 0;
+        int length = fixedLength;
+        for (int i = 0; i < queries.length; i++) {
+            if (i > start && length + lengths[i] > limit) {
+                chunks.add(chunk(start, i, queries));
+                start = i;
+                length = fixedLength;
+            }
+            length += lengths[i];
+        }
+        chunks.add(chunk(start, queries.length, queries));
+        return chunks;
+    }
+
+    private BatchStatement chunk(int start, int end, String[] queries) {
+        return new BatchStatement(database, statements.subList(start, end), Arrays.copyOfRange(queries, start, end));
+    }
+
+    /**
+     * Renders each statement, terminated with a semicolon, into a buffer kept per thread
+     */
+    private String[] render() {
+        if (rendered != null)
+            return rendered;
+
+        String[] queries = new String[statements.size()];
+        IntStream indexes = IntStream.range(0, queries.length);
+        if (queries.length >= PARALLEL_THRESHOLD)
+            indexes = indexes.parallel();
+        indexes.forEach(i -> queries[i] = render(statements.get(i)));
+        return queries;
+    }
+
+    private static String render(BuiltStatement statement) {
+        StringBuilder sb = BUFFER.get();
+        sb.setLength(0);
+        try {
+            statement.appendTo(sb);
+            return addSemicolonIfNeeded(sb).toString();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            if (sb.capacity() > MAX_BUFFER_CAPACITY)
+                BUFFER.remove();
+        }
+    }
+
+    private static int utf8Length(String query) {
+        int length = 0;
+        for (int i = 0; i < query.length(); i++) {
+            char c = query.charAt(i);
+            if (c < 0x80) {
+                length += 1;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < query.length() && Character.isLowSurrogate(query.charAt(i + 1))) {
+                length += 4;
+                i++;
+            } else if (Character.isSurrogate(c)) {
+                length += 1;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+}
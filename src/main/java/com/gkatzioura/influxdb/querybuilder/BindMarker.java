@@ -0,0 +1,64 @@
+/**
+ * MIT License
+ * <p>
+ * Copyright (c) 2018 Emmanouil Gkatziouras
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE
+ */
+
+package com.gkatzioura.influxdb.querybuilder;
+
+import java.io.IOException;
+
+class BindMarker {
+
+    static final BindMarker ANONYMOUS = new BindMarker();
+
+    private BindMarker() {
+    }
+
+    /**
+     * @param value
+     * @return whether the value is a bind marker or a function call taking one
+     */
+    static boolean isIn(Object value) {
+        if (value instanceof BindMarker)
+            return true;
+        if (value instanceof Function) {
+            for (Object parameter : ((Function) value).getParameters()) {
+                if (isIn(parameter))
+                    return true;
+            }
+        }
+        return false;
+    }
+
+    void appendTo(java.lang.Appendable out) throws IOException {
+        if (out instanceof PreparedStatement.TemplateBuilder) {
+            ((PreparedStatement.TemplateBuilder) out).bindMarker();
+        } else {
+            out.append('?');
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "?";
+    }
+}
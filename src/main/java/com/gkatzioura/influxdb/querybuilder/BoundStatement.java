@@ -0,0 +1,68 @@
+/**
+ * MIT License
+ * <p>
+ * Copyright (c) 2018 Emmanouil Gkatziouras
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE
+ */
+
+package com.gkatzioura.influxdb.querybuilder;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+public class BoundStatement extends BuiltStatement {
+
+    private final PreparedStatement preparedStatement;
+    private final Object[] values;
+
+    BoundStatement(PreparedStatement preparedStatement, Object[] values) {
+        super(preparedStatement.getDatabase());
+        this.preparedStatement = preparedStatement;
+        this.values = values;
+    }
+
+    public PreparedStatement getPreparedStatement() {
+        return preparedStatement;
+    }
+
+    @Override
+    StringBuilder buildQueryString() {
+        StringBuilder sb = new StringBuilder(preparedStatement.estimateLength(values));
+        try {
+            preparedStatement.fill(values, sb);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return sb;
+    }
+
+    @Override
+    void appendQueryString(java.lang.Appendable out) throws IOException {
+        preparedStatement.fill(values, out);
+    }
+
+    /**
+     * The template already ends with a semicolon
+     */
+    @Override
+    public void appendTo(java.lang.Appendable out) throws IOException {
+        preparedStatement.fill(values, out);
+    }
+}
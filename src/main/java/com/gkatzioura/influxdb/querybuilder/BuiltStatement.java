@@ -24,19 +24,31 @@
 
 package com.gkatzioura.influxdb.querybuilder;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
 public abstract class BuiltStatement extends Statement {
 
     final String database;
 
+    /**
+     * The rendered query, statements that change render through an immutable snapshot instead.
+     * Since strings are immutable a racy read only results to rendering the query once more.
+     */
+    private volatile String queryString;
+
     BuiltStatement(String database) {
         this.database = database;
     }
 
     @Override
     public String getQueryString() {
-        StringBuilder sb = buildQueryString();
-        addSemicolonIfNeeded(sb);
-        return sb.toString();
+        String query = queryString;
+        if (query == null) {
+            query = addSemicolonIfNeeded(buildQueryString()).toString();
+            queryString = query;
+        }
+        return query;
     }
 
     static StringBuilder addSemicolonIfNeeded(StringBuilder sb) {
@@ -51,7 +63,55 @@ public abstract class BuiltStatement extends Statement {
         return sb;
     }
 
-    abstract StringBuilder buildQueryString();
+    StringBuilder buildQueryString() {
+        StringBuilder sb = new StringBuilder();
+        try {
+            appendQueryString(sb);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return sb;
+    }
+
+    abstract void appendQueryString(java.lang.Appendable out) throws IOException;
+
+    /**
+     * Renders the statement, terminated with a semicolon, straight into the given output
+     * @param out
+     * @throws IOException
+     */
+    public void appendTo(java.lang.Appendable out) throws IOException {
+        String query = queryString;
+        if (query != null) {
+            out.append(query);
+        } else {
+            appendQueryString(out);
+            out.append(';');
+        }
+    }
+
+    /**
+     * Renders the statement without its terminating semicolon, nested in another statement.
+     * Templates are rendered from the statement itself, the cached query would hide its bind markers.
+     * @param out
+     * @throws IOException
+     */
+    void appendUnterminated(java.lang.Appendable out) throws IOException {
+        String query = queryString;
+        if (query != null && !(out instanceof PreparedStatement.TemplateBuilder))
+            out.append(query, 0, query.length() - 1);
+        else
+            appendQueryString(out);
+    }
+
+    /**
+     * Compiles the statement into a template, the bind markers of the statement are substituted on
+     * {@link PreparedStatement#bind(Object...)}
+     * @return
+     */
+    public PreparedStatement prepare() {
+        return new PreparedStatement(this);
+    }
 
     @Override
     public String getDatabase() {
@@ -60,7 +120,7 @@ public abstract class BuiltStatement extends Statement {
 
     @Override
     public String toString() {
-        return addSemicolonIfNeeded(buildQueryString()).toString();
+        return getQueryString();
     }
 
 
@@ -83,6 +143,16 @@ public abstract class BuiltStatement extends Statement {
             return statement.buildQueryString();
         }
 
+        @Override
+        void appendQueryString(java.lang.Appendable out) throws IOException {
+            statement.appendQueryString(out);
+        }
+
+        @Override
+        public void appendTo(java.lang.Appendable out) throws IOException {
+            statement.appendTo(out);
+        }
+
         @Override
         public String getDatabase() {
             return statement.getDatabase();
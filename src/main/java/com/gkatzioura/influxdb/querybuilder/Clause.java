@@ -24,17 +24,159 @@
 
 package com.gkatzioura.influxdb.querybuilder;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
 
 
 public abstract class Clause implements Appendable {
 
+    /**
+     * Precedences of the operators clauses are joined with, AND binds tighter than OR
+     */
+    static final int OR_PRECEDENCE = 1;
+    static final int AND_PRECEDENCE = 2;
+    static final int ATOM_PRECEDENCE = 3;
+
+    /**
+     * @return the clause with its names in canonical form, this clause if they already are
+     */
+    Clause canonical() {
+        return this;
+    }
+
+    /**
+     * @return a 64-bit hash of the structure of the clause, stable across JVM runs
+     */
+    public long fingerprint() {
+        Fingerprint fingerprint = new Fingerprint();
+        fingerprint(fingerprint);
+        return fingerprint.hash();
+    }
+
+    /**
+     * InfluxQL has no NOT operator, the negation is pushed down to the comparisons by inverting their operators
+     * @return the clause matching the points this clause does not match
+     * @throws IllegalArgumentException if the clause cannot be inverted
+     */
+    Clause negate() {
+        StringBuilder sb = new StringBuilder();
+        appendTo(sb);
+        throw new IllegalArgumentException(String.format("%s cannot be negated", sb));
+    }
+
+    static String negate(String op) {
+        switch (op) {
+            case Operations.EQ:
+                return Operations.NE;
+            case Operations.NE:
+                return Operations.EQ;
+            case Operations.LT:
+                return Operations.GTE;
+            case Operations.GTE:
+                return Operations.LT;
+            case Operations.GT:
+                return Operations.LTE;
+            case Operations.LTE:
+                return Operations.GT;
+            default:
+                throw new IllegalArgumentException(String.format("Operator %s cannot be negated", op));
+        }
+    }
+
+    /**
+     * Positional bind markers all compare equal, clauses holding one stand for distinct values even when equal
+     * and keep their position, they are neither merged nor reordered
+     * @return whether a value of the clause is a bind marker
+     */
+    boolean hasBindMarker() {
+        // clauses defined outside of the builder are checked on their template
+        PreparedStatement.TemplateBuilder template = new PreparedStatement.TemplateBuilder();
+        try {
+            appendTo(template);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return template.hasBindMarkers();
+    }
+
+    /**
+     * @return the precedence of the loosest operator of the clause as rendered by {@link #appendExpression}
+     */
+    int precedence() {
+        return ATOM_PRECEDENCE;
+    }
+
+    /**
+     * Renders the clause without the parentheses it is wrapped in when rendered on its own
+     */
+    void appendExpression(java.lang.Appendable out) throws IOException {
+        appendTo(out);
+    }
+
+    /**
+     * Renders the clause as an operand of an operator, wrapped in parentheses only if it binds looser than the operator
+     * @param out
+     * @param precedence the precedence of the operator
+     */
+    final void appendOperand(java.lang.Appendable out, int precedence) throws IOException {
+        if (precedence() < precedence) {
+            out.append('(');
+            appendExpression(out);
+            out.append(')');
+        } else {
+            appendExpression(out);
+        }
+    }
+
+    /**
+     * Clauses defined outside of the builder are hashed by their rendered form
+     */
+    void fingerprint(Fingerprint fingerprint) {
+        StringBuilder sb = new StringBuilder();
+        appendTo(sb);
+        fingerprint.putTag(Fingerprint.CLAUSE).putTag(0).putString(sb.toString());
+    }
+
     private static abstract class AbstractClause extends Clause {
         final String name;
 
         private AbstractClause(String name) {
             this.name = name;
         }
+
+        String getName() {
+            return name;
+        }
+
+        @Override
+        Clause canonical() {
+            String canonicalName = Appender.canonicalName(name);
+            return canonicalName.equals(name) ? this : withName(canonicalName);
+        }
+
+        abstract Clause withName(String name);
+
+        /**
+         * Typed clauses hold literals only
+         */
+        @Override
+        boolean hasBindMarker() {
+            return false;
+        }
+
+        Fingerprint start(Fingerprint fingerprint, int kind) {
+            return fingerprint.putTag(Fingerprint.CLAUSE).putTag(kind).putString(name);
+        }
     }
 
     static class SimpleClause extends AbstractClause {
@@ -47,12 +189,355 @@ public abstract class Clause implements Appendable {
             this.value = value;
         }
 
+        String getOp() {
+            return op;
+        }
+
+        Object getValue() {
+            return value;
+        }
+
+        @Override
+        Clause withName(String name) {
+            return new SimpleClause(name, op, value);
+        }
+
+        @Override
+        Clause negate() {
+            return new SimpleClause(name, negate(op), value);
+        }
+
+        @Override
+        boolean hasBindMarker() {
+            return BindMarker.isIn(value);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o)
+                return true;
+            if (o == null || o.getClass() != getClass())
+                return false;
+            SimpleClause that = (SimpleClause) o;
+            return Objects.equals(name, that.name)
+                    && op.equals(that.op)
+                    && Objects.equals(value, that.value);
+        }
+
+        @Override
+        public int hashCode() {
+            int result = Objects.hashCode(name);
+            result = 31 * result + op.hashCode();
+            return 31 * result + Objects.hashCode(value);
+        }
+
+        @Override
+        void fingerprint(Fingerprint fingerprint) {
+            start(fingerprint, 1).putString(op).putValue(value);
+        }
+
+        @Override
+        public void appendTo(java.lang.Appendable out) throws IOException {
+            Appender.appendName(name, out).append(op);
+            Appender.appendValue(value, out);
+        }
+
+    }
+
+    static class LongClause extends AbstractClause {
+        private final String op;
+        private final long value;
+
+        LongClause(String name, String op, long value) {
+            super(name);
+            this.op = op;
+            this.value = value;
+        }
+
+        String getOp() {
+            return op;
+        }
+
+        long getValue() {
+            return value;
+        }
+
+        @Override
+        Clause withName(String name) {
+            return new LongClause(name, op, value);
+        }
+
+        @Override
+        Clause negate() {
+            return new LongClause(name, negate(op), value);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o)
+                return true;
+            if (o == null || o.getClass() != getClass())
+                return false;
+            LongClause that = (LongClause) o;
+            return Objects.equals(name, that.name)
+                    && op.equals(that.op)
+                    && value == that.value;
+        }
+
+        @Override
+        public int hashCode() {
+            int result = Objects.hashCode(name);
+            result = 31 * result + op.hashCode();
+            return 31 * result + Long.hashCode(value);
+        }
+
+        @Override
+        void fingerprint(Fingerprint fingerprint) {
+            start(fingerprint, 2).putString(op).putLong(value);
+        }
+
+        @Override
+        public void appendTo(java.lang.Appendable out) throws IOException {
+            Appender.appendName(name, out).append(op);
+            Appender.appendLong(value, out);
+        }
+    }
+
+    static class DoubleClause extends AbstractClause {
+        private final String op;
+        private final double value;
+
+        DoubleClause(String name, String op, double value) {
+            super(name);
+            Appender.checkFinite(value);
+            this.op = op;
+            this.value = value;
+        }
+
+        String getOp() {
+            return op;
+        }
+
+        double getValue() {
+            return value;
+        }
+
+        @Override
+        Clause withName(String name) {
+            return new DoubleClause(name, op, value);
+        }
+
+        @Override
+        Clause negate() {
+            return new DoubleClause(name, negate(op), value);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o)
+                return true;
+            if (o == null || o.getClass() != getClass())
+                return false;
+            DoubleClause that = (DoubleClause) o;
+            return Objects.equals(name, that.name)
+                    && op.equals(that.op)
+                    && Double.compare(value, that.value) == 0;
+        }
+
+        @Override
+        public int hashCode() {
+            int result = Objects.hashCode(name);
+            result = 31 * result + op.hashCode();
+            return 31 * result + Double.hashCode(value);
+        }
+
+        @Override
+        void fingerprint(Fingerprint fingerprint) {
+            start(fingerprint, 3).putString(op).putLong(Double.doubleToLongBits(value));
+        }
+
+        @Override
+        public void appendTo(java.lang.Appendable out) throws IOException {
+            Appender.appendName(name, out).append(op);
+            Appender.appendDouble(value, out);
+        }
+    }
+
+    static class BooleanClause extends AbstractClause {
+        private final String op;
+        private final boolean value;
+
+        BooleanClause(String name, String op, boolean value) {
+            super(name);
+            this.op = op;
+            this.value = value;
+        }
+
+        String getOp() {
+            return op;
+        }
+
+        boolean getValue() {
+            return value;
+        }
+
+        @Override
+        Clause withName(String name) {
+            return new BooleanClause(name, op, value);
+        }
+
+        @Override
+        Clause negate() {
+            return new BooleanClause(name, negate(op), value);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o)
+                return true;
+            if (o == null || o.getClass() != getClass())
+                return false;
+            BooleanClause that = (BooleanClause) o;
+            return Objects.equals(name, that.name)
+                    && op.equals(that.op)
+                    && value == that.value;
+        }
+
+        @Override
+        public int hashCode() {
+            int result = Objects.hashCode(name);
+            result = 31 * result + op.hashCode();
+            return 31 * result + Boolean.hashCode(value);
+        }
+
+        @Override
+        void fingerprint(Fingerprint fingerprint) {
+            start(fingerprint, 4).putString(op).putBoolean(value);
+        }
+
+        @Override
+        public void appendTo(java.lang.Appendable out) throws IOException {
+            Appender.appendName(name, out).append(op).append(value ? "true" : "false");
+        }
+    }
+
+    static class InstantClause extends AbstractClause {
+        private final String op;
+        private final Instant value;
+
+        InstantClause(String name, String op, Instant value) {
+            super(name);
+            this.op = op;
+            this.value = value;
+
+            if (value == null)
+                throw new IllegalArgumentException("Missing value for time clause");
+            Appender.checkTimeLiteral(value);
+        }
+
+        String getOp() {
+            return op;
+        }
+
+        Instant getValue() {
+            return value;
+        }
+
+        @Override
+        Clause withName(String name) {
+            return new InstantClause(name, op, value);
+        }
+
+        @Override
+        Clause negate() {
+            return new InstantClause(name, negate(op), value);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o)
+                return true;
+            if (o == null || o.getClass() != getClass())
+                return false;
+            InstantClause that = (InstantClause) o;
+            return Objects.equals(name, that.name)
+                    && op.equals(that.op)
+                    && Objects.equals(value, that.value);
+        }
+
+        @Override
+        public int hashCode() {
+            int result = Objects.hashCode(name);
+            result = 31 * result + op.hashCode();
+            return 31 * result + Objects.hashCode(value);
+        }
+
+        @Override
+        void fingerprint(Fingerprint fingerprint) {
+            start(fingerprint, 5).putString(op).putValue(value);
+        }
+
+        @Override
+        public void appendTo(java.lang.Appendable out) throws IOException {
+            Appender.appendName(name, out).append(op);
+            Appender.appendInstant(value, out);
+        }
+    }
+
+    static class DurationClause extends AbstractClause {
+        private final String op;
+        private final Duration value;
+
+        DurationClause(String name, String op, Duration value) {
+            super(name);
+            this.op = op;
+            this.value = value;
+
+            if (value == null)
+                throw new IllegalArgumentException("Missing value for duration clause");
+            if (value.isNegative())
+                throw new IllegalArgumentException(String.format("Negative duration %s", value));
+        }
+
+        @Override
+        Clause withName(String name) {
+            return new DurationClause(name, op, value);
+        }
+
         @Override
-        public void appendTo(StringBuilder sb) {
-            Appender.appendName(name, sb).append(op);
-            Appender.appendValue(value, sb);
+        Clause negate() {
+            return new DurationClause(name, negate(op), value);
         }
 
+        @Override
+        public boolean equals(Object o) {
+            if (this == o)
+                return true;
+            if (o == null || o.getClass() != getClass())
+                return false;
+            DurationClause that = (DurationClause) o;
+            return Objects.equals(name, that.name)
+                    && op.equals(that.op)
+                    && Objects.equals(value, that.value);
+        }
+
+        @Override
+        public int hashCode() {
+            int result = Objects.hashCode(name);
+            result = 31 * result + op.hashCode();
+            return 31 * result + Objects.hashCode(value);
+        }
+
+        @Override
+        void fingerprint(Fingerprint fingerprint) {
+            start(fingerprint, 6).putString(op).putValue(value);
+        }
+
+        @Override
+        public void appendTo(java.lang.Appendable out) throws IOException {
+            Appender.appendName(name, out).append(op);
+            Appender.appendDuration(value, out);
+        }
     }
 
     static class RegexClause extends AbstractClause {
@@ -67,9 +552,41 @@ public abstract class Clause implements Appendable {
         }
 
         @Override
-        public void appendTo(StringBuilder sb) {
-            Appender.appendName(name, sb).append(" ").append(Operations.EQR).append(" ");
-            Appender.appendValue(value, sb);
+        Clause withName(String name) {
+            return new RegexClause(name, value.toString());
+        }
+
+        @Override
+        Clause negate() {
+            return new NegativeRegexClause(name, value.toString());
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o)
+                return true;
+            if (o == null || o.getClass() != getClass())
+                return false;
+            RegexClause that = (RegexClause) o;
+            return Objects.equals(name, that.name)
+                    && Objects.equals(value, that.value);
+        }
+
+        @Override
+        public int hashCode() {
+            int result = Objects.hashCode(name);
+            return 31 * result + Objects.hashCode(value);
+        }
+
+        @Override
+        void fingerprint(Fingerprint fingerprint) {
+            start(fingerprint, 7).putValue(value);
+        }
+
+        @Override
+        public void appendTo(java.lang.Appendable out) throws IOException {
+            Appender.appendName(name, out).append(' ').append(Operations.EQR).append(' ');
+            Appender.appendValue(value, out);
         }
 
     }
@@ -87,9 +604,41 @@ public abstract class Clause implements Appendable {
         }
 
         @Override
-        public void appendTo(StringBuilder sb) {
-            Appender.appendName(name, sb).append(" ").append(Operations.NER).append(" ");
-            Appender.appendValue(value, sb);
+        Clause withName(String name) {
+            return new NegativeRegexClause(name, value.toString());
+        }
+
+        @Override
+        Clause negate() {
+            return new RegexClause(name, value.toString());
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o)
+                return true;
+            if (o == null || o.getClass() != getClass())
+                return false;
+            NegativeRegexClause that = (NegativeRegexClause) o;
+            return Objects.equals(name, that.name)
+                    && Objects.equals(value, that.value);
+        }
+
+        @Override
+        public int hashCode() {
+            int result = Objects.hashCode(name);
+            return 31 * result + Objects.hashCode(value);
+        }
+
+        @Override
+        void fingerprint(Fingerprint fingerprint) {
+            start(fingerprint, 8).putValue(value);
+        }
+
+        @Override
+        public void appendTo(java.lang.Appendable out) throws IOException {
+            Appender.appendName(name, out).append(' ').append(Operations.NER).append(' ');
+            Appender.appendValue(value, out);
         }
     }
 
@@ -100,6 +649,144 @@ public abstract class Clause implements Appendable {
         }
     }
 
+    /**
+     * Matches a name against a set of values, as OR'ed equalities for a few values.
+     * From the threshold on, sets of strings are matched by a single anchored regular expression instead,
+     * shorter to send and cheaper for the server to plan.
+     */
+    static class InClause extends AbstractClause {
+
+        static final int DEFAULT_REGEX_THRESHOLD = 16;
+
+        private final List<Object> values;
+        private final int regexThreshold;
+
+        /**
+         * The regular expression, null when rendered as equalities
+         */
+        private final String regex;
+
+        InClause(String name, Collection<?> values, int regexThreshold) {
+            super(name);
+
+            if (values == null || values.isEmpty())
+                throw new IllegalArgumentException("Missing values for IN clause");
+            if (values.contains(null))
+                throw new IllegalArgumentException("Null value for IN clause");
+            if (regexThreshold <= 0)
+                throw new IllegalArgumentException("Invalid regex threshold, must be strictly positive");
+
+            this.values = Collections.unmodifiableList(distinct(values));
+            this.regexThreshold = regexThreshold;
+            this.regex = this.values.size() >= regexThreshold && allStrings(this.values) ? regex(this.values) : null;
+        }
+
+        /**
+         * Bind markers are kept, each one stands for a value of its own
+         */
+        private static List<Object> distinct(Collection<?> values) {
+            List<Object> distinct = new ArrayList<>(values.size());
+            Set<Object> literals = new HashSet<>();
+            for (Object value : values) {
+                if (BindMarker.isIn(value) || literals.add(value))
+                    distinct.add(value);
+            }
+            return distinct;
+        }
+
+        @Override
+        boolean hasBindMarker() {
+            for (Object value : values) {
+                if (BindMarker.isIn(value))
+                    return true;
+            }
+            return false;
+        }
+
+        private static boolean allStrings(List<Object> values) {
+            for (Object value : values) {
+                if (!(value instanceof String))
+                    return false;
+            }
+            return true;
+        }
+
+        @SuppressWarnings("unchecked")
+        private static String regex(List<Object> values) {
+            return RegexTrie.anchored((List<String>) (List<?>) values);
+        }
+
+        List<Object> getValues() {
+            return values;
+        }
+
+        @Override
+        Clause withName(String name) {
+            return new InClause(name, values, regexThreshold);
+        }
+
+        @Override
+        Clause negate() {
+            if (regex != null)
+                return new NegativeRegexClause(name, regex);
+
+            List<Clause> inequalities = new ArrayList<>(values.size());
+            for (Object value : values) {
+                inequalities.add(new SimpleClause(name, Operations.NE, value));
+            }
+            return LogicalClause.and(inequalities);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o)
+                return true;
+            if (o == null || o.getClass() != getClass())
+                return false;
+            InClause that = (InClause) o;
+            return Objects.equals(name, that.name)
+                    && values.equals(that.values)
+                    && Objects.equals(regex, that.regex);
+        }
+
+        @Override
+        public int hashCode() {
+            int result = Objects.hashCode(name);
+            result = 31 * result + values.hashCode();
+            return 31 * result + Boolean.hashCode(regex != null);
+        }
+
+        @Override
+        void fingerprint(Fingerprint fingerprint) {
+            start(fingerprint, 10).putBoolean(regex != null).putValues(values);
+        }
+
+        @Override
+        int precedence() {
+            return regex == null && values.size() > 1 ? OR_PRECEDENCE : ATOM_PRECEDENCE;
+        }
+
+        @Override
+        public void appendTo(java.lang.Appendable out) throws IOException {
+            appendOperand(out, ATOM_PRECEDENCE);
+        }
+
+        @Override
+        void appendExpression(java.lang.Appendable out) throws IOException {
+            if (regex != null) {
+                Appender.appendName(name, out).append(' ').append(Operations.EQR).append(' ').append(regex);
+                return;
+            }
+
+            for (int i = 0; i < values.size(); i++) {
+                if (i > 0)
+                    out.append(" OR ");
+                Appender.appendName(name, out).append(Operations.EQ);
+                Appender.appendValue(values.get(i), out);
+            }
+        }
+    }
+
     static class CompoundClause extends Clause {
         private String op;
         private final List<String> names;
@@ -114,20 +801,224 @@ public abstract class Clause implements Appendable {
         }
 
         @Override
-        public void appendTo(StringBuilder sb) {
-            sb.append("(");
+        Clause canonical() {
+            List<String> canonicalNames = new ArrayList<>(names.size());
+            boolean changed = false;
+            for (String name : names) {
+                String canonicalName = Appender.canonicalName(name);
+                changed |= !canonicalName.equals(name);
+                canonicalNames.add(canonicalName);
+            }
+            return changed ? new CompoundClause(canonicalNames, op, values) : this;
+        }
+
+        @Override
+        boolean hasBindMarker() {
+            for (Object value : values) {
+                if (BindMarker.isIn(value))
+                    return true;
+            }
+            return false;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o)
+                return true;
+            if (!(o instanceof CompoundClause))
+                return false;
+            CompoundClause that = (CompoundClause) o;
+            return op.equals(that.op) && names.equals(that.names) && values.equals(that.values);
+        }
+
+        @Override
+        public int hashCode() {
+            int result = op.hashCode();
+            result = 31 * result + names.hashCode();
+            return 31 * result + values.hashCode();
+        }
+
+        @Override
+        void fingerprint(Fingerprint fingerprint) {
+            fingerprint.putTag(Fingerprint.CLAUSE).putTag(9).putString(op).putValues(names).putValues(values);
+        }
+
+        @Override
+        public void appendTo(java.lang.Appendable out) throws IOException {
+            out.append('(');
             for (int i = 0; i < names.size(); i++) {
                 if (i > 0)
-                    sb.append(",");
-                Appender.appendName(names.get(i), sb);
+                    out.append(',');
+                Appender.appendName(names.get(i), out);
             }
-            sb.append(")").append(op).append("(");
+            out.append(')').append(op).append('(');
             for (int i = 0; i < values.size(); i++) {
                 if (i > 0)
-                    sb.append(",");
-                Appender.appendValue(values.get(i), sb);
+                    out.append(',');
+                Appender.appendValue(values.get(i), out);
+            }
+            out.append(')');
+        }
+    }
+
+    /**
+     * Clauses joined by AND or by OR. Groups are simplified when built: nested groups of the same operator are merged,
+     * duplicate operands are dropped and so are groups absorbed by another operand, e.g. a AND (a OR b) is a.
+     * Parentheses are rendered only around OR groups nested in AND groups.
+     */
+    static class LogicalClause extends Clause {
+        private final boolean or;
+        private final List<Clause> clauses;
+
+        private LogicalClause(boolean or, List<Clause> clauses) {
+            this.or = or;
+            this.clauses = clauses;
+        }
+
+        static Clause and(Collection<? extends Clause> clauses) {
+            return of(false, clauses);
+        }
+
+        static Clause or(Collection<? extends Clause> clauses) {
+            return of(true, clauses);
+        }
+
+        /**
+         * @return the group, or its operand if a single one is left once simplified
+         */
+        private static Clause of(boolean or, Collection<? extends Clause> clauses) {
+            if (clauses == null || clauses.isEmpty())
+                throw new IllegalArgumentException(String.format("Missing clauses for %s group", or ? "OR" : "AND"));
+
+            List<Clause> operands = new ArrayList<>(clauses.size());
+            Set<Clause> literals = new HashSet<>();
+            for (Clause clause : clauses) {
+                if (clause == null)
+                    throw new IllegalArgumentException("Null clause in group");
+
+                if (clause instanceof LogicalClause && ((LogicalClause) clause).or == or) {
+                    for (Clause operand : ((LogicalClause) clause).clauses) {
+                        add(operand, operands, literals);
+                    }
+                } else {
+                    add(clause, operands, literals);
+                }
+            }
+            operands.removeIf(operand -> operand instanceof LogicalClause && isAbsorbed((LogicalClause) operand, literals));
+
+            if (operands.size() == 1)
+                return operands.get(0);
+            return new LogicalClause(or, Collections.unmodifiableList(operands));
+        }
+
+        /**
+         * Operands holding bind markers stand for distinct values, they are never dropped as duplicates
+         */
+        private static void add(Clause clause, List<Clause> operands, Set<Clause> literals) {
+            if (clause.hasBindMarker() || literals.add(clause))
+                operands.add(clause);
+        }
+
+        /**
+         * Operands of the enclosing group are of the other operator, so a group holding one of them is redundant.
+         * Groups holding bind markers are kept, dropping them would drop their markers.
+         */
+        private static boolean isAbsorbed(LogicalClause group, Set<Clause> literals) {
+            if (group.hasBindMarker())
+                return false;
+            for (Clause clause : group.clauses) {
+                if (literals.contains(clause))
+                    return true;
+            }
+            return false;
+        }
+
+        @Override
+        boolean hasBindMarker() {
+            for (Clause clause : clauses) {
+                if (clause.hasBindMarker())
+                    return true;
+            }
+            return false;
+        }
+
+        boolean isOr() {
+            return or;
+        }
+
+        List<Clause> getClauses() {
+            return clauses;
+        }
+
+        /**
+         * Operands are sorted by their rendered form as well, the order of operands does not change what a group matches.
+         * Groups holding bind markers keep their order, the markers are positional.
+         */
+        @Override
+        Clause canonical() {
+            if (hasBindMarker())
+                return this;
+
+            TreeMap<String, Clause> sorted = new TreeMap<>();
+            for (Clause clause : clauses) {
+                Clause canonical = clause.canonical();
+                StringBuilder sb = new StringBuilder();
+                canonical.appendTo(sb);
+                sorted.put(sb.toString(), canonical);
+            }
+            return of(or, sorted.values());
+        }
+
+        @Override
+        Clause negate() {
+            List<Clause> negated = new ArrayList<>(clauses.size());
+            for (Clause clause : clauses) {
+                negated.add(clause.negate());
+            }
+            return of(!or, negated);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o)
+                return true;
+            if (o == null || o.getClass() != getClass())
+                return false;
+            LogicalClause that = (LogicalClause) o;
+            return or == that.or && clauses.equals(that.clauses);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * Boolean.hashCode(or) + clauses.hashCode();
+        }
+
+        @Override
+        void fingerprint(Fingerprint fingerprint) {
+            fingerprint.putTag(Fingerprint.CLAUSE).putTag(11).putBoolean(or).putLong(clauses.size());
+            for (Clause clause : clauses) {
+                clause.fingerprint(fingerprint);
+            }
+        }
+
+        @Override
+        int precedence() {
+            return or ? OR_PRECEDENCE : AND_PRECEDENCE;
+        }
+
+        @Override
+        public void appendTo(java.lang.Appendable out) throws IOException {
+            appendOperand(out, ATOM_PRECEDENCE);
+        }
+
+        @Override
+        void appendExpression(java.lang.Appendable out) throws IOException {
+            int precedence = precedence();
+            for (int i = 0; i < clauses.size(); i++) {
+                if (i > 0)
+                    out.append(or ? " OR " : " AND ");
+                clauses.get(i).appendOperand(out, precedence);
             }
-            sb.append(")");
         }
     }
 
@@ -24,6 +24,8 @@
 
 package com.gkatzioura.influxdb.querybuilder;
 
+import java.util.Objects;
+
 class Column {
 
     private final String name;
@@ -36,6 +38,20 @@ class Column {
         return name;
     }
 
+    @Override
+    public boolean equals(Object o) {
+        if (this == o)
+            return true;
+        if (!(o instanceof Column))
+            return false;
+        return Objects.equals(name, ((Column) o).name);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(name);
+    }
+
     @Override
     public String toString() {
         return name;
@@ -24,6 +24,8 @@
 
 package com.gkatzioura.influxdb.querybuilder;
 
+import java.util.Objects;
+
 class Distinct {
     /**
      * Distinct might as well contain an expression
@@ -38,6 +40,20 @@ class Distinct {
         return expression;
     }
 
+    @Override
+    public boolean equals(Object o) {
+        if (this == o)
+            return true;
+        if (!(o instanceof Distinct))
+            return false;
+        return Objects.equals(expression, ((Distinct) o).expression);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(expression);
+    }
+
     @Override
     public String toString() {
         return String.format("DISTINCT %s", expression);
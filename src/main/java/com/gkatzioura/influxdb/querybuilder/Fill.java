@@ -0,0 +1,60 @@
+/**
+ * MIT License
+ * <p>
+ * Copyright (c) 2018 Emmanouil Gkatziouras
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE
+ */
+
+package com.gkatzioura.influxdb.querybuilder;
+
+import java.io.IOException;
+import java.util.Locale;
+
+/**
+ * The value reported for GROUP BY time() buckets without points, a number can be given as well
+ */
+public enum Fill implements Appendable {
+
+    NULL,
+    NONE,
+    PREVIOUS,
+    LINEAR;
+
+    private final String rendered = "fill(" + name().toLowerCase(Locale.ROOT) + ")";
+
+    @Override
+    public void appendTo(java.lang.Appendable out) throws IOException {
+        out.append(rendered);
+    }
+
+    /**
+     * Fractional values are written in plain decimal notation, InfluxQL has no exponent notation
+     */
+    static void appendTo(Number value, java.lang.Appendable out) throws IOException {
+        out.append("fill(");
+        if (value instanceof Double)
+            Appender.appendDouble(value.doubleValue(), out);
+        else if (value instanceof Float)
+            Appender.appendFloat(value.floatValue(), out);
+        else
+            Appender.appendLong(value.longValue(), out);
+        out.append(')');
+    }
+}
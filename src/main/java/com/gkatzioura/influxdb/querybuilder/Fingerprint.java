@@ -0,0 +1,156 @@
+/**
+ * MIT License
+ * <p>
+ * Copyright (c) 2018 Emmanouil Gkatziouras
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE
+ */
+
+package com.gkatzioura.influxdb.querybuilder;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Accumulates a 64-bit FNV-1a hash over the structure of a statement, finished with the MurmurHash3 mix.
+ * Each node is prefixed by a tag and strings by their length, so that adjacent values cannot run into each other.
+ * The hash only depends on the content of the statement and is stable across JVM runs.
+ */
+final class Fingerprint {
+
+    private static final long OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long PRIME = 0x100000001b3L;
+
+    static final int NULL = 0;
+    static final int STRING = 1;
+    static final int LONG = 2;
+    static final int DOUBLE = 3;
+    static final int BOOLEAN = 4;
+    static final int INSTANT = 5;
+    static final int DURATION = 6;
+    static final int RAW = 7;
+    static final int FUNCTION = 8;
+    static final int COLUMN = 9;
+    static final int ALIAS = 10;
+    static final int DISTINCT = 11;
+    static final int BIND_MARKER = 12;
+    static final int LIST = 13;
+    static final int OTHER = 14;
+    static final int CLAUSE = 15;
+    static final int SELECT = 16;
+    static final int GROUP_BY_TIME = 17;
+    static final int FILL = 18;
+
+    private long hash = OFFSET_BASIS;
+
+    Fingerprint putTag(int tag) {
+        hash = (hash ^ tag) * PRIME;
+        return this;
+    }
+
+    Fingerprint putLong(long value) {
+        for (int shift = 0; shift < 64; shift += 16) {
+            hash = (hash ^ ((value >>> shift) & 0xFFFF)) * PRIME;
+        }
+        return this;
+    }
+
+    Fingerprint putBoolean(boolean value) {
+        return putTag(value ? 1 : 0);
+    }
+
+    Fingerprint putString(String value) {
+        if (value == null)
+            return putTag(NULL);
+
+        putLong(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            hash = (hash ^ value.charAt(i)) * PRIME;
+        }
+        return this;
+    }
+
+    /**
+     * @param value a value or a name, as accepted by {@link Appender#appendValue} and {@link Appender#appendName}
+     * @return
+     */
+    Fingerprint putValue(Object value) {
+        if (value == null) {
+            putTag(NULL);
+        } else if (value instanceof String) {
+            putTag(STRING).putString((String) value);
+        } else if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            putTag(LONG).putLong(((Number) value).longValue());
+        } else if (value instanceof Double || value instanceof Float) {
+            putTag(DOUBLE).putLong(Double.doubleToLongBits(((Number) value).doubleValue()));
+        } else if (value instanceof Boolean) {
+            putTag(BOOLEAN).putBoolean((Boolean) value);
+        } else if (value instanceof Instant) {
+            Instant instant = (Instant) value;
+            putTag(INSTANT).putLong(instant.getEpochSecond()).putLong(instant.getNano());
+        } else if (value instanceof Duration) {
+            Duration duration = (Duration) value;
+            putTag(DURATION).putLong(duration.getSeconds()).putLong(duration.getNano());
+        } else if (value instanceof RawString) {
+            putTag(RAW).putString(value.toString());
+        } else if (value instanceof Function) {
+            Function function = (Function) value;
+            putTag(FUNCTION).putString(function.getName()).putLong(function.getParameters().length);
+            for (Object parameter : function.getParameters()) {
+                putValue(parameter);
+            }
+        } else if (value instanceof Column) {
+            putTag(COLUMN).putString(((Column) value).getName());
+        } else if (value instanceof Alias) {
+            Alias alias = (Alias) value;
+            putTag(ALIAS).putValue(alias.getColumn()).putString(alias.getAlias());
+        } else if (value instanceof Distinct) {
+            putTag(DISTINCT).putValue(((Distinct) value).getExpression());
+        } else if (value instanceof BindMarker) {
+            putTag(BIND_MARKER);
+        } else if (value instanceof Clause) {
+            ((Clause) value).fingerprint(this);
+        } else {
+            putTag(OTHER).putString(value.toString());
+        }
+        return this;
+    }
+
+    Fingerprint putValues(List<?> values) {
+        if (values == null)
+            return putTag(NULL);
+
+        putTag(LIST).putLong(values.size());
+        for (Object value : values) {
+            putValue(value);
+        }
+        return this;
+    }
+
+    long hash() {
+        long h = hash;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
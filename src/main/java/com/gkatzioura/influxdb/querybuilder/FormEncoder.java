@@ -0,0 +1,196 @@
+/**
+ * MIT License
+ * <p>
+ * Copyright (c) 2018 Emmanouil Gkatziouras
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE
+ */
+
+package com.gkatzioura.influxdb.querybuilder;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Writes application/x-www-form-urlencoded UTF-8 bytes straight into a {@link ByteBuffer}.
+ * Statements are rendered into the encoder, so the query reaches the request body without
+ * intermediate strings or buffers.
+ * A {@link java.nio.BufferOverflowException} is thrown if the buffer runs out of space.
+ */
+public class FormEncoder implements java.lang.Appendable {
+
+    private static final boolean[] UNRESERVED = new boolean[128];
+
+    private static final byte[] HEX = {'0', '1', '2', '3', '4', '5', '6', '7', '8', '9', 'A', 'B', 'C', 'D', 'E', 'F'};
+
+    static {
+        for (char c = 'a'; c <= 'z'; c++)
+            UNRESERVED[c] = true;
+        for (char c = 'A'; c <= 'Z'; c++)
+            UNRESERVED[c] = true;
+        for (char c = '0'; c <= '9'; c++)
+            UNRESERVED[c] = true;
+        UNRESERVED['.'] = true;
+        UNRESERVED['-'] = true;
+        UNRESERVED['*'] = true;
+        UNRESERVED['_'] = true;
+    }
+
+    private final ByteBuffer buffer;
+    private boolean hasParameters;
+    private char highSurrogate;
+
+    public FormEncoder(ByteBuffer buffer) {
+        this.buffer = buffer;
+    }
+
+    /**
+     * Writes the q parameter and, if the statement targets one, the db parameter
+     * @param statement
+     * @param buffer
+     * @return the buffer
+     */
+    public static ByteBuffer encode(BuiltStatement statement, ByteBuffer buffer) {
+        FormEncoder encoder = new FormEncoder(buffer);
+        encoder.appendParameter("q", statement);
+        if (statement.getDatabase() != null)
+            encoder.appendParameter("db", statement.getDatabase());
+        return buffer;
+    }
+
+    /**
+     * @param value
+     * @return the number of bytes the value takes once encoded
+     */
+    public static int encodedLength(CharSequence value) {
+        int length = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                length += UNRESERVED[c] || c == ' ' ? 1 : 3;
+            } else if (c < 0x800) {
+                length += 6;
+            } else if (Character.isHighSurrogate(c) && i + 1 < value.length() && Character.isLowSurrogate(value.charAt(i + 1))) {
+                length += 12;
+                i++;
+            } else if (Character.isSurrogate(c)) {
+                length += 3;
+            } else {
+                length += 9;
+            }
+        }
+        return length;
+    }
+
+    public FormEncoder appendParameter(String name, BuiltStatement statement) {
+        startParameter(name);
+        try {
+            statement.appendTo(this);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        endParameter();
+        return this;
+    }
+
+    public FormEncoder appendParameter(String name, CharSequence value) {
+        startParameter(name);
+        append(value);
+        endParameter();
+        return this;
+    }
+
+    public ByteBuffer getBuffer() {
+        return buffer;
+    }
+
+    private void startParameter(String name) {
+        if (hasParameters)
+            buffer.put((byte) '&');
+        hasParameters = true;
+        append(name);
+        buffer.put((byte) '=');
+    }
+
+    private void endParameter() {
+        if (highSurrogate != 0) {
+            highSurrogate = 0;
+            escape('?');
+        }
+    }
+
+    @Override
+    public FormEncoder append(CharSequence csq) {
+        return append(csq, 0, csq.length());
+    }
+
+    @Override
+    public FormEncoder append(CharSequence csq, int start, int end) {
+        for (int i = start; i < end; i++) {
+            append(csq.charAt(i));
+        }
+        return this;
+    }
+
+    @Override
+    public FormEncoder append(char c) {
+        if (highSurrogate != 0) {
+            char high = highSurrogate;
+            highSurrogate = 0;
+            if (Character.isLowSurrogate(c)) {
+                int codePoint = Character.toCodePoint(high, c);
+                escape(0xF0 | (codePoint >> 18));
+                escape(0x80 | ((codePoint >> 12) & 0x3F));
+                escape(0x80 | ((codePoint >> 6) & 0x3F));
+                escape(0x80 | (codePoint & 0x3F));
+                return this;
+            }
+            escape('?');
+        }
+
+        if (c < 0x80) {
+            if (UNRESERVED[c])
+                buffer.put((byte) c);
+            else if (c == ' ')
+                buffer.put((byte) '+');
+            else
+                escape(c);
+        } else if (c < 0x800) {
+            escape(0xC0 | (c >> 6));
+            escape(0x80 | (c & 0x3F));
+        } else if (Character.isHighSurrogate(c)) {
+            highSurrogate = c;
+        } else if (Character.isLowSurrogate(c)) {
+            escape('?');
+        } else {
+            escape(0xE0 | (c >> 12));
+            escape(0x80 | ((c >> 6) & 0x3F));
+            escape(0x80 | (c & 0x3F));
+        }
+        return this;
+    }
+
+    private void escape(int b) {
+        buffer.put((byte) '%');
+        buffer.put(HEX[(b >> 4) & 0xF]);
+        buffer.put(HEX[b & 0xF]);
+    }
+
+}
@@ -24,6 +24,9 @@
 
 package com.gkatzioura.influxdb.querybuilder;
 
+import java.util.Arrays;
+import java.util.Objects;
+
 class Function {
 
     private final String name;
@@ -42,6 +45,21 @@ class Function {
         return parameters;
     }
 
+    @Override
+    public boolean equals(Object o) {
+        if (this == o)
+            return true;
+        if (!(o instanceof Function))
+            return false;
+        Function that = (Function) o;
+        return Objects.equals(name, that.name) && Arrays.deepEquals(parameters, that.parameters);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Objects.hashCode(name) + Arrays.deepHashCode(parameters);
+    }
+
     @Override
     public String toString() {
         StringBuilder sb = new StringBuilder();
@@ -0,0 +1,185 @@
+/**
+ * MIT License
+ * <p>
+ * Copyright (c) 2018 Emmanouil Gkatziouras
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE
+ */
+
+package com.gkatzioura.influxdb.querybuilder;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * The time(interval[,offset]) dimension of a GROUP BY.
+ * Intervals fitted to a budget of points are picked among round durations, 1, 2 and 5 times a power of ten below
+ * a second then the usual clock intervals up to a week, and whole weeks beyond.
+ * InfluxDB aligns the buckets on the epoch, so a range of n intervals may span n + 1 buckets.
+ */
+final class GroupByTime implements Appendable {
+
+    private static final long MICROS = 1_000L;
+    private static final long MILLIS = 1_000_000L;
+    private static final long SECONDS = 1_000_000_000L;
+    private static final long MINUTES = 60 * SECONDS;
+    private static final long HOURS = 60 * MINUTES;
+    private static final long DAYS = 24 * HOURS;
+    private static final long WEEKS = 7 * DAYS;
+
+    private static final long[] INTERVALS = {
+            1, 2, 5, 10, 20, 50, 100, 200, 500,
+            MICROS, 2 * MICROS, 5 * MICROS, 10 * MICROS, 20 * MICROS, 50 * MICROS, 100 * MICROS, 200 * MICROS, 500 * MICROS,
+            MILLIS, 2 * MILLIS, 5 * MILLIS, 10 * MILLIS, 20 * MILLIS, 50 * MILLIS, 100 * MILLIS, 200 * MILLIS, 500 * MILLIS,
+            SECONDS, 2 * SECONDS, 5 * SECONDS, 10 * SECONDS, 15 * SECONDS, 30 * SECONDS,
+            MINUTES, 2 * MINUTES, 5 * MINUTES, 10 * MINUTES, 15 * MINUTES, 30 * MINUTES,
+            HOURS, 2 * HOURS, 3 * HOURS, 6 * HOURS, 12 * HOURS,
+            DAYS, 2 * DAYS, WEEKS
+    };
+
+    private final Duration interval;
+    private final Duration offset;
+
+    /**
+     * @param interval
+     * @param offset shifts the buckets from the epoch, may be negative, null or zero for none
+     */
+    GroupByTime(Duration interval, Duration offset) {
+        if (interval == null || interval.isNegative() || interval.isZero())
+            throw new IllegalArgumentException("Invalid GROUP BY time interval, must be strictly positive");
+
+        this.interval = interval;
+        this.offset = offset == null || offset.isZero() ? null : offset;
+    }
+
+    Duration getInterval() {
+        return interval;
+    }
+
+    Duration getOffset() {
+        return offset;
+    }
+
+    /**
+     * Fits the interval to a range whose position is unknown, such as a range relative to now()
+     * @param range
+     * @param maxPoints
+     * @return the smallest interval giving at most maxPoints buckets wherever the range starts
+     */
+    static Duration fit(Duration range, int maxPoints) {
+        if (range == null || range.isNegative() || range.isZero())
+            throw new IllegalArgumentException("Invalid time range, must be strictly positive");
+        if (maxPoints < 2)
+            throw new IllegalArgumentException("Invalid number of points, a range may always span two buckets");
+
+        long rangeNanos = range.toNanos();
+        for (long interval : INTERVALS) {
+            if (maxBuckets(rangeNanos, interval) <= maxPoints)
+                return Duration.ofNanos(interval);
+        }
+        long weeks = Math.max(2, rangeNanos / (maxPoints - 1) / WEEKS);
+        while (maxBuckets(rangeNanos, weeks * WEEKS) > maxPoints) {
+            weeks++;
+        }
+        return Duration.ofNanos(weeks * WEEKS);
+    }
+
+    /**
+     * @param startNanos the start of the range, inclusive
+     * @param endNanos the end of the range, exclusive
+     * @param maxPoints
+     * @return the smallest interval giving at most maxPoints buckets over the range
+     */
+    static Duration fit(long startNanos, long endNanos, int maxPoints) {
+        if (endNanos <= startNanos)
+            throw new IllegalArgumentException("Invalid time range, the end must be after the start");
+        if (maxPoints <= 0)
+            throw new IllegalArgumentException("Invalid number of points, must be strictly positive");
+
+        for (long interval : INTERVALS) {
+            if (buckets(startNanos, endNanos, interval) <= maxPoints)
+                return Duration.ofNanos(interval);
+        }
+
+        // beyond the range any larger interval gives the same number of buckets, only the alignment changes
+        long limit = Math.max(Math.abs(startNanos), Math.abs(endNanos));
+        for (long weeks = Math.max(2, (endNanos - startNanos) / maxPoints / WEEKS); weeks * WEEKS / 2 <= limit; weeks++) {
+            if (buckets(startNanos, endNanos, weeks * WEEKS) <= maxPoints)
+                return Duration.ofNanos(weeks * WEEKS);
+        }
+        throw new IllegalArgumentException(String.format("No interval gives at most %d points over the range", maxPoints));
+    }
+
+    private static long buckets(long startNanos, long endNanos, long interval) {
+        return Math.floorDiv(endNanos - 1, interval) - Math.floorDiv(startNanos, interval) + 1;
+    }
+
+    /**
+     * The most buckets are spanned when the range starts just before a boundary
+     */
+    private static long maxBuckets(long rangeNanos, long interval) {
+        return (rangeNanos - 2 + interval) / interval + 1;
+    }
+
+    /**
+     * @param clauses
+     * @param nowNanos
+     * @param maxPoints
+     * @return the interval fitted to the time range of the clauses, to its length when a bound is relative to now()
+     */
+    static Duration fit(List<Clause> clauses, long nowNanos, int maxPoints) {
+        TimeBounds bounds = TimeBounds.of(clauses, nowNanos);
+        if (bounds.getLower() == null)
+            throw new IllegalArgumentException("The statement needs a lower time bound to fit the interval");
+
+        if (bounds.isRelative())
+            return fit(Duration.ofNanos(bounds.getUpper() - bounds.getLower()), maxPoints);
+        return fit(bounds.getLower(), bounds.getUpper(), maxPoints);
+    }
+
+    @Override
+    public void appendTo(java.lang.Appendable out) throws IOException {
+        out.append("time(");
+        Appender.appendDuration(interval, out);
+        if (offset != null) {
+            out.append(',');
+            if (offset.isNegative())
+                out.append('-');
+            Appender.appendDuration(offset.isNegative() ? offset.negated() : offset, out);
+        }
+        out.append(')');
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o)
+            return true;
+        if (!(o instanceof GroupByTime))
+            return false;
+        GroupByTime that = (GroupByTime) o;
+        return interval.equals(that.interval) && Objects.equals(offset, that.offset);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * interval.hashCode() + Objects.hashCode(offset);
+    }
+}
@@ -0,0 +1,454 @@
+/**
+ * MIT License
+ * <p>
+ * Copyright (c) 2018 Emmanouil Gkatziouras
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE
+ */
+
+package com.gkatzioura.influxdb.querybuilder;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * A select statement that is never modified once created.
+ * Each derivation returns a new statement sharing the unchanged parts, clauses included, with the original one.
+ * Thus a base query can be published across threads and variants can be derived concurrently from it.
+ */
+public final class ImmutableSelect extends BuiltStatement {
+
+    private final String table;
+
+    /**
+     * The statement selected from in place of a measurement, null when selecting from a measurement
+     */
+    private final ImmutableSelect subquery;
+    private final boolean isDistinct;
+    private final List<Object> columns;
+    private final ClauseNode clauses;
+    private final Ordering ordering;
+    private final List<Object> groupByColumns;
+    private final GroupByTime groupByTime;
+
+    /**
+     * A {@link Fill} or a number
+     */
+    private final Object fill;
+    private final Integer limit;
+    private final Long offSet;
+
+    /**
+     * Computed on first use, a racy computation only results to hashing the statement once more
+     */
+    private volatile long fingerprint;
+
+    ImmutableSelect(String database,
+                    String table,
+                    List<Object> columns,
+                    boolean isDistinct) {
+        this(database, table, null, columns == null ? null : Collections.unmodifiableList(new ArrayList<>(columns)), isDistinct,
+             null, null, null, null, null, null, null);
+    }
+
+    /**
+     * @param subquery the statement to select from, executed against its database
+     * @param columns
+     * @param isDistinct
+     */
+    ImmutableSelect(ImmutableSelect subquery,
+                    List<Object> columns,
+                    boolean isDistinct) {
+        this(subquery.getDatabase(), null, subquery,
+             columns == null ? null : Collections.unmodifiableList(new ArrayList<>(columns)), isDistinct,
+             null, null, null, null, null, null, null);
+    }
+
+    private ImmutableSelect(String database,
+                            String table,
+                            ImmutableSelect subquery,
+                            List<Object> columns,
+                            boolean isDistinct,
+                            ClauseNode clauses,
+                            Ordering ordering,
+                            List<Object> groupByColumns,
+                            GroupByTime groupByTime,
+                            Object fill,
+                            Integer limit,
+                            Long offSet) {
+        super(database);
+        this.table = table;
+        this.subquery = subquery;
+        this.columns = columns;
+        this.isDistinct = isDistinct;
+        this.clauses = clauses;
+        this.ordering = ordering;
+        this.groupByColumns = groupByColumns;
+        this.groupByTime = groupByTime;
+        this.fill = fill;
+        this.limit = limit;
+        this.offSet = offSet;
+    }
+
+    @Override
+    void appendQueryString(java.lang.Appendable out) throws IOException {
+        if (isDistinct)
+            if (columns.size() > 1) {
+                throw new IllegalStateException("DISTINCT function can only be used with one column");
+            }
+
+        out.append("SELECT ");
+
+        if (columns == null) {
+            out.append('*');
+        } else {
+            Appender.joinAndAppendNames(out, columns);
+        }
+        out.append(" FROM ");
+
+        if (subquery != null) {
+            out.append('(');
+            subquery.appendUnterminated(out);
+            out.append(')');
+        } else {
+            Appender.appendName(table, out);
+        }
+
+        if (clauses != null) {
+            out.append(" WHERE ");
+            List<Clause> where = getClauses();
+            int precedence = where.size() == 1 ? Clause.OR_PRECEDENCE : Clause.AND_PRECEDENCE;
+            for (int i = 0; i < where.size(); i++) {
+                if (i > 0)
+                    out.append(" AND ");
+                where.get(i).appendOperand(out, precedence);
+            }
+        }
+
+        if (groupByTime != null || groupByColumns != null) {
+            out.append(" GROUP BY ");
+            if (groupByTime != null) {
+                groupByTime.appendTo(out);
+                if (groupByColumns != null)
+                    out.append(',');
+            }
+            if (groupByColumns != null)
+                Appender.joinAndAppendNames(out, groupByColumns);
+        }
+
+        if (fill instanceof Fill) {
+            out.append(' ');
+            ((Fill) fill).appendTo(out);
+        } else if (fill != null) {
+            out.append(' ');
+            Fill.appendTo((Number) fill, out);
+        }
+
+        if (ordering != null) {
+            out.append(" ORDER BY ");
+            ordering.appendTo(out);
+        }
+
+        if (limit != null) {
+            out.append(" LIMIT ").append(limit.toString());
+        }
+
+        if (offSet != null) {
+            out.append(" OFFSET ").append(offSet.toString());
+        }
+    }
+
+    public ImmutableSelect where(Clause clause) {
+        return and(clause);
+    }
+
+    /**
+     * The operands of an AND group are added as clauses of their own
+     * @param clause
+     * @return
+     */
+    public ImmutableSelect and(Clause clause) {
+        if (clause == null)
+            throw new IllegalArgumentException("Missing clause");
+
+        ClauseNode node = clauses;
+        if (clause instanceof Clause.LogicalClause && !((Clause.LogicalClause) clause).isOr()) {
+            for (Clause operand : ((Clause.LogicalClause) clause).getClauses()) {
+                node = new ClauseNode(operand, node);
+            }
+        } else {
+            node = new ClauseNode(clause, node);
+        }
+        return new ImmutableSelect(database, table, subquery, columns, isDistinct,
+                                   node, ordering, groupByColumns, groupByTime, fill, limit, offSet);
+    }
+
+    /**
+     * @param clauses
+     * @return a statement with the given clauses in place of the clauses of this statement
+     */
+    ImmutableSelect withClauses(List<Clause> clauses) {
+        ClauseNode node = null;
+        for (Clause clause : clauses) {
+            node = new ClauseNode(clause, node);
+        }
+        return new ImmutableSelect(database, table, subquery, columns, isDistinct,
+                                   node, ordering, groupByColumns, groupByTime, fill, limit, offSet);
+    }
+
+    /**
+     * @param table
+     * @return a statement selecting from the given measurement, rendered as is when quoted
+     */
+    ImmutableSelect withTable(String table) {
+        return new ImmutableSelect(database, table, null, columns, isDistinct,
+                                   clauses, ordering, groupByColumns, groupByTime, fill, limit, offSet);
+    }
+
+    ImmutableSelect withSubquery(ImmutableSelect subquery) {
+        return new ImmutableSelect(database, null, subquery, columns, isDistinct,
+                                   clauses, ordering, groupByColumns, groupByTime, fill, limit, offSet);
+    }
+
+    public ImmutableSelect orderBy(Ordering ordering) {
+        return new ImmutableSelect(database, table, subquery, columns, isDistinct,
+                                   clauses, ordering, groupByColumns, groupByTime, fill, limit, offSet);
+    }
+
+    public ImmutableSelect groupBy(Object... columns) {
+        return new ImmutableSelect(database, table, subquery, this.columns, isDistinct,
+                                   clauses, ordering, Collections.unmodifiableList(Arrays.asList(columns.clone())), groupByTime, fill, limit, offSet);
+    }
+
+    public ImmutableSelect groupByTime(Duration interval) {
+        return groupByTime(interval, null);
+    }
+
+    /**
+     * Groups by time buckets, in front of the columns grouped by
+     * @param interval
+     * @param offset shifts the buckets from their alignment on the epoch, may be negative
+     * @return
+     */
+    public ImmutableSelect groupByTime(Duration interval, Duration offset) {
+        return new ImmutableSelect(database, table, subquery, columns, isDistinct,
+                                   clauses, ordering, groupByColumns, new GroupByTime(interval, offset), fill, limit, offSet);
+    }
+
+    /**
+     * Groups by the smallest round interval giving at most the given number of points per series over a range,
+     * e.g. the width of a chart in pixels. As InfluxDB aligns buckets on the epoch, a range may span one bucket
+     * more than the number of intervals it holds, which is accounted for.
+     * @param range the length of the time range queried
+     * @param maxPoints
+     * @return
+     */
+    public ImmutableSelect groupByTime(Duration range, int maxPoints) {
+        return groupByTime(GroupByTime.fit(range, maxPoints));
+    }
+
+    /**
+     * Groups by the smallest round interval giving at most the given number of points per series over the time range
+     * of the WHERE clauses. The range runs up to now when there is no upper bound.
+     * Ranges with literal bounds are fitted exactly, ranges relative to now() by their length.
+     * @param maxPoints
+     * @return
+     * @throws IllegalArgumentException if the statement has no lower time bound
+     */
+    public ImmutableSelect groupByTime(int maxPoints) {
+        return groupByTime(GroupByTime.fit(getClauses(), TimeBounds.nowNanos(), maxPoints));
+    }
+
+    public ImmutableSelect fill(Fill fill) {
+        if (fill == null)
+            throw new IllegalArgumentException("Missing fill option");
+
+        return new ImmutableSelect(database, table, subquery, columns, isDistinct,
+                                   clauses, ordering, groupByColumns, groupByTime, fill, limit, offSet);
+    }
+
+    /**
+     * @param value reported for buckets without points
+     * @return
+     */
+    public ImmutableSelect fill(Number value) {
+        if (value == null)
+            throw new IllegalArgumentException("Missing fill value");
+        if (value instanceof Double || value instanceof Float) {
+            Appender.checkFinite(value.doubleValue());
+        } else if (!(value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte)) {
+            throw new IllegalArgumentException(String.format("Unsupported fill value %s", value));
+        }
+
+        return new ImmutableSelect(database, table, subquery, columns, isDistinct,
+                                   clauses, ordering, groupByColumns, groupByTime, value, limit, offSet);
+    }
+
+    public ImmutableSelect limit(int limit) {
+        if (limit <= 0)
+            throw new IllegalArgumentException("Invalid LIMIT value, must be strictly positive");
+
+        return new ImmutableSelect(database, table, subquery, columns, isDistinct,
+                                   clauses, ordering, groupByColumns, groupByTime, fill, limit, offSet);
+    }
+
+    public ImmutableSelect limit(int limit, long offSet) {
+        if (limit <= 0 || offSet <= 0)
+            throw new IllegalArgumentException("Invalid LIMIT and OFFSET Value, must be strictly positive");
+
+        return new ImmutableSelect(database, table, subquery, columns, isDistinct,
+                                   clauses, ordering, groupByColumns, groupByTime, fill, limit, offSet);
+    }
+
+    /**
+     * Hashes the structure of the statement, without rendering it.
+     * Equal statements have the same fingerprint, which is stable across JVM runs.
+     * @return a 64-bit hash of the statement
+     */
+    public long fingerprint() {
+        long hash = fingerprint;
+        if (hash == 0) {
+            Fingerprint fingerprint = new Fingerprint().putTag(Fingerprint.SELECT)
+                    .putString(database)
+                    .putString(table);
+            if (subquery != null)
+                fingerprint.putLong(subquery.fingerprint());
+            fingerprint.putBoolean(isDistinct)
+                       .putValues(columns)
+                       .putLong(clauses == null ? 0 : clauses.size);
+            for (ClauseNode node = clauses; node != null; node = node.previous) {
+                node.clause.fingerprint(fingerprint);
+            }
+            fingerprint.putTag(ordering == null ? Fingerprint.NULL : ordering.isDesc() ? 2 : 1)
+                       .putValues(groupByColumns);
+            if (groupByTime != null)
+                fingerprint.putTag(Fingerprint.GROUP_BY_TIME).putValue(groupByTime.getInterval()).putValue(groupByTime.getOffset());
+            if (fill != null)
+                fingerprint.putTag(Fingerprint.FILL).putValue(fill instanceof Fill ? ((Fill) fill).name() : fill);
+            hash = fingerprint.putLong(limit == null ? -1 : limit)
+                              .putLong(offSet == null ? -1 : offSet)
+                              .hash();
+            this.fingerprint = hash;
+        }
+        return hash;
+    }
+
+    /**
+     * Statements are equal when they have the same parts, clauses in the same order included
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o)
+            return true;
+        if (!(o instanceof ImmutableSelect))
+            return false;
+        ImmutableSelect that = (ImmutableSelect) o;
+        return isDistinct == that.isDistinct
+                && Objects.equals(database, that.database)
+                && Objects.equals(table, that.table)
+                && Objects.equals(subquery, that.subquery)
+                && Objects.equals(columns, that.columns)
+                && getClauses().equals(that.getClauses())
+                && Objects.equals(ordering, that.ordering)
+                && Objects.equals(groupByColumns, that.groupByColumns)
+                && Objects.equals(groupByTime, that.groupByTime)
+                && Objects.equals(fill, that.fill)
+                && Objects.equals(limit, that.limit)
+                && Objects.equals(offSet, that.offSet);
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(fingerprint());
+    }
+
+    String getTable() {
+        return table;
+    }
+
+    ImmutableSelect getSubquery() {
+        return subquery;
+    }
+
+    List<Object> getColumns() {
+        return columns;
+    }
+
+    boolean isDistinct() {
+        return isDistinct;
+    }
+
+    List<Clause> getClauses() {
+        return clauses == null ? Collections.<Clause>emptyList() : clauses.toList();
+    }
+
+    Ordering getOrdering() {
+        return ordering;
+    }
+
+    List<Object> getGroupByColumns() {
+        return groupByColumns;
+    }
+
+    GroupByTime getGroupByTime() {
+        return groupByTime;
+    }
+
+    Object getFill() {
+        return fill;
+    }
+
+    Integer getLimit() {
+        return limit;
+    }
+
+    Long getOffSet() {
+        return offSet;
+    }
+
+    /**
+     * The clauses are kept as a chain pointing to the clauses added before,
+     * so statements derived from the same statement share its clauses.
+     */
+    private static final class ClauseNode {
+
+        private final Clause clause;
+        private final ClauseNode previous;
+        private final int size;
+
+        private ClauseNode(Clause clause, ClauseNode previous) {
+            this.clause = clause;
+            this.previous = previous;
+            this.size = previous == null ? 1 : previous.size + 1;
+        }
+
+        private List<Clause> toList() {
+            Clause[] array = new Clause[size];
+            for (ClauseNode node = this; node != null; node = node.previous) {
+                array[node.size - 1] = node.clause;
+            }
+            return Collections.unmodifiableList(Arrays.asList(array));
+        }
+    }
+}
@@ -24,6 +24,8 @@
 
 package com.gkatzioura.influxdb.querybuilder;
 
+import java.io.IOException;
+
 class Ordering implements Appendable {
 
     private final boolean isDesc;
@@ -39,9 +41,27 @@ class Ordering implements Appendable {
     }
 
     @Override
-    public void appendTo(StringBuilder sb) {
-        Appender.appendName(TIME_KEY, sb);
-        sb.append(isDesc ? " DESC" : " ASC");
+    public void appendTo(java.lang.Appendable out) throws IOException {
+        Appender.appendName(TIME_KEY, out);
+        out.append(isDesc ? " DESC" : " ASC");
+    }
+
+    boolean isDesc() {
+        return isDesc;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o)
+            return true;
+        if (!(o instanceof Ordering))
+            return false;
+        return isDesc == ((Ordering) o).isDesc;
+    }
+
+    @Override
+    public int hashCode() {
+        return Boolean.hashCode(isDesc);
     }
 
 }
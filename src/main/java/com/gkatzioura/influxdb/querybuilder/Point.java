@@ -0,0 +1,393 @@
+/**
+ * MIT License
+ * <p>
+ * Copyright (c) 2018 Emmanouil Gkatziouras
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE
+ */
+
+package com.gkatzioura.influxdb.querybuilder;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A point of the line protocol, encoded straight into a {@link StringBuilder} or a {@link ByteBuffer}.
+ * A point is meant to be reused: {@link #measurement(String)} clears it, and once its arrays have grown
+ * to the number of tags and fields written no allocation takes place.
+ * Tags are written sorted by key, as InfluxDB recommends. Tags with an empty value are left out.
+ * Points of a series written over and over can start from a {@link SeriesTemplate}, escaped once.
+ */
+public final class Point implements Appendable {
+
+    private static final byte MEASUREMENT = 1;
+    private static final byte KEY = 2;
+    private static final byte STRING = 4;
+    private static final byte INVALID = 8;
+
+    /**
+     * The characters to escape with a backslash, per element of the line
+     */
+    private static final byte[] ESCAPES = new byte[128];
+
+    static {
+        ESCAPES[','] = MEASUREMENT | KEY;
+        ESCAPES[' '] = MEASUREMENT | KEY;
+        ESCAPES['='] = KEY;
+        ESCAPES['"'] = STRING;
+        ESCAPES['\\'] = STRING;
+        ESCAPES['\n'] = INVALID;
+        ESCAPES['\r'] = INVALID;
+    }
+
+    private static final byte FLOAT = 0;
+    private static final byte INTEGER = 1;
+    private static final byte UNSIGNED = 2;
+    private static final byte BOOLEAN = 3;
+    private static final byte TEXT = 4;
+
+    private String measurement;
+    private SeriesTemplate template;
+
+    private int tags;
+    private String[] tagKeys = new String[4];
+    private String[] tagValues = new String[4];
+
+    private int fields;
+    private String[] fieldKeys = new String[4];
+    private byte[] fieldTypes = new byte[4];
+    private long[] longValues = new long[4];
+    private double[] doubleValues = new double[4];
+    private CharSequence[] textValues = new CharSequence[4];
+
+    private boolean hasTime;
+    private long time;
+    private TimeUnit timeUnit;
+
+    private final StringBuilder scratch = new StringBuilder(32);
+    private final Utf8Writer writer = new Utf8Writer(null);
+
+    public Point(String measurement) {
+        measurement(measurement);
+    }
+
+    /**
+     * Clears the point and starts a new one
+     * @param measurement
+     * @return
+     */
+    public Point measurement(String measurement) {
+        if (measurement == null || measurement.isEmpty())
+            throw new IllegalArgumentException("The measurement is required");
+
+        this.measurement = measurement;
+        this.template = null;
+        Arrays.fill(textValues, 0, fields, null);
+        this.tags = 0;
+        this.fields = 0;
+        this.hasTime = false;
+        return this;
+    }
+
+    /**
+     * Clears the point and starts a new one of the series, its measurement and tags are already escaped
+     * @param template
+     * @return
+     */
+    public Point series(SeriesTemplate template) {
+        measurement(template.getMeasurement());
+        this.template = template;
+        return this;
+    }
+
+    public Point tag(String key, String value) {
+        if (template != null)
+            throw new IllegalStateException("The tags of the point are those of its series template");
+        checkKey(key);
+        if (tags == tagKeys.length) {
+            tagKeys = Arrays.copyOf(tagKeys, tags * 2);
+            tagValues = Arrays.copyOf(tagValues, tags * 2);
+        }
+        tagKeys[tags] = key;
+        tagValues[tags] = value;
+        tags++;
+        return this;
+    }
+
+    public Point field(String key, double value) {
+        if (Double.isNaN(value) || Double.isInfinite(value))
+            throw new IllegalArgumentException(String.format("Invalid value %s for field %s", value, key));
+
+        int field = addField(key, FLOAT);
+        doubleValues[field] = value;
+        return this;
+    }
+
+    public Point field(String key, long value) {
+        int field = addField(key, INTEGER);
+        longValues[field] = value;
+        return this;
+    }
+
+    /**
+     * @param key
+     * @param value written as an unsigned integer, supported since InfluxDB 1.8
+     * @return
+     */
+    public Point unsignedField(String key, long value) {
+        int field = addField(key, UNSIGNED);
+        longValues[field] = value;
+        return this;
+    }
+
+    public Point field(String key, boolean value) {
+        int field = addField(key, BOOLEAN);
+        longValues[field] = value ? 1 : 0;
+        return this;
+    }
+
+    public Point field(String key, CharSequence value) {
+        if (value == null)
+            throw new IllegalArgumentException(String.format("Invalid null value for field %s", key));
+
+        int field = addField(key, TEXT);
+        textValues[field] = value;
+        return this;
+    }
+
+    public Point time(long time, TimeUnit timeUnit) {
+        this.hasTime = true;
+        this.time = time;
+        this.timeUnit = timeUnit;
+        return this;
+    }
+
+    public Point time(Instant time) {
+        return time(Math.addExact(Math.multiplyExact(time.getEpochSecond(), 1_000_000_000L), time.getNano()), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Writes the line, without a trailing new line, with a timestamp in nanoseconds
+     */
+    @Override
+    public void appendTo(java.lang.Appendable out) throws IOException {
+        appendTo(out, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void appendTo(StringBuilder sb) {
+        appendTo(sb, TimeUnit.NANOSECONDS);
+    }
+
+    public void appendTo(StringBuilder sb, TimeUnit precision) {
+        try {
+            appendTo((java.lang.Appendable) sb, precision);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Writes the line, without a trailing new line
+     * @param out
+     * @param precision the precision of the timestamp, which has to match the precision of the write
+     * @throws IOException
+     */
+    public void appendTo(java.lang.Appendable out, TimeUnit precision) throws IOException {
+        checkFields();
+        if (template != null) {
+            out.append(template.getSeriesKey());
+        } else {
+            sortTags();
+            appendSeriesKey(measurement, tagKeys, tagValues, tags, out);
+        }
+        appendFieldsAndTime(out, precision);
+    }
+
+    /**
+     * Writes the measurement and the tags, which have to be sorted by key
+     */
+    static void appendSeriesKey(String measurement, String[] tagKeys, String[] tagValues, int tags, java.lang.Appendable out) throws IOException {
+        appendEscaped(measurement, MEASUREMENT, out);
+        for (int i = 0; i < tags; i++) {
+            if (tagValues[i] == null || tagValues[i].isEmpty())
+                continue;
+            out.append(',');
+            appendEscaped(tagKeys[i], KEY, out);
+            out.append('=');
+            appendEscaped(tagValues[i], KEY, out);
+        }
+    }
+
+    private void appendFieldsAndTime(java.lang.Appendable out, TimeUnit precision) throws IOException {
+        for (int i = 0; i < fields; i++) {
+            out.append(i == 0 ? ' ' : ',');
+            appendEscaped(fieldKeys[i], KEY, out);
+            out.append('=');
+            appendFieldValue(i, out);
+        }
+
+        if (hasTime) {
+            out.append(' ');
+            Appender.appendLong(precision.convert(time, timeUnit), out);
+        }
+    }
+
+    /**
+     * Writes the line as UTF-8 followed by a new line
+     * @param buffer
+     * @param precision the precision of the timestamp, which has to match the precision of the write
+     * @return the buffer
+     */
+    public ByteBuffer writeTo(ByteBuffer buffer, TimeUnit precision) {
+        try {
+            if (template != null) {
+                checkFields();
+                buffer.put(template.getSeriesKeyBytes());
+                appendFieldsAndTime(writer.setBuffer(buffer), precision);
+            } else {
+                appendTo(writer.setBuffer(buffer), precision);
+            }
+            writer.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            writer.setBuffer(null);
+        }
+        return buffer.put((byte) '\n');
+    }
+
+    public ByteBuffer writeTo(ByteBuffer buffer) {
+        return writeTo(buffer, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        appendTo(sb);
+        return sb.toString();
+    }
+
+    private int addField(String key, byte type) {
+        checkKey(key);
+        if (fields == fieldKeys.length) {
+            int capacity = fields * 2;
+            fieldKeys = Arrays.copyOf(fieldKeys, capacity);
+            fieldTypes = Arrays.copyOf(fieldTypes, capacity);
+            longValues = Arrays.copyOf(longValues, capacity);
+            doubleValues = Arrays.copyOf(doubleValues, capacity);
+            textValues = Arrays.copyOf(textValues, capacity);
+        }
+        fieldKeys[fields] = key;
+        fieldTypes[fields] = type;
+        return fields++;
+    }
+
+    private void appendFieldValue(int field, java.lang.Appendable out) throws IOException {
+        switch (fieldTypes[field]) {
+            case FLOAT:
+                appendDouble(doubleValues[field], out);
+                break;
+            case INTEGER:
+                Appender.appendLong(longValues[field], out).append('i');
+                break;
+            case UNSIGNED:
+                appendUnsigned(longValues[field], out).append('u');
+                break;
+            case BOOLEAN:
+                out.append(longValues[field] != 0 ? 't' : 'f');
+                break;
+            default:
+                out.append('"');
+                appendEscaped(textValues[field], STRING, out);
+                out.append('"');
+        }
+    }
+
+    /**
+     * Goes through a reused builder, {@link Double#toString(double)} would create a string per value
+     */
+    private void appendDouble(double value, java.lang.Appendable out) throws IOException {
+        if (out instanceof StringBuilder) {
+            ((StringBuilder) out).append(value);
+            return;
+        }
+        scratch.setLength(0);
+        scratch.append(value);
+        out.append(scratch);
+    }
+
+    private java.lang.Appendable appendUnsigned(long value, java.lang.Appendable out) throws IOException {
+        if (value >= 0)
+            return Appender.appendLong(value, out);
+
+        long quotient = (value >>> 1) / 5;
+        long remainder = value - quotient * 10;
+        return Appender.appendLong(quotient, out).append((char) ('0' + remainder));
+    }
+
+    private static void appendEscaped(CharSequence value, byte escapes, java.lang.Appendable out) throws IOException {
+        int length = value.length();
+        int start = 0;
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c >= ESCAPES.length || (ESCAPES[c] & (escapes | INVALID)) == 0)
+                continue;
+            if (ESCAPES[c] == INVALID && escapes != STRING)
+                throw new IllegalArgumentException(String.format("Line breaks are not allowed in %s", value));
+            if ((ESCAPES[c] & escapes) != 0) {
+                out.append(value, start, i).append('\\');
+                start = i;
+            }
+        }
+        out.append(value, start, length);
+    }
+
+    /**
+     * Insertion sort, the tags of a point are few and often already sorted
+     */
+    private void sortTags() {
+        for (int i = 1; i < tags; i++) {
+            String key = tagKeys[i];
+            String value = tagValues[i];
+            int j = i - 1;
+            while (j >= 0 && tagKeys[j].compareTo(key) > 0) {
+                tagKeys[j + 1] = tagKeys[j];
+                tagValues[j + 1] = tagValues[j];
+                j--;
+            }
+            tagKeys[j + 1] = key;
+            tagValues[j + 1] = value;
+        }
+    }
+
+    private void checkFields() {
+        if (fields == 0)
+            throw new IllegalStateException(String.format("The point %s has no fields", measurement));
+    }
+
+    private static void checkKey(String key) {
+        if (key == null || key.isEmpty())
+            throw new IllegalArgumentException("Keys can not be empty");
+    }
+}
@@ -0,0 +1,146 @@
+/**
+ * MIT License
+ * <p>
+ * Copyright (c) 2018 Emmanouil Gkatziouras
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE
+ */
+
+package com.gkatzioura.influxdb.querybuilder;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A statement compiled once into literal fragments separated by bind marker slots.
+ * Binding values only copies the fragments and renders the values, the statement tree is not walked again.
+ */
+public class PreparedStatement {
+
+    private static final int ESTIMATED_VALUE_LENGTH = 20;
+
+    private final String database;
+    private final String[] fragments;
+    private final int fragmentsLength;
+
+    PreparedStatement(BuiltStatement statement) {
+        this.database = statement.getDatabase();
+
+        TemplateBuilder template = new TemplateBuilder();
+        try {
+            statement.appendQueryString(template);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        this.fragments = template.build();
+
+        int length = 0;
+        for (String fragment : fragments) {
+            length += fragment.length();
+        }
+        this.fragmentsLength = length;
+    }
+
+    public String getDatabase() {
+        return database;
+    }
+
+    /**
+     * @return the number of values expected by {@link #bind(Object...)}
+     */
+    public int getBindMarkers() {
+        return fragments.length - 1;
+    }
+
+    public BoundStatement bind(Object... values) {
+        if (values.length != getBindMarkers())
+            throw new IllegalArgumentException(String.format("The statement expects %d values but %d were provided", getBindMarkers(), values.length));
+
+        for (Object value : values) {
+            if (value instanceof BindMarker)
+                throw new IllegalArgumentException("A bind marker cannot be bound as a value");
+        }
+        return new BoundStatement(this, values.clone());
+    }
+
+    int estimateLength(Object[] values) {
+        int length = fragmentsLength;
+        for (Object value : values) {
+            length += value instanceof String ? ((String) value).length() + 2 : ESTIMATED_VALUE_LENGTH;
+        }
+        return length;
+    }
+
+    void fill(Object[] values, java.lang.Appendable out) throws IOException {
+        out.append(fragments[0]);
+        for (int i = 0; i < values.length; i++) {
+            Appender.appendValue(values[i], out);
+            out.append(fragments[i + 1]);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.join("?", fragments);
+    }
+
+    /**
+     * Collects the fragments between the bind markers while the statement is rendered
+     */
+    static class TemplateBuilder implements java.lang.Appendable {
+
+        private final StringBuilder sb = new StringBuilder();
+        private final List<String> fragments = new ArrayList<>();
+
+        void bindMarker() {
+            fragments.add(sb.toString());
+            sb.setLength(0);
+        }
+
+        boolean hasBindMarkers() {
+            return !fragments.isEmpty();
+        }
+
+        String[] build() {
+            fragments.add(BuiltStatement.addSemicolonIfNeeded(sb).toString());
+            return fragments.toArray(new String[0]);
+        }
+
+        @Override
+        public TemplateBuilder append(CharSequence csq) {
+            sb.append(csq);
+            return this;
+        }
+
+        @Override
+        public TemplateBuilder append(CharSequence csq, int start, int end) {
+            sb.append(csq, start, end);
+            return this;
+        }
+
+        @Override
+        public TemplateBuilder append(char c) {
+            sb.append(c);
+            return this;
+        }
+    }
+}
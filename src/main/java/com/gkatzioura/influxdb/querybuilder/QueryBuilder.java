@@ -24,7 +24,10 @@
 
 package com.gkatzioura.influxdb.querybuilder;
 
+import java.time.Duration;
+import java.time.Instant;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
 
 import static com.gkatzioura.influxdb.querybuilder.Operations.EQ;
@@ -52,6 +55,22 @@ public final class QueryBuilder {
         return new Select.SelectionOrAlias();
     }
 
+    /**
+     * @param measurement
+     * @return a point of the line protocol, to be reused across writes
+     */
+    public static Point point(String measurement) {
+        return new Point(measurement);
+    }
+
+    public static BatchStatement batch(BuiltStatement... statements) {
+        return batch(Arrays.asList(statements));
+    }
+
+    public static BatchStatement batch(List<? extends BuiltStatement> statements) {
+        return new BatchStatement(statements);
+    }
+
     public static String token(String columnName) {
         StringBuilder sb = new StringBuilder();
         sb.append("token(");
@@ -68,6 +87,26 @@ public final class QueryBuilder {
         return new Clause.CompoundClause(names, EQ, values);
     }
 
+    public static Clause eq(String name, long value) {
+        return new Clause.LongClause(name, EQ, value);
+    }
+
+    public static Clause eq(String name, double value) {
+        return new Clause.DoubleClause(name, EQ, value);
+    }
+
+    public static Clause eq(String name, boolean value) {
+        return new Clause.BooleanClause(name, EQ, value);
+    }
+
+    public static Clause eq(String name, Instant value) {
+        return new Clause.InstantClause(name, EQ, value);
+    }
+
+    public static Clause eq(String name, Duration value) {
+        return new Clause.DurationClause(name, EQ, value);
+    }
+
     public static Clause ne(String name, Object value) {
         return new Clause.SimpleClause(name, NE, value);
     }
@@ -76,10 +115,86 @@ public final class QueryBuilder {
         return new Clause.CompoundClause(names, NE, values);
     }
 
+    public static Clause ne(String name, long value) {
+        return new Clause.LongClause(name, NE, value);
+    }
+
+    public static Clause ne(String name, double value) {
+        return new Clause.DoubleClause(name, NE, value);
+    }
+
+    public static Clause ne(String name, boolean value) {
+        return new Clause.BooleanClause(name, NE, value);
+    }
+
+    public static Clause ne(String name, Instant value) {
+        return new Clause.InstantClause(name, NE, value);
+    }
+
+    public static Clause ne(String name, Duration value) {
+        return new Clause.DurationClause(name, NE, value);
+    }
+
     public static Clause contains(String name, String value) {
         return new Clause.ContainsClause(name, value);
     }
 
+    /**
+     * InfluxQL has no IN operator, the values are matched by OR'ed equalities or, from 16 strings on,
+     * by an anchored regular expression
+     * @param name
+     * @param values
+     * @return
+     */
+    public static Clause in(String name, Collection<?> values) {
+        return new Clause.InClause(name, values, Clause.InClause.DEFAULT_REGEX_THRESHOLD);
+    }
+
+    /**
+     * @param name
+     * @param values
+     * @param regexThreshold the number of strings from which they are matched by a regular expression
+     * @return
+     */
+    public static Clause in(String name, Collection<?> values, int regexThreshold) {
+        return new Clause.InClause(name, values, regexThreshold);
+    }
+
+    /**
+     * Groups the clauses, nested groups are flattened and the group is rendered with the parentheses it needs only
+     * @param clauses
+     * @return the group, or the clause itself for a single clause
+     */
+    public static Clause and(Clause... clauses) {
+        return and(Arrays.asList(clauses));
+    }
+
+    public static Clause and(List<? extends Clause> clauses) {
+        return Clause.LogicalClause.and(clauses);
+    }
+
+    public static Clause or(Clause... clauses) {
+        return or(Arrays.asList(clauses));
+    }
+
+    public static Clause or(List<? extends Clause> clauses) {
+        return Clause.LogicalClause.or(clauses);
+    }
+
+    /**
+     * InfluxQL has no NOT operator, the negation is pushed down to the comparisons, e.g. not(or(eq("a", 1), gt("b", 2)))
+     * gives a!=1 AND b<=2. Points missing a field match neither a comparison on it nor its negation.
+     * @param clause
+     * @return
+     * @throws IllegalArgumentException for tuple comparisons and clauses defined outside of the builder
+     */
+    public static Clause not(Clause clause) {
+        if (clause == null)
+            throw new IllegalArgumentException("Missing clause");
+
+        return clause.negate();
+    }
+
     public static Clause regex(String name, String value) {
         return new Clause.RegexClause(name, value);
     }
@@ -96,6 +211,22 @@ public final class QueryBuilder {
         return new Clause.CompoundClause(names, LT, values);
     }
 
+    public static Clause lt(String name, long value) {
+        return new Clause.LongClause(name, LT, value);
+    }
+
+    public static Clause lt(String name, double value) {
+        return new Clause.DoubleClause(name, LT, value);
+    }
+
+    public static Clause lt(String name, Instant value) {
+        return new Clause.InstantClause(name, LT, value);
+    }
+
+    public static Clause lt(String name, Duration value) {
+        return new Clause.DurationClause(name, LT, value);
+    }
+
     public static Clause lte(String name, Object value) {
         return new Clause.SimpleClause(name, LTE, value);
     }
@@ -104,6 +235,22 @@ public final class QueryBuilder {
         return new Clause.CompoundClause(names, LTE, values);
     }
 
+    public static Clause lte(String name, long value) {
+        return new Clause.LongClause(name, LTE, value);
+    }
+
+    public static Clause lte(String name, double value) {
+        return new Clause.DoubleClause(name, LTE, value);
+    }
+
+    public static Clause lte(String name, Instant value) {
+        return new Clause.InstantClause(name, LTE, value);
+    }
+
+    public static Clause lte(String name, Duration value) {
+        return new Clause.DurationClause(name, LTE, value);
+    }
+
     public static Clause gt(String name, Object value) {
         return new Clause.SimpleClause(name, GT, value);
     }
@@ -112,6 +259,22 @@ public final class QueryBuilder {
         return new Clause.CompoundClause(names, GT, values);
     }
 
+    public static Clause gt(String name, long value) {
+        return new Clause.LongClause(name, GT, value);
+    }
+
+    public static Clause gt(String name, double value) {
+        return new Clause.DoubleClause(name, GT, value);
+    }
+
+    public static Clause gt(String name, Instant value) {
+        return new Clause.InstantClause(name, GT, value);
+    }
+
+    public static Clause gt(String name, Duration value) {
+        return new Clause.DurationClause(name, GT, value);
+    }
+
     public static Clause gte(String name, Object value) {
         return new Clause.SimpleClause(name, GTE, value);
     }
@@ -120,6 +283,22 @@ public final class QueryBuilder {
         return new Clause.CompoundClause(names, GTE, values);
     }
 
+    public static Clause gte(String name, long value) {
+        return new Clause.LongClause(name, GTE, value);
+    }
+
+    public static Clause gte(String name, double value) {
+        return new Clause.DoubleClause(name, GTE, value);
+    }
+
+    public static Clause gte(String name, Instant value) {
+        return new Clause.InstantClause(name, GTE, value);
+    }
+
+    public static Clause gte(String name, Duration value) {
+        return new Clause.DurationClause(name, GTE, value);
+    }
+
     /**
      * @return
      */
@@ -139,6 +318,14 @@ public final class QueryBuilder {
         return new RawString(str);
     }
 
+    /**
+     * A positional bind marker, values are provided on {@link PreparedStatement#bind(Object...)}
+     * @return
+     */
+    public static Object bindMarker() {
+        return BindMarker.ANONYMOUS;
+    }
+
     public static Object fcall(String name, Object... parameters) {
         return new Function(name, parameters);
     }
@@ -0,0 +1,261 @@
+/**
+ * MIT License
+ * <p>
+ * Copyright (c) 2018 Emmanouil Gkatziouras
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE
+ */
+
+package com.gkatzioura.influxdb.querybuilder;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static com.gkatzioura.influxdb.querybuilder.Operations.EQ;
+import static com.gkatzioura.influxdb.querybuilder.Operations.GT;
+import static com.gkatzioura.influxdb.querybuilder.Operations.GTE;
+import static com.gkatzioura.influxdb.querybuilder.Operations.LT;
+import static com.gkatzioura.influxdb.querybuilder.Operations.LTE;
+
+/**
+ * Rewrites the clauses of a statement into a canonical form, so that logically identical statements render
+ * the same query whatever the order their clauses were added in.
+ * Names lose the quotes they do not need, duplicate clauses are removed and the clauses are sorted.
+ * Range predicates on the same name collapse into the tightest lower and upper bound, e.g.
+ * time > a AND time > b becomes time > max(a,b), and bounds implied by an equality are dropped.
+ * Only literal bounds are compared, bounds relative to now() are kept as they are.
+ * The operands of OR groups are sorted as well.
+ * Statements holding bind markers are left as they are, the markers are positional.
+ */
+public final class QueryNormalizer {
+
+    private static final BigInteger NANOS_PER_SECOND = BigInteger.valueOf(1_000_000_000L);
+
+    private QueryNormalizer() {
+    }
+
+    public static ImmutableSelect normalize(Select select) {
+        return normalize(select.toImmutable());
+    }
+
+    public static ImmutableSelect normalize(Select.Where where) {
+        return normalize(where.toImmutable());
+    }
+
+    /**
+     * @param select
+     * @return the statement with its clauses in canonical form,
+     * null if the clauses contradict each other so that the statement cannot match any point
+     */
+    public static ImmutableSelect normalize(ImmutableSelect select) {
+        List<Clause> clauses = normalize(select.getClauses());
+        return clauses == null ? null : select.withClauses(clauses);
+    }
+
+    /**
+     * Clauses holding bind markers are left as they are, sorting or merging them would move the values bound
+     * @param clauses clauses joined by AND
+     * @return the clauses in canonical order, null if they contradict each other
+     */
+    static List<Clause> normalize(List<Clause> clauses) {
+        for (Clause clause : clauses) {
+            if (clause.hasBindMarker())
+                return clauses;
+        }
+
+        Map<String, Range> ranges = new LinkedHashMap<>();
+        Map<String, Object> equalities = new HashMap<>();
+        TreeMap<String, Clause> sorted = new TreeMap<>();
+
+        for (Clause clause : clauses) {
+            clause = clause.canonical();
+            String name = name(clause);
+            String op = op(clause);
+            BigDecimal value = name == null ? null : numericValue(clause);
+
+            if (value != null && isRange(op)) {
+                ranges.computeIfAbsent(name, key -> new Range()).add(op, value, clause);
+                continue;
+            }
+
+            if (EQ.equals(op)) {
+                Object equality = value != null ? value : literalValue(clause);
+                if (equality != null) {
+                    Object previous = equalities.putIfAbsent(name, equality);
+                    if (previous != null && !sameValue(previous, equality))
+                        return null;
+                }
+            }
+            sorted.put(render(clause), clause);
+        }
+
+        for (Map.Entry<String, Range> entry : ranges.entrySet()) {
+            Range range = entry.getValue();
+            if (range.isEmpty())
+                return null;
+
+            Object equality = equalities.get(entry.getKey());
+            if (equality instanceof BigDecimal) {
+                if (!range.contains((BigDecimal) equality))
+                    return null;
+                continue;
+            }
+
+            if (range.lower != null)
+                sorted.put(render(range.lower), range.lower);
+            if (range.upper != null)
+                sorted.put(render(range.upper), range.upper);
+        }
+
+        return new ArrayList<>(sorted.values());
+    }
+
+    private static String render(Clause clause) {
+        StringBuilder sb = new StringBuilder();
+        clause.appendTo(sb);
+        return sb.toString();
+    }
+
+    private static boolean isRange(String op) {
+        return GT.equals(op) || GTE.equals(op) || LT.equals(op) || LTE.equals(op);
+    }
+
+    private static boolean sameValue(Object a, Object b) {
+        if (a instanceof BigDecimal && b instanceof BigDecimal)
+            return ((BigDecimal) a).compareTo((BigDecimal) b) == 0;
+        // values of different types are not compared
+        return a.getClass() != b.getClass() || a.equals(b);
+    }
+
+    static String name(Clause clause) {
+        if (clause instanceof Clause.SimpleClause)
+            return ((Clause.SimpleClause) clause).getName();
+        if (clause instanceof Clause.LongClause)
+            return ((Clause.LongClause) clause).getName();
+        if (clause instanceof Clause.DoubleClause)
+            return ((Clause.DoubleClause) clause).getName();
+        if (clause instanceof Clause.BooleanClause)
+            return ((Clause.BooleanClause) clause).getName();
+        if (clause instanceof Clause.InstantClause)
+            return ((Clause.InstantClause) clause).getName();
+        return null;
+    }
+
+    private static String op(Clause clause) {
+        if (clause instanceof Clause.SimpleClause)
+            return ((Clause.SimpleClause) clause).getOp();
+        if (clause instanceof Clause.LongClause)
+            return ((Clause.LongClause) clause).getOp();
+        if (clause instanceof Clause.DoubleClause)
+            return ((Clause.DoubleClause) clause).getOp();
+        if (clause instanceof Clause.BooleanClause)
+            return ((Clause.BooleanClause) clause).getOp();
+        if (clause instanceof Clause.InstantClause)
+            return ((Clause.InstantClause) clause).getOp();
+        return null;
+    }
+
+    /**
+     * Times are compared in nanoseconds since the epoch, the unit of integer time literals
+     */
+    private static BigDecimal numericValue(Clause clause) {
+        if (clause instanceof Clause.LongClause)
+            return BigDecimal.valueOf(((Clause.LongClause) clause).getValue());
+        if (clause instanceof Clause.DoubleClause) {
+            double value = ((Clause.DoubleClause) clause).getValue();
+            return Double.isNaN(value) || Double.isInfinite(value) ? null : new BigDecimal(value);
+        }
+        if (clause instanceof Clause.InstantClause) {
+            Instant instant = ((Clause.InstantClause) clause).getValue();
+            return new BigDecimal(BigInteger.valueOf(instant.getEpochSecond()).multiply(NANOS_PER_SECOND)
+                                            .add(BigInteger.valueOf(instant.getNano())));
+        }
+        return null;
+    }
+
+    private static Object literalValue(Clause clause) {
+        if (clause instanceof Clause.BooleanClause)
+            return ((Clause.BooleanClause) clause).getValue();
+        if (clause instanceof Clause.SimpleClause) {
+            Object value = ((Clause.SimpleClause) clause).getValue();
+            return value instanceof String ? value : null;
+        }
+        return null;
+    }
+
+    /**
+     * The tightest bounds on a name, a strict bound wins over an inclusive one on the same value
+     */
+    private static final class Range {
+
+        private Clause lower;
+        private BigDecimal lowerValue;
+        private boolean lowerStrict;
+        private Clause upper;
+        private BigDecimal upperValue;
+        private boolean upperStrict;
+
+        private void add(String op, BigDecimal value, Clause clause) {
+            boolean strict = GT.equals(op) || LT.equals(op);
+            if (GT.equals(op) || GTE.equals(op)) {
+                int comparison = lower == null ? 1 : value.compareTo(lowerValue);
+                if (comparison > 0 || (comparison == 0 && strict && !lowerStrict)) {
+                    lower = clause;
+                    lowerValue = value;
+                    lowerStrict = strict;
+                }
+            } else {
+                int comparison = upper == null ? -1 : value.compareTo(upperValue);
+                if (comparison < 0 || (comparison == 0 && strict && !upperStrict)) {
+                    upper = clause;
+                    upperValue = value;
+                    upperStrict = strict;
+                }
+            }
+        }
+
+        private boolean isEmpty() {
+            if (lower == null || upper == null)
+                return false;
+            int comparison = lowerValue.compareTo(upperValue);
+            return comparison > 0 || (comparison == 0 && (lowerStrict || upperStrict));
+        }
+
+        private boolean contains(BigDecimal value) {
+            if (lower != null) {
+                int comparison = value.compareTo(lowerValue);
+                if (comparison < 0 || (comparison == 0 && lowerStrict))
+                    return false;
+            }
+            if (upper != null) {
+                int comparison = value.compareTo(upperValue);
+                if (comparison > 0 || (comparison == 0 && upperStrict))
+                    return false;
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,757 @@
+/**
+ * MIT License
+ * <p>
+ * Copyright (c) 2018 Emmanouil Gkatziouras
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE
+ */
+
+package com.gkatzioura.influxdb.querybuilder;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.gkatzioura.influxdb.querybuilder.Operations.EQ;
+import static com.gkatzioura.influxdb.querybuilder.Operations.EQR;
+import static com.gkatzioura.influxdb.querybuilder.Operations.GT;
+import static com.gkatzioura.influxdb.querybuilder.Operations.GTE;
+import static com.gkatzioura.influxdb.querybuilder.Operations.LT;
+import static com.gkatzioura.influxdb.querybuilder.Operations.LTE;
+import static com.gkatzioura.influxdb.querybuilder.Operations.NE;
+import static com.gkatzioura.influxdb.querybuilder.Operations.NER;
+
+/**
+ * Parses the InfluxQL select statements the builder can express back into a {@link Select}, so that raw queries
+ * can be cached, split and rewritten like built ones.
+ * The parser reads the query in a single pass, without tokenizing it upfront or using regular expressions.
+ * Supported are the selection of columns, functions, aliases and DISTINCT, a measurement or a subquery, WHERE conditions joined
+ * by AND and OR, grouped by parentheses, with the comparison and regex operators, GROUP BY, ORDER BY time, LIMIT and OFFSET.
+ * Names are kept as written, quotes are dropped only when the builder would add them back.
+ * String literals compared to time are read as instants when they are RFC3339 timestamps.
+ */
+public final class QueryParser {
+
+    private static final String TIME_KEY = "time";
+
+    private final String query;
+    private int position;
+
+    private QueryParser(String query) {
+        this.query = query;
+    }
+
+    public static Select parse(String query) {
+        return parse(null, query);
+    }
+
+    /**
+     * @param database the database the statement is executed against, not part of the query
+     * @param query
+     * @return
+     * @throws IllegalArgumentException if the query is not a select statement supported by the builder
+     */
+    public static Select parse(String database, String query) {
+        if (query == null)
+            throw new IllegalArgumentException("Missing query");
+
+        QueryParser parser = new QueryParser(query);
+        Select select = parser.select(database);
+        parser.consume(';');
+        parser.skipWhitespace();
+        if (parser.position < query.length())
+            throw parser.error("Unexpected input");
+        return select;
+    }
+
+    /**
+     * @param text a duration literal e.g. 1h30m
+     * @return
+     * @throws IllegalArgumentException if the text is not a duration literal
+     */
+    static Duration duration(String text) {
+        QueryParser parser = new QueryParser(text);
+        if (!isDigit(parser.peek()))
+            throw parser.error("Expected a duration");
+        Duration duration = parser.duration();
+        if (parser.position < text.length())
+            throw parser.error("Unexpected input");
+        return duration;
+    }
+
+    private Select select(String database) {
+        expectKeyword("SELECT");
+
+        List<Object> columns = null;
+        boolean isDistinct = false;
+        skipWhitespace();
+        if (peek() == '*') {
+            position++;
+        } else {
+            columns = new ArrayList<>();
+            do {
+                Object column = field();
+                isDistinct |= column instanceof Distinct;
+                if (keyword("AS"))
+                    column = new Alias(column, alias());
+                columns.add(column);
+            } while (consume(','));
+        }
+
+        expectKeyword("FROM");
+        Select select;
+        if (consume('(')) {
+            Select subquery = select(database);
+            expect(')');
+            select = new Select(subquery.toImmutable(), columns, isDistinct);
+        } else {
+            select = new Select(database, measurement(), columns, isDistinct);
+        }
+
+        if (keyword("WHERE"))
+            select.where().and(group(disjunction()));
+
+        if (keyword("GROUP")) {
+            expectKeyword("BY");
+            List<Object> groupBy = new ArrayList<>();
+            if (!groupByTime(select)) {
+                groupBy.add(dimension());
+            }
+            while (consume(',')) {
+                groupBy.add(dimension());
+            }
+            if (!groupBy.isEmpty())
+                select.groupBy(groupBy.toArray());
+
+            if (keyword("fill")) {
+                expect('(');
+                skipWhitespace();
+                if (keyword("null"))
+                    select.fill(Fill.NULL);
+                else if (keyword("none"))
+                    select.fill(Fill.NONE);
+                else if (keyword("previous"))
+                    select.fill(Fill.PREVIOUS);
+                else if (keyword("linear"))
+                    select.fill(Fill.LINEAR);
+                else
+                    select.fill((Number) number());
+                expect(')');
+            }
+        }
+
+        if (keyword("ORDER")) {
+            expectKeyword("BY");
+            if (!TIME_KEY.equals(identifier()))
+                throw error("Only time can be ordered by");
+            boolean isDesc = keyword("DESC");
+            if (!isDesc)
+                keyword("ASC");
+            select.orderBy(new Ordering(isDesc));
+        }
+
+        if (keyword("LIMIT")) {
+            long limit = integer();
+            if (limit > Integer.MAX_VALUE)
+                throw error("LIMIT out of range");
+            if (keyword("OFFSET")) {
+                long offSet = integer();
+                if (offSet > 0)
+                    select.limit((int) limit, offSet);
+                else
+                    select.limit((int) limit);
+            } else {
+                select.limit((int) limit);
+            }
+        }
+
+        return select;
+    }
+
+    private Object field() {
+        if (keyword("DISTINCT")) {
+            boolean parenthesized = consume('(');
+            Object expression = columnExpression();
+            if (parenthesized)
+                expect(')');
+            return new Distinct(expression);
+        }
+        return columnExpression();
+    }
+
+    /**
+     * @return a name or a function call
+     */
+    private Object columnExpression() {
+        String name = identifier();
+        if (consume('('))
+            return new Function(name, arguments());
+        return name;
+    }
+
+    private Object[] arguments() {
+        List<Object> arguments = new ArrayList<>();
+        if (!consume(')')) {
+            do {
+                arguments.add(argument());
+            } while (consume(','));
+            expect(')');
+        }
+        return arguments.toArray();
+    }
+
+    private Object argument() {
+        skipWhitespace();
+        char c = peek();
+        if (c == '*') {
+            position++;
+            return new RawString("*");
+        }
+        if (c == '/')
+            return new RawString(regex());
+        if (isNameStart(c) && !isBooleanLiteral()) {
+            String name = identifier();
+            if (consume('('))
+                return new Function(name, arguments());
+            return new Column(name);
+        }
+        return literal();
+    }
+
+    /**
+     * Measurements qualified by a retention policy are rendered with each part quoted
+     */
+    private String measurement() {
+        String name = identifier();
+        if (peek() != '.')
+            return name;
+
+        StringBuilder qualified = new StringBuilder();
+        qualified.append(quote(name));
+        while (consume('.')) {
+            qualified.append('.').append(quote(identifier()));
+        }
+        return qualified.toString();
+    }
+
+    /**
+     * Reads time(interval[,offset]) as the first dimension, a time dimension after others is kept as a function
+     * so that the query renders as it was written
+     * @return whether the dimension was read
+     */
+    private boolean groupByTime(Select select) {
+        int start = position;
+        if (!keyword("time") || !consume('(')) {
+            position = start;
+            return false;
+        }
+
+        skipWhitespace();
+        Duration interval = duration();
+        Duration offset = null;
+        if (consume(',')) {
+            boolean negative = consume('-');
+            skipWhitespace();
+            offset = duration();
+            if (negative)
+                offset = offset.negated();
+        }
+        expect(')');
+        select.groupByTime(interval, offset);
+        return true;
+    }
+
+    private Object dimension() {
+        skipWhitespace();
+        if (peek() == '*') {
+            position++;
+            return new RawString("*");
+        }
+        return columnExpression();
+    }
+
+    /**
+     * @return the operands of OR, each a list of operands of AND
+     */
+    private List<List<Clause>> disjunction() {
+        List<List<Clause>> disjuncts = new ArrayList<>();
+        do {
+            List<Clause> conjuncts = new ArrayList<>();
+            do {
+                conjuncts.add(clause());
+            } while (keyword("AND"));
+            disjuncts.add(conjuncts);
+        } while (keyword("OR"));
+        return disjuncts;
+    }
+
+    private static Clause group(List<List<Clause>> disjuncts) {
+        List<Clause> operands = new ArrayList<>(disjuncts.size());
+        for (List<Clause> conjuncts : disjuncts) {
+            operands.add(Clause.LogicalClause.and(conjuncts));
+        }
+        return Clause.LogicalClause.or(operands);
+    }
+
+    private Clause clause() {
+        skipWhitespace();
+        if (peek() == '(') {
+            if (isCompoundClause())
+                return compoundClause();
+
+            position++;
+            Clause group = group(disjunction());
+            expect(')');
+            return group;
+        }
+
+        String name = identifier();
+        skipWhitespace();
+        String op = operator();
+        if (EQR.equals(op))
+            return new Clause.RegexClause(name, regex());
+        if (NER.equals(op))
+            return new Clause.NegativeRegexClause(name, regex());
+
+        Object value = value();
+        if (value instanceof Long)
+            return new Clause.LongClause(name, op, (Long) value);
+        if (value instanceof Double)
+            return new Clause.DoubleClause(name, op, (Double) value);
+        if (value instanceof Boolean)
+            return new Clause.BooleanClause(name, op, (Boolean) value);
+        if (value instanceof Duration)
+            return new Clause.DurationClause(name, op, (Duration) value);
+        if (value instanceof String && TIME_KEY.equals(name)) {
+            Instant instant = instant((String) value);
+            if (instant != null)
+                return new Clause.InstantClause(name, op, instant);
+        }
+        return new Clause.SimpleClause(name, op, value);
+    }
+
+    /**
+     * A parenthesis opens either a list of names or a group of conditions, which starts with a name followed by an operator
+     */
+    private boolean isCompoundClause() {
+        int start = position;
+        try {
+            position++;
+            skipWhitespace();
+            if (!isNameStart(peek()))
+                return false;
+            identifier();
+            skipWhitespace();
+            return peek() == ',' || peek() == ')';
+        } finally {
+            position = start;
+        }
+    }
+
+    private Clause compoundClause() {
+        expect('(');
+        List<String> names = new ArrayList<>();
+        do {
+            names.add(identifier());
+        } while (consume(','));
+        expect(')');
+
+        skipWhitespace();
+        String op = operator();
+        if (op.length() == 2 && op.charAt(1) == '~')
+            throw error("Regular expressions cannot be compared to a list");
+
+        expect('(');
+        List<Object> values = new ArrayList<>();
+        do {
+            values.add(literal());
+        } while (consume(','));
+        expect(')');
+        return new Clause.CompoundClause(names, op, values);
+    }
+
+    private String operator() {
+        int start = position;
+        char c = peek();
+        char next = position + 1 < query.length() ? query.charAt(position + 1) : 0;
+        switch (c) {
+            case '=':
+                position += next == '~' ? 2 : 1;
+                return next == '~' ? EQR : EQ;
+            case '!':
+                if (next == '=' || next == '~') {
+                    position += 2;
+                    return next == '=' ? NE : NER;
+                }
+                break;
+            case '<':
+                if (next == '>') {
+                    position += 2;
+                    return NE;
+                }
+                position += next == '=' ? 2 : 1;
+                return next == '=' ? LTE : LT;
+            case '>':
+                position += next == '=' ? 2 : 1;
+                return next == '=' ? GTE : GT;
+            default:
+                break;
+        }
+        position = start;
+        throw error("Expected an operator");
+    }
+
+    /**
+     * @return a literal, a column, a function call or a bind marker, optionally shifted by a literal e.g. now() - 1h
+     */
+    private Object value() {
+        skipWhitespace();
+        char c = peek();
+        if (c == '?') {
+            position++;
+            return BindMarker.ANONYMOUS;
+        }
+        if (!isNameStart(c) || isBooleanLiteral())
+            return literal();
+
+        String name = identifier();
+        Object value = consume('(') ? new Function(name, arguments()) : new Column(name);
+
+        skipWhitespace();
+        char sign = peek();
+        if (sign != '+' && sign != '-')
+            return value;
+
+        position++;
+        skipWhitespace();
+        int literalStart = position;
+        literal();
+        StringBuilder expression = Appender.appendValue(value, new StringBuilder());
+        expression.append(' ').append(sign).append(' ').append(query, literalStart, position);
+        return new RawString(expression.toString());
+    }
+
+    private Object literal() {
+        skipWhitespace();
+        char c = peek();
+        if (c == '\'')
+            return string();
+        if (c == '-' || c == '+' || c == '.' || isDigit(c))
+            return number();
+        if (isBooleanLiteral())
+            return Boolean.valueOf(identifierWord().equalsIgnoreCase("true"));
+        throw error("Expected a literal");
+    }
+
+    private String string() {
+        int start = position++;
+        StringBuilder sb = null;
+        int from = position;
+        while (position < query.length()) {
+            char c = query.charAt(position);
+            if (c == '\'') {
+                String value = sb == null ? query.substring(from, position) : sb.append(query, from, position).toString();
+                position++;
+                return value;
+            }
+            if (c == '\\' && position + 1 < query.length()) {
+                if (sb == null)
+                    sb = new StringBuilder();
+                char escaped = query.charAt(position + 1);
+                sb.append(query, from, position).append(escaped == 'n' ? '\n' : escaped);
+                position += 2;
+                from = position;
+            } else {
+                position++;
+            }
+        }
+        position = start;
+        throw error("Unterminated string");
+    }
+
+    /**
+     * @return a Long, a Double or, for numbers followed by a unit, a Duration
+     */
+    private Object number() {
+        int start = position;
+        boolean negative = peek() == '-';
+        if (negative || peek() == '+')
+            position++;
+        skipDigits();
+        boolean decimal = false;
+        if (peek() == '.') {
+            decimal = true;
+            position++;
+            skipDigits();
+        }
+        if ((peek() == 'e' || peek() == 'E') && position + 1 < query.length()
+                && (isDigit(query.charAt(position + 1)) || query.charAt(position + 1) == '-' || query.charAt(position + 1) == '+')) {
+            decimal = true;
+            position += 2;
+            skipDigits();
+        }
+        if (position == start || !isDigit(query.charAt(position - 1)))
+            throw error("Invalid number");
+
+        if (!decimal && isIdentifierStart(peek())) {
+            if (negative)
+                throw error("Durations cannot be negative");
+            position = start + (query.charAt(start) == '+' ? 1 : 0);
+            return duration();
+        }
+
+        String number = query.substring(start, position);
+        try {
+            return decimal ? (Object) Double.parseDouble(number) : (Object) Long.parseLong(number);
+        } catch (NumberFormatException e) {
+            position = start;
+            throw error("Invalid number");
+        }
+    }
+
+    /**
+     * Reads a duration literal, made of one or more integers followed by a unit e.g. 1h30m
+     */
+    private Duration duration() {
+        int start = position;
+        long nanos = 0;
+        do {
+            int digitsStart = position;
+            skipDigits();
+            long amount;
+            try {
+                amount = Long.parseLong(query.substring(digitsStart, position));
+            } catch (NumberFormatException e) {
+                position = start;
+                throw error("Invalid duration");
+            }
+            long unit = unit();
+            if (unit == 0) {
+                position = start;
+                throw error("Invalid duration unit");
+            }
+            try {
+                nanos = Math.addExact(nanos, Math.multiplyExact(amount, unit));
+            } catch (ArithmeticException e) {
+                position = start;
+                throw error("Duration out of range");
+            }
+        } while (isDigit(peek()));
+        return Duration.ofNanos(nanos);
+    }
+
+    private long unit() {
+        int start = position;
+        while (position < query.length() && (isIdentifierStart(query.charAt(position)) || query.charAt(position) == '\u00b5'))
+            position++;
+        switch (query.substring(start, position)) {
+            case "ns":
+                return 1L;
+            case "u":
+            case "\u00b5":
+                return 1_000L;
+            case "ms":
+                return 1_000_000L;
+            case "s":
+                return 1_000_000_000L;
+            case "m":
+                return 60_000_000_000L;
+            case "h":
+                return 3_600_000_000_000L;
+            case "d":
+                return 86_400_000_000_000L;
+            case "w":
+                return 604_800_000_000_000L;
+            default:
+                return 0;
+        }
+    }
+
+    /**
+     * @return the regular expression with its delimiters, as taken by the regex clauses
+     */
+    private String regex() {
+        skipWhitespace();
+        int start = position;
+        if (peek() != '/')
+            throw error("Expected a regular expression");
+        position++;
+        while (position < query.length()) {
+            char c = query.charAt(position++);
+            if (c == '\\')
+                position++;
+            else if (c == '/')
+                return query.substring(start, position);
+        }
+        position = start;
+        throw error("Unterminated regular expression");
+    }
+
+    private long integer() {
+        skipWhitespace();
+        int start = position;
+        skipDigits();
+        if (position == start)
+            throw error("Expected an integer");
+        try {
+            return Long.parseLong(query.substring(start, position));
+        } catch (NumberFormatException e) {
+            position = start;
+            throw error("Invalid integer");
+        }
+    }
+
+    /**
+     * Quoted identifiers keep their quotes unless the builder renders the unquoted name the same way
+     */
+    private String identifier() {
+        skipWhitespace();
+        if (peek() != '"') {
+            if (!isIdentifierStart(peek()))
+                throw error("Expected an identifier");
+            return identifierWord();
+        }
+
+        int start = position++;
+        boolean escaped = false;
+        while (position < query.length()) {
+            char c = query.charAt(position++);
+            if (c == '\\') {
+                escaped = true;
+                position++;
+            } else if (c == '"') {
+                String quoted = query.substring(start, position);
+                if (!escaped) {
+                    String unquoted = quoted.substring(1, quoted.length() - 1);
+                    if (Appender.renderName(unquoted).equals(quoted))
+                        return unquoted;
+                }
+                return quoted;
+            }
+        }
+        position = start;
+        throw error("Unterminated identifier");
+    }
+
+    /**
+     * Aliases are rendered as they are, quotes included
+     */
+    private String alias() {
+        skipWhitespace();
+        int start = position;
+        String name = identifier();
+        return query.substring(start, position).startsWith("\"") ? query.substring(start, position) : name;
+    }
+
+    private String identifierWord() {
+        int start = position;
+        while (position < query.length() && isIdentifierPart(query.charAt(position)))
+            position++;
+        return query.substring(start, position);
+    }
+
+    private static String quote(String name) {
+        return name.startsWith("\"") ? name : "\"" + name + "\"";
+    }
+
+    private boolean isBooleanLiteral() {
+        return matchesWord("TRUE") || matchesWord("FALSE");
+    }
+
+    /**
+     * Consumes the keyword if it comes next, keywords are case insensitive
+     */
+    private boolean keyword(String keyword) {
+        skipWhitespace();
+        if (!matchesWord(keyword))
+            return false;
+        position += keyword.length();
+        return true;
+    }
+
+    private boolean matchesWord(String word) {
+        int end = position + word.length();
+        return query.regionMatches(true, position, word, 0, word.length())
+                && (end == query.length() || !isIdentifierPart(query.charAt(end)));
+    }
+
+    private void expectKeyword(String keyword) {
+        if (!keyword(keyword))
+            throw error("Expected " + keyword);
+    }
+
+    private boolean consume(char c) {
+        skipWhitespace();
+        if (peek() != c)
+            return false;
+        position++;
+        return true;
+    }
+
+    private void expect(char c) {
+        if (!consume(c))
+            throw error("Expected '" + c + "'");
+    }
+
+    private char peek() {
+        return position < query.length() ? query.charAt(position) : 0;
+    }
+
+    private void skipWhitespace() {
+        while (position < query.length() && Character.isWhitespace(query.charAt(position)))
+            position++;
+    }
+
+    private void skipDigits() {
+        while (isDigit(peek()))
+            position++;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isIdentifierStart(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || c == '_';
+    }
+
+    private static boolean isNameStart(char c) {
+        return isIdentifierStart(c) || c == '"';
+    }
+
+    private static boolean isIdentifierPart(char c) {
+        return isIdentifierStart(c) || isDigit(c) || c == '\u00b5';
+    }
+
+    private static Instant instant(String value) {
+        try {
+            Instant instant = Instant.parse(value);
+            Appender.checkTimeLiteral(instant);
+            return instant;
+        } catch (DateTimeParseException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private IllegalArgumentException error(String message) {
+        return new IllegalArgumentException(String.format("%s at position %d of query %s", message, position, query));
+    }
+}
@@ -24,6 +24,8 @@
 
 package com.gkatzioura.influxdb.querybuilder;
 
+import java.util.Objects;
+
 public class RawString {
 
     private final String str;
@@ -32,6 +34,20 @@ public class RawString {
         this.str = str;
     }
 
+    @Override
+    public boolean equals(Object o) {
+        if (this == o)
+            return true;
+        if (!(o instanceof RawString))
+            return false;
+        return Objects.equals(str, ((RawString) o).str);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(str);
+    }
+
     @Override
     public String toString() {
         return str;
@@ -0,0 +1,210 @@
+/**
+ * MIT License
+ * <p>
+ * Copyright (c) 2018 Emmanouil Gkatziouras
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE
+ */
+
+package com.gkatzioura.influxdb.querybuilder;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Compiles a set of strings into an anchored regular expression matching exactly them.
+ * The strings are inserted in a trie by code point, so shared prefixes are written once, e.g. server01, server02
+ * and server10 give /^server(?:0[12]|10)$/. Alternatives are sorted, so the same set always gives the same expression.
+ * Letters and digits are not checked against the Unicode blocks of ranges, a range only spans consecutive code points.
+ */
+final class RegexTrie {
+
+    /**
+     * Escaped in any position, go regular expressions accept any escaped punctuation.
+     * The slash delimits regular expressions in InfluxQL.
+     */
+    private static final String METACHARACTERS = "\\.+*?()|[]{}^$/-";
+
+    private final Node root = new Node();
+
+    private RegexTrie() {
+    }
+
+    /**
+     * @param values
+     * @return the regular expression, delimited by slashes
+     */
+    static String anchored(Collection<String> values) {
+        RegexTrie trie = new RegexTrie();
+        for (String value : values) {
+            trie.add(value);
+        }
+
+        trie.minimize(trie.root, new HashMap<>());
+        String pattern = pattern(trie.root);
+        if (trie.root.terminal)
+            pattern = optional(pattern);
+        return "/^" + pattern + "$/";
+    }
+
+    private void add(String value) {
+        Node node = root;
+        for (int i = 0; i < value.length(); ) {
+            int codePoint = value.codePointAt(i);
+            node = node.children.computeIfAbsent(codePoint, key -> new Node());
+            i += Character.charCount(codePoint);
+        }
+        node.terminal = true;
+    }
+
+    /**
+     * Shares equivalent subtrees, so that the trie becomes a minimal automaton and each expression is computed once
+     * @param node
+     * @param registry the nodes met so far by their terminal flag and transitions
+     * @return the node equivalent to the given one
+     */
+    private Node minimize(Node node, Map<List<Object>, Node> registry) {
+        List<Object> signature = new ArrayList<>(1 + 2 * node.children.size());
+        signature.add(node.terminal);
+        for (Map.Entry<Integer, Node> entry : node.children.entrySet()) {
+            Node child = minimize(entry.getValue(), registry);
+            entry.setValue(child);
+            signature.add(entry.getKey());
+            signature.add(child);
+        }
+        return registry.computeIfAbsent(signature, key -> node);
+    }
+
+    /**
+     * Children reached through equivalent subtrees are merged into a character class, so common suffixes are
+     * written once as well, e.g. host01.eu, host02.eu gives host0[12]\.eu
+     * @return the expression matching the suffixes below the node
+     */
+    private static String pattern(Node node) {
+        if (node.pattern != null)
+            return node.pattern;
+
+        Map<Node, List<Integer>> tails = new LinkedHashMap<>();
+        for (Map.Entry<Integer, Node> entry : node.children.entrySet()) {
+            tails.computeIfAbsent(entry.getValue(), key -> new ArrayList<>()).add(entry.getKey());
+        }
+
+        List<String> alternatives = new ArrayList<>(tails.size());
+        for (Map.Entry<Node, List<Integer>> entry : tails.entrySet()) {
+            Node child = entry.getKey();
+            String tail = pattern(child);
+            if (child.terminal)
+                tail = optional(tail);
+            alternatives.add(characters(entry.getValue(), new StringBuilder()).append(tail).toString());
+        }
+
+        if (alternatives.isEmpty())
+            node.pattern = "";
+        else if (alternatives.size() == 1)
+            node.pattern = alternatives.get(0);
+        else
+            node.pattern = "(?:" + String.join("|", alternatives) + ")";
+        return node.pattern;
+    }
+
+    /**
+     * Writes a character or a character class, runs of four or more letters or digits are written as ranges
+     */
+    private static StringBuilder characters(List<Integer> codePoints, StringBuilder out) {
+        if (codePoints.size() == 1)
+            return escape(codePoints.get(0), out);
+
+        out.append('[');
+        for (int i = 0; i < codePoints.size(); ) {
+            int first = codePoints.get(i);
+            int last = i;
+            while (last + 1 < codePoints.size() && codePoints.get(last + 1) == codePoints.get(last) + 1
+                    && Character.isLetterOrDigit(codePoints.get(last + 1)) && Character.isLetterOrDigit(first))
+                last++;
+
+            escape(first, out);
+            if (last - i >= 3) {
+                out.append('-');
+                escape(codePoints.get(last), out);
+                i = last + 1;
+            } else {
+                i++;
+            }
+        }
+        return out.append(']');
+    }
+
+    private static String optional(String pattern) {
+        if (pattern.isEmpty())
+            return pattern;
+        return isAtom(pattern) ? pattern + "?" : "(?:" + pattern + ")?";
+    }
+
+    /**
+     * @return whether the pattern is a single character, a character class or a group
+     */
+    static boolean isAtom(String pattern) {
+        if (pattern.isEmpty())
+            return false;
+        char first = pattern.charAt(0);
+        if (first == '\\')
+            return pattern.length() == 2;
+        if (first != '[' && first != '(')
+            return pattern.codePointCount(0, pattern.length()) == 1;
+
+        int depth = 0;
+        for (int i = 0; i < pattern.length(); i++) {
+            char c = pattern.charAt(i);
+            if (c == '\\') {
+                i++;
+            } else if (c == '[' || c == '(') {
+                depth++;
+            } else if (c == ']' || c == ')') {
+                depth--;
+                if (depth == 0)
+                    return i == pattern.length() - 1;
+            }
+        }
+        return false;
+    }
+
+    private static StringBuilder escape(int codePoint, StringBuilder out) {
+        if (codePoint == '\n')
+            return out.append("\\n");
+        if (codePoint == '\r')
+            return out.append("\\r");
+        if (codePoint == '\t')
+            return out.append("\\t");
+        if (codePoint < 0x80 && METACHARACTERS.indexOf(codePoint) >= 0)
+            out.append('\\');
+        return out.appendCodePoint(codePoint);
+    }
+
+    private static final class Node {
+
+        private final Map<Integer, Node> children = new TreeMap<>();
+        private boolean terminal;
+        private String pattern;
+    }
+}
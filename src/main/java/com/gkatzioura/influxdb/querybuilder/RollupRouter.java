@@ -0,0 +1,363 @@
+/**
+ * MIT License
+ * <p>
+ * Copyright (c) 2018 Emmanouil Gkatziouras
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE
+ */
+
+package com.gkatzioura.influxdb.querybuilder;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Routes aggregating selects from a raw measurement to the coarsest rollup able to answer them, such as the
+ * measurements written into other retention policies by continuous queries, so that long ranges are not read from the raw shards.
+ * A rollup answers a statement grouped by time in multiples of its interval, with its offset aligned on the interval,
+ * whose lower time bound is within the retention of the rollup, whose functions re-aggregate the aggregate each field holds,
+ * and whose filters and GROUP BY dimensions are on tags the rollup keeps.
+ * Rollups are assumed to hold each field under its own name and to be aligned on the epoch.
+ * The results differ from the raw data by up to an interval of the rollup at the edges of the range, and the
+ * last interval is only there once the continuous query has run.
+ * Statements that no rollup answers are returned as they are.
+ */
+public final class RollupRouter {
+
+    private static final long FOREVER = Long.MAX_VALUE;
+
+    private static final String TIME_KEY = "time";
+
+    /**
+     * The aggregate a rollup field holds, answering the function of the same name over the raw field
+     */
+    public enum Aggregate {
+        /**
+         * A mean of means, exact only for series sampled evenly
+         */
+        MEAN,
+        MAX,
+        MIN,
+        SUM,
+        FIRST,
+        LAST
+    }
+
+    /**
+     * Rollups by canonical name of their source measurement, coarsest first
+     */
+    private final Map<String, List<Rollup>> rollups;
+
+    private RollupRouter(Builder builder) {
+        Map<String, List<Rollup>> rollups = new HashMap<>();
+        for (Rollup rollup : builder.rollups) {
+            if (rollup.fields.isEmpty())
+                throw new IllegalStateException(String.format("The rollup %s has no fields", rollup.target));
+            rollups.computeIfAbsent(rollup.source, k -> new ArrayList<>()).add(new Rollup(rollup));
+        }
+        for (List<Rollup> candidates : rollups.values()) {
+            candidates.sort((a, b) -> Long.compare(b.interval, a.interval));
+        }
+        this.rollups = rollups;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public ImmutableSelect route(Select select) {
+        return route(select.toImmutable());
+    }
+
+    public ImmutableSelect route(Select.Where where) {
+        return route(where.toImmutable());
+    }
+
+    /**
+     * @param select
+     * @return the statement selecting from the coarsest rollup answering it, subqueries routed on their own,
+     * the statement itself when no rollup does
+     */
+    public ImmutableSelect route(ImmutableSelect select) {
+        return route(select, TimeBounds.nowNanos());
+    }
+
+    ImmutableSelect route(ImmutableSelect select, long nowNanos) {
+        if (select.getSubquery() != null) {
+            ImmutableSelect subquery = route(select.getSubquery(), nowNanos);
+            return subquery == select.getSubquery() ? select : select.withSubquery(subquery);
+        }
+
+        List<Rollup> candidates = rollups.get(Appender.canonicalName(select.getTable()));
+        GroupByTime groupByTime = select.getGroupByTime();
+        if (candidates == null || groupByTime == null)
+            return select;
+
+        Map<String, Aggregate> aggregates = new HashMap<>();
+        if (!aggregates(select.getColumns(), aggregates))
+            return select;
+        Set<String> tags = new HashSet<>();
+        if (!filteredNames(select.getClauses(), tags) || !groupedNames(select.getGroupByColumns(), tags))
+            return select;
+        tags.remove(TIME_KEY);
+
+        Long lower = TimeBounds.of(select.getClauses(), nowNanos).getLower();
+        long interval = groupByTime.getInterval().toNanos();
+        long offset = groupByTime.getOffset() == null ? 0 : groupByTime.getOffset().toNanos();
+
+        for (Rollup rollup : candidates) {
+            if (interval % rollup.interval != 0 || offset % rollup.interval != 0)
+                continue;
+            if (rollup.retention != FOREVER && (lower == null || lower < nowNanos - rollup.retention))
+                continue;
+            if (!rollup.tags.containsAll(tags) || !holds(rollup, aggregates))
+                continue;
+            return select.withTable(rollup.target);
+        }
+        return select;
+    }
+
+    private static boolean holds(Rollup rollup, Map<String, Aggregate> aggregates) {
+        for (Map.Entry<String, Aggregate> entry : aggregates.entrySet()) {
+            if (rollup.fields.get(entry.getKey()) != entry.getValue())
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * @return false if a column is not an aggregate function of a field, or a field is aggregated by different functions
+     */
+    private static boolean aggregates(List<Object> columns, Map<String, Aggregate> aggregates) {
+        if (columns == null || columns.isEmpty())
+            return false;
+
+        for (Object column : columns) {
+            if (column instanceof Alias)
+                column = ((Alias) column).getColumn();
+            if (!(column instanceof Function) || ((Function) column).getParameters().length != 1)
+                return false;
+
+            Aggregate aggregate = aggregate(((Function) column).getName());
+            Object parameter = ((Function) column).getParameters()[0];
+            String field;
+            if (parameter instanceof Column)
+                field = Appender.canonicalName(((Column) parameter).getName());
+            else if (parameter instanceof String)
+                field = Appender.canonicalName((String) parameter);
+            else
+                return false;
+
+            if (aggregate == null)
+                return false;
+            Aggregate previous = aggregates.put(field, aggregate);
+            if (previous != null && previous != aggregate)
+                return false;
+        }
+        return true;
+    }
+
+    private static Aggregate aggregate(String function) {
+        for (Aggregate aggregate : Aggregate.values()) {
+            if (aggregate.name().equals(function.toUpperCase(Locale.ROOT)))
+                return aggregate;
+        }
+        return null;
+    }
+
+    /**
+     * @return false if a clause compares something else than a named key
+     */
+    private static boolean filteredNames(List<Clause> clauses, Set<String> names) {
+        for (Clause clause : clauses) {
+            if (clause instanceof Clause.LogicalClause) {
+                if (!filteredNames(((Clause.LogicalClause) clause).getClauses(), names))
+                    return false;
+                continue;
+            }
+
+            String name = name(clause);
+            if (name == null)
+                return false;
+            names.add(Appender.canonicalName(name));
+        }
+        return true;
+    }
+
+    /**
+     * @return false if a dimension is not a named key, such as *
+     */
+    private static boolean groupedNames(List<Object> columns, Set<String> names) {
+        if (columns == null)
+            return true;
+
+        for (Object column : columns) {
+            if (column instanceof Column)
+                names.add(Appender.canonicalName(((Column) column).getName()));
+            else if (column instanceof String)
+                names.add(Appender.canonicalName((String) column));
+            else
+                return false;
+        }
+        return true;
+    }
+
+    private static String name(Clause clause) {
+        String name = QueryNormalizer.name(clause);
+        if (name != null)
+            return name;
+        if (clause instanceof Clause.DurationClause)
+            return ((Clause.DurationClause) clause).getName();
+        if (clause instanceof Clause.RegexClause)
+            return ((Clause.RegexClause) clause).getName();
+        if (clause instanceof Clause.NegativeRegexClause)
+            return ((Clause.NegativeRegexClause) clause).getName();
+        if (clause instanceof Clause.InClause)
+            return ((Clause.InClause) clause).getName();
+        return null;
+    }
+
+    private static final class Rollup {
+
+        private final String source;
+
+        /**
+         * The quoted retention policy and measurement, rendered as is in FROM
+         */
+        private final String target;
+        private final long interval;
+        private final long retention;
+        private final Map<String, Aggregate> fields;
+        private final Set<String> tags;
+
+        private Rollup(String source, String target, long interval, long retention) {
+            this.source = source;
+            this.target = target;
+            this.interval = interval;
+            this.retention = retention;
+            this.fields = new HashMap<>();
+            this.tags = new HashSet<>();
+        }
+
+        /**
+         * A copy the builder no longer modifies
+         */
+        private Rollup(Rollup rollup) {
+            this.source = rollup.source;
+            this.target = rollup.target;
+            this.interval = rollup.interval;
+            this.retention = rollup.retention;
+            this.fields = Collections.unmodifiableMap(new HashMap<>(rollup.fields));
+            this.tags = Collections.unmodifiableSet(new HashSet<>(rollup.tags));
+        }
+    }
+
+    /**
+     * Each rollup is declared by {@link #rollup}, followed by the fields and tags it keeps
+     */
+    public static class Builder {
+
+        private final List<Rollup> rollups = new ArrayList<>();
+
+        Builder() {
+        }
+
+        /**
+         * @param source the raw measurement
+         * @param retentionPolicy the retention policy of the rollup
+         * @param measurement the measurement the rollup is written into
+         * @param interval the GROUP BY time interval of the continuous query writing the rollup
+         * @param retention the duration of the retention policy, null if kept forever
+         * @return
+         */
+        public Builder rollup(String source, String retentionPolicy, String measurement, Duration interval, Duration retention) {
+            if (source == null || source.trim().isEmpty())
+                throw new IllegalArgumentException("Missing source measurement");
+            if (interval == null || interval.isNegative() || interval.isZero())
+                throw new IllegalArgumentException("Invalid rollup interval, must be strictly positive");
+            if (retention != null && (retention.isNegative() || retention.isZero()))
+                throw new IllegalArgumentException("Invalid retention, must be strictly positive");
+
+            String target = quote(retentionPolicy) + '.' + quote(measurement);
+            rollups.add(new Rollup(Appender.canonicalName(source), target, interval.toNanos(),
+                                   retention == null ? FOREVER : retention.toNanos()));
+            return this;
+        }
+
+        /**
+         * @param name a field of the rollup, named after the raw field it aggregates
+         * @param aggregate the aggregate the continuous query writes into it
+         * @return
+         * @throws IllegalStateException if no rollup was declared
+         */
+        public Builder field(String name, Aggregate aggregate) {
+            if (name == null || aggregate == null)
+                throw new IllegalArgumentException("Missing field name or aggregate");
+
+            Rollup rollup = current();
+            if (rollup.fields.putIfAbsent(Appender.canonicalName(name), aggregate) != null)
+                throw new IllegalArgumentException(String.format("The field %s is already declared", name));
+            return this;
+        }
+
+        /**
+         * @param names the tags the continuous query keeps, such as the GROUP BY dimensions it writes with
+         * @return
+         * @throws IllegalStateException if no rollup was declared
+         */
+        public Builder tags(String... names) {
+            Rollup rollup = current();
+            for (String name : names) {
+                if (name == null)
+                    throw new IllegalArgumentException("Missing tag name");
+                rollup.tags.add(Appender.canonicalName(name));
+            }
+            return this;
+        }
+
+        private Rollup current() {
+            if (rollups.isEmpty())
+                throw new IllegalStateException("No rollup declared");
+            return rollups.get(rollups.size() - 1);
+        }
+
+        private static String quote(String name) {
+            if (name == null || name.isEmpty())
+                throw new IllegalArgumentException("Missing retention policy or measurement name");
+            if (name.indexOf('"') >= 0)
+                throw new IllegalArgumentException(String.format("Invalid name %s, quotes are not supported", name));
+            return '"' + name + '"';
+        }
+
+        /**
+         * @return
+         * @throws IllegalStateException if a rollup has no fields
+         */
+        public RollupRouter build() {
+            return new RollupRouter(this);
+        }
+    }
+}
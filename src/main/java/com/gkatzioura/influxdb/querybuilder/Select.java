@@ -24,8 +24,9 @@
 
 package com.gkatzioura.influxdb.querybuilder;
 
+import java.io.IOException;
+import java.time.Duration;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 
@@ -34,72 +35,80 @@ public class Select extends BuiltStatement {
 
     private static final List<Object> COUNT_ALL = Collections.singletonList(new Function("count", new RawString("*")));
 
-    private final String table;
-    private final boolean isDistinct;
-    private final List<Object> columns;
     private final Where where;
-    private Ordering ordering;
-    private List<Object> groupByColumns;
-    private Integer limit;
-    private Long offSet;
+
+    /**
+     * Each change replaces the snapshot, previous snapshots handed out by {@link #toImmutable()} stay intact
+     */
+    private ImmutableSelect snapshot;
 
     Select(String database,
            String table,
            List<Object> columns,
            boolean isDistinct) {
         super(database);
-        this.table = table;
-        this.columns = columns;
-        this.isDistinct = isDistinct;
+        this.snapshot = new ImmutableSelect(database, table, columns, isDistinct);
         this.where = new Where(this);
     }
 
-    @Override
-    StringBuilder buildQueryString() {
-        StringBuilder builder = new StringBuilder();
-
-        builder.append("SELECT ");
-
-        if (isDistinct)
-            if (columns.size() > 1) {
-                throw new IllegalStateException("DISTINCT function can only be used with one column");
-            }
-
-        if (columns == null) {
-            builder.append('*');
-        } else {
-            Appender.joinAndAppendNames(builder, columns);
-        }
-        builder.append(" FROM ");
+    Select(ImmutableSelect subquery,
+           List<Object> columns,
+           boolean isDistinct) {
+        super(subquery.getDatabase());
+        this.snapshot = new ImmutableSelect(subquery, columns, isDistinct);
+        this.where = new Where(this);
+    }
 
-        Appender.appendName(table, builder);
+    @Override
+    public String getQueryString() {
+        return snapshot.getQueryString();
+    }
 
-        if (!where.clauses.isEmpty()) {
-            builder.append(" WHERE ");
-            Appender.joinAndAppend(builder, " AND ", where.clauses);
-        }
+    @Override
+    StringBuilder buildQueryString() {
+        return snapshot.buildQueryString();
+    }
 
-        if (groupByColumns != null) {
-            builder.append(" GROUP BY ");
-            Appender.joinAndAppendNames(builder, groupByColumns);
-        }
+    @Override
+    void appendQueryString(java.lang.Appendable out) throws IOException {
+        snapshot.appendQueryString(out);
+    }
 
-        if (ordering != null) {
-            builder.append(" ORDER BY ");
-            Appender.joinAndAppend(builder, ",", Collections.singletonList(ordering));
-        }
+    @Override
+    public void appendTo(java.lang.Appendable out) throws IOException {
+        snapshot.appendTo(out);
+    }
 
-        if (limit != null) {
-            builder.append(" LIMIT ").append(limit);
-        }
+    /**
+     * @return an immutable statement with the current state of this statement
+     */
+    public ImmutableSelect toImmutable() {
+        return snapshot;
+    }
 
-        if (offSet != null) {
-            builder.append(" OFFSET ").append(offSet);
-        }
+    /**
+     * @return a 64-bit hash of the current state of the statement, see {@link ImmutableSelect#fingerprint()}
+     */
+    public long fingerprint() {
+        return snapshot.fingerprint();
+    }
 
-        return builder;
+    /**
+     * Selects are compared by their current state, they should not be changed while used as keys
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o)
+            return true;
+        if (!(o instanceof Select))
+            return false;
+        return snapshot.equals(((Select) o).snapshot);
     }
 
+    @Override
+    public int hashCode() {
+        return snapshot.hashCode();
+    }
 
     public Where where(Clause clause) {
         return where.and(clause);
@@ -111,12 +120,51 @@ public class Select extends BuiltStatement {
 
     public Select orderBy(Ordering ordering) {
 
-        this.ordering = ordering;
+        snapshot = snapshot.orderBy(ordering);
         return this;
     }
 
     public Select groupBy(Object... columns) {
-        this.groupByColumns = Arrays.asList(columns);
+        snapshot = snapshot.groupBy(columns);
+        return this;
+    }
+
+    public Select groupByTime(Duration interval) {
+        snapshot = snapshot.groupByTime(interval);
+        return this;
+    }
+
+    /**
+     * @see ImmutableSelect#groupByTime(Duration, Duration)
+     */
+    public Select groupByTime(Duration interval, Duration offset) {
+        snapshot = snapshot.groupByTime(interval, offset);
+        return this;
+    }
+
+    /**
+     * @see ImmutableSelect#groupByTime(Duration, int)
+     */
+    public Select groupByTime(Duration range, int maxPoints) {
+        snapshot = snapshot.groupByTime(range, maxPoints);
+        return this;
+    }
+
+    /**
+     * @see ImmutableSelect#groupByTime(int)
+     */
+    public Select groupByTime(int maxPoints) {
+        snapshot = snapshot.groupByTime(maxPoints);
+        return this;
+    }
+
+    public Select fill(Fill fill) {
+        snapshot = snapshot.fill(fill);
+        return this;
+    }
+
+    public Select fill(Number value) {
+        snapshot = snapshot.fill(value);
         return this;
     }
 
@@ -124,32 +172,26 @@ public class Select extends BuiltStatement {
         if (limit <= 0)
             throw new IllegalArgumentException("Invalid LIMIT value, must be strictly positive");
 
-        if (this.limit != null)
+        if (snapshot.getLimit() != null)
             throw new IllegalStateException("A LIMIT value has already been provided");
 
-        this.limit = limit;
+        snapshot = snapshot.limit(limit);
         return this;
     }
 
     public Select limit(int limit, long offSet) {
-        if (limit <= 0|| offSet<=0)
-            throw new IllegalArgumentException("Invalid LIMIT and OFFSET Value, must be strictly positive");
-
-        this.limit = limit;
-        this.offSet = offSet;
+        snapshot = snapshot.limit(limit, offSet);
         return this;
     }
 
     public static class Where extends StatementDecorator<Select> {
 
-        private final List<Clause> clauses = new ArrayList<Clause>();
-
         Where(Select statement) {
             super(statement);
         }
 
         public Where and(Clause clause) {
-            clauses.add(clause);
+            statement.snapshot = statement.snapshot.and(clause);
             return this;
         }
 
@@ -161,6 +203,22 @@ public class Select extends BuiltStatement {
             return statement.groupBy(columns);
         }
 
+        public Select groupByTime(Duration interval) {
+            return statement.groupByTime(interval);
+        }
+
+        public Select groupByTime(Duration interval, Duration offset) {
+            return statement.groupByTime(interval, offset);
+        }
+
+        public Select groupByTime(Duration range, int maxPoints) {
+            return statement.groupByTime(range, maxPoints);
+        }
+
+        public Select groupByTime(int maxPoints) {
+            return statement.groupByTime(maxPoints);
+        }
+
         public Select limit(int limit) {
             return statement.limit(limit);
         }
@@ -168,6 +226,10 @@ public class Select extends BuiltStatement {
         public Select limit(int limit, long offSet) {
             return statement.limit(limit,offSet);
         }
+
+        public ImmutableSelect toImmutable() {
+            return statement.toImmutable();
+        }
     }
 
     public static class Builder {
@@ -190,6 +252,33 @@ public class Select extends BuiltStatement {
             return new Select(database, table, columnNames, isDistinct);
         }
 
+        /**
+         * Selects from the result of another statement, rendered in place into the query.
+         * The statement is executed against the database of the subquery.
+         * @param subquery the statement as it is now, later changes to it are not seen
+         * @return
+         */
+        public Select from(Select subquery) {
+            if (subquery == null)
+                throw new IllegalArgumentException("Missing subquery");
+
+            return from(subquery.toImmutable());
+        }
+
+        public Select from(Select.Where subquery) {
+            if (subquery == null)
+                throw new IllegalArgumentException("Missing subquery");
+
+            return from(subquery.toImmutable());
+        }
+
+        public Select from(ImmutableSelect subquery) {
+            if (subquery == null)
+                throw new IllegalArgumentException("Missing subquery");
+
+            return new Select(subquery, columnNames, isDistinct);
+        }
+
     }
 
     public static abstract class Selection extends Builder {
@@ -344,5 +433,13 @@ public class Select extends BuiltStatement {
             previousSelection = null;
             return super.from(table);
         }
+
+        @Override
+        public Select from(ImmutableSelect subquery) {
+            if (previousSelection != null)
+                addName(previousSelection);
+            previousSelection = null;
+            return super.from(subquery);
+        }
     }
 }
@@ -0,0 +1,93 @@
+/**
+ * MIT License
+ * <p>
+ * Copyright (c) 2018 Emmanouil Gkatziouras
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE
+ */
+
+package com.gkatzioura.influxdb.querybuilder;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * The measurement and tags of a series, escaped once into the prefix of its lines.
+ * Points started from the template with {@link Point#series(SeriesTemplate)} only encode their fields and timestamp.
+ */
+public final class SeriesTemplate {
+
+    private final String measurement;
+    private final Map<String, String> tags;
+    private final String seriesKey;
+    private final byte[] seriesKeyBytes;
+
+    private SeriesTemplate(String measurement, Map<String, String> tags) {
+        if (measurement == null || measurement.isEmpty())
+            throw new IllegalArgumentException("The measurement is required");
+
+        TreeMap<String, String> sortedTags = new TreeMap<>(tags);
+        String[] keys = sortedTags.keySet().toArray(new String[0]);
+        String[] values = sortedTags.values().toArray(new String[0]);
+
+        StringBuilder sb = new StringBuilder();
+        try {
+            Point.appendSeriesKey(measurement, keys, values, keys.length, sb);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        this.measurement = measurement;
+        this.tags = Collections.unmodifiableMap(sortedTags);
+        this.seriesKey = sb.toString();
+        this.seriesKeyBytes = seriesKey.getBytes(StandardCharsets.UTF_8);
+    }
+
+    public static SeriesTemplate of(String measurement, Map<String, String> tags) {
+        return new SeriesTemplate(measurement, tags);
+    }
+
+    public String getMeasurement() {
+        return measurement;
+    }
+
+    /**
+     * @return the tags sorted by key
+     */
+    public Map<String, String> getTags() {
+        return tags;
+    }
+
+    String getSeriesKey() {
+        return seriesKey;
+    }
+
+    byte[] getSeriesKeyBytes() {
+        return seriesKeyBytes;
+    }
+
+    @Override
+    public String toString() {
+        return seriesKey;
+    }
+}
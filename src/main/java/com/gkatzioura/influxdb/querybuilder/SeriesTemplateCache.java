@@ -0,0 +1,123 @@
+/**
+ * MIT License
+ * <p>
+ * Copyright (c) 2018 Emmanouil Gkatziouras
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE
+ */
+
+package com.gkatzioura.influxdb.querybuilder;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Interns series templates by measurement and tag set, evicting the least recently used once full.
+ * Lookups are synchronized, the cache is meant to be shared by the threads writing the same series.
+ */
+public final class SeriesTemplateCache {
+
+    private final int maxSize;
+    private final Map<Key, SeriesTemplate> templates;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    public SeriesTemplateCache(int maxSize) {
+        if (maxSize <= 0)
+            throw new IllegalArgumentException("Invalid cache size, must be strictly positive");
+
+        this.maxSize = maxSize;
+        this.templates = new LinkedHashMap<Key, SeriesTemplate>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, SeriesTemplate> eldest) {
+                if (size() > SeriesTemplateCache.this.maxSize) {
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * @param measurement
+     * @param tags
+     * @return the template of the series, escaped on the first lookup only
+     */
+    public synchronized SeriesTemplate get(String measurement, Map<String, String> tags) {
+        Key key = new Key(measurement, tags);
+        SeriesTemplate template = templates.get(key);
+        if (template != null) {
+            hits++;
+            return template;
+        }
+
+        misses++;
+        template = SeriesTemplate.of(measurement, tags);
+        templates.put(new Key(measurement, template.getTags()), template);
+        return template;
+    }
+
+    public synchronized int size() {
+        return templates.size();
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * Holds the tags of the caller for lookups, the immutable tags of the template once stored
+     */
+    private static final class Key {
+
+        private final String measurement;
+        private final Map<String, String> tags;
+
+        private Key(String measurement, Map<String, String> tags) {
+            this.measurement = measurement;
+            this.tags = tags;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o)
+                return true;
+            if (!(o instanceof Key))
+                return false;
+            Key that = (Key) o;
+            return Objects.equals(measurement, that.measurement) && tags.equals(that.tags);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * Objects.hashCode(measurement) + tags.hashCode();
+        }
+    }
+}
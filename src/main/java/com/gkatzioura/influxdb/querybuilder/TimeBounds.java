@@ -0,0 +1,148 @@
+/**
+ * MIT License
+ * <p>
+ * Copyright (c) 2018 Emmanouil Gkatziouras
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE
+ */
+
+package com.gkatzioura.influxdb.querybuilder;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static com.gkatzioura.influxdb.querybuilder.Operations.GT;
+import static com.gkatzioura.influxdb.querybuilder.Operations.GTE;
+import static com.gkatzioura.influxdb.querybuilder.Operations.LT;
+import static com.gkatzioura.influxdb.querybuilder.Operations.LTE;
+
+/**
+ * The time range of a statement, read from the bounds of its clauses on time.
+ * Bounds are literal times, integers, instants or RFC3339 strings, or relative to now(), such as now() - 1h,
+ * which are evaluated against the given now.
+ * The range runs from an inclusive lower bound to an exclusive upper bound, which defaults to now.
+ */
+final class TimeBounds {
+
+    private static final String TIME_KEY = "time";
+    private static final String NOW = "now()";
+
+    private final Long lower;
+    private final long upper;
+    private final boolean relative;
+
+    private TimeBounds(Long lower, long upper, boolean relative) {
+        this.lower = lower;
+        this.upper = upper;
+        this.relative = relative;
+    }
+
+    static TimeBounds of(List<Clause> clauses, long nowNanos) {
+        Long lower = null;
+        Long upper = null;
+        boolean relative = false;
+
+        for (Clause clause : clauses) {
+            String op = TimeRangeSplitter.timeBoundOp(clause);
+            Long nanos;
+            if (op != null) {
+                nanos = TimeRangeSplitter.timeBoundNanos(clause);
+            } else if (clause instanceof Clause.SimpleClause && TIME_KEY.equals(((Clause.SimpleClause) clause).getName())) {
+                op = ((Clause.SimpleClause) clause).getOp();
+                nanos = relativeNanos(((Clause.SimpleClause) clause).getValue(), nowNanos);
+                relative |= nanos != null;
+            } else {
+                continue;
+            }
+
+            if (nanos == null)
+                continue;
+            // bounds are normalised to an inclusive start and an exclusive end
+            if (GT.equals(op) || GTE.equals(op)) {
+                long start = GT.equals(op) ? nanos + 1 : nanos;
+                lower = lower == null ? start : Math.max(lower, start);
+            } else if (LT.equals(op) || LTE.equals(op)) {
+                long end = LTE.equals(op) ? nanos + 1 : nanos;
+                upper = upper == null ? end : Math.min(upper, end);
+            }
+        }
+
+        if (upper == null)
+            return new TimeBounds(lower, nowNanos, true);
+        return new TimeBounds(lower, upper, relative);
+    }
+
+    static long nowNanos() {
+        Instant now = Instant.now();
+        return Math.addExact(Math.multiplyExact(now.getEpochSecond(), 1_000_000_000L), now.getNano());
+    }
+
+    /**
+     * @param value now() or now() followed by a duration added or subtracted
+     * @return the time in nanoseconds, null if the value is not relative to now()
+     */
+    private static Long relativeNanos(Object value, long nowNanos) {
+        String text;
+        if (value instanceof Function && "now".equals(((Function) value).getName()) && ((Function) value).getParameters().length == 0)
+            text = NOW;
+        else if (value instanceof RawString)
+            text = value.toString().trim();
+        else
+            return null;
+
+        if (!text.startsWith(NOW))
+            return null;
+        String shift = text.substring(NOW.length()).trim();
+        if (shift.isEmpty())
+            return nowNanos;
+
+        char sign = shift.charAt(0);
+        if (sign != '-' && sign != '+')
+            return null;
+        Duration duration;
+        try {
+            duration = QueryParser.duration(shift.substring(1).trim());
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        return sign == '-' ? nowNanos - duration.toNanos() : nowNanos + duration.toNanos();
+    }
+
+    /**
+     * @return the first time in the range in nanoseconds, null if the range is unbounded
+     */
+    Long getLower() {
+        return lower;
+    }
+
+    /**
+     * @return the end of the range in nanoseconds, exclusive
+     */
+    long getUpper() {
+        return upper;
+    }
+
+    /**
+     * @return whether a bound depends on now
+     */
+    boolean isRelative() {
+        return relative;
+    }
+}
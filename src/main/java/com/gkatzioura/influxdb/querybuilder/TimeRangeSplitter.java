@@ -0,0 +1,174 @@
+/**
+ * MIT License
+ * <p>
+ * Copyright (c) 2018 Emmanouil Gkatziouras
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE
+ */
+
+package com.gkatzioura.influxdb.querybuilder;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.gkatzioura.influxdb.querybuilder.Operations.GT;
+import static com.gkatzioura.influxdb.querybuilder.Operations.GTE;
+import static com.gkatzioura.influxdb.querybuilder.Operations.LT;
+import static com.gkatzioura.influxdb.querybuilder.Operations.LTE;
+
+/**
+ * Splits a statement bounded in time into statements over consecutive, non overlapping time ranges
+ * covering the original range, so that they can be executed concurrently.
+ * Boundaries are aligned to a duration such as the shard group duration or the GROUP BY time interval,
+ * aligned like InfluxDB does on the epoch.
+ * The rest of the statement is kept as is, a LIMIT applies to each one of the statements.
+ */
+public class TimeRangeSplitter {
+
+    private static final String TIME_KEY = "time";
+
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+
+    private final long alignment;
+
+    public TimeRangeSplitter(Duration alignment) {
+        if (alignment == null || alignment.isNegative() || alignment.isZero())
+            throw new IllegalArgumentException("Invalid alignment, must be strictly positive");
+
+        this.alignment = alignment.toNanos();
+    }
+
+    public List<ImmutableSelect> split(Select select, int pieces) {
+        return split(select.toImmutable(), pieces);
+    }
+
+    public List<ImmutableSelect> split(Select.Where where, int pieces) {
+        return split(where.toImmutable(), pieces);
+    }
+
+    /**
+     * @param select a statement with literal lower and upper time bounds
+     * @param pieces the maximum number of statements
+     * @return the statements in chronological order
+     */
+    public List<ImmutableSelect> split(ImmutableSelect select, int pieces) {
+        if (pieces <= 0)
+            throw new IllegalArgumentException("Invalid number of pieces, must be strictly positive");
+
+        Clause lower = null;
+        Clause upper = null;
+        long lowerNanos = Long.MIN_VALUE;
+        long upperNanos = Long.MAX_VALUE;
+        List<Clause> clauses = new ArrayList<>();
+
+        for (Clause clause : select.getClauses()) {
+            String op = timeBoundOp(clause);
+            if (GT.equals(op) || GTE.equals(op)) {
+                long nanos = timeBoundNanos(clause);
+                if (lower == null || nanos > lowerNanos || (nanos == lowerNanos && GT.equals(op))) {
+                    lower = clause;
+                    lowerNanos = nanos;
+                }
+            } else if (LT.equals(op) || LTE.equals(op)) {
+                long nanos = timeBoundNanos(clause);
+                if (upper == null || nanos < upperNanos || (nanos == upperNanos && LT.equals(op))) {
+                    upper = clause;
+                    upperNanos = nanos;
+                }
+            } else {
+                clauses.add(clause);
+            }
+        }
+
+        if (lower == null || upper == null)
+            throw new IllegalArgumentException("The statement needs literal lower and upper time bounds to be split");
+
+        List<ImmutableSelect> statements = new ArrayList<>();
+        if (lowerNanos >= upperNanos || pieces == 1) {
+            statements.add(select);
+            return statements;
+        }
+
+        long start = Math.floorDiv(lowerNanos, alignment) * alignment;
+        long step = (upperNanos - start + pieces - 1) / pieces;
+        step = Math.max(1, (step + alignment - 1) / alignment) * alignment;
+
+        boolean instants = !(lower instanceof Clause.LongClause);
+        ImmutableSelect base = select.withClauses(clauses);
+        Clause from = lower;
+        for (long boundary = start + step; boundary < upperNanos; boundary += step) {
+            statements.add(base.and(from).and(timeBound(LT, boundary, instants)));
+            from = timeBound(GTE, boundary, instants);
+        }
+        statements.add(base.and(from).and(upper));
+        return statements;
+    }
+
+    /**
+     * Literal bounds are integer times, instants and RFC3339 strings, such as the ones parsed from a query
+     * @return the operator of the clause if it is a literal time bound, null otherwise
+     */
+    static String timeBoundOp(Clause clause) {
+        if (clause instanceof Clause.SimpleClause) {
+            Clause.SimpleClause simpleClause = (Clause.SimpleClause) clause;
+            return TIME_KEY.equals(simpleClause.getName()) && timeLiteral(simpleClause.getValue()) != null ? simpleClause.getOp() : null;
+        }
+        if (clause instanceof Clause.LongClause) {
+            Clause.LongClause longClause = (Clause.LongClause) clause;
+            return TIME_KEY.equals(longClause.getName()) ? longClause.getOp() : null;
+        }
+        if (clause instanceof Clause.InstantClause) {
+            Clause.InstantClause instantClause = (Clause.InstantClause) clause;
+            return TIME_KEY.equals(instantClause.getName()) ? instantClause.getOp() : null;
+        }
+        return null;
+    }
+
+    static long timeBoundNanos(Clause clause) {
+        if (clause instanceof Clause.LongClause)
+            return ((Clause.LongClause) clause).getValue();
+
+        Instant instant = clause instanceof Clause.SimpleClause
+                ? timeLiteral(((Clause.SimpleClause) clause).getValue())
+                : ((Clause.InstantClause) clause).getValue();
+        return Math.addExact(Math.multiplyExact(instant.getEpochSecond(), NANOS_PER_SECOND), instant.getNano());
+    }
+
+    /**
+     * @return the instant of an RFC3339 string, null for any other value
+     */
+    private static Instant timeLiteral(Object value) {
+        if (!(value instanceof String))
+            return null;
+        try {
+            return Instant.parse((String) value);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    private static Clause timeBound(String op, long nanos, boolean instant) {
+        if (instant)
+            return new Clause.InstantClause(TIME_KEY, op, Instant.ofEpochSecond(0, nanos));
+        return new Clause.LongClause(TIME_KEY, op, nanos);
+    }
+}
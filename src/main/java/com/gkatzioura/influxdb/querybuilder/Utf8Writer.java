@@ -0,0 +1,111 @@
+/**
+ * MIT License
+ * <p>
+ * Copyright (c) 2018 Emmanouil Gkatziouras
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE
+ */
+
+package com.gkatzioura.influxdb.querybuilder;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Writes the UTF-8 bytes of the characters appended straight into a {@link ByteBuffer}.
+ * Unpaired surrogates are written as '?'.
+ * A {@link java.nio.BufferOverflowException} is thrown if the buffer runs out of space.
+ */
+final class Utf8Writer implements java.lang.Appendable {
+
+    private ByteBuffer buffer;
+    private char highSurrogate;
+
+    Utf8Writer(ByteBuffer buffer) {
+        this.buffer = buffer;
+    }
+
+    /**
+     * Switches to another buffer, so that the writer can be reused
+     */
+    Utf8Writer setBuffer(ByteBuffer buffer) {
+        this.buffer = buffer;
+        this.highSurrogate = 0;
+        return this;
+    }
+
+    ByteBuffer getBuffer() {
+        return buffer;
+    }
+
+    @Override
+    public Utf8Writer append(CharSequence csq) {
+        return append(csq, 0, csq.length());
+    }
+
+    @Override
+    public Utf8Writer append(CharSequence csq, int start, int end) {
+        for (int i = start; i < end; i++) {
+            append(csq.charAt(i));
+        }
+        return this;
+    }
+
+    @Override
+    public Utf8Writer append(char c) {
+        if (highSurrogate != 0) {
+            char high = highSurrogate;
+            highSurrogate = 0;
+            if (Character.isLowSurrogate(c)) {
+                int codePoint = Character.toCodePoint(high, c);
+                buffer.put((byte) (0xF0 | (codePoint >> 18)));
+                buffer.put((byte) (0x80 | ((codePoint >> 12) & 0x3F)));
+                buffer.put((byte) (0x80 | ((codePoint >> 6) & 0x3F)));
+                buffer.put((byte) (0x80 | (codePoint & 0x3F)));
+                return this;
+            }
+            buffer.put((byte) '?');
+        }
+
+        if (c < 0x80) {
+            buffer.put((byte) c);
+        } else if (c < 0x800) {
+            buffer.put((byte) (0xC0 | (c >> 6)));
+            buffer.put((byte) (0x80 | (c & 0x3F)));
+        } else if (Character.isHighSurrogate(c)) {
+            highSurrogate = c;
+        } else if (Character.isLowSurrogate(c)) {
+            buffer.put((byte) '?');
+        } else {
+            buffer.put((byte) (0xE0 | (c >> 12)));
+            buffer.put((byte) (0x80 | ((c >> 6) & 0x3F)));
+            buffer.put((byte) (0x80 | (c & 0x3F)));
+        }
+        return this;
+    }
+
+    /**
+     * Writes a pending high surrogate which was never followed by its low surrogate
+     */
+    void flush() {
+        if (highSurrogate != 0) {
+            highSurrogate = 0;
+            buffer.put((byte) '?');
+        }
+    }
+}
@@ -25,11 +25,13 @@
 package com.gkatzioura.influxdb.querybuilder;
 
 import java.util.Collections;
+import java.util.regex.Pattern;
 
 import org.junit.jupiter.api.Test;
 
 import static com.gkatzioura.influxdb.querybuilder.QueryBuilder.eq;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class AppenderTest {
 
@@ -41,4 +43,41 @@ public class AppenderTest {
         assertEquals("SELECT test1,test2 FROM foo WHERE testval='test1'",builder.toString());
     }
 
+    @Test
+    public void testAppendName() {
+        assertEquals("test1", Appender.appendName("test1", new StringBuilder()).toString());
+        assertEquals("test1", Appender.appendName("  test1 ", new StringBuilder()).toString());
+        assertEquals("\"test 1\"", Appender.appendName(" test 1", new StringBuilder()).toString());
+        assertEquals("\"quoted name\"", Appender.appendName("\"quoted name\"", new StringBuilder()).toString());
+        assertEquals("token(test1)", Appender.appendName("token(test1)", new StringBuilder()).toString());
+        assertEquals("field[0]", Appender.appendName("field[0]", new StringBuilder()).toString());
+        assertEquals("\"field[]\"", Appender.appendName("field[]", new StringBuilder()).toString());
+        assertEquals("\"system-load\"", Appender.appendName("system-load", new StringBuilder()).toString());
+    }
+
+    @Test
+    public void testNameCachePastBound() {
+        for (int i = 0; i < Appender.NAME_CACHE_SIZE * 3; i++) {
+            String name = "churn" + i;
+            assertEquals(name, Appender.appendName(name, new StringBuilder()).toString());
+            assertTrue(Appender.cachedNames() <= Appender.NAME_CACHE_SIZE);
+        }
+
+        String late = "late name";
+        assertEquals("\"late name\"", Appender.appendName(late, new StringBuilder()).toString());
+        assertTrue(Appender.isNameCached(late));
+        assertEquals("\"late name\"", Appender.appendName(late, new StringBuilder()).toString());
+    }
+
+    @Test
+    public void testRenderNameMatchesPattern() {
+        Pattern cnamePattern = Pattern.compile("\\w+(?:\\[.+\\])?");
+        String[] names = {"a", "_a1", "a b", "a[b]", "a[]", "a[b", "[b]", "a[b\n]", "a[]]", "a-b", "", " ", "\u00e9", "a.b"};
+        for (String name : names) {
+            String trimmed = name.trim();
+            String expected = cnamePattern.matcher(trimmed).matches() ? trimmed : "\"" + trimmed + "\"";
+            assertEquals(expected, Appender.renderName(name), name);
+        }
+    }
+
 }
@@ -0,0 +1,103 @@
+/**
+ * MIT License
+ * <p>
+ * Copyright (c) 2018 Emmanouil Gkatziouras
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE
+ */
+
+package com.gkatzioura.influxdb.querybuilder;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import static com.gkatzioura.influxdb.querybuilder.QueryBuilder.batch;
+import static com.gkatzioura.influxdb.querybuilder.QueryBuilder.eq;
+import static com.gkatzioura.influxdb.querybuilder.QueryBuilder.select;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class BatchStatementTest {
+
+    @Test
+    public void testBatch() {
+        BatchStatement batch = batch(select().all().from("testdb", "foo"),
+                                     select().column("test1").from("testdb", "bar").where(eq("k", 4)));
+
+        assertEquals("SELECT * FROM foo;SELECT test1 FROM bar WHERE k=4;", batch.getQueryString());
+        assertEquals("testdb", batch.getDatabase());
+    }
+
+    @Test
+    public void testDifferentDatabases() {
+        assertThrows(IllegalArgumentException.class, () -> batch(select().all().from("db1", "foo"), select().all().from("db2", "foo")));
+    }
+
+    @Test
+    public void testSplit() {
+        List<BuiltStatement> statements = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            statements.add(select().all().from("foo").where(eq("k", i)));
+        }
+        BatchStatement batch = batch(statements);
+
+        List<BatchStatement> chunks = batch.split(300);
+
+        StringBuilder joined = new StringBuilder();
+        int count = 0;
+        for (BatchStatement chunk : chunks) {
+            assertTrue(chunk.getQueryString().getBytes(StandardCharsets.UTF_8).length <= 300);
+            joined.append(chunk.getQueryString());
+            count += chunk.getStatements().size();
+        }
+        assertEquals(200, count);
+        assertEquals(batch.getQueryString(), joined.toString());
+    }
+
+    @Test
+    public void testSplitEncoded() throws UnsupportedEncodingException {
+        List<BuiltStatement> statements = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            statements.add(select().all().from("testdb", "foo").where(eq("k", "value " + i)));
+        }
+
+        int count = 0;
+        for (BatchStatement chunk : batch(statements).splitEncoded(400)) {
+            String parameters = "q=" + URLEncoder.encode(chunk.getQueryString(), "UTF-8") + "&db=testdb";
+            assertTrue(parameters.length() <= 400);
+            count += chunk.getStatements().size();
+        }
+        assertEquals(100, count);
+    }
+
+    @Test
+    public void testStatementLongerThanLimit() {
+        BatchStatement batch = batch(select().all().from("foo"), select().all().from("bar"));
+        List<BatchStatement> chunks = batch.split(5);
+        assertEquals(2, chunks.size());
+        assertEquals("SELECT * FROM bar;", chunks.get(1).getQueryString());
+    }
+
+}
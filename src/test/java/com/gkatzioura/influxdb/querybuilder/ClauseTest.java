@@ -43,7 +43,7 @@ public class ClauseTest {
 
     @Test
     public void testNegativeRegex() {
-        String query = "SELECT MAX(k) FROM foo WHERE k ~! /[0-9]/;";
+        String query = "SELECT MAX(k) FROM foo WHERE k !~ /[0-9]/;";
         Statement select = select().max("k").from("foo").where(nregex("k", "/[0-9]/"));
         assertEquals(query, select.toString());
     }
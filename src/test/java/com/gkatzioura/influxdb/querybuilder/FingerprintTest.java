@@ -0,0 +1,136 @@
+/**
+ * MIT License
+ * <p>
+ * Copyright (c) 2018 Emmanouil Gkatziouras
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE
+ */
+
+package com.gkatzioura.influxdb.querybuilder;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import static com.gkatzioura.influxdb.querybuilder.QueryBuilder.alias;
+import static com.gkatzioura.influxdb.querybuilder.QueryBuilder.column;
+import static com.gkatzioura.influxdb.querybuilder.QueryBuilder.contains;
+import static com.gkatzioura.influxdb.querybuilder.QueryBuilder.desc;
+import static com.gkatzioura.influxdb.querybuilder.QueryBuilder.eq;
+import static com.gkatzioura.influxdb.querybuilder.QueryBuilder.fcall;
+import static com.gkatzioura.influxdb.querybuilder.QueryBuilder.gt;
+import static com.gkatzioura.influxdb.querybuilder.QueryBuilder.lt;
+import static com.gkatzioura.influxdb.querybuilder.QueryBuilder.now;
+import static com.gkatzioura.influxdb.querybuilder.QueryBuilder.raw;
+import static com.gkatzioura.influxdb.querybuilder.QueryBuilder.regex;
+import static com.gkatzioura.influxdb.querybuilder.QueryBuilder.select;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+public class FingerprintTest {
+
+    private static Select create(long threshold) {
+        return select().mean("value").as("avg").column("host").distinct()
+                       .from("telegraf", "cpu")
+                       .where(eq("host", "a"))
+                       .and(gt("time", Instant.parse("2018-01-01T00:00:00Z")))
+                       .and(lt("value", threshold))
+                       .and(regex("region", "/^eu/"))
+                       .groupBy("host")
+                       .orderBy(desc())
+                       .limit(10);
+    }
+
+    @Test
+    public void testEqualSelects() {
+        Select first = create(5L);
+        Select second = create(5L);
+
+        assertEquals(first, second);
+        assertEquals(first.hashCode(), second.hashCode());
+        assertEquals(first.fingerprint(), second.fingerprint());
+        assertEquals(first.toImmutable(), second.toImmutable());
+
+        Map<Select, String> statements = new HashMap<>();
+        statements.put(first, "first");
+        assertEquals("first", statements.get(second));
+    }
+
+    @Test
+    public void testDifferentSelects() {
+        Select select = create(5L);
+
+        assertNotEquals(select, create(6L));
+        assertNotEquals(select.fingerprint(), create(6L).fingerprint());
+        assertNotEquals(select.fingerprint(), create(5L).limit(10, 5).fingerprint());
+        assertNotEquals(select().all().from("foo").where(eq("a", "b")).and(eq("c", "d")).toImmutable(),
+                        select().all().from("foo").where(eq("c", "d")).and(eq("a", "b")).toImmutable());
+        assertNotEquals(select().all().from("db1", "foo").fingerprint(), select().all().from("db2", "foo").fingerprint());
+        assertNotEquals(select().all().from("ab", "c").fingerprint(), select().all().from("a", "bc").fingerprint());
+        assertNotEquals(select().all().from("foo").fingerprint(), select().all().from("foo").orderBy(desc()).fingerprint());
+    }
+
+    @Test
+    public void testChangedSelect() {
+        Select select = select().all().from("foo");
+        long fingerprint = select.fingerprint();
+
+        select.where(eq("k", 1L));
+
+        assertNotEquals(fingerprint, select.fingerprint());
+        assertEquals(select().all().from("foo").where(eq("k", 1L)).toImmutable().fingerprint(), select.fingerprint());
+    }
+
+    /**
+     * Fingerprints may be persisted, they should not change between releases
+     */
+    @Test
+    public void testStableFingerprint() {
+        assertEquals(0xe3736240a873c647L, select().all().from("foo").fingerprint());
+        assertEquals(0x0ddb1c99dc685495L, eq("k", 1L).fingerprint());
+    }
+
+    @Test
+    public void testClauses() {
+        assertEquals(eq("k", 1L), eq("k", 1L));
+        assertEquals(eq("k", 1.5).hashCode(), eq("k", 1.5).hashCode());
+        assertEquals(gt("time", Duration.ofHours(1)), gt("time", Duration.ofHours(1)));
+        assertEquals(eq("k", now()), eq("k", now()));
+        assertEquals(eq("k", fcall("f", column("a"), raw("*"))).fingerprint(), eq("k", fcall("f", column("a"), raw("*"))).fingerprint());
+        assertEquals(eq(Arrays.asList("a", "b"), Arrays.asList(1, 2)), eq(Arrays.asList("a", "b"), Arrays.asList(1, 2)));
+
+        assertNotEquals(eq("k", 1L), eq("k", 1.0));
+        assertNotEquals(eq("k", 1L), gt("k", 1L));
+        assertNotEquals(eq("k", 1L).fingerprint(), eq("j", 1L).fingerprint());
+        assertNotEquals(regex("k", "/*a*/"), contains("k", "a"));
+        assertNotEquals(eq("k", "a").fingerprint(), eq("k", raw("a")).fingerprint());
+    }
+
+    @Test
+    public void testSelections() {
+        assertEquals(alias(fcall("MEAN", column("a")), "m"), alias(fcall("MEAN", column("a")), "m"));
+        assertEquals(new Distinct(column("a")), new Distinct(column("a")));
+        assertNotEquals(alias(column("a"), "m"), alias(column("a"), "n"));
+        assertNotEquals(select("a").from("foo").fingerprint(), select("b").from("foo").fingerprint());
+    }
+}
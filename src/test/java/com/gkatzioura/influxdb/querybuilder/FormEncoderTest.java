@@ -0,0 +1,76 @@
+/**
+ * MIT License
+ * <p>
+ * Copyright (c) 2018 Emmanouil Gkatziouras
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE
+ */
+
+package com.gkatzioura.influxdb.querybuilder;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+
+import static com.gkatzioura.influxdb.querybuilder.QueryBuilder.eq;
+import static com.gkatzioura.influxdb.querybuilder.QueryBuilder.regex;
+import static com.gkatzioura.influxdb.querybuilder.QueryBuilder.select;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class FormEncoderTest {
+
+    @Test
+    public void testEncode() throws UnsupportedEncodingException {
+        BuiltStatement select = select().column("test1").from("testdb", "foo bar")
+                                        .where(eq("k", "caf\u00e9 \u20ac \ud83d\ude00"))
+                                        .and(regex("c", "/^a+&b?=*$/"));
+
+        ByteBuffer buffer = FormEncoder.encode(select, ByteBuffer.allocate(256));
+        buffer.flip();
+
+        String expected = "q=" + URLEncoder.encode(select.getQueryString(), "UTF-8") + "&db=testdb";
+        assertEquals(expected, StandardCharsets.US_ASCII.decode(buffer).toString());
+    }
+
+    @Test
+    public void testEncodedLength() throws UnsupportedEncodingException {
+        String value = "SELECT * FROM \"foo bar\" WHERE k='caf\u00e9 \u20ac \ud83d\ude00' AND c =~ /^a+&b?=*$/;";
+        assertEquals(URLEncoder.encode(value, "UTF-8").length(), FormEncoder.encodedLength(value));
+    }
+
+    @Test
+    public void testAppendToStringBuilder() throws Exception {
+        BuiltStatement select = select().column("test1").from("foo").where(eq("k", "a"));
+        StringBuilder sb = new StringBuilder();
+        select.appendTo(sb);
+        assertEquals("SELECT test1 FROM foo WHERE k='a';", sb.toString());
+    }
+
+    @Test
+    public void testOverflow() {
+        BuiltStatement select = select().column("test1").from("foo");
+        assertThrows(BufferOverflowException.class, () -> FormEncoder.encode(select, ByteBuffer.allocate(8)));
+    }
+
+}
@@ -0,0 +1,182 @@
+/**
+ * MIT License
+ * <p>
+ * Copyright (c) 2018 Emmanouil Gkatziouras
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE
+ */
+
+package com.gkatzioura.influxdb.querybuilder;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+
+import static com.gkatzioura.influxdb.querybuilder.QueryBuilder.eq;
+import static com.gkatzioura.influxdb.querybuilder.QueryBuilder.gt;
+import static com.gkatzioura.influxdb.querybuilder.QueryBuilder.gte;
+import static com.gkatzioura.influxdb.querybuilder.QueryBuilder.lt;
+import static com.gkatzioura.influxdb.querybuilder.QueryBuilder.lte;
+import static com.gkatzioura.influxdb.querybuilder.QueryBuilder.now;
+import static com.gkatzioura.influxdb.querybuilder.QueryBuilder.raw;
+import static com.gkatzioura.influxdb.querybuilder.QueryBuilder.select;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class GroupByTimeTest {
+
+    private static final Instant START = Instant.parse("2018-01-01T00:00:00Z");
+
+    @Test
+    public void testGroupByTime() {
+        assertEquals("SELECT MEAN(value) FROM cpu GROUP BY time(1m);",
+                     select().mean("value").from("cpu").groupByTime(Duration.ofMinutes(1)).getQueryString());
+        assertEquals("SELECT MEAN(value) FROM cpu GROUP BY time(1h,15m),host fill(none);",
+                     select().mean("value").from("cpu").groupBy("host").groupByTime(Duration.ofHours(1), Duration.ofMinutes(15))
+                             .fill(Fill.NONE).getQueryString());
+        assertEquals("SELECT MEAN(value) FROM cpu WHERE host='a' GROUP BY time(90s,-30s) fill(0) LIMIT 10;",
+                     select().mean("value").from("cpu").where(eq("host", "a"))
+                             .groupByTime(Duration.ofSeconds(90), Duration.ofSeconds(-30)).fill(0L).limit(10).getQueryString());
+        assertEquals("SELECT MEAN(value) FROM cpu GROUP BY time(1d) fill(1.5);",
+                     select().mean("value").from("cpu").groupByTime(Duration.ofDays(1), Duration.ZERO).fill(1.5).getQueryString());
+        assertEquals("SELECT MEAN(value) FROM cpu GROUP BY time(1d) fill(10000000000.0);",
+                     select().mean("value").from("cpu").groupByTime(Duration.ofDays(1)).fill(1e10).getQueryString());
+        assertEquals("SELECT MEAN(value) FROM cpu GROUP BY time(1d) fill(0.00025);",
+                     select().mean("value").from("cpu").groupByTime(Duration.ofDays(1)).fill(2.5e-4f).getQueryString());
+        assertThrows(IllegalArgumentException.class, () -> select().mean("value").from("cpu").fill(Double.NaN));
+        assertThrows(IllegalArgumentException.class, () -> select().mean("value").from("cpu").fill(Float.POSITIVE_INFINITY));
+    }
+
+    @Test
+    public void testFitRange() {
+        assertEquals(Duration.ofMinutes(2), GroupByTime.fit(Duration.ofHours(1), 60));
+        assertEquals(Duration.ofMinutes(1), GroupByTime.fit(Duration.ofHours(1), 61));
+        assertEquals(Duration.ofSeconds(5), GroupByTime.fit(Duration.ofHours(1), 1000));
+        assertEquals(Duration.ofHours(12), GroupByTime.fit(Duration.ofDays(7), 20));
+        assertEquals(Duration.ofDays(21), GroupByTime.fit(Duration.ofDays(365), 20));
+        assertEquals(Duration.ofNanos(1), GroupByTime.fit(Duration.ofNanos(10), 10));
+
+        assertThrows(IllegalArgumentException.class, () -> GroupByTime.fit(Duration.ofHours(1), 1));
+        assertThrows(IllegalArgumentException.class, () -> GroupByTime.fit(Duration.ZERO, 10));
+    }
+
+    @Test
+    public void testFitBounds() {
+        long start = START.getEpochSecond() * 1_000_000_000L;
+        long hour = Duration.ofHours(1).toNanos();
+
+        assertEquals(Duration.ofMinutes(1), GroupByTime.fit(start, start + hour, 60));
+        assertEquals(Duration.ofMinutes(2), GroupByTime.fit(start + 1, start + hour + 1, 60));
+        assertEquals(Duration.ofHours(1), GroupByTime.fit(start, start + hour, 1));
+        assertEquals(Duration.ofHours(6), GroupByTime.fit(start + hour, start + 4 * hour, 1));
+        // midnight on 2018-01-11 is a boundary of 1 and 2 days and of 1 and 2 weeks, weeks being aligned on a Thursday
+        assertEquals(Duration.ofDays(21), GroupByTime.fit(start + 239 * hour, start + 241 * hour, 1));
+
+        for (int maxPoints = 1; maxPoints < 500; maxPoints += 7) {
+            long end = start + 37 * hour + 12345;
+            long interval = GroupByTime.fit(start + 999, end, maxPoints).toNanos();
+            long buckets = Math.floorDiv(end - 1, interval) - Math.floorDiv(start + 999, interval) + 1;
+            assertTrue(buckets <= maxPoints, buckets + " buckets for " + maxPoints + " points");
+        }
+    }
+
+    @Test
+    public void testFitWhere() {
+        Select select = select().mean("value").from("cpu");
+        select.where(gte("time", START)).and(lt("time", START.plus(Duration.ofDays(1)))).groupByTime(1440);
+        assertEquals("SELECT MEAN(value) FROM cpu WHERE time>='2018-01-01T00:00:00Z' AND time<'2018-01-02T00:00:00Z' GROUP BY time(1m);",
+                     select.getQueryString());
+
+        select = select().mean("value").from("cpu");
+        select.where(gte("time", raw("now() - 6h"))).and(lt("time", now())).groupByTime(500);
+        assertEquals("SELECT MEAN(value) FROM cpu WHERE time>=now() - 6h AND time<now() GROUP BY time(1m);", select.getQueryString());
+
+        select = select().mean("value").from("cpu");
+        select.where(gte("time", raw("now() - 1h"))).groupByTime(200);
+        assertEquals("SELECT MEAN(value) FROM cpu WHERE time>=now() - 1h GROUP BY time(30s);", select.getQueryString());
+
+        select = select().mean("v").from("cpu");
+        select.where(gte("time", "2020-01-01T00:00:00Z")).and(lt("time", "2020-01-02T00:00:00Z")).groupByTime(100);
+        assertEquals("SELECT MEAN(v) FROM cpu WHERE time>='2020-01-01T00:00:00Z' AND time<'2020-01-02T00:00:00Z' GROUP BY time(15m);",
+                     select.getQueryString());
+
+        assertThrows(IllegalArgumentException.class, () -> select().mean("value").from("cpu").where(eq("host", "a")).groupByTime(100));
+    }
+
+    @Test
+    public void testFitInclusiveBounds() {
+        long start = START.getEpochSecond() * 1_000_000_000L;
+        long end = start + Duration.ofDays(1).toNanos();
+
+        assertEquals(Duration.ofMinutes(1),
+                     GroupByTime.fit(Arrays.asList(gte("time", START), lt("time", START.plus(Duration.ofDays(1)))), 0, 1440));
+        // the point at the upper bound opens a 1441st bucket
+        assertEquals(Duration.ofMinutes(2),
+                     GroupByTime.fit(Arrays.asList(gte("time", START), lte("time", START.plus(Duration.ofDays(1)))), 0, 1440));
+        assertEquals(Duration.ofMinutes(1),
+                     GroupByTime.fit(Arrays.asList(gt("time", start - 1), lte("time", end - 1)), 0, 1440));
+        assertEquals(Duration.ofMinutes(2),
+                     GroupByTime.fit(Arrays.asList(gt("time", start - 1), lte("time", end)), 0, 1440));
+
+        Select select = select().mean("value").from("cpu");
+        select.where(gte("time", START)).and(lte("time", START.plus(Duration.ofDays(1)))).groupByTime(1440);
+        assertEquals("SELECT MEAN(value) FROM cpu WHERE time>='2018-01-01T00:00:00Z' AND time<='2018-01-02T00:00:00Z' GROUP BY time(2m);",
+                     select.getQueryString());
+    }
+
+    @Test
+    public void testEquality() {
+        Select a = select().mean("value").from("cpu").groupByTime(Duration.ofMinutes(1)).fill(Fill.NULL);
+        Select b = select().mean("value").from("cpu").groupByTime(Duration.ofSeconds(60)).fill(Fill.NULL);
+        Select c = select().mean("value").from("cpu").groupByTime(Duration.ofMinutes(1)).fill(Fill.PREVIOUS);
+
+        assertEquals(a, b);
+        assertEquals(a.fingerprint(), b.fingerprint());
+        assertNotEquals(a, c);
+        assertNotEquals(a.fingerprint(), c.fingerprint());
+        assertNotEquals(a.fingerprint(), select().mean("value").from("cpu").groupByTime(Duration.ofMinutes(1)).fingerprint());
+    }
+
+    @Test
+    public void testParse() {
+        String[] queries = {
+                "SELECT MEAN(value) FROM cpu GROUP BY time(1m);",
+                "SELECT MEAN(value) FROM cpu GROUP BY time(1h,-15m),host fill(linear);",
+                "SELECT MEAN(value) FROM cpu GROUP BY time(1h) fill(-1);",
+                "SELECT MEAN(value) FROM cpu GROUP BY host,time(1h) fill(null);"
+        };
+        for (String query : queries) {
+            assertEquals(query, QueryParser.parse(query).getQueryString());
+        }
+        assertEquals(select().mean("value").from("cpu").groupBy("host").groupByTime(Duration.ofMinutes(5)).fill(Fill.NONE),
+                     QueryParser.parse("SELECT MEAN(value) FROM cpu GROUP BY time(5m), host fill(none)"));
+    }
+
+    @Test
+    public void testInvalid() {
+        assertThrows(IllegalArgumentException.class, () -> select().all().from("cpu").groupByTime(Duration.ZERO));
+        assertThrows(IllegalArgumentException.class, () -> select().all().from("cpu").groupByTime(Duration.ofMinutes(-1)));
+        assertThrows(IllegalArgumentException.class, () -> select().all().from("cpu").fill(Double.NaN));
+        assertThrows(IllegalArgumentException.class, () -> select().all().from("cpu").fill((Fill) null));
+    }
+}
@@ -0,0 +1,98 @@
+/**
+ * MIT License
+ * <p>
+ * Copyright (c) 2018 Emmanouil Gkatziouras
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE
+ */
+
+package com.gkatzioura.influxdb.querybuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Test;
+
+import static com.gkatzioura.influxdb.querybuilder.QueryBuilder.desc;
+import static com.gkatzioura.influxdb.querybuilder.QueryBuilder.eq;
+import static com.gkatzioura.influxdb.querybuilder.QueryBuilder.gt;
+import static com.gkatzioura.influxdb.querybuilder.QueryBuilder.select;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+public class ImmutableSelectTest {
+
+    @Test
+    public void testDerive() {
+        ImmutableSelect base = select().column("test1").from("foo").where(eq("k", 4)).toImmutable();
+
+        ImmutableSelect first = base.and(gt("c", "a")).groupBy("test2");
+        ImmutableSelect second = base.and(eq("c", "b")).orderBy(desc()).limit(10);
+
+        assertEquals("SELECT test1 FROM foo WHERE k=4;", base.getQueryString());
+        assertEquals("SELECT test1 FROM foo WHERE k=4 AND c>'a' GROUP BY test2;", first.getQueryString());
+        assertEquals("SELECT test1 FROM foo WHERE k=4 AND c='b' ORDER BY time DESC LIMIT 10;", second.getQueryString());
+    }
+
+    @Test
+    public void testSharedParts() {
+        ImmutableSelect base = select().column("test1").from("foo").where(eq("k", 4)).groupBy("test2").toImmutable();
+        ImmutableSelect derived = base.limit(1);
+
+        assertSame(base.getColumns(), derived.getColumns());
+        assertSame(base.getGroupByColumns(), derived.getGroupByColumns());
+        assertSame(base.getClauses().get(0), derived.getClauses().get(0));
+    }
+
+    @Test
+    public void testSnapshotUnaffectedBySelect() {
+        Select select = select().column("test1").from("foo");
+        ImmutableSelect snapshot = select.toImmutable();
+
+        select.where(eq("k", 4)).limit(1);
+
+        assertEquals("SELECT test1 FROM foo;", snapshot.getQueryString());
+        assertEquals("SELECT test1 FROM foo WHERE k=4 LIMIT 1;", select.toImmutable().getQueryString());
+    }
+
+    @Test
+    public void testConcurrentDerivation() throws InterruptedException, ExecutionException {
+        ImmutableSelect base = select().column("test1").from("foo").where(eq("k", 4)).toImmutable();
+
+        ExecutorService executorService = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<String>> futures = new ArrayList<>();
+            for (int i = 0; i < 100; i++) {
+                final int value = i;
+                futures.add(executorService.submit(() -> base.and(eq("c", value)).getQueryString()));
+            }
+            for (int i = 0; i < futures.size(); i++) {
+                assertEquals("SELECT test1 FROM foo WHERE k=4 AND c=" + i + ";", futures.get(i).get());
+            }
+        } finally {
+            executorService.shutdown();
+        }
+        assertEquals("SELECT test1 FROM foo WHERE k=4;", base.getQueryString());
+    }
+
+}
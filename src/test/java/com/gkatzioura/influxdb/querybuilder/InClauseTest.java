@@ -0,0 +1,173 @@
+/**
+ * MIT License
+ * <p>
+ * Copyright (c) 2018 Emmanouil Gkatziouras
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE
+ */
+
+package com.gkatzioura.influxdb.querybuilder;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import org.junit.jupiter.api.Test;
+
+import static com.gkatzioura.influxdb.querybuilder.QueryBuilder.bindMarker;
+import static com.gkatzioura.influxdb.querybuilder.QueryBuilder.eq;
+import static com.gkatzioura.influxdb.querybuilder.QueryBuilder.in;
+import static com.gkatzioura.influxdb.querybuilder.QueryBuilder.not;
+import static com.gkatzioura.influxdb.querybuilder.QueryBuilder.select;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class InClauseTest {
+
+    @Test
+    public void testEqualities() {
+        assertEquals("SELECT * FROM foo WHERE host='a';", select().all().from("foo").where(in("host", Collections.singleton("a"))).getQueryString());
+        assertEquals("SELECT * FROM foo WHERE (host='a' OR host='b') AND k=1;",
+                     select().all().from("foo").where(in("host", Arrays.asList("a", "b", "a"))).and(eq("k", 1L)).getQueryString());
+        assertEquals("SELECT * FROM foo WHERE k=1 OR k=2;",
+                     select().all().from("foo").where(in("k", Arrays.asList(1L, 2L), 1)).getQueryString());
+    }
+
+    @Test
+    public void testBindMarkers() {
+        PreparedStatement prepared = select().all().from("foo")
+                                             .where(in("host", Arrays.asList(bindMarker(), "a", bindMarker(), "a", bindMarker()))).prepare();
+        assertEquals(3, prepared.getBindMarkers());
+        assertEquals("SELECT * FROM foo WHERE host='x' OR host='a' OR host='y' OR host='z';", prepared.bind("x", "y", "z").getQueryString());
+    }
+
+    @Test
+    public void testRegex() {
+        List<String> hosts = Arrays.asList("server02", "server01", "server10", "db");
+
+        assertEquals("SELECT * FROM foo WHERE host =~ /^(?:db|server(?:0[12]|10))$/;",
+                     select().all().from("foo").where(in("host", hosts, 4)).getQueryString());
+        assertEquals("SELECT * FROM foo WHERE host='server02' OR host='server01' OR host='server10' OR host='db';",
+                     select().all().from("foo").where(in("host", hosts, 5)).getQueryString());
+    }
+
+    @Test
+    public void testNegatedRegex() {
+        List<String> hosts = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            hosts.add(String.format("server%02d", i));
+        }
+
+        assertEquals("SELECT * FROM foo WHERE host !~ /^server[01][0-9]$/;",
+                     select().all().from("foo").where(not(in("host", hosts))).getQueryString());
+        assertEquals("SELECT * FROM foo WHERE host !~ /^(?:db|server(?:0[12]|10))$/;",
+                     select().all().from("foo").where(not(in("host", Arrays.asList("server02", "server01", "server10", "db"), 4)))
+                             .getQueryString());
+    }
+
+    @Test
+    public void testTrie() {
+        assertEquals("/^a$/", RegexTrie.anchored(Collections.singletonList("a")));
+        assertEquals("/^[abc]$/", RegexTrie.anchored(Arrays.asList("c", "b", "a")));
+        assertEquals("/^ab?$/", RegexTrie.anchored(Arrays.asList("a", "ab")));
+        assertEquals("/^a(?:bc)?$/", RegexTrie.anchored(Arrays.asList("a", "abc")));
+        assertEquals("/^a[bc]?$/", RegexTrie.anchored(Arrays.asList("a", "ab", "ac")));
+        assertEquals("/^a?$/", RegexTrie.anchored(Arrays.asList("", "a")));
+        assertEquals("/^\\.\\*\\/x\\$$/", RegexTrie.anchored(Collections.singletonList(".*/x$")));
+        assertEquals("/^[a-e]$/", RegexTrie.anchored(Arrays.asList("a", "b", "c", "d", "e")));
+        assertEquals("/^host0[12]\\.eu$/", RegexTrie.anchored(Arrays.asList("host01.eu", "host02.eu")));
+        assertEquals("/^[\\-\\]]$/", RegexTrie.anchored(Arrays.asList("-", "]")));
+        assertEquals("/^[\ud83d\ude00\ud83d\ude01]$/", RegexTrie.anchored(Arrays.asList("\ud83d\ude00", "\ud83d\ude01")));
+
+        assertTrue(RegexTrie.isAtom("(?:a|b)"));
+        assertFalse(RegexTrie.isAtom("(?:a|b)c"));
+        assertFalse(RegexTrie.isAtom("[ab](?:c)"));
+    }
+
+    /**
+     * The expression matches the values of the set and nothing else
+     */
+    @Test
+    public void testTrieMatches() {
+        Random random = new Random(42);
+        String alphabet = "ab.*\\/-]x\u00e9";
+        for (int round = 0; round < 200; round++) {
+            Set<String> values = new HashSet<>();
+            for (int i = random.nextInt(20) + 1; i > 0; i--) {
+                values.add(randomString(random, alphabet));
+            }
+
+            String regex = RegexTrie.anchored(values);
+            Pattern pattern = Pattern.compile(regex.substring(1, regex.length() - 1));
+            for (String value : values) {
+                assertTrue(pattern.matcher(value).matches(), () -> regex + " should match " + value);
+            }
+            for (int i = 0; i < 50; i++) {
+                String other = randomString(random, alphabet);
+                assertEquals(values.contains(other), pattern.matcher(other).matches(), () -> regex + " against " + other);
+            }
+        }
+    }
+
+    private static String randomString(Random random, String alphabet) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = random.nextInt(5); i > 0; i--) {
+            sb.append(alphabet.charAt(random.nextInt(alphabet.length())));
+        }
+        return sb.toString();
+    }
+
+    @Test
+    public void testQuerySize() {
+        List<String> hosts = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            hosts.add(String.format("server-%04d.eu-west-1", i));
+        }
+
+        String equalities = select().all().from("foo").where(in("host", hosts, Integer.MAX_VALUE)).getQueryString();
+        String regex = select().all().from("foo").where(in("host", hosts)).getQueryString();
+
+        assertTrue(regex.length() * 4 < equalities.length(), regex.length() + " vs " + equalities.length());
+    }
+
+    @Test
+    public void testEquality() {
+        assertEquals(in("host", Arrays.asList("a", "b")), in("host", Arrays.asList("a", "b", "b")));
+        assertEquals(in("host", Arrays.asList("a", "b")).fingerprint(), in("host", Arrays.asList("a", "b")).fingerprint());
+        assertNotEquals(in("host", Arrays.asList("a", "b")), in("host", Arrays.asList("a", "b"), 2));
+        assertEquals("SELECT * FROM foo WHERE host =~ /^[ab]$/;",
+                     QueryNormalizer.normalize(select().all().from("foo").where(in("\"host\"", Arrays.asList("a", "b"), 2))).getQueryString());
+    }
+
+    @Test
+    public void testInvalid() {
+        assertThrows(IllegalArgumentException.class, () -> in("host", Collections.emptyList()));
+        assertThrows(IllegalArgumentException.class, () -> in("host", null));
+        assertThrows(IllegalArgumentException.class, () -> in("host", Arrays.asList("a", null)));
+        assertThrows(IllegalArgumentException.class, () -> in("host", Arrays.asList("a"), 0));
+    }
+}
@@ -0,0 +1,148 @@
+/**
+ * MIT License
+ * <p>
+ * Copyright (c) 2018 Emmanouil Gkatziouras
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE
+ */
+
+package com.gkatzioura.influxdb.querybuilder;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.jupiter.api.Test;
+
+import static com.gkatzioura.influxdb.querybuilder.QueryBuilder.and;
+import static com.gkatzioura.influxdb.querybuilder.QueryBuilder.bindMarker;
+import static com.gkatzioura.influxdb.querybuilder.QueryBuilder.eq;
+import static com.gkatzioura.influxdb.querybuilder.QueryBuilder.gt;
+import static com.gkatzioura.influxdb.querybuilder.QueryBuilder.gte;
+import static com.gkatzioura.influxdb.querybuilder.QueryBuilder.in;
+import static com.gkatzioura.influxdb.querybuilder.QueryBuilder.lt;
+import static com.gkatzioura.influxdb.querybuilder.QueryBuilder.lte;
+import static com.gkatzioura.influxdb.querybuilder.QueryBuilder.ne;
+import static com.gkatzioura.influxdb.querybuilder.QueryBuilder.not;
+import static com.gkatzioura.influxdb.querybuilder.QueryBuilder.nregex;
+import static com.gkatzioura.influxdb.querybuilder.QueryBuilder.or;
+import static com.gkatzioura.influxdb.querybuilder.QueryBuilder.regex;
+import static com.gkatzioura.influxdb.querybuilder.QueryBuilder.select;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class LogicalClauseTest {
+
+    private static String where(Clause... clauses) {
+        Select.Where where = select().all().from("foo").where();
+        for (Clause clause : clauses) {
+            where.and(clause);
+        }
+        return where.getQueryString();
+    }
+
+    @Test
+    public void testParentheses() {
+        assertEquals("SELECT * FROM foo WHERE a=1 OR b=2;", where(or(eq("a", 1L), eq("b", 2L))));
+        assertEquals("SELECT * FROM foo WHERE (a=1 OR b=2) AND c=3;", where(or(eq("a", 1L), eq("b", 2L)), eq("c", 3L)));
+        assertEquals("SELECT * FROM foo WHERE a=1 AND b=2 OR c=3;", where(or(and(eq("a", 1L), eq("b", 2L)), eq("c", 3L))));
+        assertEquals("SELECT * FROM foo WHERE a=1 AND (b=2 OR c=3);", where(and(eq("a", 1L), or(eq("b", 2L), eq("c", 3L)))));
+        assertEquals("SELECT * FROM foo WHERE a=1 AND b=2 AND c=3;", where(and(eq("a", 1L), eq("b", 2L)), eq("c", 3L)));
+        assertEquals("SELECT * FROM foo WHERE (a=1 AND b=2 OR c=3) AND d=4;",
+                     where(or(and(eq("a", 1L), eq("b", 2L)), eq("c", 3L)), eq("d", 4L)));
+    }
+
+    @Test
+    public void testFlattening() {
+        assertEquals(or(eq("a", 1L), eq("b", 2L), eq("c", 3L)), or(eq("a", 1L), or(eq("b", 2L), or(eq("c", 3L)))));
+        assertEquals("SELECT * FROM foo WHERE a=1 OR b=2 OR c=3;", where(or(or(eq("a", 1L), eq("b", 2L)), eq("c", 3L))));
+        assertEquals("SELECT * FROM foo WHERE host='x' OR host='y' OR a=1;",
+                     where(or(in("host", Arrays.asList("x", "y")), eq("a", 1L))));
+        assertEquals("SELECT * FROM foo WHERE (host='x' OR host='y') AND a=1;",
+                     where(and(in("host", Arrays.asList("x", "y")), eq("a", 1L))));
+
+        Clause a = eq("a", 1L);
+        assertSame(a, or(a));
+        assertSame(a, and(a, a));
+    }
+
+    @Test
+    public void testAbsorption() {
+        assertEquals(eq("a", 1L), and(eq("a", 1L), or(eq("a", 1L), eq("b", 2L))));
+        assertEquals(eq("a", 1L), or(eq("a", 1L), and(eq("a", 1L), eq("b", 2L))));
+        assertEquals("SELECT * FROM foo WHERE a=1 AND (b=2 OR c=3);",
+                     where(and(eq("a", 1L), or(eq("a", 1L), eq("d", 4L)), or(eq("b", 2L), eq("c", 3L)))));
+    }
+
+    @Test
+    public void testBindMarkers() {
+        PreparedStatement prepared = select().all().from("foo").where(or(eq("host", bindMarker()), eq("host", bindMarker()))).prepare();
+        assertEquals(2, prepared.getBindMarkers());
+        assertEquals("SELECT * FROM foo WHERE host='a' OR host='b';", prepared.bind("a", "b").getQueryString());
+
+        // a group holding a marker is not absorbed
+        prepared = select().all().from("foo").where(and(eq("a", 1L), or(eq("a", 1L), eq("b", bindMarker())))).prepare();
+        assertEquals(1, prepared.getBindMarkers());
+        assertEquals("SELECT * FROM foo WHERE a=1 AND (a=1 OR b=2);", prepared.bind(2L).getQueryString());
+
+        Clause group = or(eq("b", bindMarker()), eq("a", bindMarker()));
+        assertSame(group, group.canonical());
+    }
+
+    @Test
+    public void testNegation() {
+        assertEquals("SELECT * FROM foo WHERE a!=1 AND b<=2;", where(not(or(eq("a", 1L), gt("b", 2L)))));
+        assertEquals("SELECT * FROM foo WHERE a>=1 OR b>2 OR c<0.5;", where(not(and(lt("a", 1L), lte("b", 2), gte("c", 0.5)))));
+        assertEquals("SELECT * FROM foo WHERE a='x' AND b !~ /y/ AND c =~ /z/;", where(not(or(ne("a", "x"), regex("b", "/y/"), nregex("c", "/z/")))));
+        assertEquals("SELECT * FROM foo WHERE host!='x' AND host!='y';", where(not(in("host", Arrays.asList("x", "y")))));
+        assertEquals("SELECT * FROM foo WHERE host !~ /^[xy]$/;", where(not(in("host", Arrays.asList("x", "y"), 2))));
+        assertEquals("SELECT * FROM foo WHERE time<'2018-01-01T00:00:00Z';", where(not(gte("time", Instant.parse("2018-01-01T00:00:00Z")))));
+
+        Clause clause = or(and(eq("a", 1L), gt("b", 2.5)), eq("c", true));
+        assertEquals(clause, not(not(clause)));
+
+        assertThrows(IllegalArgumentException.class, () -> not(eq(Arrays.asList("a", "b"), Arrays.asList(1L, 2L))));
+        assertThrows(IllegalArgumentException.class, () -> not(null));
+    }
+
+    @Test
+    public void testEquality() {
+        assertEquals(or(eq("a", 1L), eq("b", 2L)), or(eq("a", 1L), eq("b", 2L), eq("a", 1L)));
+        assertEquals(or(eq("a", 1L), eq("b", 2L)).fingerprint(), or(eq("a", 1L), eq("b", 2L)).fingerprint());
+        assertNotEquals(or(eq("a", 1L), eq("b", 2L)), and(eq("a", 1L), eq("b", 2L)));
+        assertNotEquals(or(eq("a", 1L), eq("b", 2L)).fingerprint(), and(eq("a", 1L), eq("b", 2L)).fingerprint());
+    }
+
+    @Test
+    public void testNormalization() {
+        ImmutableSelect normalized = QueryNormalizer.normalize(select().all().from("foo")
+                .where(and(gt("k", 1L), or(eq("\"b\"", 2L), eq("a", 1L))))
+                .and(gt("k", 3L)));
+        assertEquals("SELECT * FROM foo WHERE (a=1 OR b=2) AND k>3;", normalized.getQueryString());
+    }
+
+    @Test
+    public void testInvalidGroups() {
+        assertThrows(IllegalArgumentException.class, () -> or());
+        assertThrows(IllegalArgumentException.class, () -> and(Collections.emptyList()));
+        assertThrows(IllegalArgumentException.class, () -> or(eq("a", 1L), null));
+    }
+}
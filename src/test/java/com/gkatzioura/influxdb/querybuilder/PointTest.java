@@ -0,0 +1,117 @@
+/**
+ * MIT License
+ * <p>
+ * Copyright (c) 2018 Emmanouil Gkatziouras
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE
+ */
+
+package com.gkatzioura.influxdb.querybuilder;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import static com.gkatzioura.influxdb.querybuilder.QueryBuilder.point;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class PointTest {
+
+    @Test
+    public void testPoint() {
+        Point point = point("cpu").tag("host", "server01").field("value", 0.64).time(1434055562000000000L, TimeUnit.NANOSECONDS);
+
+        assertEquals("cpu,host=server01 value=0.64 1434055562000000000", point.toString());
+    }
+
+    @Test
+    public void testFieldTypes() {
+        Point point = point("cpu")
+                .field("f", 1.0)
+                .field("i", -42L)
+                .unsignedField("u", -1L)
+                .field("b", true)
+                .field("s", "idle");
+
+        assertEquals("cpu f=1.0,i=-42i,u=18446744073709551615u,b=t,s=\"idle\"", point.toString());
+    }
+
+    @Test
+    public void testEscaping() {
+        Point point = point("cpu load,x").tag("host name", "a=b,c").field("field=1", "say \"hi\" \\ bye");
+
+        assertEquals("cpu\\ load\\,x,host\\ name=a\\=b\\,c field\\=1=\"say \\\"hi\\\" \\\\ bye\"", point.toString());
+    }
+
+    @Test
+    public void testTags() {
+        Point point = point("cpu").tag("region", "eu").tag("host", "a").tag("empty", "").tag("az", "1").field("value", 1L);
+
+        assertEquals("cpu,az=1,host=a,region=eu value=1i", point.toString());
+    }
+
+    @Test
+    public void testPrecision() {
+        Point point = point("cpu").field("value", 1L).time(Instant.parse("2015-06-11T20:46:02.5Z"));
+
+        StringBuilder sb = new StringBuilder();
+        point.appendTo(sb, TimeUnit.MILLISECONDS);
+        assertEquals("cpu value=1i 1434055562500", sb.toString());
+    }
+
+    @Test
+    public void testWriteTo() {
+        ByteBuffer buffer = ByteBuffer.allocate(256);
+        Point point = point("cpu").tag("city", "S\u00e3o Paulo").field("note", "\ud83d\ude00").time(1, TimeUnit.SECONDS);
+
+        point.writeTo(buffer);
+        point.measurement("mem").field("free", 1L).writeTo(buffer, TimeUnit.SECONDS);
+
+        buffer.flip();
+        String lines = StandardCharsets.UTF_8.decode(buffer).toString();
+        assertEquals("cpu,city=S\u00e3o\\ Paulo note=\"\ud83d\ude00\" 1000000000\nmem free=1i\n", lines);
+    }
+
+    @Test
+    public void testReuse() {
+        Point point = point("cpu");
+        for (int i = 0; i < 10; i++) {
+            point.measurement("cpu").tag("host", "h" + i);
+            for (int j = 0; j < 6; j++) {
+                point.field("f" + j, (long) j);
+            }
+        }
+
+        assertEquals("cpu,host=h9 f0=0i,f1=1i,f2=2i,f3=3i,f4=4i,f5=5i", point.toString());
+    }
+
+    @Test
+    public void testInvalid() {
+        assertThrows(IllegalArgumentException.class, () -> point(""));
+        assertThrows(IllegalArgumentException.class, () -> point("cpu").field("value", Double.NaN));
+        assertThrows(IllegalArgumentException.class, () -> point("cpu").field("", 1L));
+        assertThrows(IllegalArgumentException.class, () -> point("cpu").tag("host", "a\nb").field("value", 1L).toString());
+        assertThrows(IllegalStateException.class, () -> point("cpu").tag("host", "a").toString());
+        assertEquals("cpu value=\"a\nb\"", point("cpu").field("value", "a\nb").toString());
+    }
+}
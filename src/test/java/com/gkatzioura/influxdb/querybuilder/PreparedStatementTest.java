@@ -0,0 +1,86 @@
+/**
+ * MIT License
+ * <p>
+ * Copyright (c) 2018 Emmanouil Gkatziouras
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE
+ */
+
+package com.gkatzioura.influxdb.querybuilder;
+
+import org.junit.jupiter.api.Test;
+
+import static com.gkatzioura.influxdb.querybuilder.QueryBuilder.bindMarker;
+import static com.gkatzioura.influxdb.querybuilder.QueryBuilder.eq;
+import static com.gkatzioura.influxdb.querybuilder.QueryBuilder.gt;
+import static com.gkatzioura.influxdb.querybuilder.QueryBuilder.lte;
+import static com.gkatzioura.influxdb.querybuilder.QueryBuilder.select;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class PreparedStatementTest {
+
+    @Test
+    public void testBind() {
+        PreparedStatement prepared = select().column("test1").from("testdb", "foo")
+                                             .where(eq("k", bindMarker()))
+                                             .and(gt("time", bindMarker()))
+                                             .and(lte("time", bindMarker()))
+                                             .prepare();
+
+        assertEquals(3, prepared.getBindMarkers());
+
+        BoundStatement bound = prepared.bind("a", 10L, 20L);
+        assertEquals("SELECT test1 FROM foo WHERE k='a' AND time>10 AND time<=20;", bound.getQueryString());
+        assertEquals("testdb", bound.getDatabase());
+
+        bound = prepared.bind("b", 30L, 40L);
+        assertEquals("SELECT test1 FROM foo WHERE k='b' AND time>30 AND time<=40;", bound.toString());
+    }
+
+    @Test
+    public void testBindMarkerRendering() {
+        Statement select = select().all().from("foo").where(eq("k", bindMarker()));
+        assertEquals("SELECT * FROM foo WHERE k=?;", select.toString());
+        assertEquals("SELECT * FROM foo WHERE k=?;", ((BuiltStatement) select).prepare().toString());
+    }
+
+    @Test
+    public void testQuestionMarksAreNotMarkers() {
+        PreparedStatement prepared = select().all().from("foo").where(eq("k", "?")).and(eq("c", bindMarker())).prepare();
+        assertEquals(1, prepared.getBindMarkers());
+        assertEquals("SELECT * FROM foo WHERE k='?' AND c=4;", prepared.bind(4).getQueryString());
+    }
+
+    @Test
+    public void testBoundStringsAreEscaped() {
+        PreparedStatement prepared = select().all().from("foo").where(eq("k", bindMarker())).and(gt("time", bindMarker())).prepare();
+        assertEquals("SELECT * FROM foo WHERE k='a\\'b' AND time>10;", prepared.bind("a'b", 10L).getQueryString());
+        assertEquals("SELECT * FROM foo WHERE k='\\' OR 1=1 OR k=\\'' AND time>10;", prepared.bind("' OR 1=1 OR k='", 10L).getQueryString());
+        assertEquals("SELECT * FROM foo WHERE k='a\\\\' AND time>10;", prepared.bind("a\\", 10L).toString());
+    }
+
+    @Test
+    public void testWrongNumberOfValues() {
+        PreparedStatement prepared = select().all().from("foo").where(eq("k", bindMarker())).prepare();
+        assertThrows(IllegalArgumentException.class, () -> prepared.bind());
+        assertThrows(IllegalArgumentException.class, () -> prepared.bind(1, 2));
+    }
+
+}
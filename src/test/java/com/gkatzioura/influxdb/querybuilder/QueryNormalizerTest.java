@@ -0,0 +1,135 @@
+/**
+ * MIT License
+ * <p>
+ * Copyright (c) 2018 Emmanouil Gkatziouras
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE
+ */
+
+package com.gkatzioura.influxdb.querybuilder;
+
+import java.time.Instant;
+
+import org.junit.jupiter.api.Test;
+
+import static com.gkatzioura.influxdb.querybuilder.QueryBuilder.bindMarker;
+import static com.gkatzioura.influxdb.querybuilder.QueryBuilder.eq;
+import static com.gkatzioura.influxdb.querybuilder.QueryBuilder.gt;
+import static com.gkatzioura.influxdb.querybuilder.QueryBuilder.gte;
+import static com.gkatzioura.influxdb.querybuilder.QueryBuilder.lt;
+import static com.gkatzioura.influxdb.querybuilder.QueryBuilder.lte;
+import static com.gkatzioura.influxdb.querybuilder.QueryBuilder.now;
+import static com.gkatzioura.influxdb.querybuilder.QueryBuilder.regex;
+import static com.gkatzioura.influxdb.querybuilder.QueryBuilder.select;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class QueryNormalizerTest {
+
+    @Test
+    public void testOrder() {
+        Select first = select().all().from("foo").where(eq("host", "a")).and(eq("region", "eu")).orderBy(QueryBuilder.desc());
+        Select second = select().all().from("foo").where(eq("region", "eu")).and(eq("\"host\"", "a")).orderBy(QueryBuilder.desc());
+
+        assertEquals("SELECT * FROM foo WHERE host='a' AND region='eu' ORDER BY time DESC;", QueryNormalizer.normalize(first).getQueryString());
+        assertEquals(QueryNormalizer.normalize(first).getQueryString(), QueryNormalizer.normalize(second).getQueryString());
+    }
+
+    @Test
+    public void testDuplicates() {
+        Select.Where select = select().all().from("foo").where(regex("host", "/^a/")).and(eq("k", 1)).and(regex("host", "/^a/")).and(eq("k", 1));
+
+        assertEquals("SELECT * FROM foo WHERE host =~ /^a/ AND k=1;", QueryNormalizer.normalize(select).getQueryString());
+    }
+
+    @Test
+    public void testQuotedNames() {
+        Select.Where select = select().all().from("foo")
+                                .where(eq("\"select\"", "a"))
+                                .and(eq("\"my host\"", "b"))
+                                .and(eq("\"1k\"", "c"))
+                                .and(eq(" \"k_2\"", "d"));
+
+        assertEquals("SELECT * FROM foo WHERE \"1k\"='c' AND \"my host\"='b' AND \"select\"='a' AND k_2='d';",
+                     QueryNormalizer.normalize(select).getQueryString());
+    }
+
+    @Test
+    public void testRanges() {
+        Select.Where select = select().all().from("foo")
+                                .where(gt("time", 10L))
+                                .and(gt("time", 20L))
+                                .and(gte("time", 20L))
+                                .and(lt("time", 100L))
+                                .and(lte("time", 50L))
+                                .and(gt("value", 0.5))
+                                .and(gte("value", 1L));
+
+        assertEquals("SELECT * FROM foo WHERE time<=50 AND time>20 AND value>=1;", QueryNormalizer.normalize(select).getQueryString());
+    }
+
+    @Test
+    public void testInstantRanges() {
+        Select.Where select = select().all().from("foo")
+                                .where(gte("time", Instant.parse("2018-01-01T00:00:00Z")))
+                                .and(gt("time", 1514764800000000000L))
+                                .and(lt("time", Instant.parse("2018-01-02T00:00:00Z")))
+                                .and(gt("time", now()));
+
+        assertEquals("SELECT * FROM foo WHERE time<'2018-01-02T00:00:00Z' AND time>1514764800000000000 AND time>now();",
+                     QueryNormalizer.normalize(select).getQueryString());
+    }
+
+    @Test
+    public void testEquality() {
+        Select.Where select = select().all().from("foo").where(eq("k", 5L)).and(gt("k", 1L)).and(lte("k", 5L));
+
+        assertEquals("SELECT * FROM foo WHERE k=5;", QueryNormalizer.normalize(select).getQueryString());
+    }
+
+    @Test
+    public void testContradictions() {
+        assertNull(QueryNormalizer.normalize(select().all().from("foo").where(gt("time", 20L)).and(lt("time", 10L))));
+        assertNull(QueryNormalizer.normalize(select().all().from("foo").where(gt("time", 10L)).and(lte("time", 10L))));
+        assertNull(QueryNormalizer.normalize(select().all().from("foo").where(eq("host", "a")).and(eq("host", "b"))));
+        assertNull(QueryNormalizer.normalize(select().all().from("foo").where(eq("k", 1L)).and(eq("k", 2.0))));
+        assertNull(QueryNormalizer.normalize(select().all().from("foo").where(eq("k", 5L)).and(lt("k", 5L))));
+        assertNull(QueryNormalizer.normalize(select().all().from("foo").where(eq("up", true)).and(eq("up", false))));
+
+        assertEquals("SELECT * FROM foo WHERE time<=10 AND time>=10;",
+                     QueryNormalizer.normalize(select().all().from("foo").where(gte("time", 10L)).and(lte("time", 10L))).getQueryString());
+        assertEquals("SELECT * FROM foo WHERE k=1 AND k=1.0;",
+                     QueryNormalizer.normalize(select().all().from("foo").where(eq("k", 1L)).and(eq("k", 1.0))).getQueryString());
+    }
+
+    @Test
+    public void testBindMarkers() {
+        ImmutableSelect normalized = QueryNormalizer.normalize(select().all().from("cpu").where(eq("zone", bindMarker())).and(eq("app", bindMarker())));
+        assertEquals("SELECT * FROM cpu WHERE zone='z1' AND app='a1';", normalized.prepare().bind("z1", "a1").getQueryString());
+
+        normalized = QueryNormalizer.normalize(select().all().from("cpu").where(eq("host", bindMarker())).and(eq("host", bindMarker())));
+        assertEquals(2, normalized.prepare().getBindMarkers());
+        assertEquals("SELECT * FROM cpu WHERE host='a' AND host='b';", normalized.prepare().bind("a", "b").getQueryString());
+    }
+
+    @Test
+    public void testWithoutClauses() {
+        assertEquals("SELECT * FROM foo;", QueryNormalizer.normalize(select().all().from("foo")).getQueryString());
+    }
+}
@@ -0,0 +1,192 @@
+/**
+ * MIT License
+ * <p>
+ * Copyright (c) 2018 Emmanouil Gkatziouras
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE
+ */
+
+package com.gkatzioura.influxdb.querybuilder;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+
+import static com.gkatzioura.influxdb.querybuilder.QueryBuilder.and;
+import static com.gkatzioura.influxdb.querybuilder.QueryBuilder.asc;
+import static com.gkatzioura.influxdb.querybuilder.QueryBuilder.column;
+import static com.gkatzioura.influxdb.querybuilder.QueryBuilder.contains;
+import static com.gkatzioura.influxdb.querybuilder.QueryBuilder.desc;
+import static com.gkatzioura.influxdb.querybuilder.QueryBuilder.eq;
+import static com.gkatzioura.influxdb.querybuilder.QueryBuilder.gt;
+import static com.gkatzioura.influxdb.querybuilder.QueryBuilder.gte;
+import static com.gkatzioura.influxdb.querybuilder.QueryBuilder.lt;
+import static com.gkatzioura.influxdb.querybuilder.QueryBuilder.lte;
+import static com.gkatzioura.influxdb.querybuilder.QueryBuilder.ne;
+import static com.gkatzioura.influxdb.querybuilder.QueryBuilder.nregex;
+import static com.gkatzioura.influxdb.querybuilder.QueryBuilder.now;
+import static com.gkatzioura.influxdb.querybuilder.QueryBuilder.or;
+import static com.gkatzioura.influxdb.querybuilder.QueryBuilder.raw;
+import static com.gkatzioura.influxdb.querybuilder.QueryBuilder.regex;
+import static com.gkatzioura.influxdb.querybuilder.QueryBuilder.select;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class QueryParserTest {
+
+    /**
+     * Parsing a built statement gives back the same statement
+     */
+    private static void assertRoundTrip(Select select) {
+        Select parsed = QueryParser.parse(select.getDatabase(), select.getQueryString());
+
+        assertEquals(select.buildQueryString().toString(), parsed.buildQueryString().toString());
+        assertEquals(select, parsed);
+        assertEquals(select.fingerprint(), parsed.fingerprint());
+    }
+
+    @Test
+    public void testRoundTripSelection() {
+        assertRoundTrip(select().all().from("testdb", "foo"));
+        assertRoundTrip(select("a", "b").from("foo"));
+        assertRoundTrip(select().countAll().from("foo"));
+        assertRoundTrip(select().column("host").distinct().from("foo"));
+        assertRoundTrip(select().mean("value").as("avg").max("value").min("value").sum("value").count("value").from("foo"));
+        assertRoundTrip(select().fcall("percentile", column("value"), 95L).as("p95").from("foo"));
+        assertEquals("SELECT top(value,3) FROM foo;", QueryParser.parse(select().raw("top(value,3)").from("foo").getQueryString()).getQueryString());
+        assertRoundTrip(select().column("my field").column("select").from("system load"));
+    }
+
+    @Test
+    public void testRoundTripClauses() {
+        assertRoundTrip(select().all().from("foo")
+                                .where(eq("host", "a b"))
+                                .and(ne("k", 1L))
+                                .and(lt("k", -1.5))
+                                .and(lte("k", 2L))
+                                .and(gte("k", 0.25))
+                                .and(eq("up", true))
+                                .and(ne("up", false))
+                                .and(gt("time", Instant.parse("2018-01-01T00:00:00.123Z")))
+                                .and(lt("time", now()))
+                                .and(gt("time", raw("now() - 1h")))
+                                .and(gt("elapsed", Duration.ofMinutes(90)))
+                                .and(regex("host", "/^server[0-9]+$/"))
+                                .and(nregex("host", "/a\\/b/"))
+                                .and(eq(Arrays.asList("a", "b"), Arrays.asList(1L, "c")))
+                                .and(eq("k", column("other")))
+                                .groupBy("host"));
+    }
+
+    @Test
+    public void testRoundTripEscapes() {
+        Select select = select().all().from("foo");
+        select.where(eq("host", "a'b")).and(eq("path", "c:\\d\\")).and(eq("note", "e\nf"));
+        assertEquals("SELECT * FROM foo WHERE host='a\\'b' AND path='c:\\\\d\\\\' AND note='e\\nf';", select.getQueryString());
+        assertRoundTrip(select);
+
+        assertEquals("SELECT * FROM foo WHERE host='a\\'b';", QueryParser.parse("SELECT * FROM foo WHERE host = 'a\\'b'").getQueryString());
+    }
+
+    @Test
+    public void testRoundTripModifiers() {
+        assertRoundTrip(select().all().from("foo").groupBy("host", "tag key").orderBy(desc()).limit(1000, 10));
+        assertRoundTrip(select().all().from("foo").orderBy(asc()).limit(5));
+        assertRoundTrip(select().mean("value").from("foo").groupBy(raw("*")));
+    }
+
+    @Test
+    public void testRawQuery() {
+        Select select = QueryParser.parse("testdb", "  select MEAN( \"value\" ) as m\nfrom cpu where host <> 'a b' and time >= '2018-01-01T00:00:00Z'"
+                + " and time < now()-1h30m group by host order by time desc limit 10 offset 0 ;  ");
+
+        assertEquals("SELECT MEAN(\"value\") AS m FROM cpu WHERE host!='a b' AND time>='2018-01-01T00:00:00Z' AND time<now() - 1h30m"
+                     + " GROUP BY host ORDER BY time DESC LIMIT 10;", select.getQueryString());
+        assertEquals("testdb", select.getDatabase());
+        assertTrue(select.toImmutable().getClauses().get(1) instanceof Clause.InstantClause);
+    }
+
+    @Test
+    public void testLiterals() {
+        assertEquals("SELECT * FROM foo WHERE a=1000.0 AND b=-3 AND c=1h AND d=false AND e='2018-01-01' AND f=?;",
+                     QueryParser.parse("SELECT * FROM foo WHERE a = 1e3 AND b = -3 AND c = 60m AND d = FALSE AND e = '2018-01-01' AND f = ?")
+                                .getQueryString());
+        assertEquals("SELECT * FROM foo WHERE host =~ /a/ AND host !~ /b/;",
+                     QueryParser.parse("SELECT * FROM foo WHERE host=~/a/ AND host !~ /b/").getQueryString());
+        assertEquals("SELECT * FROM \"autogen\".\"cpu\";", QueryParser.parse("SELECT * FROM autogen.cpu").getQueryString());
+        assertEquals("SELECT DISTINCT host FROM foo;", QueryParser.parse("SELECT DISTINCT(host) FROM foo").getQueryString());
+        assertEquals("SELECT value AS \"my value\" FROM foo;", QueryParser.parse("SELECT value AS \"my value\" FROM foo").getQueryString());
+        assertEquals(select().all().from("foo").where(contains("k", "a")).getQueryString(),
+                     QueryParser.parse("SELECT * FROM foo WHERE k =~ /*a*/").getQueryString());
+    }
+
+    @Test
+    public void testParsedStatement() {
+        Select select = QueryParser.parse("SELECT * FROM foo WHERE time >= '2018-01-01T00:00:00Z' AND time < '2018-01-03T00:00:00Z'");
+
+        assertEquals(2, new TimeRangeSplitter(Duration.ofDays(1)).split(select, 2).size());
+        assertNull(QueryNormalizer.normalize(QueryParser.parse("SELECT * FROM foo WHERE k > 2 AND k < 1")));
+    }
+
+    @Test
+    public void testRoundTripGroups() {
+        Select select = select().all().from("foo");
+        select.where(or(eq("a", 1L), eq("b", 2L)));
+        assertRoundTrip(select);
+
+        select = select().all().from("foo");
+        select.where(or(and(eq("a", 1L), regex("b", "/x/")), eq("c", "d"))).and(gt("k", 1L));
+        assertRoundTrip(select);
+
+        select = select().all().from("foo");
+        select.where(and(eq("a", 1L), or(eq("b", 2L), eq("c", 3L))));
+        assertRoundTrip(select);
+
+        select = select().all().from("foo");
+        select.where(eq(Arrays.asList("a", "b"), Arrays.asList(1L, 2L))).and(or(eq("c", 3L), eq("d", 4L)));
+        assertRoundTrip(select);
+
+        assertEquals("SELECT * FROM foo WHERE a=1 OR b=2 AND c=3;",
+                     QueryParser.parse("SELECT * FROM foo WHERE ((a = 1) OR (b = 2 AND (c = 3)))").getQueryString());
+    }
+
+    @Test
+    public void testInvalidQueries() {
+        assertThrows(IllegalArgumentException.class, () -> QueryParser.parse(null));
+        assertThrows(IllegalArgumentException.class, () -> QueryParser.parse(""));
+        assertThrows(IllegalArgumentException.class, () -> QueryParser.parse("DROP DATABASE foo"));
+        assertThrows(IllegalArgumentException.class, () -> QueryParser.parse("SELECT * FROM"));
+        assertThrows(IllegalArgumentException.class, () -> QueryParser.parse("SELECT * FROM foo WHERE a = 1 OR"));
+        assertThrows(IllegalArgumentException.class, () -> QueryParser.parse("SELECT * FROM foo WHERE (a = 1 OR b = 2"));
+        assertThrows(IllegalArgumentException.class, () -> QueryParser.parse("SELECT * FROM foo WHERE a = 'b"));
+        assertThrows(IllegalArgumentException.class, () -> QueryParser.parse("SELECT * FROM foo WHERE a =~ 'b'"));
+        assertThrows(IllegalArgumentException.class, () -> QueryParser.parse("SELECT * FROM foo WHERE a ~! /b/"));
+        assertThrows(IllegalArgumentException.class, () -> QueryParser.parse("SELECT * FROM foo WHERE a = 1x"));
+        assertThrows(IllegalArgumentException.class, () -> QueryParser.parse("SELECT * FROM foo ORDER BY host"));
+        assertThrows(IllegalArgumentException.class, () -> QueryParser.parse("SELECT * FROM foo LIMIT 0"));
+        assertThrows(IllegalArgumentException.class, () -> QueryParser.parse("SELECT * FROM foo; SELECT * FROM bar"));
+
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class, () -> QueryParser.parse("SELECT * FROM foo WHERE a ? 1"));
+        assertEquals("Expected an operator at position 26 of query SELECT * FROM foo WHERE a ? 1", exception.getMessage());
+    }
+}
@@ -0,0 +1,192 @@
+/**
+ * MIT License
+ * <p>
+ * Copyright (c) 2018 Emmanouil Gkatziouras
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE
+ */
+
+package com.gkatzioura.influxdb.querybuilder;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import org.junit.jupiter.api.Test;
+
+import static com.gkatzioura.influxdb.querybuilder.QueryBuilder.column;
+import static com.gkatzioura.influxdb.querybuilder.QueryBuilder.count;
+import static com.gkatzioura.influxdb.querybuilder.QueryBuilder.eq;
+import static com.gkatzioura.influxdb.querybuilder.QueryBuilder.fcall;
+import static com.gkatzioura.influxdb.querybuilder.QueryBuilder.gt;
+import static com.gkatzioura.influxdb.querybuilder.QueryBuilder.gte;
+import static com.gkatzioura.influxdb.querybuilder.QueryBuilder.lt;
+import static com.gkatzioura.influxdb.querybuilder.QueryBuilder.max;
+import static com.gkatzioura.influxdb.querybuilder.QueryBuilder.mean;
+import static com.gkatzioura.influxdb.querybuilder.QueryBuilder.or;
+import static com.gkatzioura.influxdb.querybuilder.QueryBuilder.raw;
+import static com.gkatzioura.influxdb.querybuilder.QueryBuilder.regex;
+import static com.gkatzioura.influxdb.querybuilder.QueryBuilder.select;
+import static com.gkatzioura.influxdb.querybuilder.QueryBuilder.sum;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class RollupRouterTest {
+
+    private static final Instant NOW = Instant.parse("2018-06-01T00:00:00Z");
+    private static final long NOW_NANOS = NOW.getEpochSecond() * 1_000_000_000L;
+
+    private final RollupRouter router = RollupRouter.builder()
+            .rollup("cpu", "rp_1m", "cpu_1m", Duration.ofMinutes(1), Duration.ofDays(30))
+            .field("usage_idle", RollupRouter.Aggregate.MEAN)
+            .field("usage_user", RollupRouter.Aggregate.MAX)
+            .tags("host", "region")
+            .rollup("cpu", "rp_1h", "cpu_1h", Duration.ofHours(1), null)
+            .field("usage_idle", RollupRouter.Aggregate.MEAN)
+            .tags("host")
+            .build();
+
+    private String route(ImmutableSelect select) {
+        return router.route(select, NOW_NANOS).getQueryString();
+    }
+
+    private void assertNotRouted(ImmutableSelect select) {
+        assertSame(select, router.route(select, NOW_NANOS));
+    }
+
+    @Test
+    public void testCoarsestRollup() {
+        assertEquals("SELECT MEAN(usage_idle) FROM \"rp_1h\".\"cpu_1h\" WHERE time>=now() - 30d GROUP BY time(1d),host;",
+                     route(select().mean("usage_idle").from("cpu").where(gte("time", raw("now() - 30d")))
+                                   .groupByTime(Duration.ofDays(1)).groupBy("host").toImmutable()));
+        assertEquals("SELECT MAX(usage_user) FROM \"rp_1m\".\"cpu_1m\" WHERE time>=now() - 7d GROUP BY time(1h);",
+                     route(select().max("usage_user").from("cpu").where(gte("time", raw("now() - 7d")))
+                                   .groupByTime(Duration.ofHours(1)).toImmutable()));
+        assertEquals("SELECT MEAN(usage_idle) FROM \"rp_1m\".\"cpu_1m\" WHERE time>=now() - 1h GROUP BY time(5m);",
+                     route(select().mean("usage_idle").from("cpu").where(gte("time", raw("now() - 1h")))
+                                   .groupByTime(Duration.ofMinutes(5)).toImmutable()));
+    }
+
+    @Test
+    public void testAggregates() {
+        assertEquals("SELECT MEAN(usage_idle),MAX(usage_user) FROM \"rp_1m\".\"cpu_1m\" WHERE time>=now() - 1d GROUP BY time(1h);",
+                     route(select(mean("usage_idle"), max("usage_user")).from("cpu").where(gte("time", raw("now() - 1d")))
+                                   .groupByTime(Duration.ofHours(1)).toImmutable()));
+
+        // the rollups hold the mean of usage_idle and the max of usage_user only
+        assertNotRouted(select().max("usage_idle").from("cpu").groupByTime(Duration.ofHours(1)).toImmutable());
+        assertNotRouted(select(sum("usage_idle")).from("cpu").groupByTime(Duration.ofHours(1)).toImmutable());
+        assertNotRouted(select(fcall("MEDIAN", column("usage_idle"))).from("cpu").groupByTime(Duration.ofHours(1)).toImmutable());
+        assertNotRouted(select(count("usage_idle")).from("cpu").groupByTime(Duration.ofHours(1)).toImmutable());
+        assertNotRouted(select().mean("usage_user").from("cpu").where(gte("time", raw("now() - 1d")))
+                                .groupByTime(Duration.ofHours(1)).toImmutable());
+        assertNotRouted(select(mean("usage_idle"), max("usage_idle")).from("cpu").groupByTime(Duration.ofHours(1)).toImmutable());
+    }
+
+    @Test
+    public void testRetention() {
+        assertNotRouted(select().max("usage_user").from("cpu").where(gte("time", raw("now() - 60d")))
+                                .groupByTime(Duration.ofHours(1)).toImmutable());
+        assertNotRouted(select().max("usage_user").from("cpu").groupByTime(Duration.ofHours(1)).toImmutable());
+        assertEquals("SELECT MEAN(usage_idle) FROM \"rp_1h\".\"cpu_1h\" GROUP BY time(1h);",
+                     route(select().mean("usage_idle").from("cpu").groupByTime(Duration.ofHours(1)).toImmutable()));
+        assertEquals("SELECT MAX(usage_user) FROM \"rp_1m\".\"cpu_1m\" WHERE time>='2018-05-20T00:00:00Z' AND time<'2018-05-21T00:00:00Z' GROUP BY time(10m);",
+                     route(select().max("usage_user").from("cpu")
+                                   .where(gte("time", Instant.parse("2018-05-20T00:00:00Z")))
+                                   .and(lt("time", Instant.parse("2018-05-21T00:00:00Z")))
+                                   .groupByTime(Duration.ofMinutes(10)).toImmutable()));
+    }
+
+    @Test
+    public void testStringTimeBounds() {
+        assertNotRouted(select().max("usage_user").from("cpu").where(gte("time", "2018-03-01T00:00:00Z"))
+                                .groupByTime(Duration.ofHours(1)).toImmutable());
+        assertEquals("SELECT MAX(usage_user) FROM \"rp_1m\".\"cpu_1m\" WHERE time>='2018-05-20T00:00:00Z' GROUP BY time(1h);",
+                     route(select().max("usage_user").from("cpu").where(gte("time", "2018-05-20T00:00:00Z"))
+                                   .groupByTime(Duration.ofHours(1)).toImmutable()));
+        assertEquals("SELECT MAX(usage_user) FROM \"rp_1m\".\"cpu_1m\" WHERE time>='2018-05-20T00:00:00Z' GROUP BY time(1h);",
+                     route(QueryParser.parse("SELECT MAX(usage_user) FROM cpu WHERE time >= '2018-05-20T00:00:00Z' GROUP BY time(1h)")
+                                      .toImmutable()));
+    }
+
+    @Test
+    public void testInterval() {
+        assertEquals("SELECT MEAN(usage_idle) FROM \"rp_1m\".\"cpu_1m\" WHERE time>=now() - 1d GROUP BY time(90m);",
+                     route(select().mean("usage_idle").from("cpu").where(gte("time", raw("now() - 1d")))
+                                   .groupByTime(Duration.ofMinutes(90)).toImmutable()));
+        assertEquals("SELECT MEAN(usage_idle) FROM \"rp_1m\".\"cpu_1m\" WHERE time>=now() - 1d GROUP BY time(1h,30m);",
+                     route(select().mean("usage_idle").from("cpu").where(gte("time", raw("now() - 1d")))
+                                   .groupByTime(Duration.ofHours(1), Duration.ofMinutes(30)).toImmutable()));
+        assertNotRouted(select().mean("usage_idle").from("cpu").where(gte("time", raw("now() - 1d")))
+                                .groupByTime(Duration.ofSeconds(30)).toImmutable());
+        assertNotRouted(select("usage_idle").from("cpu").where(gte("time", raw("now() - 1h"))).toImmutable());
+        assertNotRouted(select().mean("usage_idle").from("mem").groupByTime(Duration.ofHours(1)).toImmutable());
+    }
+
+    @Test
+    public void testTags() {
+        assertEquals("SELECT MEAN(usage_idle) FROM \"rp_1h\".\"cpu_1h\" WHERE host='a' OR host =~ /^b/ GROUP BY time(1h);",
+                     route(select().mean("usage_idle").from("cpu").where(or(eq("host", "a"), regex("host", "/^b/")))
+                                   .groupByTime(Duration.ofHours(1)).toImmutable()));
+        assertEquals("SELECT MEAN(usage_idle) AS idle FROM \"rp_1h\".\"cpu_1h\" GROUP BY time(1h);",
+                     route(select().mean("usage_idle").as("idle").from("\"cpu\"").groupByTime(Duration.ofHours(1)).toImmutable()));
+
+        // only the minute rollup keeps the region
+        assertEquals("SELECT MEAN(usage_idle) FROM \"rp_1m\".\"cpu_1m\" WHERE time>=now() - 1d AND region='eu' GROUP BY time(1h);",
+                     route(select().mean("usage_idle").from("cpu").where(gte("time", raw("now() - 1d"))).and(eq("region", "eu"))
+                                   .groupByTime(Duration.ofHours(1)).toImmutable()));
+        assertEquals("SELECT MEAN(usage_idle) FROM \"rp_1m\".\"cpu_1m\" WHERE time>=now() - 1d GROUP BY time(1h),region;",
+                     route(select().mean("usage_idle").from("cpu").where(gte("time", raw("now() - 1d")))
+                                   .groupByTime(Duration.ofHours(1)).groupBy("region").toImmutable()));
+        assertNotRouted(select().mean("usage_idle").from("cpu").where(eq("region", "eu")).groupByTime(Duration.ofHours(1)).toImmutable());
+
+        // filters on fields, held by the rollup or not, and unknown dimensions are not routed
+        assertNotRouted(select().mean("usage_idle").from("cpu").where(gt("usage_idle", 90.0))
+                                .groupByTime(Duration.ofHours(1)).toImmutable());
+        assertNotRouted(select().mean("usage_idle").from("cpu").where(gt("usage_system", 5L))
+                                .groupByTime(Duration.ofHours(1)).toImmutable());
+        assertNotRouted(select().mean("usage_idle").from("cpu").groupByTime(Duration.ofHours(1)).groupBy(raw("*")).toImmutable());
+    }
+
+    @Test
+    public void testSubquery() {
+        ImmutableSelect inner = select().mean("usage_idle").as("idle").from("telegraf", "cpu")
+                                        .groupByTime(Duration.ofHours(1)).toImmutable();
+        assertEquals("SELECT MAX(idle) FROM (SELECT MEAN(usage_idle) AS idle FROM \"rp_1h\".\"cpu_1h\" GROUP BY time(1h));",
+                     route(select().max("idle").from(inner).toImmutable()));
+
+        assertNotRouted(select().max("idle").from(select().mean("usage_idle").as("idle").from("telegraf", "mem")
+                                                           .groupByTime(Duration.ofHours(1))).toImmutable());
+    }
+
+    @Test
+    public void testInvalidRollup() {
+        assertThrows(IllegalArgumentException.class,
+                     () -> RollupRouter.builder().rollup("cpu", "rp", "cpu_1m", Duration.ZERO, null));
+        assertThrows(IllegalArgumentException.class,
+                     () -> RollupRouter.builder().rollup("cpu", "r\"p", "cpu_1m", Duration.ofMinutes(1), null));
+        assertThrows(IllegalArgumentException.class,
+                     () -> RollupRouter.builder().rollup("cpu", "rp", "cpu_1m", Duration.ofMinutes(1), null)
+                                       .field("value", RollupRouter.Aggregate.MEAN).field("value", RollupRouter.Aggregate.MAX));
+        assertThrows(IllegalStateException.class,
+                     () -> RollupRouter.builder().field("value", RollupRouter.Aggregate.MEAN));
+        assertThrows(IllegalStateException.class,
+                     () -> RollupRouter.builder().rollup("cpu", "rp", "cpu_1m", Duration.ofMinutes(1), null).build());
+    }
+}
@@ -26,8 +26,11 @@ package com.gkatzioura.influxdb.querybuilder;
 
 import org.junit.jupiter.api.Test;
 
+import static com.gkatzioura.influxdb.querybuilder.QueryBuilder.desc;
+import static com.gkatzioura.influxdb.querybuilder.QueryBuilder.eq;
 import static com.gkatzioura.influxdb.querybuilder.QueryBuilder.select;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
 
 public class SelectTest {
 
@@ -108,4 +111,31 @@ public class SelectTest {
         assertEquals(query,select.toString());
     }
 
+    @Test
+    public void testQueryStringCached() {
+        Statement select = select().column("test1").from("foo");
+        assertSame(select.getQueryString(), select.toString());
+    }
+
+    @Test
+    public void testCacheInvalidation() {
+        Select select = select().column("test1").from("foo");
+        assertEquals("SELECT test1 FROM foo;", select.toString());
+
+        Select.Where where = select.where(eq("test2", 1));
+        assertEquals("SELECT test1 FROM foo WHERE test2=1;", select.toString());
+
+        where.and(eq("test3", 2));
+        assertEquals("SELECT test1 FROM foo WHERE test2=1 AND test3=2;", where.toString());
+
+        select.groupBy("test4");
+        assertEquals("SELECT test1 FROM foo WHERE test2=1 AND test3=2 GROUP BY test4;", where.getQueryString());
+
+        where.orderBy(desc());
+        assertEquals("SELECT test1 FROM foo WHERE test2=1 AND test3=2 GROUP BY test4 ORDER BY time DESC;", select.getQueryString());
+
+        where.limit(1);
+        assertEquals("SELECT test1 FROM foo WHERE test2=1 AND test3=2 GROUP BY test4 ORDER BY time DESC LIMIT 1;", select.toString());
+    }
+
 }
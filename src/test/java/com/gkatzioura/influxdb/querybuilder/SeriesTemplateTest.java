@@ -0,0 +1,98 @@
+/**
+ * MIT License
+ * <p>
+ * Copyright (c) 2018 Emmanouil Gkatziouras
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE
+ */
+
+package com.gkatzioura.influxdb.querybuilder;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import static com.gkatzioura.influxdb.querybuilder.QueryBuilder.point;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class SeriesTemplateTest {
+
+    @Test
+    public void testTemplate() {
+        Map<String, String> tags = new HashMap<>();
+        tags.put("region", "us west");
+        tags.put("host", "server01");
+        SeriesTemplate template = SeriesTemplate.of("cpu load", tags);
+
+        assertEquals("cpu\\ load,host=server01,region=us\\ west", template.toString());
+
+        Point templated = point("cpu").series(template).field("value", 0.5).time(10, TimeUnit.SECONDS);
+        Point full = point("cpu load").tag("region", "us west").tag("host", "server01").field("value", 0.5).time(10, TimeUnit.SECONDS);
+        assertEquals(full.toString(), templated.toString());
+    }
+
+    @Test
+    public void testWriteTo() {
+        SeriesTemplate template = SeriesTemplate.of("cpu", Collections.singletonMap("city", "S\u00e3o Paulo"));
+        Point point = point("cpu");
+
+        ByteBuffer buffer = ByteBuffer.allocate(256);
+        point.series(template).field("value", 1L).time(1, TimeUnit.SECONDS).writeTo(buffer, TimeUnit.SECONDS);
+        point.series(template).field("value", 2L).writeTo(buffer);
+
+        buffer.flip();
+        assertEquals("cpu,city=S\u00e3o\\ Paulo value=1i 1\ncpu,city=S\u00e3o\\ Paulo value=2i\n",
+                StandardCharsets.UTF_8.decode(buffer).toString());
+    }
+
+    @Test
+    public void testTemplatedPoint() {
+        Point point = point("cpu").series(SeriesTemplate.of("cpu", Collections.singletonMap("host", "a")));
+
+        assertThrows(IllegalStateException.class, () -> point.tag("region", "eu"));
+        assertThrows(IllegalStateException.class, () -> point.writeTo(ByteBuffer.allocate(64)));
+        assertEquals("mem,host=b free=1i", point.measurement("mem").tag("host", "b").field("free", 1L).toString());
+    }
+
+    @Test
+    public void testCache() {
+        SeriesTemplateCache cache = new SeriesTemplateCache(2);
+
+        SeriesTemplate a = cache.get("cpu", Collections.singletonMap("host", "a"));
+        assertSame(a, cache.get("cpu", new HashMap<>(Collections.singletonMap("host", "a"))));
+        SeriesTemplate b = cache.get("cpu", Collections.singletonMap("host", "b"));
+        cache.get("cpu", Collections.singletonMap("host", "a"));
+        cache.get("mem", Collections.singletonMap("host", "a"));
+
+        assertEquals(2, cache.size());
+        assertEquals(2, cache.getHits());
+        assertEquals(3, cache.getMisses());
+        assertEquals(1, cache.getEvictions());
+        assertSame(a, cache.get("cpu", Collections.singletonMap("host", "a")));
+        assertEquals(b.toString(), cache.get("cpu", Collections.singletonMap("host", "b")).toString());
+        assertEquals(4, cache.getMisses());
+    }
+}
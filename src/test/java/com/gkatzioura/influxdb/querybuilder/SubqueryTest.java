@@ -0,0 +1,124 @@
+/**
+ * MIT License
+ * <p>
+ * Copyright (c) 2018 Emmanouil Gkatziouras
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE
+ */
+
+package com.gkatzioura.influxdb.querybuilder;
+
+import java.io.IOException;
+
+import org.junit.jupiter.api.Test;
+
+import static com.gkatzioura.influxdb.querybuilder.QueryBuilder.bindMarker;
+import static com.gkatzioura.influxdb.querybuilder.QueryBuilder.eq;
+import static com.gkatzioura.influxdb.querybuilder.QueryBuilder.gt;
+import static com.gkatzioura.influxdb.querybuilder.QueryBuilder.raw;
+import static com.gkatzioura.influxdb.querybuilder.QueryBuilder.select;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class SubqueryTest {
+
+    private static Select inner() {
+        return select().mean("usage_idle").as("idle").from("telegraf", "cpu")
+                       .where(gt("time", raw("now() - 1h")))
+                       .groupBy(raw("time(1m)"), "host");
+    }
+
+    @Test
+    public void testSubquery() {
+        Select select = select().max("idle").from(inner());
+
+        assertEquals("SELECT MAX(idle) FROM (SELECT MEAN(usage_idle) AS idle FROM cpu WHERE time>now() - 1h GROUP BY time(1m),host);",
+                     select.getQueryString());
+        assertEquals("telegraf", select.getDatabase());
+    }
+
+    @Test
+    public void testNesting() {
+        Select select = select().column("idle").from(select().max("idle").as("idle").from(inner()).groupBy("host"));
+        select.where(gt("idle", 90L));
+
+        assertEquals("SELECT idle FROM (SELECT MAX(idle) AS idle FROM (SELECT MEAN(usage_idle) AS idle FROM cpu WHERE time>now() - 1h "
+                     + "GROUP BY time(1m),host) GROUP BY host) WHERE idle>90;", select.getQueryString());
+    }
+
+    @Test
+    public void testRenderedInner() throws IOException {
+        Select inner = inner();
+        String expected = select().max("idle").from(inner).getQueryString();
+
+        ImmutableSelect rendered = inner.toImmutable();
+        rendered.getQueryString();
+        assertEquals(expected, select().max("idle").from(rendered).getQueryString());
+
+        StringBuilder sb = new StringBuilder();
+        select().max("idle").from(rendered).appendTo(sb);
+        assertEquals(expected, sb.toString());
+    }
+
+    @Test
+    public void testPreparedOverRenderedInner() {
+        ImmutableSelect inner = select().mean("v").from("db", "m").where(eq("host", bindMarker())).groupBy(raw("time(1m)")).toImmutable();
+        assertEquals(1, select().max("mean").from(inner).prepare().getBindMarkers());
+
+        inner.getQueryString();
+        PreparedStatement prepared = select().max("mean").from(inner).prepare();
+        assertEquals(1, prepared.getBindMarkers());
+        assertEquals("SELECT MAX(mean) FROM (SELECT MEAN(v) FROM m WHERE host='a' GROUP BY time(1m));", prepared.bind("a").getQueryString());
+    }
+
+    @Test
+    public void testSnapshot() {
+        Select inner = select().all().from("cpu");
+        Select.Where where = inner.where(eq("host", "a"));
+        Select select = select().count("value").from(where);
+        inner.limit(10);
+
+        assertEquals("SELECT COUNT(value) FROM (SELECT * FROM cpu WHERE host='a');", select.getQueryString());
+    }
+
+    @Test
+    public void testEquality() {
+        assertEquals(select().max("idle").from(inner()), select().max("idle").from(inner()));
+        assertEquals(select().max("idle").from(inner()).fingerprint(), select().max("idle").from(inner()).fingerprint());
+        assertNotEquals(select().max("idle").from(inner()), select().max("idle").from(inner().limit(5)));
+        assertNotEquals(select().max("idle").from(inner()).fingerprint(), select().max("idle").from(inner().limit(5)).fingerprint());
+    }
+
+    @Test
+    public void testParse() {
+        Select select = select().column("idle").from(select().max("idle").as("idle").from(inner()).groupBy("host"))
+                                .where(gt("idle", 90L)).limit(3);
+        Select parsed = QueryParser.parse("telegraf", select.getQueryString());
+
+        assertEquals(select.getQueryString(), parsed.getQueryString());
+        assertEquals("telegraf", parsed.getDatabase());
+        assertThrows(IllegalArgumentException.class, () -> QueryParser.parse("SELECT * FROM (SELECT * FROM cpu"));
+    }
+
+    @Test
+    public void testMissingSubquery() {
+        assertThrows(IllegalArgumentException.class, () -> select().all().from((Select) null));
+    }
+}
@@ -0,0 +1,118 @@
+/**
+ * MIT License
+ * <p>
+ * Copyright (c) 2018 Emmanouil Gkatziouras
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE
+ */
+
+package com.gkatzioura.influxdb.querybuilder;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import static com.gkatzioura.influxdb.querybuilder.QueryBuilder.eq;
+import static com.gkatzioura.influxdb.querybuilder.QueryBuilder.gt;
+import static com.gkatzioura.influxdb.querybuilder.QueryBuilder.gte;
+import static com.gkatzioura.influxdb.querybuilder.QueryBuilder.lt;
+import static com.gkatzioura.influxdb.querybuilder.QueryBuilder.lte;
+import static com.gkatzioura.influxdb.querybuilder.QueryBuilder.select;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class TimeRangeSplitterTest {
+
+    @Test
+    public void testSplit() {
+        Select select = select().mean("k").from("foo")
+                                .where(gte("time", Instant.parse("2018-01-01T10:00:00Z")))
+                                .and(eq("host", "a"))
+                                .and(lte("time", Instant.parse("2018-01-04T00:00:00Z")))
+                                .groupBy("host");
+
+        List<ImmutableSelect> statements = new TimeRangeSplitter(Duration.ofDays(1)).split(select, 3);
+
+        assertEquals(3, statements.size());
+        assertEquals("SELECT MEAN(k) FROM foo WHERE host='a' AND time>='2018-01-01T10:00:00Z' AND time<'2018-01-02T00:00:00Z' GROUP BY host;",
+                     statements.get(0).getQueryString());
+        assertEquals("SELECT MEAN(k) FROM foo WHERE host='a' AND time>='2018-01-02T00:00:00Z' AND time<'2018-01-03T00:00:00Z' GROUP BY host;",
+                     statements.get(1).getQueryString());
+        assertEquals("SELECT MEAN(k) FROM foo WHERE host='a' AND time>='2018-01-03T00:00:00Z' AND time<='2018-01-04T00:00:00Z' GROUP BY host;",
+                     statements.get(2).getQueryString());
+    }
+
+    @Test
+    public void testStringBounds() {
+        Select.Where select = select().mean("k").from("foo")
+                                      .where(gte("time", "2020-01-01T00:00:00Z"))
+                                      .and(lt("time", "2020-01-03T00:00:00Z"))
+                                      .and(eq("host", "2020-01-02T00:00:00Z"));
+
+        List<ImmutableSelect> statements = new TimeRangeSplitter(Duration.ofDays(1)).split(select, 2);
+
+        assertEquals(2, statements.size());
+        assertEquals("SELECT MEAN(k) FROM foo WHERE host='2020-01-02T00:00:00Z' AND time>='2020-01-01T00:00:00Z' AND time<'2020-01-02T00:00:00Z';",
+                     statements.get(0).getQueryString());
+        assertEquals("SELECT MEAN(k) FROM foo WHERE host='2020-01-02T00:00:00Z' AND time>='2020-01-02T00:00:00Z' AND time<'2020-01-03T00:00:00Z';",
+                     statements.get(1).getQueryString());
+        Select parsed = QueryParser.parse("SELECT MEAN(k) FROM foo WHERE time >= '2020-01-01T00:00:00Z' AND time < '2020-01-03T00:00:00Z'");
+        assertEquals(2, new TimeRangeSplitter(Duration.ofDays(1)).split(parsed, 2).size());
+
+        assertThrows(IllegalArgumentException.class, () -> new TimeRangeSplitter(Duration.ofDays(1))
+                .split(select().all().from("foo").where(gte("time", "yesterday")).and(lt("time", "2020-01-03T00:00:00Z")), 2));
+    }
+
+    @Test
+    public void testAlignmentLimitsPieces() {
+        Select.Where select = select().all().from("foo")
+                                .where(gt("time", 0L))
+                                .and(lt("time", 10_000L));
+
+        List<ImmutableSelect> statements = new TimeRangeSplitter(Duration.ofNanos(3000)).split(select, 10);
+
+        assertEquals(4, statements.size());
+        assertEquals("SELECT * FROM foo WHERE time>0 AND time<3000;", statements.get(0).getQueryString());
+        assertEquals("SELECT * FROM foo WHERE time>=9000 AND time<10000;", statements.get(3).getQueryString());
+    }
+
+    @Test
+    public void testTightestBounds() {
+        Select.Where select = select().all().from("foo")
+                                .where(gt("time", 0L))
+                                .and(gte("time", 1000L))
+                                .and(lt("time", 4000L))
+                                .and(lt("time", 3000L));
+
+        List<ImmutableSelect> statements = new TimeRangeSplitter(Duration.ofNanos(1000)).split(select, 2);
+
+        assertEquals(2, statements.size());
+        assertEquals("SELECT * FROM foo WHERE time>=1000 AND time<2000;", statements.get(0).getQueryString());
+        assertEquals("SELECT * FROM foo WHERE time>=2000 AND time<3000;", statements.get(1).getQueryString());
+    }
+
+    @Test
+    public void testMissingBound() {
+        Select.Where select = select().all().from("foo").where(gt("time", 0L));
+        assertThrows(IllegalArgumentException.class, () -> new TimeRangeSplitter(Duration.ofHours(1)).split(select, 2));
+    }
+
+}
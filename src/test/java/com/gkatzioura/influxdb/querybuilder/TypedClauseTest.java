@@ -0,0 +1,155 @@
+/**
+ * MIT License
+ * <p>
+ * Copyright (c) 2018 Emmanouil Gkatziouras
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE
+ */
+
+package com.gkatzioura.influxdb.querybuilder;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.format.DateTimeFormatter;
+
+import org.junit.jupiter.api.Test;
+
+import static com.gkatzioura.influxdb.querybuilder.QueryBuilder.eq;
+import static com.gkatzioura.influxdb.querybuilder.QueryBuilder.gt;
+import static com.gkatzioura.influxdb.querybuilder.QueryBuilder.gte;
+import static com.gkatzioura.influxdb.querybuilder.QueryBuilder.lt;
+import static com.gkatzioura.influxdb.querybuilder.QueryBuilder.ne;
+import static com.gkatzioura.influxdb.querybuilder.QueryBuilder.select;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class TypedClauseTest {
+
+    @Test
+    public void testPrimitives() {
+        String query = "SELECT * FROM foo WHERE k=4 AND c>=-90.5 AND d!=true AND e<1514764800000000000;";
+        Statement select = select().all().from("foo")
+                                   .where(eq("k", 4))
+                                   .and(gte("c", -90.5))
+                                   .and(ne("d", true))
+                                   .and(lt("e", 1514764800000000000L));
+        assertEquals(query, select.toString());
+    }
+
+    @Test
+    public void testInstant() {
+        String query = "SELECT * FROM foo WHERE time>='2018-01-01T00:00:00Z' AND time<'2018-01-01T10:20:30.0005Z';";
+        Statement select = select().all().from("foo")
+                                   .where(gte("time", Instant.parse("2018-01-01T00:00:00Z")))
+                                   .and(lt("time", Instant.parse("2018-01-01T10:20:30.000500Z")));
+        assertEquals(query, select.toString());
+    }
+
+    @Test
+    public void testInstantLiterals() throws IOException {
+        long[] seconds = {0, -1, 951782400, 4102444799L, -62135596800L, -62167219200L, 253402300799L};
+        for (long second : seconds) {
+            Instant instant = Instant.ofEpochSecond(second, 123456789);
+            StringBuilder out = new StringBuilder();
+            Appender.appendInstant(instant, (java.lang.Appendable) out);
+            assertEquals("'" + DateTimeFormatter.ISO_INSTANT.format(instant) + "'", out.toString());
+        }
+        assertThrows(IllegalArgumentException.class, () -> gt("time", Instant.ofEpochSecond(253402300800L)));
+        assertThrows(IllegalArgumentException.class, () -> gt("time", Instant.ofEpochSecond(-62167219201L)));
+        assertThrows(IllegalArgumentException.class, () -> gt("time", Duration.ofHours(-1)));
+    }
+
+    @Test
+    public void testDuration() {
+        String query = "SELECT * FROM foo WHERE a>2h AND b>90m AND c>1500ms AND d>10u AND e>1ns AND f>2w AND g>0s;";
+        Statement select = select().all().from("foo")
+                                   .where(gt("a", Duration.ofHours(2)))
+                                   .and(gt("b", Duration.ofMinutes(90)))
+                                   .and(gt("c", Duration.ofMillis(1500)))
+                                   .and(gt("d", Duration.ofNanos(10000)))
+                                   .and(gt("e", Duration.ofNanos(1)))
+                                   .and(gt("f", Duration.ofDays(14)))
+                                   .and(gt("g", Duration.ZERO));
+        assertEquals(query, select.toString());
+    }
+
+    @Test
+    public void testAppendLong() throws IOException {
+        long[] values = {0, 7, -7, 10, 1234567890123L, Long.MAX_VALUE, Long.MIN_VALUE};
+        for (long value : values) {
+            StringBuilder out = new StringBuilder();
+            Appender.appendLong(value, new FormattedOutput(out));
+            assertEquals(Long.toString(value), out.toString());
+        }
+    }
+
+    @Test
+    public void testDoublesInPlainNotation() throws IOException {
+        assertEquals("SELECT * FROM foo WHERE a>10000000000.0 AND b<0.00001 AND c=-12345678.9;",
+                     select().all().from("foo").where(gt("a", 1e10)).and(lt("b", 1e-5)).and(eq("c", -12345678.9)).getQueryString());
+
+        double[] values = {0.0, -0.0, 1.0, 0.001, 0.00012345, 1e7, 1.2345678901234567e7, 1e22, -2.5e-7, Double.MAX_VALUE, Double.MIN_VALUE};
+        for (double value : values) {
+            StringBuilder out = new StringBuilder();
+            Appender.appendDouble(value, new FormattedOutput(out));
+            assertEquals(-1, out.indexOf("E"), out.toString());
+            assertEquals(0, new BigDecimal(Double.toString(value)).compareTo(new BigDecimal(out.toString())), out.toString());
+        }
+    }
+
+    @Test
+    public void testNonFiniteDoubles() {
+        assertThrows(IllegalArgumentException.class, () -> eq("a", Double.NaN));
+        assertThrows(IllegalArgumentException.class, () -> gt("a", Double.POSITIVE_INFINITY));
+        assertThrows(IllegalArgumentException.class, () -> lt("a", Double.NEGATIVE_INFINITY));
+    }
+
+    /**
+     * An output other than a StringBuilder, so that the digits are written one by one
+     */
+    private static class FormattedOutput implements java.lang.Appendable {
+
+        private final StringBuilder sb;
+
+        private FormattedOutput(StringBuilder sb) {
+            this.sb = sb;
+        }
+
+        @Override
+        public java.lang.Appendable append(CharSequence csq) {
+            sb.append(csq);
+            return this;
+        }
+
+        @Override
+        public java.lang.Appendable append(CharSequence csq, int start, int end) {
+            sb.append(csq, start, end);
+            return this;
+        }
+
+        @Override
+        public java.lang.Appendable append(char c) {
+            sb.append(c);
+            return this;
+        }
+    }
+
+}